@@ -0,0 +1,115 @@
+package com.ibadalrahman.app;
+
+import android.content.Context;
+import android.widget.RemoteViews;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Microbenchmarks for the native paths that run without the WebView: a week's schedule from JS,
+ * restoration after boot, and the widget's state and views. Run on a device with
+ * {@code ./gradlew :app:connectedBenchmarkAndroidTest -PbenchmarkBuild}; results land in
+ * app/build/outputs/connected_android_test_additional_output. They replace the app's alarms and
+ * prayer settings, so use a test device.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SchedulingBenchmark {
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private Context context;
+
+    @Before
+    public void setUp() throws Exception {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        // Cairo, Egyptian General Authority, every prayer
+        new PrayerSettings(30.0444, 31.2357, 5, "shafi", 0x1F, "adhan_makkah", true).save(context);
+        clear();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        clear();
+    }
+
+    private void clear() throws Exception {
+        AdhanScheduler.replace(context, new JSONArray(), System.currentTimeMillis());
+    }
+
+    private static JSONArray week(long now) throws Exception {
+        String[] names = {"fajr", "dhuhr", "asr", "maghrib", "isha"};
+        JSONArray alarms = new JSONArray();
+        for (int day = 0; day < AdhanScheduler.DEFAULT_HORIZON_DAYS; day++) {
+            for (int slot = 0; slot < names.length; slot++) {
+                JSONObject alarm = new JSONObject();
+                alarm.put("prayerName", names[slot] + "_" + day);
+                alarm.put("timestamp", now + HOUR + day * 24 * HOUR + slot * 3 * HOUR);
+                alarm.put("soundName", "adhan_makkah");
+                alarms.put(alarm);
+            }
+        }
+        return alarms;
+    }
+
+    /** A week from JS onto an empty table: 35 PendingIntents and AlarmManager calls. */
+    @Test
+    public void scheduleWeek() throws Exception {
+        long now = System.currentTimeMillis();
+        JSONArray week = week(now);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            clear();
+            state.resumeTiming();
+            AdhanScheduler.replace(context, week, now);
+        }
+    }
+
+    /** The same week pushed again, as JS does on every launch; nothing should be re-armed. */
+    @Test
+    public void rescheduleUnchangedWeek() throws Exception {
+        long now = System.currentTimeMillis();
+        JSONArray week = week(now);
+        AdhanScheduler.replace(context, week, now);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            AdhanScheduler.replace(context, week, now);
+        }
+    }
+
+    /** What BootReceiver does after a reboot with an empty table: compute and arm the horizon. */
+    @Test
+    public void bootRestore() throws Exception {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            clear();
+            state.resumeTiming();
+            AdhanScheduler.restore(context);
+        }
+    }
+
+    /** One widget render without the host IPC: state from prefs and native times, then full views. */
+    @Test
+    public void widgetRender() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            PrayerWidgetProvider.Snapshot snapshot = PrayerWidgetProvider.snapshot(context, System.currentTimeMillis());
+            RemoteViews views = PrayerWidgetProvider.buildFullViews(context, snapshot.state);
+            if (views == null) throw new AssertionError();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.ibadalrahman.app;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What AdhanService plays and in what order. Every command goes through here on the service's
+ * main thread, so two alarms, a preview and a STOP arriving together are handled one at a time
+ * instead of racing each other. Plain Java.
+ *
+ * <p>An Adhan that fires while another plays waits its turn; the same prayer firing twice is
+ * dropped. A preview never interrupts an Adhan, and a new Adhan replaces a preview.
+ */
+final class AdhanQueue {
+    static final int PLAY = 0;
+    static final int PREVIEW = 1;
+
+    // Past the clip's own length, for the decoder to start and the notification to go
+    static final long WAKE_LOCK_MARGIN_MS = 15 * 1000L;
+    // Held while the clip length is still unknown, and in place of it if the player can't say
+    static final long UNKNOWN_DURATION_MS = 10 * 60 * 1000L;
+
+    static final class Command {
+        final int type;
+        // AlarmStore slot; SLOT_ADHOC for test alarms and previews
+        final int slot;
+        final String soundName;
+        // SystemClock.elapsedRealtime() when the alarm fired, or 0
+        final long firedAt;
+        // AlarmJournal record, or -1
+        final long journalSequence;
+
+        Command(int type, int slot, String soundName, long firedAt, long journalSequence) {
+            this.type = type;
+            this.slot = slot;
+            this.soundName = soundName;
+            this.firedAt = firedAt;
+            this.journalSequence = journalSequence;
+        }
+
+        boolean samePrayer(Command other) {
+            return type == PLAY && other.type == PLAY
+                    && slot != AlarmStore.SLOT_ADHOC && slot == other.slot;
+        }
+    }
+
+    private final ArrayDeque<Command> waiting = new ArrayDeque<>();
+    private Command current;
+
+    Command current() {
+        return current;
+    }
+
+    boolean isIdle() {
+        return current == null;
+    }
+
+    /**
+     * Queues {@code command}; returns it if it should start now (replacing whatever preview is
+     * current), or null if it waits or was dropped. {@code dropped} receives any Adhan this
+     * discards so its journal record can be closed.
+     */
+    Command offer(Command command, List<Command> dropped) {
+        if (command.type == PREVIEW) {
+            if (current != null && current.type == PLAY) return null;
+            current = command;
+            return command;
+        }
+        if (current != null && current.samePrayer(command)) {
+            dropped.add(command);
+            return null;
+        }
+        for (Command queued : waiting) {
+            if (queued.samePrayer(command)) {
+                dropped.add(command);
+                return null;
+            }
+        }
+        if (current == null || current.type == PREVIEW) {
+            current = command;
+            return command;
+        }
+        waiting.add(command);
+        return null;
+    }
+
+    /** The current command ended; returns the next one to start, or null when the queue is empty. */
+    Command finished() {
+        current = waiting.poll();
+        return current;
+    }
+
+    /** Empties the queue for STOP, returning the Adhans that were waiting. */
+    List<Command> clear() {
+        List<Command> cleared = new ArrayList<>(waiting);
+        waiting.clear();
+        current = null;
+        return cleared;
+    }
+
+    /** How long to hold the wake lock for a clip of {@code durationMs}, or 0 if it is unknown. */
+    static long wakeLockMs(long durationMs) {
+        return (durationMs > 0 ? durationMs : UNKNOWN_DURATION_MS) + WAKE_LOCK_MARGIN_MS;
+    }
+}
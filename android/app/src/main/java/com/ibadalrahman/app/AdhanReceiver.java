@@ -1,28 +1,116 @@
 package com.ibadalrahman.app;
 
+import android.app.AlarmManager;
+import android.app.usage.UsageStatsManager;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
 import android.util.Log;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 public class AdhanReceiver extends BroadcastReceiver {
     private static final String TAG = "AdhanReceiver";
+    // Under the 10 s a goAsync() receiver gets; decoding usually takes a few seconds
+    private static final long PRELOAD_TIMEOUT_MS = 9_000;
 
     @Override
     public void onReceive(Context context, Intent intent) {
-        String prayerName = intent.getStringExtra("prayerName");
+        long firedAt = SystemClock.elapsedRealtime();
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+
+        if (AdhanScheduler.ACTION_PRELOAD.equals(intent.getAction())) {
+            preload(context, intent.getStringExtra("soundName"));
+            return;
+        }
+        if (PrayerReminders.ACTION_REMINDER.equals(intent.getAction())) {
+            PrayerReminders.onAlarm(context, intent);
+            return;
+        }
+
+        int slot = prayerSlot(intent);
         String soundName = intent.getStringExtra("soundName");
-        Log.d(TAG, "Adhan received for: " + prayerName);
+        Log.d(TAG, "Adhan received for slot " + slot);
 
-        Intent serviceIntent = new Intent(context, AdhanService.class);
-        serviceIntent.putExtra("prayerName", prayerName);
+        Intent serviceIntent = new Intent(context, AdhanService.class).setAction(AdhanService.ACTION_PLAY);
+        serviceIntent.putExtra("prayerSlot", slot);
         serviceIntent.putExtra("soundName", soundName);
+        serviceIntent.putExtra("firedAt", firedAt);
+        serviceIntent.putExtra("journalSequence", journalFired(context, intent));
 
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             context.startForegroundService(serviceIntent);
         } else {
             context.startService(serviceIntent);
         }
+
+        if (AdhanScheduler.isRollingMode(context)) {
+            int next = AdhanScheduler.armNext(context, alarmManager);
+            Log.d(TAG, "Next rolling Adhan: " + next);
+        }
+        AdhanScheduler.armPreload(context, alarmManager);
+    }
+
+    /**
+     * Decoding or preparing runs on other threads after onReceive returns; keep the broadcast
+     * pending and the CPU awake until it's done, or until {@link #PRELOAD_TIMEOUT_MS}.
+     */
+    private void preload(Context context, String soundName) {
+        Log.d(TAG, "Preloading next Adhan");
+        PendingResult result = goAsync();
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        PowerManager.WakeLock wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "PrayerCompanion:AdhanPreload");
+        wakeLock.acquire(PRELOAD_TIMEOUT_MS);
+
+        AtomicBoolean finished = new AtomicBoolean();
+        Runnable finish = () -> {
+            if (!finished.compareAndSet(false, true)) return;
+            if (wakeLock.isHeld()) wakeLock.release();
+            result.finish();
+        };
+        new Handler(Looper.getMainLooper()).postDelayed(finish, PRELOAD_TIMEOUT_MS);
+        AdhanService.preload(context, soundName, finish);
+    }
+
+    private static int prayerSlot(Intent intent) {
+        int slot = intent.getIntExtra("prayerSlot", -1);
+        if (slot >= 0) return slot;
+        // Armed by a build that only sent the name; restore re-arms everything after an update
+        int alarmId = intent.getIntExtra("alarmId", AlarmStore.NONE);
+        return alarmId != AlarmStore.NONE ? AlarmStore.slotOf(alarmId) : AlarmStore.slotForName(intent.getStringExtra("prayerName"));
+    }
+
+    /** Starts this alarm's telemetry record; returns its sequence, or -1 without a journal. */
+    private static long journalFired(Context context, Intent intent) {
+        AlarmJournal journal = AdhanScheduler.journal(context);
+        if (journal == null) return -1;
+        long now = System.currentTimeMillis();
+        int alarmId = intent.getIntExtra("alarmId", AlarmStore.NONE);
+        // Alarms armed before the extra existed carry only their ID
+        long scheduledAt = intent.getLongExtra("scheduledAt", 0);
+        if (scheduledAt == 0 && alarmId != AlarmStore.NONE) scheduledAt = AdhanScheduler.store(context).time(alarmId);
+        if (scheduledAt == 0) scheduledAt = now;
+        return journal.fired(alarmId, scheduledAt, now, standbyBucket(context), powerFlags(context));
+    }
+
+    private static int standbyBucket(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.P) return AlarmJournal.BUCKET_UNKNOWN;
+        UsageStatsManager usageStats = (UsageStatsManager) context.getSystemService(Context.USAGE_STATS_SERVICE);
+        return usageStats != null ? usageStats.getAppStandbyBucket() : AlarmJournal.BUCKET_UNKNOWN;
+    }
+
+    private static int powerFlags(Context context) {
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        if (powerManager == null) return 0;
+        int flags = 0;
+        if (powerManager.isDeviceIdleMode()) flags |= AlarmJournal.FLAG_DEVICE_IDLE;
+        if (powerManager.isPowerSaveMode()) flags |= AlarmJournal.FLAG_POWER_SAVE;
+        if (powerManager.isIgnoringBatteryOptimizations(context.getPackageName())) flags |= AlarmJournal.FLAG_BATTERY_EXEMPT;
+        return flags;
     }
 }
@@ -0,0 +1,81 @@
+package com.ibadalrahman.app;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+/**
+ * Daily top-up of the Adhan schedule, so alarms keep coming when the app isn't opened for longer
+ * than the horizon JS schedules. Runs only while the device is idle and charging, computes the
+ * missing days natively and arms them in one pass; see {@link AdhanScheduler#topUp}.
+ */
+public class AdhanRefillJob extends JobService {
+    private static final String TAG = "AdhanRefillJob";
+
+    private static final int JOB_ID = 0xAD50;
+    private static final long PERIOD_MS = 24 * 60 * 60 * 1000L;
+    // Lets the system fold the run into an overnight maintenance window
+    private static final long FLEX_MS = 6 * 60 * 60 * 1000L;
+
+    /** Schedules the periodic job unless it already is, so app launches don't push it back. */
+    public static void schedule(Context context) {
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (scheduler == null || isScheduled(scheduler)) return;
+
+        JobInfo.Builder builder = new JobInfo.Builder(JOB_ID, new ComponentName(context, AdhanRefillJob.class))
+                .setRequiresDeviceIdle(true)
+                .setRequiresCharging(true)
+                .setPersisted(true);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            builder.setPeriodic(PERIOD_MS, FLEX_MS);
+        } else {
+            builder.setPeriodic(PERIOD_MS);
+        }
+        if (scheduler.schedule(builder.build()) != JobScheduler.RESULT_SUCCESS) {
+            Log.w(TAG, "Refill job rejected");
+        }
+    }
+
+    public static void cancel(Context context) {
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (scheduler != null) scheduler.cancel(JOB_ID);
+    }
+
+    private static boolean isScheduled(JobScheduler scheduler) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            return scheduler.getPendingJob(JOB_ID) != null;
+        }
+        for (JobInfo job : scheduler.getAllPendingJobs()) {
+            if (job.getId() == JOB_ID) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        Context context = getApplicationContext();
+        // Same queue as boot restores, so the two never interleave on the table
+        BootReceiver.executor.execute(() -> {
+            try {
+                int added = AdhanScheduler.topUp(context, System.currentTimeMillis());
+                Log.d(TAG, "Refilled " + added + " Adhans");
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error refilling alarms", e);
+            } finally {
+                jobFinished(params, false);
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // The top-up finishes anyway; the next period picks up anything it missed
+        return false;
+    }
+}
@@ -0,0 +1,599 @@
+package com.ibadalrahman.app;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * Shared AlarmManager plumbing for Adhan alarms, used by WidgetPlugin, AdhanReceiver and
+ * BootReceiver. The schedule itself lives in {@link AlarmStore}; its IDs are the request codes.
+ */
+public final class AdhanScheduler {
+    private static final String TAG = "AdhanScheduler";
+
+    static final String STORE_FILE = "adhan_alarms.bin";
+    static final String JOURNAL_FILE = "alarm_journal.bin";
+
+    // How far ahead JS schedules, and what restoration and the refill job fill the table up to
+    // unless JS configures another horizon
+    public static final int DEFAULT_HORIZON_DAYS = 7;
+    static final int MAX_HORIZON_DAYS = 30;
+    private static final String KEY_HORIZON = "horizonDays";
+    private static final String KEY_LAST_REFILL = "lastRefill";
+    // A stored Adhan this close to a computed one is the same prayer, whatever day its ID says
+    private static final long SAME_PRAYER_MS = 6 * 60 * 60 * 1000L;
+
+    // Pre-AlarmStore schedule: time_<name>/sound_<name> keys with prayerName.hashCode() request codes
+    private static final String LEGACY_PREFS_NAME = "AdhanAlarms";
+    private static final String LEGACY_TIME_PREFIX = "time_";
+    private static final String LEGACY_SOUND_PREFIX = "sound_";
+
+    // "Next alarm only" mode: a single PendingIntent always points at the nearest stored Adhan,
+    // and AdhanReceiver re-arms it for the following one when it fires.
+    private static final String KEY_ROLLING = "rollingAlarms";
+    private static final int ROLLING_REQUEST_CODE = 0xAD4A;
+
+    // Shortly before the next Adhan, AdhanReceiver is woken to prepare its sound so playback
+    // starts without decoder setup when the real alarm fires.
+    public static final String ACTION_PRELOAD = "com.ibadalrahman.app.PRELOAD_ADHAN";
+    private static final int PRELOAD_REQUEST_CODE = 0xAD4B;
+    private static final long PRELOAD_LEAD_MS = 60 * 1000L;
+
+    // A snoozed Adhan comes back through AdhanReceiver like any other, under its own request code
+    private static final int SNOOZE_REQUEST_CODE = 0xAD4C;
+
+    private static AlarmStore store;
+    // What the alarm path shares before the first unlock; dropped for a migrated reload after it
+    private static AlarmStore lockedStore;
+    private static AlarmJournal journal;
+
+    private AdhanScheduler() {}
+
+    /**
+     * Process-wide alarm table in device-protected storage, migrated from the legacy prefs on
+     * first use. Before the first unlock the legacy prefs (and a table not yet moved out of
+     * credential storage) are unreadable, so one unmigrated instance is shared until then and
+     * read back from disk, migrated, after it; changes made while locked must be committed.
+     */
+    public static synchronized AlarmStore store(Context context) {
+        if (store != null) return store;
+        Context appContext = context.getApplicationContext();
+        if (!DeviceStorage.isUserUnlocked(appContext)) {
+            if (lockedStore == null) {
+                lockedStore = new AlarmStore(new File(DeviceStorage.of(appContext).getFilesDir(), STORE_FILE));
+            }
+            return lockedStore;
+        }
+        lockedStore = null;
+        AlarmStore alarms = new AlarmStore(new File(DeviceStorage.of(appContext).getFilesDir(), STORE_FILE));
+        migrateLegacyPrefs(appContext, alarms);
+        store = alarms;
+        return store;
+    }
+
+    /** Process-wide alarm telemetry journal, or null if its file can't be mapped. */
+    public static synchronized AlarmJournal journal(Context context) {
+        if (journal != null) return journal;
+        try {
+            journal = new AlarmJournal(new File(DeviceStorage.of(context.getApplicationContext()).getNoBackupFilesDir(), JOURNAL_FILE));
+        } catch (IOException e) {
+            // Telemetry only; alarms work without it
+            Log.e(TAG, "Alarm journal unavailable", e);
+        }
+        return journal;
+    }
+
+    /** Drops the cached table and journal so the next call reads them again; for tests and benchmarks. */
+    @VisibleForTesting
+    static synchronized void reset() {
+        store = null;
+        lockedStore = null;
+        journal = null;
+    }
+
+    /**
+     * Journals stored Adhans that were due more than {@link AlarmJournal#LATE_MS} ago and never
+     * reached AdhanReceiver (force-stopped app, alarms dropped by the OEM). Idempotent, so it can
+     * run before every prune and before stats are read.
+     */
+    public static int journalMissed(Context context, AlarmStore alarms, long now) {
+        AlarmJournal journal = journal(context);
+        if (journal == null) return 0;
+        int missed = 0;
+        for (int id : alarms.idsBetween(Long.MIN_VALUE, now - AlarmJournal.LATE_MS)) {
+            if (journal.contains(id)) continue;
+            journal.missed(id, alarms.time(id));
+            missed++;
+        }
+        return missed;
+    }
+
+    /**
+     * Entries at or before this time are dropped from the table: past, and past their
+     * after-prayer reminder, which is found through its Adhan's entry.
+     */
+    private static long pruneBefore(Context context, long now) {
+        return now - PrayerReminders.config(context).retentionMs();
+    }
+
+    /** Local epoch day of {@code timestamp}, the day component of an alarm ID. */
+    public static long localEpochDay(long timestamp) {
+        Calendar cal = Calendar.getInstance(TimeZone.getDefault());
+        cal.setTimeInMillis(timestamp);
+        return PrayerTimesCalculator.daysFromCivil(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /** Adhan ID for the prayer in {@code slot} firing at {@code timestamp}. */
+    static int idFor(int slot, long timestamp) {
+        return AlarmStore.idFor(localEpochDay(timestamp), slot, AlarmStore.KIND_ADHAN);
+    }
+
+    /**
+     * Alarm ID for a JS-style prayer name ("fajr_3", "Test_123") firing at {@code timestamp}.
+     * Names that aren't a prayer get an ad-hoc ID of their own rather than sharing their day's slot.
+     */
+    public static int idFor(String prayerName, long timestamp) {
+        int slot = AlarmStore.slotForName(prayerName);
+        return slot == AlarmStore.SLOT_ADHOC ? AlarmStore.adhocId(timestamp) : idFor(slot, timestamp);
+    }
+
+    /**
+     * Stored IDs a JS-style name refers to: "fajr_2" is the Fajr two days from today, a bare
+     * "fajr" is every stored Fajr, and anything else is every ad-hoc alarm.
+     */
+    public static int[] idsForName(AlarmStore alarms, String prayerName) {
+        int slot = AlarmStore.slotForName(prayerName);
+        long day = -1;
+        int underscore = prayerName.indexOf('_');
+        if (slot != AlarmStore.SLOT_ADHOC && underscore >= 0) {
+            try {
+                day = localEpochDay(System.currentTimeMillis()) + Integer.parseInt(prayerName.substring(underscore + 1));
+            } catch (NumberFormatException ignored) {
+                // Not a day offset; match every day
+            }
+        }
+
+        int[] all = alarms.ids();
+        int count = 0;
+        for (int id : all) {
+            if (AlarmStore.slotOf(id) == slot && (day < 0 || AlarmStore.dayOf(id) == day)) all[count++] = id;
+        }
+        return java.util.Arrays.copyOf(all, count);
+    }
+
+    public static void arm(Context context, AlarmManager alarmManager, int id, long timestamp, String soundName) {
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(
+                context,
+                id,
+                buildIntent(context, id, timestamp, soundName),
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+
+        setExactAlarm(alarmManager, timestamp, pendingIntent);
+    }
+
+    public static void cancel(Context context, AlarmManager alarmManager, int id) {
+        cancelRequestCode(context, alarmManager, id);
+    }
+
+    /**
+     * True if a PendingIntent for this alarm is still registered. Alarms are dropped by the
+     * system on force-stop while the table survives, so the table alone can't tell us what is armed.
+     */
+    public static boolean isArmed(Context context, int id) {
+        PendingIntent existing = PendingIntent.getBroadcast(
+                context,
+                id,
+                new Intent(context, AdhanReceiver.class),
+                PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE
+        );
+        return existing != null;
+    }
+
+    public static boolean isRollingMode(Context context) {
+        return DeviceStorage.prefs(context, PrayerSettings.PREFS_NAME).getBoolean(KEY_ROLLING, false);
+    }
+
+    public static int horizonDays(Context context) {
+        return DeviceStorage.prefs(context, PrayerSettings.PREFS_NAME).getInt(KEY_HORIZON, DEFAULT_HORIZON_DAYS);
+    }
+
+    /** Days ahead the table is kept filled natively, clamped to 1..{@link #MAX_HORIZON_DAYS}. */
+    public static void setHorizonDays(Context context, int days) {
+        int clamped = Math.max(1, Math.min(MAX_HORIZON_DAYS, days));
+        DeviceStorage.prefs(context, PrayerSettings.PREFS_NAME).edit().putInt(KEY_HORIZON, clamped).apply();
+    }
+
+    /** When {@link #topUp} last ran, or 0 if it never has. */
+    public static long lastRefill(Context context) {
+        return DeviceStorage.prefs(context, PrayerSettings.PREFS_NAME).getLong(KEY_LAST_REFILL, 0);
+    }
+
+    /**
+     * Switches between one alarm per stored prayer and the rolling single alarm, moving whatever
+     * is currently stored in the schedule table over to the new mode.
+     */
+    public static void setRollingMode(Context context, boolean rolling) {
+        DeviceStorage.prefs(context, PrayerSettings.PREFS_NAME).edit().putBoolean(KEY_ROLLING, rolling).apply();
+
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        AlarmStore alarms = store(context);
+        long now = System.currentTimeMillis();
+        for (int id : alarms.idsBetween(now, Long.MAX_VALUE)) {
+            if (rolling) {
+                cancel(context, alarmManager, id);
+            } else {
+                arm(context, alarmManager, id, alarms.time(id), alarms.sound(id));
+            }
+        }
+
+        if (rolling) {
+            armNext(context, alarmManager);
+        } else {
+            cancelRequestCode(context, alarmManager, ROLLING_REQUEST_CODE);
+        }
+    }
+
+    /**
+     * Rolling mode: arms the single alarm for the earliest stored prayer still in the future, or
+     * cancels it if nothing is left. Returns the armed alarm ID, or {@link AlarmStore#NONE}.
+     */
+    public static int armNext(Context context, AlarmManager alarmManager) {
+        AlarmStore alarms = store(context);
+        int nextId = alarms.nextAfter(System.currentTimeMillis());
+        if (nextId == AlarmStore.NONE) {
+            cancelRequestCode(context, alarmManager, ROLLING_REQUEST_CODE);
+            return AlarmStore.NONE;
+        }
+
+        long nextTime = alarms.time(nextId);
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(
+                context,
+                ROLLING_REQUEST_CODE,
+                buildIntent(context, nextId, nextTime, alarms.sound(nextId)),
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+        setExactAlarm(alarmManager, nextTime, pendingIntent);
+        Log.d(TAG, "Rolling alarm armed for " + nextId + " at " + nextTime);
+        return nextId;
+    }
+
+    /** What {@link #replace} did to the system alarms. */
+    public static final class Replaced {
+        public final int armed;
+        public final int unchanged;
+        public final int cancelled;
+
+        Replaced(int armed, int unchanged, int cancelled) {
+            this.armed = armed;
+            this.unchanged = unchanged;
+            this.cancelled = cancelled;
+        }
+    }
+
+    /**
+     * Replaces the whole schedule with {@code alarms} ({prayerName, timestamp, soundName} objects).
+     * Entries that are already armed with the same time and sound are left alone, changed ones
+     * are re-armed, and any prayer previously stored but missing from the new list is cancelled.
+     * Pending ad-hoc alarms (tests, previews) aren't part of the schedule and are kept. The table
+     * is written once at the end.
+     */
+    public static Replaced replace(Context context, JSONArray alarms, long now) throws JSONException {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        AlarmStore store = store(context);
+        Set<Integer> keep = new HashSet<>();
+        // In rolling mode only the table is updated here; a single alarm is armed at the end
+        boolean rolling = isRollingMode(context);
+        int armed = 0;
+        int unchanged = 0;
+        int cancelled = 0;
+
+        for (int i = 0; i < alarms.length(); i++) {
+            JSONObject alarm = alarms.getJSONObject(i);
+            String prayerName = alarm.optString("prayerName", null);
+            long timestamp = alarm.optLong("timestamp", 0);
+            String soundName = alarm.optString("soundName", null);
+            if (prayerName == null || timestamp <= now) continue;
+
+            // IDs come from the local day of the timestamp, so tomorrow's "fajr_1" and
+            // today's "fajr_0" after midnight map to the same entry
+            int id = idFor(prayerName, timestamp);
+            keep.add(id);
+            if (!store.put(id, timestamp, soundName) && (rolling || isArmed(context, id))) {
+                unchanged++;
+                continue;
+            }
+
+            if (!rolling) {
+                arm(context, alarmManager, id, timestamp, soundName);
+            }
+            armed++;
+        }
+
+        // Past entries are dropped below; note any that never fired first
+        journalMissed(context, store, now);
+        long keepAfter = pruneBefore(context, now);
+        for (int id : store.ids()) {
+            if (keep.contains(id)) continue;
+            long time = store.time(id);
+            if (time > now) {
+                if (AlarmStore.slotOf(id) == AlarmStore.SLOT_ADHOC) continue;
+                cancel(context, alarmManager, id);
+                cancelled++;
+            } else if (time > keepAfter) {
+                // Fired, but its after-prayer reminder is still ahead
+                continue;
+            }
+            store.remove(id);
+        }
+
+        commit(store);
+        if (rolling) {
+            armNext(context, alarmManager);
+        }
+        armUpcoming(context, alarmManager);
+        return new Replaced(armed, unchanged, cancelled);
+    }
+
+    /**
+     * Adds natively computed Adhans for enabled prayers in the next {@code days} days that have no
+     * stored entry in {@code alarms}, so the table doesn't run dry while the app isn't opened.
+     * Entries JS stored are left alone. Nothing is armed or committed here; the caller commits the
+     * same instance. Returns how many were added.
+     */
+    public static int refill(Context context, AlarmStore alarms, int days) {
+        PrayerSettings settings = PrayerSettings.load(context);
+        if (settings == null || !settings.enabled) return 0;
+
+        long now = System.currentTimeMillis();
+        PrayerTimesCalculator.DayTimes[] times = settings.calculator().forDays(now, days, TimeZone.getDefault());
+        int[] stored = alarms.ids();
+        int added = 0;
+        for (int day = 0; day < times.length; day++) {
+            for (int slot = 0; slot < PrayerTimesCalculator.PRAYER_COUNT; slot++) {
+                long time = times[day].prayer(slot);
+                if (!settings.isPrayerEnabled(slot) || time == PrayerTimesCalculator.INVALID_TIME || time <= now) continue;
+                if (hasStoredNear(alarms, stored, slot, time)) continue;
+                // Keyed like replace(): an Isha computed for one day but falling after midnight
+                // belongs to the next local day, whose own Isha may already hold that ID
+                int id = idFor(slot, time);
+                long taken = alarms.time(id);
+                if (taken != 0 && taken != time) continue;
+                alarms.put(id, time, settings.soundName);
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Brings the system alarms back in line with the table after anything that may have dropped
+     * or shifted them (boot, clock or time zone change, app update): drops past entries,
+     * regenerates missing days, then arms in the current mode.
+     */
+    public static void restore(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        AlarmStore alarms = store(context);
+        long now = System.currentTimeMillis();
+        journalMissed(context, alarms, now);
+        int pruned = alarms.prune(pruneBefore(context, now));
+        int added = refill(context, alarms, horizonDays(context));
+        if (pruned > 0 || added > 0) commit(alarms);
+
+        if (isRollingMode(context)) {
+            // Only the nearest Adhan needs a system alarm; AdhanReceiver chains the rest
+            armNext(context, alarmManager);
+        } else {
+            for (int id : alarms.idsBetween(now, Long.MAX_VALUE)) {
+                arm(context, alarmManager, id, alarms.time(id), alarms.sound(id));
+            }
+        }
+        armUpcoming(context, alarmManager);
+        Log.d(TAG, "Restored " + alarms.size() + " alarms (" + added + " regenerated, " + pruned + " pruned)");
+    }
+
+    /**
+     * Periodic counterpart of {@link #restore} for when nothing was dropped: prunes, fills the
+     * table up to the configured horizon and arms only the entries it added, with one commit.
+     * Existing alarms are left alone. Records the run time and returns how many were added.
+     */
+    public static int topUp(Context context, long now) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        AlarmStore alarms = store(context);
+        journalMissed(context, alarms, now);
+        int pruned = alarms.prune(pruneBefore(context, now));
+        Set<Integer> before = new HashSet<>();
+        for (int id : alarms.ids()) before.add(id);
+        int added = refill(context, alarms, horizonDays(context));
+        if (pruned > 0 || added > 0) commit(alarms);
+
+        if (added > 0) {
+            if (isRollingMode(context)) {
+                armNext(context, alarmManager);
+            } else {
+                for (int id : alarms.idsBetween(now, Long.MAX_VALUE)) {
+                    if (!before.contains(id)) arm(context, alarmManager, id, alarms.time(id), alarms.sound(id));
+                }
+            }
+            armUpcoming(context, alarmManager);
+        }
+        DeviceStorage.prefs(context, PrayerSettings.PREFS_NAME).edit().putLong(KEY_LAST_REFILL, now).apply();
+        return added;
+    }
+
+    /**
+     * Arms the wakeups that follow from the table rather than from a single Adhan: the preload
+     * ahead of the next one and the next reminder event. Call after any change to the table.
+     */
+    public static void armUpcoming(Context context, AlarmManager alarmManager) {
+        armPreload(context, alarmManager);
+        PrayerReminders.armNext(context, alarmManager, System.currentTimeMillis(), Integer.MIN_VALUE);
+    }
+
+    /**
+     * Arms the preload wakeup for the next stored Adhan (in either mode), or preloads right away
+     * if it is less than {@link #PRELOAD_LEAD_MS} out.
+     */
+    public static void armPreload(Context context, AlarmManager alarmManager) {
+        AlarmStore alarms = store(context);
+        long now = System.currentTimeMillis();
+        int nextId = alarms.nextAfter(now);
+        if (nextId == AlarmStore.NONE) {
+            cancelPreload(context, alarmManager);
+            return;
+        }
+
+        long preloadAt = alarms.time(nextId) - PRELOAD_LEAD_MS;
+        if (preloadAt <= now) {
+            cancelPreload(context, alarmManager);
+            AdhanService.preload(context, alarms.sound(nextId));
+            return;
+        }
+
+        Intent intent = new Intent(context, AdhanReceiver.class).setAction(ACTION_PRELOAD);
+        intent.putExtra("soundName", alarms.sound(nextId));
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(
+                context,
+                PRELOAD_REQUEST_CODE,
+                intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+        try {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, preloadAt, pendingIntent);
+        } catch (SecurityException e) {
+            // Without exact alarms the Adhan still plays, it just prepares on fire
+            Log.w(TAG, "Cannot arm Adhan preload", e);
+        }
+    }
+
+    /** Plays the Adhan for {@code slot} again at {@code timestamp}; a later snooze replaces it. */
+    public static void armSnooze(Context context, int slot, String soundName, long timestamp) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) return;
+        Intent intent = new Intent(context, AdhanReceiver.class);
+        intent.putExtra("scheduledAt", timestamp);
+        intent.putExtra("prayerSlot", slot);
+        intent.putExtra("soundName", soundName);
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(
+                context,
+                SNOOZE_REQUEST_CODE,
+                intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+        setExactAlarm(alarmManager, timestamp, pendingIntent);
+    }
+
+    public static void commit(AlarmStore alarms) {
+        try {
+            alarms.commit();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to persist alarm table", e);
+        }
+    }
+
+    public static void warnIfExactAlarmsDenied(AlarmManager alarmManager) {
+        // Check for Exact Alarm Permission (Android 12+)
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && !alarmManager.canScheduleExactAlarms()) {
+            Log.w(TAG, "Exact Alarm permission denied!");
+        }
+    }
+
+    private static void setExactAlarm(AlarmManager alarmManager, long timestamp, PendingIntent pendingIntent) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            // Use setAlarmClock for maximum reliability (like a real alarm clock)
+            AlarmManager.AlarmClockInfo alarmClockInfo = new AlarmManager.AlarmClockInfo(timestamp, pendingIntent);
+            alarmManager.setAlarmClock(alarmClockInfo, pendingIntent);
+        } else {
+            alarmManager.setExact(AlarmManager.RTC_WAKEUP, timestamp, pendingIntent);
+        }
+    }
+
+    private static void cancelRequestCode(Context context, AlarmManager alarmManager, int requestCode) {
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(
+                context,
+                requestCode,
+                new Intent(context, AdhanReceiver.class),
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+        alarmManager.cancel(pendingIntent);
+        pendingIntent.cancel();
+    }
+
+    private static void cancelPreload(Context context, AlarmManager alarmManager) {
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(
+                context,
+                PRELOAD_REQUEST_CODE,
+                new Intent(context, AdhanReceiver.class).setAction(ACTION_PRELOAD),
+                PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE
+        );
+        if (pendingIntent != null) {
+            alarmManager.cancel(pendingIntent);
+            pendingIntent.cancel();
+        }
+    }
+
+    private static boolean hasStoredNear(AlarmStore alarms, int[] ids, int slot, long time) {
+        for (int id : ids) {
+            if (AlarmStore.slotOf(id) == slot && Math.abs(alarms.time(id) - time) < SAME_PRAYER_MS) return true;
+        }
+        return false;
+    }
+
+    private static Intent buildIntent(Context context, int id, long timestamp, String soundName) {
+        Intent intent = new Intent(context, AdhanReceiver.class);
+        intent.putExtra("alarmId", id);
+        intent.putExtra("scheduledAt", timestamp);
+        intent.putExtra("prayerSlot", AlarmStore.slotOf(id));
+        intent.putExtra("soundName", soundName);
+        return intent;
+    }
+
+    /**
+     * Moves time_/sound_ entries from the old "AdhanAlarms" prefs into the table and cancels their
+     * hashCode-keyed PendingIntents so nothing fires twice, then re-arms them under their new IDs.
+     */
+    private static void migrateLegacyPrefs(Context context, AlarmStore alarms) {
+        SharedPreferences prefs = context.getSharedPreferences(LEGACY_PREFS_NAME, Context.MODE_PRIVATE);
+        Map<String, ?> entries = prefs.getAll();
+        if (entries.isEmpty()) return;
+
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        long now = System.currentTimeMillis();
+        int migrated = 0;
+        for (Map.Entry<String, ?> entry : entries.entrySet()) {
+            if (!entry.getKey().startsWith(LEGACY_TIME_PREFIX) || !(entry.getValue() instanceof Long)) continue;
+            String prayerName = entry.getKey().substring(LEGACY_TIME_PREFIX.length());
+            long timestamp = (Long) entry.getValue();
+            cancelRequestCode(context, alarmManager, prayerName.hashCode());
+            if (timestamp <= now) continue;
+
+            Object sound = entries.get(LEGACY_SOUND_PREFIX + prayerName);
+            int id = idFor(prayerName, timestamp);
+            alarms.put(id, timestamp, sound instanceof String ? (String) sound : null);
+            arm(context, alarmManager, id, timestamp, sound instanceof String ? (String) sound : null);
+            migrated++;
+        }
+
+        commit(alarms);
+        prefs.edit().clear().apply();
+        Log.d(TAG, "Migrated " + migrated + " legacy alarms");
+    }
+}
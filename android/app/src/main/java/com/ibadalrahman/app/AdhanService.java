@@ -1,307 +1,361 @@
 package com.ibadalrahman.app;
 
-import android.app.Notification;
-import android.app.NotificationChannel;
 import android.app.NotificationManager;
-import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
 import android.media.AudioAttributes;
 import android.media.AudioManager;
-import android.media.MediaPlayer;
 import android.net.Uri;
 import android.os.Build;
 import android.os.IBinder;
+import android.os.PowerManager;
+import android.os.SystemClock;
 import android.content.SharedPreferences;
 import android.util.Log;
 
-import androidx.core.app.NotificationCompat;
-
 import android.os.Handler;
 import android.os.Looper;
-import java.io.IOException;
-import java.util.Timer;
-import java.util.TimerTask;
 
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plays the Adhan. One instance lives for as long as anything is queued: every start is a command
+ * (PLAY, STOP, PREVIEW, SNOOZE) handled in order on the main thread through {@link AdhanQueue},
+ * sharing one AudioEngine player and one wake lock; notifications come prebuilt from
+ * {@link NotificationTemplates}. The wake lock is
+ * held for the clip's length plus a margin rather than a fixed ten minutes, and released as soon
+ * as the queue empties.
+ */
 public class AdhanService extends Service {
     private static final String TAG = "AdhanService";
-    private static final String CHANNEL_ID = "adhan_channel";
-    private MediaPlayer mediaPlayer;
-    private int originalVolume = -1;
+    private static final int NOTIFICATION_ID = 1;
+
+    public static final String ACTION_PLAY = "com.ibadalrahman.app.PLAY_ADHAN";
+    // Notifications posted by older builds send this too
+    public static final String ACTION_STOP = "STOP_ADHAN";
+    public static final String ACTION_PREVIEW = "com.ibadalrahman.app.PREVIEW_ADHAN";
+    public static final String ACTION_SNOOZE = "com.ibadalrahman.app.SNOOZE_ADHAN";
+    private static final long SNOOZE_MS = 5 * 60 * 1000L;
+
+    // Decoded copy of the selected recording, shared by every start of this service
+    private static PcmCache pcmCache;
+
+    private final AudioEngine audioEngine = AudioEngine.adhan();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AdhanQueue queue = new AdhanQueue();
+    private PowerManager.WakeLock wakeLock;
     private AudioManager audioManager;
-    private Timer fadeInTimer;
+    private Object focusRequest;
+    private int originalVolume = -1;
+    // Bumped for every playback, so callbacks from one that was replaced or stopped are ignored
+    private int playback;
+    private int lastStartId;
+    // The last Adhan was silenced by Smart DND; its notification stays up after the queue empties
+    private boolean keepNotification;
 
     @Override
     public void onCreate() {
         super.onCreate();
-        createNotificationChannel();
-    }
+        NotificationTemplates.ensureChannels(this);
+        audioManager = (AudioManager) getSystemService(Context.AUDIO_SERVICE);
 
-    private android.os.PowerManager.WakeLock wakeLock;
+        PowerManager powerManager = (PowerManager) getSystemService(Context.POWER_SERVICE);
+        if (powerManager != null) {
+            wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "PrayerCompanion:AdhanServiceWakeLock");
+            // Each acquire(timeout) moves the one deadline; a counted lock would under-lock when
+            // a timeout and an explicit release both let go of the same acquire
+            wakeLock.setReferenceCounted(false);
+        }
+    }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        if (intent == null) return START_NOT_STICKY;
-
-        // Acquire WakeLock immediately
-        android.os.PowerManager powerManager = (android.os.PowerManager) getSystemService(Context.POWER_SERVICE);
-        if (powerManager != null) {
-            wakeLock = powerManager.newWakeLock(android.os.PowerManager.PARTIAL_WAKE_LOCK, "PrayerCompanion:AdhanServiceWakeLock");
-            wakeLock.acquire(10 * 60 * 1000L /*10 minutes*/);
+        lastStartId = startId;
+        if (intent == null) {
+            if (queue.isIdle()) stopSelfResult(startId);
+            return START_NOT_STICKY;
         }
 
         String action = intent.getAction();
-        if ("STOP_ADHAN".equals(action)) {
-            stopAdhan();
+        if (ACTION_STOP.equals(action)) {
+            stopAll();
+            return START_NOT_STICKY;
+        }
+        if (ACTION_SNOOZE.equals(action)) {
+            snooze();
             return START_NOT_STICKY;
         }
 
-        String prayerName = intent.getStringExtra("prayerName");
-        String soundName = intent.getStringExtra("soundName"); // "adhan_makkah", "adhan_madinah", "adhan_egypt"
-
-        startForeground(1, createNotification(prayerName));
-        playAdhan(soundName);
-
-        return START_STICKY;
-    }
+        int type = ACTION_PREVIEW.equals(action) ? AdhanQueue.PREVIEW : AdhanQueue.PLAY;
+        AdhanQueue.Command command = new AdhanQueue.Command(
+                type,
+                intent.getIntExtra("prayerSlot", AlarmStore.SLOT_ADHOC),
+                intent.getStringExtra("soundName"), // "adhan_makkah", "adhan_madinah", "adhan_egypt"
+                intent.getLongExtra("firedAt", 0),
+                intent.getLongExtra("journalSequence", -1));
+        if (type == AdhanQueue.PLAY) {
+            AlarmJournal journal = journal();
+            if (journal != null && command.firedAt > 0) {
+                journal.serviceStarted(command.journalSequence, SystemClock.elapsedRealtime() - command.firedAt);
+            }
+        }
 
-    private void playAdhan(String soundName) {
-        if (mediaPlayer != null) {
-            mediaPlayer.release();
+        List<AdhanQueue.Command> dropped = new ArrayList<>();
+        AdhanQueue.Command next = queue.offer(command, dropped);
+        for (AdhanQueue.Command duplicate : dropped) {
+            Log.d(TAG, "Already playing or queued: slot " + duplicate.slot);
+            finishJournal(duplicate.journalSequence, AlarmJournal.OUTCOME_DUPLICATE);
+        }
+        if (next != null) {
+            start(next);
+        } else if (type == AdhanQueue.PLAY) {
+            // Started with startForegroundService, so it has to go foreground even when it waits
+            startForeground(NOTIFICATION_ID, NotificationTemplates.adhan(this, queue.current().slot));
+        } else if (queue.isIdle()) {
+            stopSelfResult(startId);
         }
+        return START_NOT_STICKY;
+    }
 
+    /** Raw resource URI for an Adhan sound name; also used to preload it ahead of time. */
+    public static Uri soundUri(Context context, String soundName) {
         // Map soundName to resource ID
         int soundResId = R.raw.adhan_makkah; // Default
         if ("adhan_madinah".equals(soundName)) soundResId = R.raw.adhan_madinah;
         else if ("adhan_egypt".equals(soundName)) soundResId = R.raw.adhan_egypt;
 
-        mediaPlayer = MediaPlayer.create(this, soundResId);
-        if (mediaPlayer == null) {
-             Log.e(TAG, "Adhan sound not found for: " + soundName);
-             stopAdhan(); // Stop service if sound fails
-             return;
-        }
+        return Uri.parse("android.resource://" + context.getPackageName() + "/" + soundResId);
+    }
+
+    static synchronized PcmCache pcmCache(Context context) {
+        if (pcmCache == null) pcmCache = new PcmCache(context);
+        return pcmCache;
+    }
+
+    static boolean isPcmCacheEnabled(Context context) {
+        return DeviceStorage.prefs(context, "PrayerWidgetPrefs").getBoolean("azanPcmCache", false);
+    }
 
-        // Configure audio attributes for Alarm usage (Mandatory Alarm)
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            mediaPlayer.setAudioAttributes(
-                    new AudioAttributes.Builder()
-                            .setUsage(AudioAttributes.USAGE_ALARM)
-                            .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
-                            .build()
-            );
+    /** Gets {@code soundName} ready ahead of an Adhan: decoded PCM if enabled, else a prepared player. */
+    public static void preload(Context context, String soundName) {
+        preload(context, soundName, null);
+    }
+
+    /** As {@link #preload(Context, String)}, running {@code done} once the sound is ready or failed. */
+    public static void preload(Context context, String soundName, Runnable done) {
+        if (isPcmCacheEnabled(context)) {
+            pcmCache(context).prepare(soundName, done);
         } else {
-             mediaPlayer.setAudioStreamType(AudioManager.STREAM_ALARM);
+            AudioEngine.adhan().preload(context, soundUri(context, soundName), false, done);
         }
+    }
 
-        Uri soundUri = Uri.parse("android.resource://" + getPackageName() + "/" + soundResId);
+    /** Plays {@code soundName} once through the Adhan path, e.g. from settings; never over a real Adhan. */
+    public static void preview(Context context, String soundName) {
+        Intent intent = new Intent(context, AdhanService.class).setAction(ACTION_PREVIEW);
+        intent.putExtra("soundName", soundName);
+        context.startService(intent);
+    }
 
-        audioManager = (AudioManager) getSystemService(Context.AUDIO_SERVICE);
-        if (audioManager != null) {
-            try {
-                // Save original volume to restore later
-                originalVolume = audioManager.getStreamVolume(AudioManager.STREAM_ALARM);
-                if (audioManager != null) {
-                    // Requests audio focus to lower/pause other apps
-                    if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
-                        AudioAttributes focusAttrs = new AudioAttributes.Builder()
-                                .setUsage(AudioAttributes.USAGE_ALARM)
-                                .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
-                                .build();
-                        android.media.AudioFocusRequest focusRequest = new android.media.AudioFocusRequest.Builder(AudioManager.AUDIOFOCUS_GAIN_TRANSIENT)
-                                .setAudioAttributes(focusAttrs)
-                                .build();
-                        audioManager.requestAudioFocus(focusRequest);
-                    } else {
-                        //noinspection deprecation
-                        audioManager.requestAudioFocus(null, AudioManager.STREAM_ALARM, AudioManager.AUDIOFOCUS_GAIN_TRANSIENT);
-                    }
-
-                    // Read user preferences
-                    SharedPreferences prefs = getSharedPreferences("PrayerWidgetPrefs", Context.MODE_PRIVATE);
-                    int userVolumePercent = prefs.getInt("azanVolume", 100);
-                    boolean smartDnd = prefs.getBoolean("smartDnd", false);
-                    boolean azanFadeIn = prefs.getBoolean("azanFadeIn", false);
-
-                    // Smart DND Check
-                    int ringerMode = audioManager.getRingerMode();
-                    if (smartDnd && (ringerMode == AudioManager.RINGER_MODE_SILENT || ringerMode == AudioManager.RINGER_MODE_VIBRATE)) {
-                        Log.d(TAG, "Smart DND enabled and phone is silent/vibrate. Skipping audio.");
-                        // We still show notification, but don't play sound.
-                        // We should probably stopSelf immediately or just return?
-                        // If we stopSelf, the notification might vanish if not careful.
-                        // Let's just return and let notification stay (it's foreground).
-                        // But wait, if we don't play sound, the service will keep running forever?
-                        // No, we need to schedule a stop or just show notification and kill service.
-                        // For now, let's just NOT play audio, but allow service to live? 
-                        // Actually, if we don't play, we should probably stop the service so it doesn't drain battery holding wake lock.
-                        // But we want the notification to be visible.
-                        // Let's just return. The notification is "ongoing", user can dismiss it.
-                        // Better: Stop the service but keep notification?
-                        // Current implementation assumes service runs while playing.
-                        // Let's just play silence? Or just return.
-                        // If we return, we must release WakeLock.
-                        if (wakeLock != null && wakeLock.isHeld()) wakeLock.release();
-                        return; 
-                    }
-
-                    int maxVolume = audioManager.getStreamMaxVolume(AudioManager.STREAM_ALARM);
-                    int targetVolume = (int) (maxVolume * (userVolumePercent / 100.0));
-                    
-                    audioManager.setStreamVolume(AudioManager.STREAM_ALARM, targetVolume, 0);
-                    Log.d(TAG, "Adhan volume set to: " + targetVolume + " (" + userVolumePercent + "%)");
-
-                    // Initialize MediaPlayer
-                    mediaPlayer = new MediaPlayer();
-                    mediaPlayer.setDataSource(this, soundUri);
-                    
-                    mediaPlayer.setAudioStreamType(AudioManager.STREAM_ALARM);
-                    AudioAttributes.Builder attrs = new AudioAttributes.Builder();
-                    attrs.setUsage(AudioAttributes.USAGE_ALARM);
-                    attrs.setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION);
-                    mediaPlayer.setAudioAttributes(attrs.build());
-                    
-                    mediaPlayer.setLooping(false);
-                    mediaPlayer.prepare();
-
-                    if (azanFadeIn) {
-                        mediaPlayer.setVolume(0.01f, 0.01f); // Start very low
-                        mediaPlayer.start();
-                        startFadeIn(targetVolume, maxVolume); // Logic to increase volume
-                    } else {
-                        mediaPlayer.setVolume(1.0f, 1.0f); // Default full volume relative to Stream Volume
-                        mediaPlayer.start();
-                    }
-
-                } // End of inner if (audioManager != null)
-            } catch (IOException e) {
-                Log.e(TAG, "Error setting data source or preparing media player", e);
-                stopAdhan();
-                return;
-            } catch (Exception e) {
-                Log.e(TAG, "Failed to set Adhan volume or start media player", e);
-                stopAdhan();
-                return;
+    /** Stops a preview or an Adhan, whichever is playing. */
+    public static void stop(Context context) {
+        context.startService(new Intent(context, AdhanService.class).setAction(ACTION_STOP));
+    }
+
+    private void start(AdhanQueue.Command command) {
+        int token = ++playback;
+        boolean adhan = command.type == AdhanQueue.PLAY;
+        if (adhan) {
+            startForeground(NOTIFICATION_ID, NotificationTemplates.adhan(this, command.slot));
+            keepNotification = false;
+        }
+        if (!prepareAudio(adhan)) {
+            Log.d(TAG, "Smart DND enabled and phone is silent/vibrate. Skipping audio.");
+            finishJournal(command.journalSequence, AlarmJournal.OUTCOME_SILENCED);
+            keepNotification = true;
+            mainHandler.post(() -> ended(token));
+            return;
+        }
+        // Until the player reports the clip's length
+        holdWakeLock(AdhanQueue.wakeLockMs(0));
+
+        String soundName = command.soundName;
+        AudioFade fade = AudioFade.load(this);
+        AudioEngine.Listener listener = new AudioEngine.Listener() {
+            @Override
+            public void onStarted(long durationMs) {
+                AlarmJournal journal = adhan ? journal() : null;
+                if (journal != null && command.firedAt > 0) {
+                    journal.audioStarted(command.journalSequence, SystemClock.elapsedRealtime() - command.firedAt);
+                }
+                mainHandler.post(() -> {
+                    if (token == playback) holdWakeLock(AdhanQueue.wakeLockMs(durationMs));
+                });
+            }
+
+            @Override
+            public void onCompletion() {
+                mainHandler.post(() -> ended(token));
+            }
+
+            @Override
+            public void onError() {
+                Log.e(TAG, "Adhan sound failed for: " + soundName);
+                if (adhan) finishJournal(command.journalSequence, AlarmJournal.OUTCOME_FAILED);
+                mainHandler.post(() -> ended(token));
             }
+        };
+
+        // Looking up, preparing and starting happen on the audio thread; the clip is already
+        // mapped, or the player warm, if AdhanReceiver preloaded this sound before the alarm.
+        // A clip that isn't decoded yet plays through MediaPlayer and is ready for the next one.
+        if (isPcmCacheEnabled(this)) {
+            audioEngine.playCached(this, pcmCache(this), soundName, soundUri(this, soundName), fade, command.firedAt, listener);
         } else {
-            // Fallback if audioManager is null, try to play without volume control
-            try {
-                mediaPlayer = new MediaPlayer();
-                mediaPlayer.setDataSource(this, soundUri);
-                mediaPlayer.setAudioStreamType(AudioManager.STREAM_ALARM); // For older APIs
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                    mediaPlayer.setAudioAttributes(
-                            new AudioAttributes.Builder()
-                                    .setUsage(AudioAttributes.USAGE_ALARM)
-                                    .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
-                                    .build()
-                    );
-                }
-                mediaPlayer.setLooping(false);
-                mediaPlayer.prepare();
-                mediaPlayer.start();
-            } catch (IOException e) {
-                Log.e(TAG, "Error setting data source or preparing media player (no audio manager)", e);
-                stopAdhan();
-                return;
-            } catch (Exception e) {
-                Log.e(TAG, "Error starting media player (no audio manager)", e);
-                stopAdhan();
-                return;
+            audioEngine.play(this, soundUri(this, soundName), false, fade, command.firedAt, listener);
+        }
+    }
+
+    /**
+     * Takes audio focus and sets the alarm stream to the user's Adhan volume; false if Smart DND
+     * says this Adhan should stay silent. Previews only take the volume.
+     */
+    private boolean prepareAudio(boolean adhan) {
+        if (audioManager == null) return true;
+        try {
+            // Read user preferences
+            SharedPreferences prefs = DeviceStorage.prefs(this, "PrayerWidgetPrefs");
+            int userVolumePercent = prefs.getInt("azanVolume", 100);
+            boolean smartDnd = prefs.getBoolean("smartDnd", false);
+
+            // Smart DND Check
+            int ringerMode = audioManager.getRingerMode();
+            if (adhan && smartDnd && (ringerMode == AudioManager.RINGER_MODE_SILENT || ringerMode == AudioManager.RINGER_MODE_VIBRATE)) {
+                return false;
             }
+
+            requestFocus();
+            // Save original volume to restore once the queue is empty
+            if (originalVolume == -1) originalVolume = audioManager.getStreamVolume(AudioManager.STREAM_ALARM);
+
+            int maxVolume = audioManager.getStreamMaxVolume(AudioManager.STREAM_ALARM);
+            int targetVolume = (int) (maxVolume * (userVolumePercent / 100.0));
+
+            audioManager.setStreamVolume(AudioManager.STREAM_ALARM, targetVolume, 0);
+            Log.d(TAG, "Adhan volume set to: " + targetVolume + " (" + userVolumePercent + "%)");
+        } catch (Exception e) {
+            // Play anyway at the current stream volume
+            Log.e(TAG, "Failed to set Adhan volume", e);
         }
+        return true;
+    }
 
-        mediaPlayer.setOnCompletionListener(mp -> stopAdhan());
+    // Lowers/pauses other apps; held until the queue is empty
+    private void requestFocus() {
+        if (focusRequest != null) return;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            AudioAttributes focusAttrs = new AudioAttributes.Builder()
+                    .setUsage(AudioAttributes.USAGE_ALARM)
+                    .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+                    .build();
+            android.media.AudioFocusRequest request = new android.media.AudioFocusRequest.Builder(AudioManager.AUDIOFOCUS_GAIN_TRANSIENT)
+                    .setAudioAttributes(focusAttrs)
+                    .build();
+            audioManager.requestAudioFocus(request);
+            focusRequest = request;
+        } else {
+            //noinspection deprecation
+            audioManager.requestAudioFocus(null, AudioManager.STREAM_ALARM, AudioManager.AUDIOFOCUS_GAIN_TRANSIENT);
+            focusRequest = Boolean.TRUE;
+        }
     }
 
-    private void stopAdhan() {
-        if (mediaPlayer != null) {
-            try {
-                if (mediaPlayer.isPlaying()) {
-                    mediaPlayer.stop();
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Error stopping media player", e);
-            } finally {
-                mediaPlayer.release();
-                mediaPlayer = null;
-            }
+    private void abandonFocus() {
+        if (focusRequest == null || audioManager == null) return;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            audioManager.abandonAudioFocusRequest((android.media.AudioFocusRequest) focusRequest);
+        } else {
+            //noinspection deprecation
+            audioManager.abandonAudioFocus(null);
         }
-        
-        // Restore original volume after Azan completes
-        if (originalVolume != -1 && audioManager != null) {
-            try {
-                audioManager.setStreamVolume(AudioManager.STREAM_ALARM, originalVolume, 0);
-                Log.d(TAG, "Restored original volume to: " + originalVolume);
-            } catch (Exception e) {
-                Log.e(TAG, "Failed to restore original volume", e);
-            }
-            originalVolume = -1;
+        focusRequest = null;
+    }
+
+    private void holdWakeLock(long timeoutMs) {
+        if (wakeLock != null) wakeLock.acquire(timeoutMs);
+    }
+
+    /** The playback behind {@code token} ended; moves on to the next command if it is still current. */
+    private void ended(int token) {
+        if (token != playback) return;
+        AdhanQueue.Command next = queue.finished();
+        if (next != null) start(next);
+        else finishIfIdle();
+    }
+
+    private void stopAll() {
+        playback++;
+        AdhanQueue.Command current = queue.current();
+        if (current != null) finishJournal(current.journalSequence, AlarmJournal.OUTCOME_SILENCED);
+        for (AdhanQueue.Command waiting : queue.clear()) {
+            finishJournal(waiting.journalSequence, AlarmJournal.OUTCOME_SILENCED);
         }
-        
-        if (wakeLock != null && wakeLock.isHeld()) {
-            wakeLock.release();
+        keepNotification = false;
+        finishIfIdle();
+        // A silenced Adhan's notification can outlive the foreground state it was posted with
+        NotificationManager manager = getSystemService(NotificationManager.class);
+        if (manager != null) manager.cancel(NOTIFICATION_ID);
+    }
+
+    /** Stops the current Adhan and plays it again in {@link #SNOOZE_MS}; anything queued goes on. */
+    private void snooze() {
+        AdhanQueue.Command current = queue.current();
+        if (current == null || current.type != AdhanQueue.PLAY) {
+            stopAll();
+            return;
         }
+        AdhanScheduler.armSnooze(this, current.slot, current.soundName, System.currentTimeMillis() + SNOOZE_MS);
+        Log.d(TAG, "Snoozed slot " + current.slot);
+        finishJournal(current.journalSequence, AlarmJournal.OUTCOME_SILENCED);
+        keepNotification = false;
+        ended(++playback);
+    }
 
-        stopForeground(true);
-        stopSelf();
+    // Records the journal no longer holds, or -1 from an older receiver, are ignored by it
+    private AlarmJournal journal() {
+        return AdhanScheduler.journal(this);
     }
 
-    private Notification createNotification(String prayerName) {
-        Intent notificationIntent = new Intent(this, MainActivity.class);
-        PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, notificationIntent, PendingIntent.FLAG_IMMUTABLE);
-
-        Intent stopIntent = new Intent(this, AdhanService.class);
-        stopIntent.setAction("STOP_ADHAN");
-        PendingIntent stopPendingIntent = PendingIntent.getService(this, 0, stopIntent, PendingIntent.FLAG_CANCEL_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-
-        // Full Screen Intent for high priority
-        Intent fullScreenIntent = new Intent(this, MainActivity.class);
-        PendingIntent fullScreenPendingIntent = PendingIntent.getActivity(this, 0, fullScreenIntent, PendingIntent.FLAG_IMMUTABLE);
-
-        String pName = prayerName != null ? prayerName.split("_")[0] : "Prayer";
-        String title = "Prayer Time";
-        String body = "It is time for " + pName;
-
-        // Simple localization attempt (can be improved by passing localized strings from JS)
-        if (pName.equalsIgnoreCase("fajr")) { title = "صلاة الفجر"; body = "حان الآن موعد صلاة الفجر"; }
-        else if (pName.equalsIgnoreCase("dhuhr")) { title = "صلاة الظهر"; body = "حان الآن موعد صلاة الظهر"; }
-        else if (pName.equalsIgnoreCase("asr")) { title = "صلاة العصر"; body = "حان الآن موعد صلاة العصر"; }
-        else if (pName.equalsIgnoreCase("maghrib")) { title = "صلاة المغرب"; body = "حان الآن موعد صلاة المغرب"; }
-        else if (pName.equalsIgnoreCase("isha")) { title = "صلاة العشاء"; body = "حان الآن موعد صلاة العشاء"; }
-
-        return new NotificationCompat.Builder(this, CHANNEL_ID)
-                .setContentTitle(title)
-                .setContentText(body)
-                .setSmallIcon(R.mipmap.ic_launcher) // Note: Should ideally be a white-only icon for proper tinting
-                .setColor(0xFF0F5132) // Dark Green #0F5132 matching the theme
-                .setColorized(true)
-                .setPriority(NotificationCompat.PRIORITY_MAX)
-                .setCategory(NotificationCompat.CATEGORY_ALARM)
-                .setFullScreenIntent(fullScreenPendingIntent, true)
-                .setContentIntent(pendingIntent)
-                .addAction(android.R.drawable.ic_menu_close_clear_cancel, "إيقاف / Stop", stopPendingIntent)
-                .setOngoing(true)
-                .build();
+    private void finishJournal(long sequence, int outcome) {
+        AlarmJournal journal = journal();
+        if (journal != null) journal.finish(sequence, outcome);
     }
 
-    private void createNotificationChannel() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            NotificationChannel serviceChannel = new NotificationChannel(
-                    CHANNEL_ID,
-                    "Adhan Service Channel",
-                    NotificationManager.IMPORTANCE_HIGH
-            );
-            serviceChannel.setDescription("Channel for Adhan Alarm");
-            serviceChannel.setSound(null, null); // Sound handled by MediaPlayer
-            serviceChannel.enableVibration(true);
-            serviceChannel.setLockscreenVisibility(Notification.VISIBILITY_PUBLIC);
-
-            NotificationManager manager = getSystemService(NotificationManager.class);
-            if (manager != null) {
-                manager.createNotificationChannel(serviceChannel);
+    private void finishIfIdle() {
+        if (!queue.isIdle()) return;
+        audioEngine.stop();
+        abandonFocus();
+
+        restoreVolume();
+        if (wakeLock != null && wakeLock.isHeld()) wakeLock.release();
+
+        stopForeground(!keepNotification);
+        // A start that arrived since is still to be handled; stay for it
+        stopSelfResult(lastStartId);
+    }
+
+    // Restore original volume after Azan completes
+    private void restoreVolume() {
+        if (originalVolume != -1 && audioManager != null) {
+            try {
+                audioManager.setStreamVolume(AudioManager.STREAM_ALARM, originalVolume, 0);
+                Log.d(TAG, "Restored original volume to: " + originalVolume);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to restore original volume", e);
             }
+            originalVolume = -1;
         }
     }
 
@@ -309,44 +363,14 @@ public class AdhanService extends Service {
     public IBinder onBind(Intent intent) {
         return null;
     }
-    
+
     @Override
     public void onDestroy() {
         super.onDestroy();
-        if (mediaPlayer != null) {
-            mediaPlayer.release();
-            mediaPlayer = null;
-        }
-    }
-    private void startFadeIn(int targetStreamVolume, int maxStreamVolume) {
-        // We are already at volume 0.01 relative to stream volume.
-        // The stream volume is set to 'targetStreamVolume'.
-        // We want to fade the MediaPlayer volume from 0.01 to 1.0 (relative to stream).
-        
-        fadeInTimer = new Timer();
-        fadeInTimer.scheduleAtFixedRate(new TimerTask() {
-            float volume = 0.01f;
-            @Override
-            public void run() {
-                if (mediaPlayer == null || !mediaPlayer.isPlaying()) {
-                    if (fadeInTimer != null) fadeInTimer.cancel();
-                    return;
-                }
-                
-                volume += 0.05f; // Increase by 5% every step
-                if (volume >= 1.0f) {
-                    volume = 1.0f;
-                    if (fadeInTimer != null) fadeInTimer.cancel();
-                }
-                
-                try {
-                    if (mediaPlayer != null) {
-                         mediaPlayer.setVolume(volume, volume);
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "Error fading in", e);
-                }
-            }
-        }, 0, 500); // Update every 500ms -> reaches 100% in ~10 seconds
+        playback++;
+        audioEngine.stop();
+        abandonFocus();
+        restoreVolume();
+        if (wakeLock != null && wakeLock.isHeld()) wakeLock.release();
     }
 }
@@ -0,0 +1,312 @@
+package com.ibadalrahman.app;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * What happened to each Adhan alarm: when it was due, when AdhanReceiver got it, how long
+ * AdhanService and the audio took after that, the power state it fired in, and how it ended.
+ *
+ * <p>Records are fixed-size slots in a ring buffer inside a memory-mapped file. A write is a few
+ * stores into the page cache, cheap enough for the alarm path, and it reaches disk even if the
+ * process is killed right after. Each record carries the sequence number it was written under,
+ * so later stages ({@link #serviceStarted}, {@link #audioStarted}, {@link #finish}) can tell
+ * when their record has been overwritten by a newer one.
+ */
+public final class AlarmJournal {
+    public static final int OUTCOME_PENDING = 0;
+    public static final int OUTCOME_PLAYED = 1;
+    // Smart DND skipped the audio
+    public static final int OUTCOME_SILENCED = 2;
+    public static final int OUTCOME_FAILED = 3;
+    // Due but never delivered, noticed when past entries were next dropped from the schedule
+    public static final int OUTCOME_MISSED = 4;
+    // Delivered while the same prayer was already playing or queued, so dropped
+    public static final int OUTCOME_DUPLICATE = 5;
+
+    public static final int FLAG_DEVICE_IDLE = 1;
+    public static final int FLAG_POWER_SAVE = 1 << 1;
+    public static final int FLAG_BATTERY_EXEMPT = 1 << 2;
+
+    public static final int BUCKET_UNKNOWN = -1;
+    // An alarm delivered later than this counts as late
+    public static final long LATE_MS = 60_000;
+
+    static final int DEFAULT_CAPACITY = 512;
+
+    private static final int MAGIC = 0x414A524E; // "AJRN"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 40;
+
+    // Record layout
+    private static final int OFFSET_SEQUENCE = 0;
+    private static final int OFFSET_ALARM_ID = 8;
+    private static final int OFFSET_OUTCOME = 12;
+    private static final int OFFSET_BUCKET = 13;
+    private static final int OFFSET_FLAGS = 14;
+    private static final int OFFSET_SCHEDULED = 16;
+    private static final int OFFSET_FIRED = 24;
+    private static final int OFFSET_SERVICE_DELAY = 32;
+    private static final int OFFSET_AUDIO_DELAY = 36;
+
+    private static final int NOT_REACHED = -1;
+
+    private final int capacity;
+    private final MappedByteBuffer buffer;
+    private long nextSequence;
+
+    /** One journal entry; delays are milliseconds after {@link #firedAt}, or -1 if not reached. */
+    public static final class Record {
+        public final long sequence;
+        public final int alarmId;
+        public final int outcome;
+        public final int bucket;
+        public final int flags;
+        public final long scheduledAt;
+        public final long firedAt;
+        public final int serviceDelay;
+        public final int audioDelay;
+
+        Record(long sequence, int alarmId, int outcome, int bucket, int flags, long scheduledAt, long firedAt,
+               int serviceDelay, int audioDelay) {
+            this.sequence = sequence;
+            this.alarmId = alarmId;
+            this.outcome = outcome;
+            this.bucket = bucket;
+            this.flags = flags;
+            this.scheduledAt = scheduledAt;
+            this.firedAt = firedAt;
+            this.serviceDelay = serviceDelay;
+            this.audioDelay = audioDelay;
+        }
+
+        /** How late the receiver got the alarm, or -1 for a missed one. */
+        public long fireDelay() {
+            return outcome == OUTCOME_MISSED ? NOT_REACHED : Math.max(0, firedAt - scheduledAt);
+        }
+    }
+
+    /** Percentiles in milliseconds over the records that reached a stage. */
+    public static final class Distribution {
+        public final int count;
+        public final long p50;
+        public final long p90;
+        public final long p99;
+        public final long max;
+
+        Distribution(long[] values, int count) {
+            Arrays.sort(values, 0, count);
+            this.count = count;
+            this.p50 = percentile(values, count, 50);
+            this.p90 = percentile(values, count, 90);
+            this.p99 = percentile(values, count, 99);
+            this.max = count > 0 ? values[count - 1] : 0;
+        }
+
+        // Nearest rank
+        private static long percentile(long[] sorted, int count, int percent) {
+            if (count == 0) return 0;
+            int rank = (int) Math.ceil(percent / 100.0 * count);
+            return sorted[Math.max(0, rank - 1)];
+        }
+    }
+
+    public static final class Stats {
+        public final int total;
+        public final int played;
+        public final int silenced;
+        public final int failed;
+        public final int missed;
+        public final int duplicates;
+        // Fired but never reached an outcome, e.g. the service was killed
+        public final int incomplete;
+        public final int late;
+        public final Distribution fireDelay;
+        public final Distribution serviceDelay;
+        public final Distribution audioDelay;
+        // Scheduled time to first sound
+        public final Distribution totalDelay;
+
+        Stats(List<Record> records) {
+            int played = 0, silenced = 0, failed = 0, missed = 0, duplicates = 0, incomplete = 0, late = 0;
+            long[] fire = new long[records.size()];
+            long[] service = new long[records.size()];
+            long[] audio = new long[records.size()];
+            long[] total = new long[records.size()];
+            int fireCount = 0, serviceCount = 0, audioCount = 0;
+            for (Record record : records) {
+                switch (record.outcome) {
+                    case OUTCOME_PLAYED: played++; break;
+                    case OUTCOME_SILENCED: silenced++; break;
+                    case OUTCOME_FAILED: failed++; break;
+                    case OUTCOME_MISSED: missed++; continue;
+                    // The delivery that did play is measured instead
+                    case OUTCOME_DUPLICATE: duplicates++; continue;
+                    default: incomplete++;
+                }
+                long fireDelay = record.fireDelay();
+                if (fireDelay > LATE_MS) late++;
+                fire[fireCount++] = fireDelay;
+                if (record.serviceDelay != NOT_REACHED) service[serviceCount++] = record.serviceDelay;
+                if (record.audioDelay != NOT_REACHED) {
+                    audio[audioCount] = record.audioDelay;
+                    total[audioCount++] = fireDelay + record.audioDelay;
+                }
+            }
+            this.total = records.size();
+            this.played = played;
+            this.silenced = silenced;
+            this.failed = failed;
+            this.missed = missed;
+            this.duplicates = duplicates;
+            this.incomplete = incomplete;
+            this.late = late;
+            this.fireDelay = new Distribution(fire, fireCount);
+            this.serviceDelay = new Distribution(service, serviceCount);
+            this.audioDelay = new Distribution(audio, audioCount);
+            this.totalDelay = new Distribution(total, audioCount);
+        }
+    }
+
+    public AlarmJournal(File file) throws IOException {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    AlarmJournal(File file, int capacity) throws IOException {
+        this.capacity = capacity;
+        long size = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel channel = raf.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getLong(8) < 0) {
+            // New file, or one from an incompatible layout: start empty
+            for (int i = 0; i < size; i++) buffer.put(i, (byte) 0);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(8, 0);
+        }
+        nextSequence = buffer.getLong(8);
+    }
+
+    /**
+     * Starts a record for an alarm the receiver just got. Returns its sequence number, which the
+     * later stages take to find it again.
+     */
+    public synchronized long fired(int alarmId, long scheduledAt, long firedAt, int bucket, int flags) {
+        // Delivered after all: the record that called it missed becomes this one
+        for (long sequence = Math.max(0, nextSequence - capacity); sequence < nextSequence; sequence++) {
+            int offset = slotOffset(sequence);
+            if (buffer.getInt(offset + OFFSET_ALARM_ID) != alarmId || buffer.get(offset + OFFSET_OUTCOME) != OUTCOME_MISSED) continue;
+            buffer.put(offset + OFFSET_OUTCOME, (byte) OUTCOME_PENDING);
+            buffer.put(offset + OFFSET_BUCKET, (byte) bucket);
+            buffer.put(offset + OFFSET_FLAGS, (byte) flags);
+            buffer.putLong(offset + OFFSET_FIRED, firedAt);
+            return sequence;
+        }
+        return append(alarmId, OUTCOME_PENDING, bucket, flags, scheduledAt, firedAt);
+    }
+
+    /** Records an alarm that was due at {@code scheduledAt} but never reached the receiver. */
+    public synchronized long missed(int alarmId, long scheduledAt) {
+        return append(alarmId, OUTCOME_MISSED, BUCKET_UNKNOWN, 0, scheduledAt, 0);
+    }
+
+    public synchronized void serviceStarted(long sequence, long delayMs) {
+        int offset = offsetOf(sequence);
+        if (offset >= 0) buffer.putInt(offset + OFFSET_SERVICE_DELAY, clampDelay(delayMs));
+    }
+
+    public synchronized void audioStarted(long sequence, long delayMs) {
+        int offset = offsetOf(sequence);
+        if (offset < 0) return;
+        buffer.putInt(offset + OFFSET_AUDIO_DELAY, clampDelay(delayMs));
+        buffer.put(offset + OFFSET_OUTCOME, (byte) OUTCOME_PLAYED);
+    }
+
+    /** Sets the outcome unless the record already has one. */
+    public synchronized void finish(long sequence, int outcome) {
+        int offset = offsetOf(sequence);
+        if (offset >= 0 && buffer.get(offset + OFFSET_OUTCOME) == OUTCOME_PENDING) {
+            buffer.put(offset + OFFSET_OUTCOME, (byte) outcome);
+        }
+    }
+
+    /** True if a record for {@code alarmId} is still in the buffer. */
+    public synchronized boolean contains(int alarmId) {
+        for (long sequence = Math.max(0, nextSequence - capacity); sequence < nextSequence; sequence++) {
+            if (buffer.getInt(slotOffset(sequence) + OFFSET_ALARM_ID) == alarmId) return true;
+        }
+        return false;
+    }
+
+    /** The records still in the buffer, oldest first. */
+    public synchronized List<Record> records() {
+        List<Record> records = new ArrayList<>();
+        for (long sequence = Math.max(0, nextSequence - capacity); sequence < nextSequence; sequence++) {
+            int offset = slotOffset(sequence);
+            records.add(new Record(
+                    buffer.getLong(offset + OFFSET_SEQUENCE),
+                    buffer.getInt(offset + OFFSET_ALARM_ID),
+                    buffer.get(offset + OFFSET_OUTCOME),
+                    buffer.get(offset + OFFSET_BUCKET),
+                    buffer.get(offset + OFFSET_FLAGS),
+                    buffer.getLong(offset + OFFSET_SCHEDULED),
+                    buffer.getLong(offset + OFFSET_FIRED),
+                    buffer.getInt(offset + OFFSET_SERVICE_DELAY),
+                    buffer.getInt(offset + OFFSET_AUDIO_DELAY)));
+        }
+        return records;
+    }
+
+    public Stats stats() {
+        return new Stats(records());
+    }
+
+    public synchronized void clear() {
+        for (int i = HEADER_SIZE; i < buffer.capacity(); i++) buffer.put(i, (byte) 0);
+        nextSequence = 0;
+        buffer.putLong(8, 0);
+    }
+
+    private long append(int alarmId, int outcome, int bucket, int flags, long scheduledAt, long firedAt) {
+        long sequence = nextSequence;
+        int offset = slotOffset(sequence);
+        buffer.putLong(offset + OFFSET_SEQUENCE, sequence);
+        buffer.putInt(offset + OFFSET_ALARM_ID, alarmId);
+        buffer.put(offset + OFFSET_OUTCOME, (byte) outcome);
+        buffer.put(offset + OFFSET_BUCKET, (byte) bucket);
+        buffer.put(offset + OFFSET_FLAGS, (byte) flags);
+        buffer.putLong(offset + OFFSET_SCHEDULED, scheduledAt);
+        buffer.putLong(offset + OFFSET_FIRED, firedAt);
+        buffer.putInt(offset + OFFSET_SERVICE_DELAY, NOT_REACHED);
+        buffer.putInt(offset + OFFSET_AUDIO_DELAY, NOT_REACHED);
+        // Published last, so a record is only counted once it is complete
+        nextSequence = sequence + 1;
+        buffer.putLong(8, nextSequence);
+        return sequence;
+    }
+
+    /** Offset of the record written under {@code sequence}, or -1 if it has been overwritten. */
+    private int offsetOf(long sequence) {
+        if (sequence < 0 || sequence >= nextSequence || sequence < nextSequence - capacity) return -1;
+        int offset = slotOffset(sequence);
+        return buffer.getLong(offset + OFFSET_SEQUENCE) == sequence ? offset : -1;
+    }
+
+    private int slotOffset(long sequence) {
+        return HEADER_SIZE + (int) (sequence % capacity) * RECORD_SIZE;
+    }
+
+    private static int clampDelay(long delayMs) {
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, delayMs));
+    }
+}
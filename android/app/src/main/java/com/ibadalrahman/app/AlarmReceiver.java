@@ -4,6 +4,7 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
+import android.os.SystemClock;
 import android.util.Log;
 
 public class AlarmReceiver extends BroadcastReceiver {
@@ -16,6 +17,7 @@ public class AlarmReceiver extends BroadcastReceiver {
         Intent serviceIntent = new Intent(context, AlarmService.class);
         serviceIntent.putExtra("timestamp", intent.getLongExtra("timestamp", 0));
         serviceIntent.putExtra("soundName", intent.getStringExtra("soundName"));
+        serviceIntent.putExtra("firedAt", SystemClock.elapsedRealtime());
         
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             context.startForegroundService(serviceIntent);
@@ -1,34 +1,30 @@
 package com.ibadalrahman.app;
 
-import android.app.Notification;
-import android.app.NotificationChannel;
-import android.app.NotificationManager;
-import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.media.AudioAttributes;
 import android.media.AudioManager;
-import android.media.MediaPlayer;
 import android.net.Uri;
-import android.os.Build;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
 import android.util.Log;
 
-import androidx.core.app.NotificationCompat;
-
 public class AlarmService extends Service {
     private static final String TAG = "AlarmService";
-    private static final String CHANNEL_ID = "alarm_channel";
-    private MediaPlayer mediaPlayer;
+    static final String ACTION_STOP = "STOP_ALARM";
+    private final AudioEngine audioEngine = AudioEngine.alarm();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Bumped per sound, so an error from an earlier one can't stop a newer alarm
+    private int playback;
     private int originalVolume = -1;
     private AudioManager audioManager;
 
     @Override
     public void onCreate() {
         super.onCreate();
-        createNotificationChannel();
+        NotificationTemplates.ensureChannels(this);
     }
 
     @Override
@@ -36,14 +32,14 @@ public class AlarmService extends Service {
         if (intent == null) return START_NOT_STICKY;
 
         String action = intent.getAction();
-        if ("STOP_ALARM".equals(action)) {
+        if (ACTION_STOP.equals(action)) {
             stopAlarm();
             return START_NOT_STICKY;
         }
 
         String soundName = intent.getStringExtra("soundName");
-        startForeground(2, createNotification()); // ID 2 for Alarm
-        playAlarmSound(soundName);
+        startForeground(2, NotificationTemplates.alarm(this)); // ID 2 for Alarm
+        playAlarmSound(soundName, intent.getLongExtra("firedAt", 0));
 
         // Launch the App Activity on top
         Intent activityIntent = new Intent(this, MainActivity.class);
@@ -54,11 +50,8 @@ public class AlarmService extends Service {
         return START_STICKY;
     }
 
-    private void playAlarmSound(String soundName) {
-        if (mediaPlayer != null) {
-            mediaPlayer.release();
-        }
-
+    private void playAlarmSound(String soundName, long firedAt) {
+        int token = ++playback;
         Uri soundUri = null;
         if (soundName != null && !soundName.equals("default")) {
              // Check for custom ringtone first
@@ -102,43 +95,27 @@ public class AlarmService extends Service {
             }
         }
 
-        mediaPlayer = new MediaPlayer();
-        try {
-            mediaPlayer.setDataSource(this, soundUri);
-            
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                mediaPlayer.setAudioAttributes(
-                        new AudioAttributes.Builder()
-                                .setUsage(AudioAttributes.USAGE_ALARM)
-                                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
-                                .build()
-                );
-            } else {
-                mediaPlayer.setAudioStreamType(AudioManager.STREAM_ALARM);
-            }
+        audioEngine.play(this, soundUri, true, null, firedAt, new AudioEngine.Listener() {
+            @Override
+            public void onStarted(long durationMs) {}
 
-            mediaPlayer.setLooping(true);
-            mediaPlayer.prepare();
-            mediaPlayer.start();
-        } catch (Exception e) {
-            Log.e(TAG, "Error playing alarm sound", e);
-        }
+            @Override
+            public void onCompletion() {}
+
+            @Override
+            public void onError() {
+                Log.e(TAG, "Error playing alarm sound");
+                // Nothing is audible; don't leave a silent foreground service behind
+                mainHandler.post(() -> {
+                    if (token == playback) stopAlarm();
+                });
+            }
+        });
     }
 
     private void stopAlarm() {
-        if (mediaPlayer != null) {
-            try {
-                if (mediaPlayer.isPlaying()) {
-                    mediaPlayer.stop();
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Error stopping media player", e);
-            } finally {
-                mediaPlayer.release();
-                mediaPlayer = null;
-            }
-        }
-        
+        audioEngine.stop();
+
         // Restore original volume after alarm stops
         if (originalVolume != -1 && audioManager != null) {
             try {
@@ -154,53 +131,6 @@ public class AlarmService extends Service {
         stopSelf();
     }
 
-    private Notification createNotification() {
-        Intent notificationIntent = new Intent(this, MainActivity.class);
-        notificationIntent.putExtra("trigger", "alarm");
-        PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, notificationIntent, PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
-
-        Intent stopIntent = new Intent(this, AlarmService.class);
-        stopIntent.setAction("STOP_ALARM");
-        PendingIntent stopPendingIntent = PendingIntent.getService(this, 0, stopIntent, PendingIntent.FLAG_CANCEL_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-
-        // Full Screen Intent
-        Intent fullScreenIntent = new Intent(this, MainActivity.class);
-        fullScreenIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP | Intent.FLAG_ACTIVITY_CLEAR_TOP);
-        fullScreenIntent.putExtra("trigger", "alarm");
-        PendingIntent fullScreenPendingIntent = PendingIntent.getActivity(this, 0, fullScreenIntent, PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
-
-        return new NotificationCompat.Builder(this, CHANNEL_ID)
-                .setContentTitle("Alarm")
-                .setContentText("Wake up!")
-                .setSmallIcon(R.mipmap.ic_launcher)
-                .setPriority(NotificationCompat.PRIORITY_MAX)
-                .setCategory(NotificationCompat.CATEGORY_ALARM)
-                .setFullScreenIntent(fullScreenPendingIntent, true)
-                .setContentIntent(pendingIntent)
-                .addAction(android.R.drawable.ic_menu_close_clear_cancel, "Stop", stopPendingIntent)
-                .setOngoing(true)
-                .build();
-    }
-
-    private void createNotificationChannel() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            NotificationChannel serviceChannel = new NotificationChannel(
-                    CHANNEL_ID,
-                    "Alarm Service Channel",
-                    NotificationManager.IMPORTANCE_HIGH
-            );
-            serviceChannel.setDescription("Channel for Alarm Clock");
-            serviceChannel.setSound(null, null); // Sound handled by MediaPlayer
-            serviceChannel.enableVibration(true);
-            serviceChannel.setLockscreenVisibility(Notification.VISIBILITY_PUBLIC);
-
-            NotificationManager manager = getSystemService(NotificationManager.class);
-            if (manager != null) {
-                manager.createNotificationChannel(serviceChannel);
-            }
-        }
-    }
-
     @Override
     public IBinder onBind(Intent intent) {
         return null;
@@ -209,9 +139,6 @@ public class AlarmService extends Service {
     @Override
     public void onDestroy() {
         super.onDestroy();
-        if (mediaPlayer != null) {
-            mediaPlayer.release();
-            mediaPlayer = null;
-        }
+        audioEngine.stop();
     }
 }
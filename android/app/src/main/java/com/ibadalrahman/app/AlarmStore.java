@@ -0,0 +1,342 @@
+package com.ibadalrahman.app;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Compact alarm table keyed by deterministic integer IDs.
+ *
+ * <p>An ID is {@code epochDay * 32 + slot * 4 + kind}: eight slots per local day (the five
+ * prayers plus room for ad-hoc/test alarms) and four event kinds per slot. The same ID doubles as
+ * the PendingIntent request code, so codes never collide the way {@code prayerName.hashCode()}
+ * could. Ad-hoc alarms instead take {@link #adhocId(long)}, a negative ID from the second they
+ * fire, so several test alarms on one day don't overwrite each other.
+ *
+ * <p>Entries live in a dense array indexed by {@code id - baseId}, which gives O(1) lookup by ID;
+ * the few ad-hoc entries sit in a small list beside it. A time-sorted index is rebuilt lazily for
+ * range queries. The table is persisted as a small
+ * binary file written atomically on {@link #commit()}.
+ */
+public final class AlarmStore {
+    public static final int SLOT_ADHOC = 7;
+    public static final int KIND_ADHAN = 0;
+    // Notification-only events derived from an Adhan entry; see ReminderTimeline
+    public static final int KIND_REMINDER = 1;
+    public static final int KIND_PRE_ADHAN = 2;
+    public static final int KIND_POST_PRAYER = 3;
+
+    static final int SLOTS_PER_DAY = 32;
+    static final int NONE = -1;
+
+    // Ad-hoc IDs: MIN_VALUE plus the fire time in seconds, wrapping every 34 years
+    private static final int ADHOC_BASE = Integer.MIN_VALUE;
+    private static final int ADHOC_IDS = 1 << 30;
+
+    private static final int MAGIC = 0x4144484E; // "ADHN"
+    private static final int VERSION = 1;
+    private static final String[] SOUNDS = {"adhan_makkah", "adhan_madinah", "adhan_egypt"};
+
+    private final File file;
+    private int baseId;
+    private long[] times = new long[0];
+    private byte[] sounds = new byte[0];
+    private int[] adhocIds = new int[0];
+    private long[] adhocTimes = new long[0];
+    private byte[] adhocSounds = new byte[0];
+    private int adhocCount;
+    private int[] byTime;
+
+    public AlarmStore(File file) {
+        this.file = file;
+        load();
+    }
+
+    public static int idFor(long epochDay, int slot, int kind) {
+        return (int) (epochDay * SLOTS_PER_DAY + slot * 4 + kind);
+    }
+
+    /** ID for an ad-hoc alarm firing at {@code timestamp}; never equal to a day/slot ID. */
+    public static int adhocId(long timestamp) {
+        return ADHOC_BASE + (int) (timestamp / 1000 % ADHOC_IDS);
+    }
+
+    public static boolean isAdhoc(int id) {
+        return id < ADHOC_BASE + ADHOC_IDS;
+    }
+
+    /** Local epoch day of a day/slot ID, or -1 for an ad-hoc one. */
+    public static long dayOf(int id) {
+        return isAdhoc(id) ? -1 : id / SLOTS_PER_DAY;
+    }
+
+    public static int slotOf(int id) {
+        return isAdhoc(id) ? SLOT_ADHOC : (id % SLOTS_PER_DAY) / 4;
+    }
+
+    public static int kindOf(int id) {
+        return isAdhoc(id) ? KIND_ADHAN : id % 4;
+    }
+
+    /** Maps "fajr", "fajr_3", "Maghrib" etc. to a prayer slot, anything else to {@link #SLOT_ADHOC}. */
+    public static int slotForName(String prayerName) {
+        if (prayerName == null) return SLOT_ADHOC;
+        int underscore = prayerName.indexOf('_');
+        String base = underscore >= 0 ? prayerName.substring(0, underscore) : prayerName;
+        for (int slot = 0; slot < PrayerTimesCalculator.PRAYER_COUNT; slot++) {
+            if (PrayerTimesCalculator.PRAYER_NAMES[slot].equalsIgnoreCase(base)) return slot;
+        }
+        return SLOT_ADHOC;
+    }
+
+    public static String nameForSlot(int slot) {
+        return slot < PrayerTimesCalculator.PRAYER_COUNT ? PrayerTimesCalculator.PRAYER_NAMES[slot] : "Test";
+    }
+
+    /** Trigger time for {@code id}, or 0 if there is no such entry. */
+    public synchronized long time(int id) {
+        if (isAdhoc(id)) {
+            int index = adhocIndex(id);
+            return index >= 0 ? adhocTimes[index] : 0;
+        }
+        int index = id - baseId;
+        return index >= 0 && index < times.length ? times[index] : 0;
+    }
+
+    public synchronized String sound(int id) {
+        int code = soundCode(id);
+        return code >= 0 && code < SOUNDS.length ? SOUNDS[code] : null;
+    }
+
+    /** Returns true if the entry was added or its time/sound changed. */
+    public synchronized boolean put(int id, long time, String sound) {
+        byte code = encodeSound(sound);
+        if (time(id) == time && soundCode(id) == code) return false;
+        set(id, time, code);
+        byTime = null;
+        return true;
+    }
+
+    public synchronized boolean remove(int id) {
+        if (isAdhoc(id)) {
+            int index = adhocIndex(id);
+            if (index < 0) return false;
+            adhocCount--;
+            adhocIds[index] = adhocIds[adhocCount];
+            adhocTimes[index] = adhocTimes[adhocCount];
+            adhocSounds[index] = adhocSounds[adhocCount];
+            byTime = null;
+            return true;
+        }
+        int index = id - baseId;
+        if (index < 0 || index >= times.length || times[index] == 0) return false;
+        times[index] = 0;
+        sounds[index] = -1;
+        byTime = null;
+        return true;
+    }
+
+    /** Drops entries that fired at or before {@code time} and shrinks the table around the rest. */
+    public synchronized int prune(long time) {
+        int[] sorted = sortedIds();
+        int keepFrom = firstAfter(sorted, time);
+        if (keepFrom == 0) return 0;
+
+        int kept = sorted.length - keepFrom;
+        long[] keptTimes = new long[kept];
+        byte[] keptSounds = new byte[kept];
+        for (int i = 0; i < kept; i++) {
+            keptTimes[i] = time(sorted[keepFrom + i]);
+            keptSounds[i] = soundCode(sorted[keepFrom + i]);
+        }
+        clear();
+        for (int i = 0; i < kept; i++) set(sorted[keepFrom + i], keptTimes[i], keptSounds[i]);
+        return keepFrom;
+    }
+
+    public synchronized void clear() {
+        baseId = 0;
+        times = new long[0];
+        sounds = new byte[0];
+        adhocCount = 0;
+        byTime = null;
+    }
+
+    /** All IDs ordered by trigger time. */
+    public synchronized int[] ids() {
+        return sortedIds().clone();
+    }
+
+    /** IDs with {@code from < time <= to}, ordered by trigger time. */
+    public synchronized int[] idsBetween(long from, long to) {
+        int[] sorted = sortedIds();
+        int start = firstAfter(sorted, from);
+        int end = start;
+        while (end < sorted.length && time(sorted[end]) <= to) end++;
+        int[] result = new int[end - start];
+        System.arraycopy(sorted, start, result, 0, result.length);
+        return result;
+    }
+
+    /** Earliest ID strictly after {@code time}, or {@link #NONE}. */
+    public synchronized int nextAfter(long time) {
+        int[] sorted = sortedIds();
+        int index = firstAfter(sorted, time);
+        return index < sorted.length ? sorted[index] : NONE;
+    }
+
+    public synchronized int size() {
+        return sortedIds().length;
+    }
+
+    public synchronized void commit() throws IOException {
+        int[] sorted = sortedIds();
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+
+        File tmp = new File(file.getPath() + ".tmp");
+        FileOutputStream fos = new FileOutputStream(tmp);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sorted.length);
+            for (int id : sorted) {
+                out.writeInt(id);
+                out.writeLong(time(id));
+                out.writeByte(soundCode(id));
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    private void load() {
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int id = in.readInt();
+                set(id, in.readLong(), in.readByte());
+            }
+        } catch (IOException e) {
+            // A torn or foreign file is treated as empty; JS or BootReceiver will repopulate it
+            clear();
+        }
+        byTime = null;
+    }
+
+    private void set(int id, long time, byte code) {
+        if (isAdhoc(id)) {
+            int index = adhocIndex(id);
+            if (index < 0) {
+                if (adhocCount == adhocIds.length) {
+                    int length = Math.max(4, adhocCount * 2);
+                    adhocIds = java.util.Arrays.copyOf(adhocIds, length);
+                    adhocTimes = java.util.Arrays.copyOf(adhocTimes, length);
+                    adhocSounds = java.util.Arrays.copyOf(adhocSounds, length);
+                }
+                index = adhocCount++;
+                adhocIds[index] = id;
+            }
+            adhocTimes[index] = time;
+            adhocSounds[index] = code;
+            return;
+        }
+        ensureCapacity(id);
+        times[id - baseId] = time;
+        sounds[id - baseId] = code;
+    }
+
+    private int adhocIndex(int id) {
+        for (int i = 0; i < adhocCount; i++) {
+            if (adhocIds[i] == id) return i;
+        }
+        return -1;
+    }
+
+    private byte soundCode(int id) {
+        if (isAdhoc(id)) {
+            int index = adhocIndex(id);
+            return index >= 0 ? adhocSounds[index] : -1;
+        }
+        int index = id - baseId;
+        return index >= 0 && index < sounds.length ? sounds[index] : -1;
+    }
+
+    private void ensureCapacity(int id) {
+        if (times.length == 0) {
+            baseId = id - id % SLOTS_PER_DAY;
+            times = new long[SLOTS_PER_DAY * 8];
+            sounds = newSoundArray(times.length);
+            return;
+        }
+        int newBase = Math.min(baseId, id - id % SLOTS_PER_DAY);
+        int newEnd = Math.max(baseId + times.length, id + 1);
+        if (newBase == baseId && newEnd == baseId + times.length) return;
+
+        int length = times.length;
+        while (newEnd - newBase > length) length *= 2;
+        long[] newTimes = new long[length];
+        byte[] newSounds = newSoundArray(length);
+        System.arraycopy(times, 0, newTimes, baseId - newBase, times.length);
+        System.arraycopy(sounds, 0, newSounds, baseId - newBase, sounds.length);
+        baseId = newBase;
+        times = newTimes;
+        sounds = newSounds;
+    }
+
+    private int[] sortedIds() {
+        if (byTime != null) return byTime;
+        int count = adhocCount;
+        for (long t : times) if (t != 0) count++;
+        int[] sorted = new int[count];
+        int n = 0;
+        for (int index = 0; index < times.length + adhocCount; index++) {
+            boolean dense = index < times.length;
+            long time = dense ? times[index] : adhocTimes[index - times.length];
+            if (time == 0) continue;
+            // Insertion sort: the table holds a few hundred entries at most
+            int id = dense ? baseId + index : adhocIds[index - times.length];
+            int j = n++;
+            while (j > 0 && time(sorted[j - 1]) > time) {
+                sorted[j] = sorted[j - 1];
+                j--;
+            }
+            sorted[j] = id;
+        }
+        byTime = sorted;
+        return sorted;
+    }
+
+    private int firstAfter(int[] sorted, long time) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (time(sorted[mid]) <= time) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private static byte[] newSoundArray(int length) {
+        byte[] array = new byte[length];
+        java.util.Arrays.fill(array, (byte) -1);
+        return array;
+    }
+
+    private static byte encodeSound(String sound) {
+        for (int i = 0; i < SOUNDS.length; i++) {
+            if (SOUNDS[i].equals(sound)) return (byte) i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,98 @@
+package com.ibadalrahman.app;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Folds Arabic text to the form the Quran search index is keyed on: no tashkeel, Quranic marks or
+ * tatweel, and one spelling for each alef/yaa/taa-marbuta/hamza-carrier variant.
+ * {@link #stem} then strips common clitics and suffixes as a cheap stand-in for the root.
+ *
+ * <p>quran-corpus.gradle loads this file to build the index, so queries and the index always
+ * fold the same way. Keep it plain Java with no Android or library imports.
+ */
+public final class ArabicNormalizer {
+    // Longest first, so "وال" wins over "و"
+    private static final String[] PREFIXES = new String[] {"وال", "فال", "بال", "كال", "لل", "ال", "و", "ف", "ب", "ل"};
+    private static final String[] SUFFIXES = new String[] {"هما", "كما", "ها", "هم", "هن", "كم", "كن", "نا", "ون", "ين", "ان", "ات", "وا", "ه", "ي", "ك"};
+    // Never strip below this many letters
+    private static final int MIN_STEM = 3;
+
+    private ArabicNormalizer() {}
+
+    /** Folded form of {@code text}; non-letters are kept so callers can split on them. */
+    public static String normalize(String text) {
+        StringBuilder out = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            int c = text.charAt(i);
+            if (isIgnorable(c)) continue;
+            out.append((char) fold(c));
+        }
+        return out.toString();
+    }
+
+    /** Normalized words of {@code text}, in order, duplicates kept. */
+    public static List<String> tokens(String text) {
+        String normalized = normalize(text);
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean letter = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /** Light stem of a normalized token: one prefix and one suffix removed where the rest stays long enough. */
+    public static String stem(String token) {
+        String stem = token;
+        for (String prefix : PREFIXES) {
+            if (stem.startsWith(prefix) && stem.length() - prefix.length() >= MIN_STEM) {
+                stem = stem.substring(prefix.length());
+                break;
+            }
+        }
+        for (String suffix : SUFFIXES) {
+            // A lone letter needs a longer remainder, or "الله" would lose its final haa
+            int min = suffix.length() == 1 ? MIN_STEM + 1 : MIN_STEM;
+            if (stem.endsWith(suffix) && stem.length() - suffix.length() >= min) {
+                stem = stem.substring(0, stem.length() - suffix.length());
+                break;
+            }
+        }
+        return stem;
+    }
+
+    private static boolean isIgnorable(int c) {
+        return (c >= 0x064B && c <= 0x065F) // tashkeel
+                || c == 0x0670 // superscript alef
+                || c == 0x0640 // tatweel
+                || (c >= 0x06D6 && c <= 0x06ED) // Quranic annotation marks
+                || (c >= 0x08D3 && c <= 0x08FF) // extended Quranic marks
+                || c == 0xFEFF;
+    }
+
+    private static int fold(int c) {
+        switch (c) {
+            case 0x0622: // آ
+            case 0x0623: // أ
+            case 0x0625: // إ
+            case 0x0671: // ٱ
+                return 0x0627; // ا
+            case 0x0649: // ى
+            case 0x0626: // ئ
+                return 0x064A; // ي
+            case 0x0624: // ؤ
+                return 0x0648; // و
+            case 0x0629: // ة
+                return 0x0647; // ه
+            default:
+                return Character.toLowerCase(c);
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.ibadalrahman.app;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.MediaPlayer;
+import android.media.VolumeShaper;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+
+/**
+ * Alarm-stream playback off the main thread. Each engine owns a single MediaPlayer that is reset
+ * and reused rather than recreated, prepared with prepareAsync() on a shared audio HandlerThread.
+ *
+ * <p>{@link #preload} prepares a sound ahead of time; a later {@link #play} of the same sound
+ * starts immediately. A prepared player is kept for {@link #IDLE_RESET_MS} after it stops so
+ * back-to-back plays skip preparation, then reset to free the decoder.
+ *
+ * <p>{@link #playPcm} plays an already-decoded {@link PcmCache.Clip} through an AudioTrack on the
+ * same thread instead, bypassing MediaPlayer entirely; {@link #playCached} looks the clip up on
+ * that thread too and falls back to MediaPlayer when it isn't decoded.
+ *
+ * <p>Fade-ins use a VolumeShaper on API 26+, so the ramp runs inside the audio framework with no
+ * callbacks at all. Older devices step the player volume from this engine's Handler.
+ */
+public final class AudioEngine {
+    private static final String TAG = "AudioEngine";
+    private static final long IDLE_RESET_MS = 5 * 60 * 1000L;
+    private static final long RAMP_STEP_MS = 50;
+
+    private static final int STATE_IDLE = 0;
+    private static final int STATE_PREPARING = 1;
+    private static final int STATE_PREPARED = 2;
+    private static final int STATE_STARTED = 3;
+
+    private static HandlerThread thread;
+    private static AudioEngine adhan;
+    private static AudioEngine alarm;
+
+    /** Callbacks run on the audio thread. */
+    public interface Listener {
+        /** {@code durationMs} is the length of one pass through the sound, or -1 if unknown. */
+        void onStarted(long durationMs);
+        void onCompletion();
+        void onError();
+    }
+
+    private final String name;
+    private final Handler handler;
+    private final Runnable idleReset = this::resetPlayer;
+    private final Runnable rampStep = this::stepRamp;
+
+    // Only touched on the audio thread
+    private MediaPlayer player;
+    private int state = STATE_IDLE;
+    private Uri uri;
+    private boolean looping;
+    private PlayRequest pending;
+    private Runnable preloaded;
+    private PcmPlayer pcmPlayer;
+    private VolumeShaper shaper;
+    private long rampStart;
+
+    private AudioEngine(String name, Handler handler) {
+        this.name = name;
+        this.handler = handler;
+    }
+
+    public static synchronized AudioEngine adhan() {
+        if (adhan == null) adhan = new AudioEngine("adhan", new Handler(audioThread().getLooper()));
+        return adhan;
+    }
+
+    public static synchronized AudioEngine alarm() {
+        if (alarm == null) alarm = new AudioEngine("alarm", new Handler(audioThread().getLooper()));
+        return alarm;
+    }
+
+    private static HandlerThread audioThread() {
+        if (thread == null) {
+            thread = new HandlerThread("AudioEngine", Process.THREAD_PRIORITY_URGENT_AUDIO);
+            thread.start();
+        }
+        return thread;
+    }
+
+    /** Prepares {@code uri} so the next {@link #play} of it doesn't wait on the decoder. */
+    public void preload(Context context, Uri uri, boolean looping) {
+        preload(context, uri, looping, null);
+    }
+
+    /**
+     * As {@link #preload(Context, Uri, boolean)}, running {@code done} on the audio thread once the
+     * player is prepared, or has failed or been reset, so a caller can hold a wakelock until then.
+     */
+    public void preload(Context context, Uri uri, boolean looping, Runnable done) {
+        Context appContext = context.getApplicationContext();
+        handler.post(() -> {
+            finishPreload();
+            if (state == STATE_STARTED || state == STATE_PREPARED && isPreparedFor(uri, looping)) {
+                if (done != null) done.run();
+                return;
+            }
+            preloaded = done;
+            if (!isPreparedFor(uri, looping)) prepare(appContext, uri, looping);
+            Log.d(TAG, name + ": preloading " + uri);
+        });
+    }
+
+    /**
+     * Starts {@code uri}, fading in with {@code fade} if it isn't null. {@code firedAt} is the
+     * {@link SystemClock#elapsedRealtime()} at which the alarm was delivered, or 0 if unknown; the
+     * fire-to-sound latency is logged against it.
+     */
+    public void play(Context context, Uri uri, boolean looping, AudioFade fade, long firedAt, Listener listener) {
+        Context appContext = context.getApplicationContext();
+        handler.post(() -> startUri(appContext, uri, looping, fade, firedAt, listener));
+    }
+
+    /**
+     * Plays a decoded clip, applying {@code fade} (or none if null) to the samples themselves.
+     * Callbacks and latency logging behave as in {@link #play}.
+     */
+    public void playPcm(PcmCache.Clip clip, AudioFade fade, long firedAt, Listener listener) {
+        handler.post(() -> startPcm(clip, fade, firedAt, listener));
+    }
+
+    /**
+     * Plays {@code soundName} from {@code cache} if it is decoded, else {@code uri} once while the
+     * cache decodes it for next time. The cache lookup maps the file, so it happens here on the
+     * audio thread rather than on the caller's.
+     */
+    public void playCached(Context context, PcmCache cache, String soundName, Uri uri, AudioFade fade, long firedAt, Listener listener) {
+        Context appContext = context.getApplicationContext();
+        handler.post(() -> {
+            PcmCache.Clip clip = cache.get(soundName);
+            if (clip != null) {
+                startPcm(clip, fade, firedAt, listener);
+                return;
+            }
+            cache.prepare(soundName);
+            startUri(appContext, uri, false, fade, firedAt, listener);
+        });
+    }
+
+    private void startUri(Context context, Uri uri, boolean looping, AudioFade fade, long firedAt, Listener listener) {
+        // A newer request from the same service simply replaces an unstarted one
+        pending = new PlayRequest(fade, firedAt, listener);
+
+        stopPcm();
+        if (state == STATE_STARTED) stopPlayer();
+        if (isPreparedFor(uri, looping)) {
+            if (state == STATE_PREPARED) startPending();
+            // else onPrepared starts it
+        } else {
+            prepare(context, uri, looping);
+        }
+    }
+
+    private void startPcm(PcmCache.Clip clip, AudioFade fade, long firedAt, Listener listener) {
+        pending = null;
+        if (state == STATE_STARTED) stopPlayer();
+        stopPcm();
+
+        PcmPlayer next = new PcmPlayer(clip, fade, error -> {
+            pcmPlayer = null;
+            if (error) listener.onError();
+            else listener.onCompletion();
+        });
+        if (!next.start(handler)) {
+            Log.e(TAG, name + ": could not open AudioTrack for " + clip.soundName);
+            listener.onError();
+            return;
+        }
+        pcmPlayer = next;
+        if (firedAt > 0) {
+            Log.i(TAG, name + ": fire-to-sound latency " + (SystemClock.elapsedRealtime() - firedAt) + " ms (pcm)");
+        }
+        listener.onStarted(clip.frameCount * 1000L / clip.sampleRate);
+    }
+
+    /** Stops playback but keeps the player prepared for a while in case it is needed again. */
+    public void stop() {
+        handler.post(() -> {
+            pending = null;
+            if (state == STATE_STARTED) stopPlayer();
+            stopPcm();
+        });
+    }
+
+    private boolean isPreparedFor(Uri uri, boolean looping) {
+        return (state == STATE_PREPARED || state == STATE_PREPARING)
+                && uri.equals(this.uri) && looping == this.looping;
+    }
+
+    private void prepare(Context context, Uri uri, boolean looping) {
+        handler.removeCallbacks(idleReset);
+        if (player == null) {
+            player = new MediaPlayer();
+            player.setOnPreparedListener(mp -> {
+                state = STATE_PREPARED;
+                finishPreload();
+                if (pending != null) startPending();
+                else handler.postDelayed(idleReset, IDLE_RESET_MS);
+            });
+            player.setOnCompletionListener(mp -> {
+                // A completed player can be restarted without preparing again
+                endFade();
+                state = STATE_PREPARED;
+                finishPending(false);
+                handler.postDelayed(idleReset, IDLE_RESET_MS);
+            });
+            player.setOnErrorListener((mp, what, extra) -> {
+                Log.e(TAG, name + ": playback error " + what + "/" + extra);
+                resetPlayer();
+                finishPending(true);
+                return true;
+            });
+        } else {
+            player.reset();
+        }
+
+        this.uri = uri;
+        this.looping = looping;
+        try {
+            player.setDataSource(context, uri);
+            player.setAudioAttributes(new AudioAttributes.Builder()
+                    .setUsage(AudioAttributes.USAGE_ALARM)
+                    .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                    .build());
+            player.setLooping(looping);
+            state = STATE_PREPARING;
+            player.prepareAsync();
+        } catch (IOException | IllegalStateException | SecurityException e) {
+            Log.e(TAG, name + ": could not prepare " + uri, e);
+            resetPlayer();
+            finishPending(true);
+        }
+    }
+
+    private void startPending() {
+        handler.removeCallbacks(idleReset);
+        AudioFade fade = pending.fade;
+        if (fade == null || fade.durationMs == 0) {
+            player.setVolume(1.0f, 1.0f);
+            player.start();
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            player.setVolume(1.0f, 1.0f);
+            shaper = player.createVolumeShaper(fade.toShaperConfiguration());
+            shaper.apply(VolumeShaper.Operation.PLAY);
+            player.start();
+        } else {
+            player.setVolume(0f, 0f);
+            player.start();
+            rampStart = SystemClock.uptimeMillis();
+            handler.postDelayed(rampStep, RAMP_STEP_MS);
+        }
+        state = STATE_STARTED;
+        if (pending.firedAt > 0) {
+            Log.i(TAG, name + ": fire-to-sound latency " + (SystemClock.elapsedRealtime() - pending.firedAt) + " ms");
+        }
+        pending.listener.onStarted(player.getDuration());
+    }
+
+    private void stopPcm() {
+        if (pcmPlayer != null) {
+            pcmPlayer.stop();
+            pcmPlayer = null;
+        }
+    }
+
+    /** Pre-O fade: one Handler message per step on the audio thread, stopping at full volume. */
+    private void stepRamp() {
+        if (state != STATE_STARTED || pending == null || pending.fade == null) return;
+        long elapsed = SystemClock.uptimeMillis() - rampStart;
+        float volume = pending.fade.gainAt(elapsed);
+        player.setVolume(volume, volume);
+        if (elapsed < pending.fade.durationMs) handler.postDelayed(rampStep, RAMP_STEP_MS);
+    }
+
+    private void endFade() {
+        handler.removeCallbacks(rampStep);
+        if (shaper != null) {
+            shaper.close();
+            shaper = null;
+        }
+    }
+
+    private void stopPlayer() {
+        endFade();
+        player.pause();
+        player.seekTo(0);
+        state = STATE_PREPARED;
+        handler.postDelayed(idleReset, IDLE_RESET_MS);
+    }
+
+    private void resetPlayer() {
+        handler.removeCallbacks(idleReset);
+        endFade();
+        if (player != null) player.reset();
+        state = STATE_IDLE;
+        uri = null;
+        finishPreload();
+    }
+
+    private void finishPreload() {
+        Runnable done = preloaded;
+        preloaded = null;
+        if (done != null) done.run();
+    }
+
+    private void finishPending(boolean error) {
+        PlayRequest request = pending;
+        pending = null;
+        if (request == null) return;
+        if (error) request.listener.onError();
+        else request.listener.onCompletion();
+    }
+
+    private static final class PlayRequest {
+        final AudioFade fade;
+        final long firedAt;
+        final Listener listener;
+
+        PlayRequest(AudioFade fade, long firedAt, Listener listener) {
+            this.fade = fade;
+            this.firedAt = firedAt;
+            this.listener = listener;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.ibadalrahman.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.media.VolumeShaper;
+
+/**
+ * Fade-in shape for the Adhan, shared by every playback path: VolumeShaper on API 26+, a
+ * Handler-stepped ramp on older MediaPlayers, and per-frame gain for the PCM cache. All of them
+ * evaluate the same {@link #gain} so the fade sounds identical whichever path plays.
+ */
+public final class AudioFade {
+    public static final String CURVE_LINEAR = "linear";
+    // A cubic rise is closer to an even increase in loudness than a linear gain ramp
+    public static final String CURVE_EXPONENTIAL = "exponential";
+    public static final String CURVE_LOGARITHMIC = "logarithmic";
+    public static final String CURVE_SCURVE = "scurve";
+
+    static final String KEY_CURVE = "azanFadeCurve";
+    static final String KEY_DURATION = "azanFadeDurationMs";
+    static final long DEFAULT_DURATION_MS = 10_000;
+    static final long MAX_DURATION_MS = 120_000;
+
+    // VolumeShaper interpolates linearly between these points
+    private static final int SHAPER_POINTS = 16;
+
+    public final String curve;
+    public final long durationMs;
+
+    public AudioFade(String curve, long durationMs) {
+        this.curve = isKnownCurve(curve) ? curve : CURVE_LINEAR;
+        this.durationMs = Math.max(0, Math.min(MAX_DURATION_MS, durationMs));
+    }
+
+    /** The user's fade, or null if fade-in is switched off. */
+    public static AudioFade load(Context context) {
+        SharedPreferences prefs = DeviceStorage.prefs(context, "PrayerWidgetPrefs");
+        if (!prefs.getBoolean("azanFadeIn", false)) return null;
+        return new AudioFade(prefs.getString(KEY_CURVE, CURVE_LINEAR), prefs.getLong(KEY_DURATION, DEFAULT_DURATION_MS));
+    }
+
+    public static boolean isKnownCurve(String curve) {
+        return CURVE_LINEAR.equals(curve) || CURVE_EXPONENTIAL.equals(curve)
+                || CURVE_LOGARITHMIC.equals(curve) || CURVE_SCURVE.equals(curve);
+    }
+
+    /** Gain in [0, 1] at {@code t} in [0, 1] of the fade. */
+    public float gain(float t) {
+        if (t <= 0f) return 0f;
+        if (t >= 1f) return 1f;
+        switch (curve) {
+            case CURVE_EXPONENTIAL:
+                return t * t * t;
+            case CURVE_LOGARITHMIC:
+                float inverse = 1f - t;
+                return 1f - inverse * inverse * inverse;
+            case CURVE_SCURVE:
+                return (float) (0.5 - 0.5 * Math.cos(Math.PI * t));
+            default:
+                return t;
+        }
+    }
+
+    /** Gain {@code elapsedMs} into the fade. */
+    public float gainAt(long elapsedMs) {
+        return durationMs == 0 ? 1f : gain((float) elapsedMs / durationMs);
+    }
+
+    /** API 26+ only. */
+    VolumeShaper.Configuration toShaperConfiguration() {
+        float[] times = new float[SHAPER_POINTS + 1];
+        float[] volumes = new float[SHAPER_POINTS + 1];
+        for (int i = 0; i <= SHAPER_POINTS; i++) {
+            times[i] = (float) i / SHAPER_POINTS;
+            volumes[i] = gain(times[i]);
+        }
+        return new VolumeShaper.Configuration.Builder()
+                .setDuration(Math.max(1, durationMs))
+                .setCurve(times, volumes)
+                .setInterpolatorType(VolumeShaper.Configuration.INTERPOLATOR_TYPE_LINEAR)
+                .build();
+    }
+}
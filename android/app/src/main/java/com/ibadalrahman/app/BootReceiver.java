@@ -3,68 +3,69 @@ package com.ibadalrahman.app;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
-import android.app.AlarmManager;
-import android.app.PendingIntent;
 import android.util.Log;
-import java.util.Map;
 
+import androidx.annotation.VisibleForTesting;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Re-arms the Adhan schedule whenever the system may have dropped or shifted it. Direct boot
+ * aware, so alarms are back as soon as LOCKED_BOOT_COMPLETED arrives rather than after unlock.
+ * The work runs off the main thread under goAsync() and never needs the WebView.
+ */
 public class BootReceiver extends BroadcastReceiver {
     private static final String TAG = "BootReceiver";
 
-    @Override
-    public void onReceive(Context context, Intent intent) {
-        if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction()) || 
-            "android.intent.action.QUICKBOOT_POWERON".equals(intent.getAction())) {
-            
-            Log.d(TAG, "Boot completed, rescheduling alarms...");
-            rescheduleAlarms(context);
-        }
-    }
-
-    private void rescheduleAlarms(Context context) {
-        SharedPreferences prefs = context.getSharedPreferences("AdhanAlarms", Context.MODE_PRIVATE);
-        Map<String, ?> allEntries = prefs.getAll();
-        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+    private static final String ACTION_LOCKED_BOOT_COMPLETED = "android.intent.action.LOCKED_BOOT_COMPLETED";
+    private static final String ACTION_QUICKBOOT_POWERON = "android.intent.action.QUICKBOOT_POWERON";
 
-        for (Map.Entry<String, ?> entry : allEntries.entrySet()) {
-            String key = entry.getKey();
-            if (key.startsWith("time_")) {
-                try {
-                    String prayerName = key.substring(5); // remove "time_"
-                    Long timestamp = (Long) entry.getValue();
-                    String soundName = prefs.getString("sound_" + prayerName, "adhan_makkah");
+    // Boot, clock and package broadcasts can arrive back to back; restore them one at a time.
+    // AdhanRefillJob queues its top-ups here too.
+    static final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "AlarmRestore"));
 
-                    if (timestamp > System.currentTimeMillis()) {
-                        Log.d(TAG, "Rescheduling " + prayerName + " at " + timestamp);
-                        
-                        Intent alarmIntent = new Intent(context, AdhanReceiver.class);
-                        alarmIntent.putExtra("prayerName", prayerName);
-                        alarmIntent.putExtra("soundName", soundName);
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (!isRestoreAction(action)) return;
 
-                        int notificationId = prayerName.hashCode();
-                        PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                                context,
-                                notificationId,
-                                alarmIntent,
-                                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-                        );
+        Log.d(TAG, action + ", restoring alarms...");
+        Context appContext = context.getApplicationContext();
+        PendingResult result = goAsync();
+        executor.execute(() -> {
+            try {
+                long start = System.currentTimeMillis();
+                AdhanScheduler.restore(appContext);
+                Log.d(TAG, "Alarms restored in " + (System.currentTimeMillis() - start) + " ms");
 
-                        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.M) {
-                            AlarmManager.AlarmClockInfo alarmClockInfo = new AlarmManager.AlarmClockInfo(timestamp, pendingIntent);
-                            alarmManager.setAlarmClock(alarmClockInfo, pendingIntent);
-                        } else {
-                            alarmManager.setExact(AlarmManager.RTC_WAKEUP, timestamp, pendingIntent);
-                        }
-                    } else {
-                        // Cleanup old alarms
-                         // prefs.edit().remove(key).remove("sound_" + prayerName).apply(); 
-                         // Optional: clean up, but risky if time is slightly sync-off. Better leave it for new schedules to overwrite.
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "Error rescheduling alarm for " + key, e);
+                // Boot gets its own APPWIDGET_UPDATE; a clock or zone change moves the day's boundaries
+                if (Intent.ACTION_TIME_CHANGED.equals(action) || Intent.ACTION_TIMEZONE_CHANGED.equals(action)
+                        || Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)) {
+                    appContext.sendBroadcast(new Intent(appContext, PrayerWidgetProvider.class)
+                            .setAction(PrayerWidgetProvider.ACTION_ADVANCE));
                 }
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error restoring alarms", e);
+            } finally {
+                result.finish();
             }
-        }
+        });
+    }
+
+    /** Waits for every restore queued so far to finish; for tests and benchmarks. */
+    @VisibleForTesting
+    static void awaitRestores() throws ExecutionException, InterruptedException {
+        executor.submit(() -> { }).get();
+    }
+
+    private static boolean isRestoreAction(String action) {
+        return ACTION_LOCKED_BOOT_COMPLETED.equals(action)
+                || Intent.ACTION_BOOT_COMPLETED.equals(action)
+                || ACTION_QUICKBOOT_POWERON.equals(action)
+                || Intent.ACTION_TIME_CHANGED.equals(action)
+                || Intent.ACTION_TIMEZONE_CHANGED.equals(action)
+                || Intent.ACTION_MY_PACKAGE_REPLACED.equals(action);
     }
 }
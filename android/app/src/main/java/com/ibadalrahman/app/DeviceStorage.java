@@ -0,0 +1,75 @@
+package com.ibadalrahman.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.UserManager;
+import android.util.Log;
+
+import java.io.File;
+
+/**
+ * Device-protected storage for everything the alarm path reads, so BootReceiver can re-arm on
+ * LOCKED_BOOT_COMPLETED and an Adhan can play before the first unlock. On API 23 there is no
+ * direct boot and this is just the normal app storage.
+ */
+public final class DeviceStorage {
+    private static final String TAG = "DeviceStorage";
+
+    private static final String STATE_PREFS_NAME = "DeviceStorage";
+    private static final String KEY_MIGRATED = "migrated";
+
+    // Lived in credential-encrypted storage before direct boot support
+    private static final String[] MIGRATED_PREFS = {PrayerSettings.PREFS_NAME, "PrayerWidgetPrefs"};
+    private static final String[] MIGRATED_FILES = {AdhanScheduler.STORE_FILE};
+
+    private static boolean migrated;
+
+    private DeviceStorage() {}
+
+    /** Context whose prefs and files are readable while the device is still locked. */
+    public static Context of(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) return context.getApplicationContext();
+        Context deviceContext = context.getApplicationContext().createDeviceProtectedStorageContext();
+        migrateOnce(context.getApplicationContext(), deviceContext);
+        return deviceContext;
+    }
+
+    public static SharedPreferences prefs(Context context, String name) {
+        return of(context).getSharedPreferences(name, Context.MODE_PRIVATE);
+    }
+
+    /** False between boot and the first unlock, when credential-encrypted storage is unreadable. */
+    public static boolean isUserUnlocked(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) return true;
+        UserManager userManager = (UserManager) context.getSystemService(Context.USER_SERVICE);
+        return userManager == null || userManager.isUserUnlocked();
+    }
+
+    /** Moves the old credential-encrypted copies across the first time the user is unlocked. */
+    private static synchronized void migrateOnce(Context appContext, Context deviceContext) {
+        if (migrated) return;
+        SharedPreferences state = deviceContext.getSharedPreferences(STATE_PREFS_NAME, Context.MODE_PRIVATE);
+        if (state.getBoolean(KEY_MIGRATED, false)) {
+            migrated = true;
+            return;
+        }
+        // Try again from the next caller once the user has unlocked
+        if (!isUserUnlocked(appContext)) return;
+
+        for (String name : MIGRATED_PREFS) {
+            if (!deviceContext.moveSharedPreferencesFrom(appContext, name)) {
+                Log.w(TAG, "Could not move prefs " + name);
+            }
+        }
+        for (String name : MIGRATED_FILES) {
+            File from = new File(appContext.getFilesDir(), name);
+            File to = new File(deviceContext.getFilesDir(), name);
+            if (from.exists() && !to.exists() && !from.renameTo(to)) {
+                Log.w(TAG, "Could not move " + name);
+            }
+        }
+        state.edit().putBoolean(KEY_MIGRATED, true).commit();
+        migrated = true;
+    }
+}
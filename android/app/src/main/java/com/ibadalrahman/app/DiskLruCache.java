@@ -0,0 +1,227 @@
+package com.ibadalrahman.app;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded directory of downloaded files, one per key, evicted least recently used first.
+ * Downloads stream straight to disk, and concurrent requests for the same key share one download.
+ * Access order is kept in file modification times, so it survives a restart.
+ *
+ * <p>Plain Java so it can be tested against a local HTTP server.
+ */
+public final class DiskLruCache {
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    private static final int READ_TIMEOUT_MS = 15_000;
+
+    private final File dir;
+    private final String suffix;
+    private final String accept;
+    private final long maxBytes;
+
+    // Access-ordered: the eldest entry is the least recently used. Values are file sizes.
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+
+    private final Map<String, FutureTask<File>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong downloads = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param suffix   file extension for entries, e.g. ".json"; keys must be safe as file names
+     * @param accept   Accept header sent with downloads, or null
+     * @param maxBytes total size the entries may take on disk
+     */
+    public DiskLruCache(File dir, String suffix, String accept, long maxBytes) {
+        this.dir = dir;
+        this.suffix = suffix;
+        this.accept = accept;
+        this.maxBytes = maxBytes;
+        load();
+    }
+
+    /** Hit/miss counters since this instance was created. */
+    public static final class Stats {
+        public final long hits;
+        public final long misses;
+        public final long downloads;
+        public final long evictions;
+        public final int entries;
+        public final long bytes;
+
+        Stats(long hits, long misses, long downloads, long evictions, int entries, long bytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.downloads = downloads;
+            this.evictions = evictions;
+            this.entries = entries;
+            this.bytes = bytes;
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits.get(), misses.get(), downloads.get(), evictions.get(), entries.size(), totalBytes);
+    }
+
+    /** Whether {@code key} can be served without the network. */
+    public synchronized boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * The file for {@code key}, downloaded from {@code url} first if it isn't cached, and counted
+     * as a hit or miss. Blocks.
+     */
+    public File get(String key, String url) throws IOException {
+        File cached = touch(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        return download(key, url);
+    }
+
+    /** Like {@link #get} but for background prefetching, so it doesn't skew the counters. */
+    public File fetch(String key, String url) throws IOException {
+        File cached = touch(key);
+        return cached != null ? cached : download(key, url);
+    }
+
+    private File download(String key, String url) throws IOException {
+        FutureTask<File> task = new FutureTask<>(() -> {
+            // Another caller may have stored it while this one was waiting to start
+            File cached = touch(key);
+            if (cached != null) return cached;
+            File file = store(key, url);
+            downloads.incrementAndGet();
+            return file;
+        });
+        FutureTask<File> existing = inFlight.putIfAbsent(key, task);
+        if (existing == null) {
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, task);
+            }
+        } else {
+            task = existing;
+        }
+
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading " + key, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException("Failed to download " + key, cause);
+        }
+    }
+
+    /** Downloads to a temporary file outside the lock, then publishes it. */
+    private File store(String key, String url) throws IOException {
+        if (!dir.exists() && !dir.mkdirs() && !dir.exists()) throw new IOException("Cannot create " + dir);
+        File tmp = new File(dir, key + ".tmp");
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        if (accept != null) connection.setRequestProperty("Accept", accept);
+        long length = 0;
+        try {
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) throw new IOException("API Error: " + status);
+            try (InputStream in = connection.getInputStream(); OutputStream out = new FileOutputStream(tmp)) {
+                byte[] buffer = new byte[16 * 1024];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, n);
+                    length += n;
+                }
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        } finally {
+            connection.disconnect();
+        }
+
+        synchronized (this) {
+            File file = fileFor(key);
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+                throw new IOException("Cannot store " + key);
+            }
+            Long previous = entries.put(key, length);
+            totalBytes += length - (previous != null ? previous : 0);
+            trim();
+            return file;
+        }
+    }
+
+    /** The cached file for {@code key}, marked as just used, or null. */
+    private synchronized File touch(String key) {
+        if (entries.get(key) == null) return null;
+        File file = fileFor(key);
+        if (!file.setLastModified(System.currentTimeMillis()) && !file.exists()) {
+            // Deleted behind our back, e.g. by "clear cache"
+            totalBytes -= entries.remove(key);
+            return null;
+        }
+        return file;
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        // Always keep the newest entry, even if it alone is over the limit
+        while (totalBytes > maxBytes && entries.size() > 1 && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            fileFor(entry.getKey()).delete();
+            totalBytes -= entry.getValue();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /** Rebuilds the LRU order from file modification times. */
+    private synchronized void load() {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        List<File> cached = new ArrayList<>();
+        for (File file : files) {
+            if (file.getName().endsWith(suffix)) cached.add(file);
+            else file.delete(); // partial download from a killed process
+        }
+        File[] ordered = cached.toArray(new File[0]);
+        Arrays.sort(ordered, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : ordered) {
+            String name = file.getName();
+            entries.put(name.substring(0, name.length() - suffix.length()), file.length());
+            totalBytes += file.length();
+        }
+        trim();
+    }
+
+    private File fileFor(String key) {
+        return new File(dir, key + suffix);
+    }
+}
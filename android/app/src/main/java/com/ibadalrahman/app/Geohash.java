@@ -0,0 +1,91 @@
+package com.ibadalrahman.app;
+
+/**
+ * Geohash cells, used to key cached place searches by where they were made. A cell of precision
+ * p splits longitude into 2^ceil(5p/2) and latitude into 2^floor(5p/2) equal steps; at 6 that is
+ * about 1.2 by 0.6 km at the equator. Plain Java.
+ */
+public final class Geohash {
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+    private Geohash() {}
+
+    public static String encode(double latitude, double longitude, int precision) {
+        return encode(latIndex(latitude, precision), lngIndex(longitude, precision), precision);
+    }
+
+    /** {minLat, minLng, maxLat, maxLng} of the cell. */
+    public static double[] bounds(String hash) {
+        double minLat = -90, maxLat = 90, minLng = -180, maxLng = 180;
+        boolean lng = true;
+        for (int i = 0; i < hash.length(); i++) {
+            int value = BASE32.indexOf(hash.charAt(i));
+            if (value < 0) throw new IllegalArgumentException("Not a geohash: " + hash);
+            for (int bit = 4; bit >= 0; bit--) {
+                boolean upper = ((value >> bit) & 1) == 1;
+                if (lng) {
+                    double mid = (minLng + maxLng) / 2;
+                    if (upper) minLng = mid; else maxLng = mid;
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (upper) minLat = mid; else maxLat = mid;
+                }
+                lng = !lng;
+            }
+        }
+        return new double[] {minLat, minLng, maxLat, maxLng};
+    }
+
+    /** Radius of the circle around the cell's center that covers all of it. */
+    public static double radiusMeters(String hash) {
+        double[] b = bounds(hash);
+        return distanceMeters((b[0] + b[2]) / 2, (b[1] + b[3]) / 2, b[2], b[3]);
+    }
+
+    /** Equirectangular distance; plenty for the few kilometres a search spans. */
+    public static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double x = Math.toRadians(lng2 - lng1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        double y = Math.toRadians(lat2 - lat1);
+        return Math.sqrt(x * x + y * y) * 6_371_000;
+    }
+
+    private static String encode(int latIndex, int lngIndex, int precision) {
+        int latBits = latBits(precision);
+        int lngBits = lngBits(precision);
+        StringBuilder hash = new StringBuilder(precision);
+        int value = 0;
+        int count = 0;
+        // Bits interleave starting with longitude, most significant first
+        for (int i = 0; i < latBits + lngBits; i++) {
+            int bit = i % 2 == 0
+                    ? (lngIndex >> (lngBits - 1 - i / 2)) & 1
+                    : (latIndex >> (latBits - 1 - i / 2)) & 1;
+            value = (value << 1) | bit;
+            if (++count == 5) {
+                hash.append(BASE32.charAt(value));
+                value = 0;
+                count = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    private static int latIndex(double latitude, int precision) {
+        int cells = 1 << latBits(precision);
+        return Math.max(0, Math.min(cells - 1, (int) Math.floor((latitude + 90) / 180 * cells)));
+    }
+
+    private static int lngIndex(double longitude, int precision) {
+        int cells = 1 << lngBits(precision);
+        double wrapped = ((longitude + 180) % 360 + 360) % 360;
+        return Math.min(cells - 1, (int) Math.floor(wrapped / 360 * cells));
+    }
+
+    private static int latBits(int precision) {
+        return 5 * precision / 2;
+    }
+
+    private static int lngBits(int precision) {
+        return (5 * precision + 1) / 2;
+    }
+}
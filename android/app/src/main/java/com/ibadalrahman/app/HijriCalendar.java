@@ -0,0 +1,209 @@
+package com.ibadalrahman.app;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Umm al-Qura calendar from the official month-length table (1300-1600 AH, 1882-2174 CE), plus
+ * the Islamic events shown on the calendar. Conversions are table lookups: month starts are
+ * accumulated once, and a day is placed by estimating its month from the mean month length and
+ * correcting by at most a step.
+ *
+ * <p>Months are 1-12 here; HijriPlugin converts to the 0-11 JS uses. Plain Java.
+ */
+final class HijriCalendar {
+    static final int FIRST_YEAR = 1300;
+    static final int LAST_YEAR = 1600;
+    // 1 Muharram 1300 (12 Nov 1882), in days since 1970-01-01
+    private static final long FIRST_EPOCH_DAY = -31826;
+    private static final double MEAN_MONTH_DAYS = 29.530588853;
+
+    // One entry per year from FIRST_YEAR; bit (month - 1) is set when that month has 30 days
+    private static final short[] MONTH_LENGTHS = {
+            0x555, 0x2AB, 0x937, 0x2B6, 0x576, 0x36C, 0xB55, 0xAAA, 0x956, 0x49E,
+            0x95D, 0x2BA, 0x5B5, 0x3AA, 0xB4B, 0xA96, 0x52E, 0x2AD, 0x56D, 0xB5A,
+            0x752, 0xF25, 0xE8A, 0xD16, 0xA56, 0xAB5, 0x6B4, 0xDA9, 0xB92, 0xB25,
+            0x64B, 0xA9B, 0x35A, 0x6D9, 0x5D4, 0xDA5, 0xD4A, 0xA95, 0x536, 0x975,
+            0x2F4, 0x6E9, 0x6D4, 0x6A9, 0x535, 0x25D, 0x4BD, 0x9BA, 0x3B4, 0xB69,
+            0xB2A, 0xA55, 0x4AD, 0xA5D, 0x2DA, 0x6D9, 0xEAA, 0xE94, 0xD2A, 0xC56,
+            0x4AE, 0xA6D, 0x56A, 0xD55, 0xD4A, 0xA93, 0x52B, 0xA5B, 0x53A, 0x6B5,
+            0xEA9, 0xD52, 0xD29, 0xA55, 0x4AD, 0x56D, 0xAEA, 0x6E4, 0xED1, 0xDA2,
+            0xAAA, 0x95A, 0x2DA, 0x5B9, 0xBB2, 0x764, 0x6C9, 0x555, 0x2AB, 0x4DB,
+            0xABA, 0x5B4, 0xDA9, 0xD52, 0xAA5, 0x92D, 0x26D, 0x8ED, 0x2DA, 0xAD5,
+            0xAA5, 0xA4B, 0x497, 0x937, 0x2B6, 0x975, 0xD69, 0xD52, 0xC95, 0x92B,
+            0x25B, 0x4DB, 0x9D5, 0x5D2, 0xDA5, 0xD4A, 0xA95, 0x54D, 0xAAD, 0x3AA,
+            0xBD2, 0xBC4, 0xB89, 0xA95, 0x52D, 0x5AD, 0xB6A, 0x6D4, 0xDC9, 0xD92,
+            0xAA6, 0x956, 0x2AE, 0x56D, 0x36A, 0xB55, 0xAAA, 0x94D, 0x49D, 0x95D,
+            0x2BA, 0x5B5, 0x5AA, 0xD55, 0xA9A, 0x92E, 0x26E, 0x55D, 0xADA, 0x6D4,
+            0x6A5, 0xB27, 0xA4D, 0x4AD, 0x56D, 0xB5A, 0x754, 0xF49, 0xE92, 0xD26,
+            0xA56, 0x356, 0x6B5, 0xBAA, 0xB92, 0xB25, 0x68B, 0xA9B, 0x55A, 0xADA,
+            0x5B4, 0xDA9, 0xB52, 0xA9A, 0x536, 0x276, 0x575, 0xAF2, 0x6D4, 0x6A9,
+            0x555, 0x2AD, 0x4BD, 0x9BA, 0x574, 0xB69, 0xB52, 0xA95, 0x52D, 0xA5D,
+            0x4DA, 0xAD9, 0x6B2, 0xE95, 0xE2A, 0xC96, 0x92E, 0xAAD, 0x56A, 0xD65,
+            0xD4A, 0xD15, 0x62B, 0xC5B, 0x53A, 0x6B5, 0xDB2, 0xD64, 0xD29, 0xA55,
+            0x4AD, 0x96D, 0xAEA, 0x6E8, 0xED1, 0xDA4, 0xD4A, 0xA6A, 0x2DA, 0x5B9,
+            0xB72, 0xB68, 0x6D1, 0x655, 0x4AB, 0x95B, 0x2BA, 0x5B5, 0xDA9, 0xD52,
+            0xCA6, 0x94E, 0x46E, 0x95D, 0x4DA, 0xAD5, 0xAAA, 0xA4D, 0x49B, 0x937,
+            0x4B6, 0x975, 0xD6A, 0xD52, 0xAA5, 0x94B, 0x2AB, 0x55B, 0xAD9, 0x5D2,
+            0xDC5, 0xD92, 0xB25, 0x555, 0xAB5, 0x5B4, 0xBA9, 0x7A2, 0x745, 0x593,
+            0xAAB, 0x4D6, 0x9D6, 0x5D2, 0xBA5, 0xB4A, 0xA95, 0x4AD, 0x15D, 0x2DD,
+            0x9DA, 0x5B4, 0x5A9, 0x52D, 0x25B, 0x8B7, 0x176, 0x56D, 0xB6A, 0xACA,
+            0xA96, 0x52B, 0x15B, 0x2BB, 0x5B6, 0xDAA, 0xB94, 0xD46, 0xA8D, 0x52D,
+            0xA9D, 0x55A, 0x755, 0x749, 0xF13, 0xE4A, 0xA96, 0x556, 0x6B5, 0xBAA,
+            0xB94
+    };
+
+    // Days from FIRST_EPOCH_DAY to the start of each month, plus the day after the last month
+    private static final int[] MONTH_STARTS = new int[MONTH_LENGTHS.length * 12 + 1];
+
+    static {
+        int days = 0;
+        for (int year = 0; year < MONTH_LENGTHS.length; year++) {
+            for (int month = 0; month < 12; month++) {
+                MONTH_STARTS[year * 12 + month] = days;
+                days += (MONTH_LENGTHS[year] & (1 << month)) != 0 ? 30 : 29;
+            }
+        }
+        MONTH_STARTS[MONTH_STARTS.length - 1] = days;
+    }
+
+    static final String WHITE_DAYS = "whiteDays";
+    static final String RAMADAN_START = "ramadanStart";
+    static final String LAST_TEN_NIGHTS = "lastTenNights";
+    static final String EID_AL_FITR = "eidAlFitr";
+    static final String ARAFAH = "arafah";
+    static final String EID_AL_ADHA = "eidAlAdha";
+    static final String TASHREEQ = "tashreeq";
+    static final String ISLAMIC_NEW_YEAR = "islamicNewYear";
+    static final String TASUA = "tasua";
+    static final String ASHURA = "ashura";
+    static final String MAWLID = "mawlid";
+
+    private static final String[] NO_EVENTS = new String[0];
+    // Indexed by (month - 1) * 30 + (day - 1); mirrors src/lib/islamic-events.ts
+    private static final String[][] EVENTS = new String[12 * 30][];
+
+    static {
+        for (int month = 1; month <= 12; month++) {
+            // 13 Dhu al-Hijjah is a day of Tashreeq, when fasting is forbidden
+            for (int day = month == 12 ? 14 : 13; day <= 15; day++) addEvent(month, day, WHITE_DAYS);
+        }
+        addEvent(1, 1, ISLAMIC_NEW_YEAR);
+        addEvent(1, 9, TASUA);
+        addEvent(1, 10, ASHURA);
+        addEvent(3, 12, MAWLID);
+        addEvent(9, 1, RAMADAN_START);
+        addEvent(9, 21, LAST_TEN_NIGHTS);
+        addEvent(10, 1, EID_AL_FITR);
+        addEvent(12, 9, ARAFAH);
+        addEvent(12, 10, EID_AL_ADHA);
+        for (int day = 11; day <= 13; day++) addEvent(12, day, TASHREEQ);
+    }
+
+    private static final String[] MONTH_NAMES_AR = {
+            "محرم", "صفر", "ربيع الأول", "ربيع الآخر", "جمادى الأولى", "جمادى الآخرة",
+            "رجب", "شعبان", "رمضان", "شوال", "ذو القعدة", "ذو الحجة"};
+    private static final String[] MONTH_NAMES_EN = {
+            "Muharram", "Safar", "Rabi' al-Awwal", "Rabi' al-Thani", "Jumada al-Ula", "Jumada al-Akhirah",
+            "Rajab", "Sha'ban", "Ramadan", "Shawwal", "Dhu al-Qi'dah", "Dhu al-Hijjah"};
+
+    /** A Hijri date; month is 1-12. */
+    static final class Day {
+        final int year;
+        final int month;
+        final int day;
+
+        Day(int year, int month, int day) {
+            this.year = year;
+            this.month = month;
+            this.day = day;
+        }
+
+        int monthLength() {
+            return HijriCalendar.monthLength(year, month);
+        }
+
+        String[] events() {
+            return HijriCalendar.events(month, day);
+        }
+    }
+
+    private HijriCalendar() {}
+
+    /** The Hijri date of a day counted from 1970-01-01, or null outside the table. */
+    static Day fromEpochDay(long epochDay) {
+        long offset = epochDay - FIRST_EPOCH_DAY;
+        if (offset < 0 || offset >= MONTH_STARTS[MONTH_STARTS.length - 1]) return null;
+        int index = (int) Math.min(offset / MEAN_MONTH_DAYS, MONTH_STARTS.length - 2);
+        while (MONTH_STARTS[index] > offset) index--;
+        while (MONTH_STARTS[index + 1] <= offset) index++;
+        return new Day(FIRST_YEAR + index / 12, index % 12 + 1, (int) (offset - MONTH_STARTS[index]) + 1);
+    }
+
+    /** Days since 1970-01-01 of a Hijri date; throws outside the table. */
+    static long toEpochDay(int year, int month, int day) {
+        return FIRST_EPOCH_DAY + MONTH_STARTS[monthIndex(year, month)] + day - 1;
+    }
+
+    static int monthLength(int year, int month) {
+        int index = monthIndex(year, month);
+        return MONTH_STARTS[index + 1] - MONTH_STARTS[index];
+    }
+
+    /**
+     * The Hijri date shown at {@code now}: the local day shifted by {@code adjustment} days for
+     * moon sighting and, when {@code maghrib} is a time today that has passed, rolled on to the
+     * next day the way the Islamic day begins. Pass INVALID_TIME to roll over at midnight.
+     */
+    static Day at(long now, TimeZone zone, int adjustment, long maghrib) {
+        Calendar cal = Calendar.getInstance(zone);
+        cal.setTimeInMillis(now);
+        long epochDay = PrayerTimesCalculator.daysFromCivil(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
+        boolean afterMaghrib = maghrib != PrayerTimesCalculator.INVALID_TIME && now >= maghrib;
+        return fromEpochDay(epochDay + adjustment + (afterMaghrib ? 1 : 0));
+    }
+
+    /** Event IDs on a Hijri day, in the order JS lists them. */
+    static String[] events(int month, int day) {
+        if (month < 1 || month > 12 || day < 1 || day > 30) return NO_EVENTS;
+        String[] events = EVENTS[(month - 1) * 30 + day - 1];
+        return events != null ? events : NO_EVENTS;
+    }
+
+    static String monthName(int month, String language) {
+        return ("ar".equals(language) ? MONTH_NAMES_AR : MONTH_NAMES_EN)[month - 1];
+    }
+
+    /** "7 Jumada al-Ula 1448 AH", or with Arabic-Indic digits for "ar", as the app header shows it. */
+    static String format(Day date, String language) {
+        if ("ar".equals(language)) {
+            return arabicDigits(date.day) + " " + monthName(date.month, language) + " " + arabicDigits(date.year) + " هـ";
+        }
+        return date.day + " " + monthName(date.month, language) + " " + date.year + " AH";
+    }
+
+    private static String arabicDigits(int value) {
+        char[] digits = Integer.toString(value).toCharArray();
+        for (int i = 0; i < digits.length; i++) digits[i] = (char) ('\u0660' + digits[i] - '0');
+        return new String(digits);
+    }
+
+    private static int monthIndex(int year, int month) {
+        if (year < FIRST_YEAR || year > LAST_YEAR || month < 1 || month > 12) {
+            throw new IllegalArgumentException("Outside the Umm al-Qura table: " + year + "/" + month);
+        }
+        return (year - FIRST_YEAR) * 12 + month - 1;
+    }
+
+    private static void addEvent(int month, int day, String event) {
+        int index = (month - 1) * 30 + day - 1;
+        String[] existing = EVENTS[index];
+        if (existing == null) {
+            EVENTS[index] = new String[] {event};
+            return;
+        }
+        String[] grown = java.util.Arrays.copyOf(existing, existing.length + 1);
+        grown[existing.length] = event;
+        EVENTS[index] = grown;
+    }
+}
@@ -0,0 +1,157 @@
+package com.ibadalrahman.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+
+import java.util.TimeZone;
+
+/**
+ * Hijri dates from the native Umm al-Qura table ({@link HijriCalendar}). The calendar screen asks
+ * for a whole Gregorian month in one call, and the settings pushed here (sighting adjustment,
+ * Maghrib rollover, language) let the widget draw the date itself while the app is closed.
+ * Months are 0-11 on this side, as in JS.
+ */
+@CapacitorPlugin(name = "Hijri")
+public class HijriPlugin extends Plugin {
+    private static final String PREFS_NAME = "HijriPrefs";
+    private static final String KEY_ADJUSTMENT = "adjustment";
+    private static final String KEY_ROLLOVER_AT_MAGHRIB = "rolloverAtMaghrib";
+    private static final String KEY_LANGUAGE = "language";
+
+    // Moon-sighting corrections beyond this are a bad remote config value, not a real sighting
+    private static final int MAX_ADJUSTMENT = 2;
+
+    /** Saves the display settings and redraws the widget if they changed. */
+    @PluginMethod
+    public void configure(PluginCall call) {
+        Context context = getContext();
+        SharedPreferences prefs = DeviceStorage.prefs(context, PREFS_NAME);
+        int adjustment = clampAdjustment(call.getInt("adjustment", prefs.getInt(KEY_ADJUSTMENT, 0)));
+        boolean rolloverAtMaghrib = call.getBoolean("rolloverAtMaghrib", prefs.getBoolean(KEY_ROLLOVER_AT_MAGHRIB, false));
+        String language = call.getString("language", prefs.getString(KEY_LANGUAGE, "ar"));
+
+        boolean changed = adjustment != prefs.getInt(KEY_ADJUSTMENT, 0)
+                || rolloverAtMaghrib != prefs.getBoolean(KEY_ROLLOVER_AT_MAGHRIB, false)
+                || !language.equals(prefs.getString(KEY_LANGUAGE, null));
+        if (changed) {
+            prefs.edit()
+                    .putInt(KEY_ADJUSTMENT, adjustment)
+                    .putBoolean(KEY_ROLLOVER_AT_MAGHRIB, rolloverAtMaghrib)
+                    .putString(KEY_LANGUAGE, language)
+                    .apply();
+            PrayerWidgetProvider.requestUpdate(context);
+        }
+        call.resolve();
+    }
+
+    /**
+     * Every day of a Gregorian month ({@code month} 0-11) with its Hijri date and events, plus the
+     * Hijri months the grid spans, named in {@code language}.
+     */
+    @PluginMethod
+    public void getMonthGrid(PluginCall call) {
+        Integer year = call.getInt("year");
+        Integer month = call.getInt("month");
+        if (year == null || month == null || month < 0 || month > 11) {
+            call.reject("Must provide year and month");
+            return;
+        }
+        String language = call.getString("language", "en");
+        int adjustment = adjustment(getContext());
+
+        long first = PrayerTimesCalculator.daysFromCivil(year, month + 1, 1);
+        long next = month == 11 ? PrayerTimesCalculator.daysFromCivil(year + 1, 1, 1) : PrayerTimesCalculator.daysFromCivil(year, month + 2, 1);
+        JSArray days = new JSArray();
+        JSArray months = new JSArray();
+        int lastMonthKey = -1;
+        for (long epochDay = first; epochDay < next; epochDay++) {
+            HijriCalendar.Day hijri = HijriCalendar.fromEpochDay(epochDay + adjustment);
+            if (hijri == null) {
+                call.reject("Date outside the Hijri table");
+                return;
+            }
+            JSObject day = toJson(hijri);
+            day.put("day", (int) (epochDay - first) + 1);
+            day.put("events", new JSArray(java.util.Arrays.asList(hijri.events())));
+            days.put(day);
+
+            int monthKey = hijri.year * 12 + hijri.month;
+            if (monthKey != lastMonthKey) {
+                JSObject spanned = new JSObject();
+                spanned.put("year", hijri.year);
+                spanned.put("month", hijri.month - 1);
+                spanned.put("name", HijriCalendar.monthName(hijri.month, language));
+                spanned.put("length", hijri.monthLength());
+                months.put(spanned);
+                lastMonthKey = monthKey;
+            }
+        }
+
+        JSObject ret = new JSObject();
+        ret.put("days", days);
+        ret.put("months", months);
+        call.resolve(ret);
+    }
+
+    /** Hijri dates of local days given as timestamps, with the adjustment applied; null outside the table. */
+    @PluginMethod
+    public void toHijri(PluginCall call) {
+        JSArray timestamps = call.getArray("timestamps");
+        if (timestamps == null) {
+            call.reject("Must provide timestamps");
+            return;
+        }
+        String language = call.getString("language", "en");
+        int adjustment = adjustment(getContext());
+        TimeZone zone = TimeZone.getDefault();
+
+        JSArray dates = new JSArray();
+        for (int i = 0; i < timestamps.length(); i++) {
+            HijriCalendar.Day hijri = HijriCalendar.at(timestamps.optLong(i), zone, adjustment, PrayerTimesCalculator.INVALID_TIME);
+            if (hijri == null) {
+                dates.put(JSObject.NULL);
+                continue;
+            }
+            JSObject date = toJson(hijri);
+            date.put("formatted", HijriCalendar.format(hijri, language));
+            dates.put(date);
+        }
+        JSObject ret = new JSObject();
+        ret.put("dates", dates);
+        call.resolve(ret);
+    }
+
+    /**
+     * The widget's date line at {@code now}, or null outside the table. {@code maghrib} is today's
+     * Maghrib if known; it only moves the date on when the user chose the Maghrib rollover.
+     */
+    static String widgetDate(Context context, long maghrib, long now) {
+        SharedPreferences prefs = DeviceStorage.prefs(context, PREFS_NAME);
+        long rollover = prefs.getBoolean(KEY_ROLLOVER_AT_MAGHRIB, false) ? maghrib : PrayerTimesCalculator.INVALID_TIME;
+        HijriCalendar.Day hijri = HijriCalendar.at(now, TimeZone.getDefault(), prefs.getInt(KEY_ADJUSTMENT, 0), rollover);
+        return hijri == null ? null : HijriCalendar.format(hijri, prefs.getString(KEY_LANGUAGE, "ar"));
+    }
+
+    private static int adjustment(Context context) {
+        return DeviceStorage.prefs(context, PREFS_NAME).getInt(KEY_ADJUSTMENT, 0);
+    }
+
+    private static int clampAdjustment(int adjustment) {
+        return Math.max(-MAX_ADJUSTMENT, Math.min(MAX_ADJUSTMENT, adjustment));
+    }
+
+    private static JSObject toJson(HijriCalendar.Day hijri) {
+        JSObject json = new JSObject();
+        json.put("hijriDay", hijri.day);
+        json.put("hijriMonth", hijri.month - 1);
+        json.put("hijriYear", hijri.year);
+        return json;
+    }
+}
@@ -0,0 +1,131 @@
+package com.ibadalrahman.app;
+
+import android.content.Context;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * The app's persisted UI state (Azkar counts, bookmarks, reading progress, Qada plans) in one
+ * {@link KeyValueStore}. JS loads every namespace once at startup and reads from its own copy;
+ * writes come over in batches and reach disk off the main thread. Java code reads the same store
+ * through {@link #store}, and changes it makes are pushed to JS as "change" events.
+ */
+@CapacitorPlugin(name = "KeyValue")
+public class KeyValuePlugin extends Plugin implements KeyValueStore.Listener {
+    static final String LOG_FILE = "kv.log";
+    // Long enough to fold a run of tasbih taps into one record
+    private static final long FLUSH_DELAY_MS = 1000;
+
+    private static KeyValueStore store;
+
+    /**
+     * Process-wide store in credential-protected storage: only the app reads it, never before
+     * unlock. Builds that kept it in device-protected storage have it moved across on first use.
+     */
+    public static synchronized KeyValueStore store(Context context) {
+        if (store == null) {
+            Context appContext = context.getApplicationContext();
+            File file = new File(appContext.getFilesDir(), LOG_FILE);
+            File deviceFile = new File(DeviceStorage.of(appContext).getFilesDir(), LOG_FILE);
+            if (!deviceFile.equals(file) && deviceFile.exists() && !file.exists() && !deviceFile.renameTo(file)) {
+                System.err.println("KeyValuePlugin: could not move " + LOG_FILE + " out of device storage");
+            }
+            store = new KeyValueStore(file, FLUSH_DELAY_MS);
+        }
+        return store;
+    }
+
+    @Override
+    public void load() {
+        store(getContext()).addListener(this);
+    }
+
+    @Override
+    protected void handleOnPause() {
+        // The process may not get another chance before it is killed
+        store(getContext()).flushSoon();
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        store(getContext()).removeListener(this);
+    }
+
+    /** Every namespace as {namespaces: {name: {key: value}}}. */
+    @PluginMethod
+    public void getAll(PluginCall call) {
+        JSObject namespaces = new JSObject();
+        for (Map.Entry<String, Map<String, String>> namespace : store(getContext()).snapshot().entrySet()) {
+            JSObject entries = new JSObject();
+            for (Map.Entry<String, String> entry : namespace.getValue().entrySet()) {
+                entries.put(entry.getKey(), entry.getValue());
+            }
+            namespaces.put(namespace.getKey(), entries);
+        }
+        JSObject ret = new JSObject();
+        ret.put("namespaces", namespaces);
+        call.resolve(ret);
+    }
+
+    /**
+     * Applies {@code ops} in order: {namespace, key, value} sets a key, a null value removes it,
+     * and {namespace, clear: true} empties the namespace.
+     */
+    @PluginMethod
+    public void write(PluginCall call) {
+        JSArray ops = call.getArray("ops");
+        if (ops == null) {
+            call.reject("Must provide ops");
+            return;
+        }
+        KeyValueStore store = store(getContext());
+        try {
+            for (int i = 0; i < ops.length(); i++) {
+                JSONObject op = ops.getJSONObject(i);
+                String namespace = op.getString("namespace");
+                if (op.optBoolean("clear", false)) {
+                    store.clear(namespace, this);
+                } else {
+                    String value = op.isNull("value") ? null : op.getString("value");
+                    store.put(namespace, op.getString("key"), value, this);
+                }
+            }
+        } catch (JSONException e) {
+            call.reject("Invalid op: " + e.getMessage());
+            return;
+        }
+        call.resolve();
+    }
+
+    /** Resolves once everything written so far is on disk; rejects if it could not be written. */
+    @PluginMethod
+    public void flush(PluginCall call) {
+        if (!store(getContext()).flushAndWait()) {
+            call.reject("Could not write the store");
+            return;
+        }
+        call.resolve();
+    }
+
+    @Override
+    public void onChanged(String namespace, String key, String value, Object origin) {
+        // JS already has its own writes
+        if (origin == this) return;
+        JSObject data = new JSObject();
+        data.put("namespace", namespace);
+        data.put("key", key);
+        data.put("value", value);
+        notifyListeners("change", data);
+    }
+}
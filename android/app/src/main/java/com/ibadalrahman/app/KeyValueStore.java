@@ -0,0 +1,420 @@
+package com.ibadalrahman.app;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.BufferedInputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * String values by namespace and key, held in memory and persisted write-behind to a single
+ * append-only log. Reads never touch the disk. Writes land in memory at once and are batched to
+ * the log {@code flushDelayMs} later, so a burst of taps on the same key costs one record; once
+ * the log is mostly superseded records it is rewritten from memory. Plain Java.
+ *
+ * <p>Log layout: an 8-byte header (magic "KVLG", version), then records of
+ * [int length][byte op][namespace][key][value][int crc32], strings as int length + UTF-8. A torn
+ * or corrupt tail from a crash mid-write is cut off on load.
+ */
+public final class KeyValueStore {
+    /** Called on the writing thread, after memory is updated; {@code value} is null for a removal. */
+    public interface Listener {
+        void onChanged(String namespace, String key, String value, Object origin);
+    }
+
+    private static final int MAGIC = 0x4B564C47;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    // Drops a whole namespace; key is empty
+    private static final byte OP_CLEAR = 3;
+    // A namespace's pending CLEAR sits under this key; no real key is a lone noncharacter
+    private static final String CLEAR_SLOT = "\uFFFF";
+
+    // Below this the log is never compacted, however much of it is stale
+    static final long COMPACT_MIN_BYTES = 64 * 1024;
+    // Compact once the log is this many times the size of a fresh snapshot
+    private static final int COMPACT_RATIO = 2;
+
+    private final File file;
+    private final long flushDelayMs;
+    private final Map<String, Map<String, String>> data = new HashMap<>();
+    // Writes not yet in the log, by namespace + '\0' + key; later writes replace earlier ones
+    private final LinkedHashMap<String, Op> pending = new LinkedHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "KeyValueStore");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> scheduledFlush;
+    // Only touched on the writer thread after load
+    private long logBytes;
+
+    public KeyValueStore(File file, long flushDelayMs) {
+        this.file = file;
+        this.flushDelayMs = flushDelayMs;
+        load();
+    }
+
+    public synchronized String get(String namespace, String key) {
+        Map<String, String> entries = data.get(namespace);
+        return entries == null ? null : entries.get(key);
+    }
+
+    /** A copy of one namespace. */
+    public synchronized Map<String, String> entries(String namespace) {
+        Map<String, String> entries = data.get(namespace);
+        return entries == null ? new HashMap<>() : new HashMap<>(entries);
+    }
+
+    /** A copy of every namespace. */
+    public synchronized Map<String, Map<String, String>> snapshot() {
+        Map<String, Map<String, String>> copy = new HashMap<>();
+        for (Map.Entry<String, Map<String, String>> entry : data.entrySet()) {
+            copy.put(entry.getKey(), new HashMap<>(entry.getValue()));
+        }
+        return copy;
+    }
+
+    /** Sets {@code key}, or removes it if {@code value} is null. {@code origin} is passed to listeners. */
+    public void put(String namespace, String key, String value, Object origin) {
+        synchronized (this) {
+            Map<String, String> entries = data.get(namespace);
+            if (value == null) {
+                if (entries == null || entries.remove(key) == null) return;
+            } else {
+                if (entries == null) data.put(namespace, entries = new HashMap<>());
+                if (value.equals(entries.put(key, value))) return;
+            }
+            Op op = new Op(value == null ? OP_REMOVE : OP_PUT, namespace, key, value);
+            pending.remove(op.slot());
+            pending.put(op.slot(), op);
+            scheduleFlush();
+        }
+        for (Listener listener : listeners) listener.onChanged(namespace, key, value, origin);
+    }
+
+    public void remove(String namespace, String key, Object origin) {
+        put(namespace, key, null, origin);
+    }
+
+    /** Removes every key in {@code namespace}; listeners hear about each one. */
+    public void clear(String namespace, Object origin) {
+        List<String> keys;
+        synchronized (this) {
+            Map<String, String> entries = data.remove(namespace);
+            if (entries == null) return;
+            keys = new ArrayList<>(entries.keySet());
+            String prefix = namespace + '\0';
+            pending.keySet().removeIf(k -> k.startsWith(prefix));
+            Op op = new Op(OP_CLEAR, namespace, "", null);
+            pending.put(op.slot(), op);
+            scheduleFlush();
+        }
+        for (String key : keys) {
+            for (Listener listener : listeners) listener.onChanged(namespace, key, null, origin);
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Writes pending changes now instead of after the delay, without waiting for them. */
+    public synchronized void flushSoon() {
+        if (pending.isEmpty()) return;
+        if (scheduledFlush != null) scheduledFlush.cancel(false);
+        scheduledFlush = writer.schedule(this::flush, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /** Writes pending changes and waits until they are on disk; false if the write failed. */
+    public boolean flushAndWait() {
+        try {
+            return writer.submit(this::flush).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("KeyValueStore: flush failed: " + e.getCause());
+        }
+        return false;
+    }
+
+    /** Size of the log on disk, including the header. */
+    long logBytes() {
+        try {
+            return writer.submit(() -> logBytes).get();
+        } catch (InterruptedException | ExecutionException e) {
+            return -1;
+        }
+    }
+
+    private void scheduleFlush() {
+        if (scheduledFlush != null && !scheduledFlush.isDone()) return;
+        scheduledFlush = writer.schedule(this::flush, flushDelayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** False if pending changes could not be written; they stay queued for the next attempt. */
+    private boolean flush() {
+        List<Op> ops;
+        boolean compact;
+        synchronized (this) {
+            // Writes from here on need a flush of their own
+            scheduledFlush = null;
+            if (pending.isEmpty()) return true;
+            ops = new ArrayList<>(pending.values());
+            pending.clear();
+            compact = needsCompaction(ops);
+        }
+
+        try {
+            if (compact) {
+                compact();
+                return true;
+            }
+            ByteArrayOutputStream batch = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(batch);
+            if (logBytes == 0) writeHeader(out);
+            for (Op op : ops) writeRecord(out, op.op, op.namespace, op.key, op.value);
+            try (FileOutputStream stream = new FileOutputStream(file, true)) {
+                batch.writeTo(stream);
+                stream.getFD().sync();
+            }
+            logBytes += batch.size();
+            return true;
+        } catch (IOException e) {
+            System.err.println("KeyValueStore: write failed: " + e.getMessage());
+            // A half-written batch would hide every record appended after it
+            if (file.length() > logBytes) truncate(logBytes);
+            // Memory still has the values; queue them again ahead of anything written since
+            synchronized (this) {
+                Map<String, Op> newer = new LinkedHashMap<>(pending);
+                pending.clear();
+                for (Op op : ops) pending.put(op.slot(), op);
+                for (Map.Entry<String, Op> entry : newer.entrySet()) {
+                    pending.remove(entry.getKey());
+                    pending.put(entry.getKey(), entry.getValue());
+                }
+                scheduleFlush();
+            }
+            return false;
+        }
+    }
+
+    // Called with the lock held
+    private boolean needsCompaction(List<Op> ops) {
+        long appended = 0;
+        for (Op op : ops) appended += recordBytes(op.namespace, op.key, op.value);
+        long next = logBytes + appended;
+        return next > COMPACT_MIN_BYTES && next > COMPACT_RATIO * liveBytes();
+    }
+
+    // Called with the lock held
+    private long liveBytes() {
+        long bytes = HEADER_BYTES;
+        for (Map.Entry<String, Map<String, String>> namespace : data.entrySet()) {
+            for (Map.Entry<String, String> entry : namespace.getValue().entrySet()) {
+                bytes += recordBytes(namespace.getKey(), entry.getKey(), entry.getValue());
+            }
+        }
+        return bytes;
+    }
+
+    /** Rewrites the log as one PUT per live entry, replacing the old file atomically. */
+    private void compact() throws IOException {
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(snapshot);
+        writeHeader(out);
+        synchronized (this) {
+            for (Map.Entry<String, Map<String, String>> namespace : data.entrySet()) {
+                for (Map.Entry<String, String> entry : namespace.getValue().entrySet()) {
+                    writeRecord(out, OP_PUT, namespace.getKey(), entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp)) {
+            snapshot.writeTo(stream);
+            stream.getFD().sync();
+        }
+        if (!temp.renameTo(file)) throw new IOException("Could not replace " + file);
+        logBytes = snapshot.size();
+    }
+
+    private void load() {
+        if (!file.exists()) return;
+        long good = 0;
+        try (InputStream stream = new BufferedInputStream(new FileInputStream(file))) {
+            DataInputStream in = new DataInputStream(stream);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                System.err.println("KeyValueStore: unknown log format, starting empty");
+                file.delete();
+                return;
+            }
+            good = HEADER_BYTES;
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length < 1 || length > file.length()) break;
+                byte[] body = new byte[length];
+                in.readFully(body);
+                CRC32 crc = new CRC32();
+                crc.update(body);
+                if (in.readInt() != (int) crc.getValue()) break;
+                apply(body);
+                good += 4 + length + 4;
+            }
+        } catch (EOFException e) {
+            // Torn last record; cut below
+        } catch (IOException e) {
+            System.err.println("KeyValueStore: read failed: " + e.getMessage());
+        }
+
+        if (good < file.length()) {
+            System.err.println("KeyValueStore: dropping " + (file.length() - good) + " bytes of damaged log");
+            truncate(good);
+        }
+        logBytes = good;
+    }
+
+    private void truncate(long length) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length);
+        } catch (IOException e) {
+            System.err.println("KeyValueStore: could not truncate log: " + e.getMessage());
+        }
+    }
+
+    private void apply(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new java.io.ByteArrayInputStream(body));
+        byte op = in.readByte();
+        String namespace = readString(in);
+        String key = readString(in);
+        switch (op) {
+            case OP_PUT: {
+                Map<String, String> entries = data.get(namespace);
+                if (entries == null) data.put(namespace, entries = new HashMap<>());
+                entries.put(key, readString(in));
+                break;
+            }
+            case OP_REMOVE: {
+                Map<String, String> entries = data.get(namespace);
+                if (entries != null) entries.remove(key);
+                break;
+            }
+            case OP_CLEAR:
+                data.remove(namespace);
+                break;
+            default:
+                throw new IOException("Unknown op " + op);
+        }
+    }
+
+    private static void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    private static void writeRecord(DataOutputStream out, byte op, String namespace, String key, String value) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(body);
+        record.writeByte(op);
+        writeString(record, namespace);
+        writeString(record, key);
+        if (op == OP_PUT) writeString(record, value);
+        byte[] bytes = body.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /** Size of the record {@link #writeRecord} writes, without encoding anything. */
+    static long recordBytes(String namespace, String key, String value) {
+        // length + op + three length-prefixed strings + crc
+        return 4 + 1 + 12 + utf8Length(namespace) + utf8Length(key) + (value == null ? 0 : utf8Length(value)) + 4;
+    }
+
+    // Arabic is two bytes a char and emoji four per surrogate pair, so chars undercount
+    private static int utf8Length(String value) {
+        int bytes = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                // getBytes writes a lone surrogate as '?'
+                bytes += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return bytes;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) throw new IOException("Bad string length " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Op {
+        final byte op;
+        final String namespace;
+        final String key;
+        final String value;
+
+        Op(byte op, String namespace, String key, String value) {
+            this.op = op;
+            this.namespace = namespace;
+            this.key = key;
+            this.value = value;
+        }
+
+        /** Its key in {@code pending}. */
+        String slot() {
+            return namespace + '\0' + (op == OP_CLEAR ? CLEAR_SLOT : key);
+        }
+    }
+}
@@ -1,17 +1,54 @@
 package com.ibadalrahman.app;
 
 import com.getcapacitor.BridgeActivity;
+import com.getcapacitor.WebViewListener;
 
 import android.webkit.WebView;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.ViewTreeObserver;
+
+import androidx.core.splashscreen.SplashScreen;
 
 public class MainActivity extends BridgeActivity {
+    private static final String TAG = "MainActivity";
+    // Never hold the splash longer than this, even if the page is slow to load
+    private static final long SPLASH_MAX_MS = 3000;
+
+    private volatile boolean pageLoaded;
+
     @Override
     public void onCreate(Bundle savedInstanceState) {
+        StartupTrace trace = StartupTrace.launch(SystemClock.uptimeMillis());
+        trace.mark(StartupTrace.ACTIVITY_CREATE, SystemClock.uptimeMillis());
+
+        // Keep the splash up until the bundle has loaded instead of showing an empty WebView
+        SplashScreen splashScreen = SplashScreen.installSplashScreen(this);
+        long splashDeadline = SystemClock.uptimeMillis() + SPLASH_MAX_MS;
+        splashScreen.setKeepOnScreenCondition(() -> !pageLoaded && SystemClock.uptimeMillis() < splashDeadline);
+
         registerPlugin(WidgetPlugin.class);
+        registerPlugin(QuranTextPlugin.class);
+        registerPlugin(TafsirPlugin.class);
+        registerPlugin(RecitationPlugin.class);
+        registerPlugin(StartupPlugin.class);
+        registerPlugin(HijriPlugin.class);
+        registerPlugin(QiblaPlugin.class);
+        registerPlugin(KeyValuePlugin.class);
+        registerPlugin(PlacesPlugin.class);
         super.onCreate(savedInstanceState);
+        trace.mark(StartupTrace.BRIDGE_READY, SystemClock.uptimeMillis());
         WebView.setWebContentsDebuggingEnabled(true);
 
+        getBridge().addWebViewListener(new WebViewListener() {
+            @Override
+            public void onPageLoaded(WebView webView) {
+                pageLoaded = true;
+                trace.mark(StartupTrace.PAGE_LOADED, SystemClock.uptimeMillis());
+            }
+        });
+
         android.view.View decorView = getWindow().getDecorView();
         decorView.setSystemUiVisibility(
                 android.view.View.SYSTEM_UI_FLAG_IMMERSIVE_STICKY
@@ -20,8 +57,42 @@ public class MainActivity extends BridgeActivity {
                         | android.view.View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN
                         | android.view.View.SYSTEM_UI_FLAG_HIDE_NAVIGATION
                         | android.view.View.SYSTEM_UI_FLAG_FULLSCREEN);
-        
+
         // Transparent Status Bar to let background drawing show through
         getWindow().setStatusBarColor(android.graphics.Color.TRANSPARENT);
+
+        decorView.getViewTreeObserver().addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+            @Override
+            public void onDraw() {
+                if (!trace.mark(StartupTrace.FIRST_FRAME, SystemClock.uptimeMillis())) return;
+                // Listeners can't be removed from inside onDraw
+                decorView.post(() -> decorView.getViewTreeObserver().removeOnDrawListener(this));
+                runDeferredStartupWork();
+            }
+        });
+    }
+
+    /**
+     * Opens what plugins would otherwise open on their first call (mapped Quran assets, cache
+     * directory scans, the device-storage migration) once the first frame is out, off the main thread.
+     */
+    private void runDeferredStartupWork() {
+        android.content.Context context = getApplicationContext();
+        Thread thread = new Thread(() -> {
+            long start = SystemClock.uptimeMillis();
+            try {
+                DeviceStorage.of(context);
+                QuranTextPlugin.corpus(context, QuranTextPlugin.EDITION_SIMPLE);
+                QuranTextPlugin.searchIndex(context);
+                TafsirPlugin.cache(context);
+                RecitationService.cache(context);
+            } catch (Exception e) {
+                // Each of these is retried lazily on first use
+                Log.w(TAG, "Deferred startup work failed", e);
+            }
+            Log.d(TAG, "Deferred startup work took " + (SystemClock.uptimeMillis() - start) + " ms");
+        }, "DeferredStartup");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
     }
 }
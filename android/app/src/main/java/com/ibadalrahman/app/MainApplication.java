@@ -0,0 +1,58 @@
+package com.ibadalrahman.app;
+
+import android.app.ActivityManager;
+import android.app.Application;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.webkit.ServiceWorkerController;
+import android.webkit.WebSettings;
+
+/**
+ * Starts the startup trace and, when the process is being started to show MainActivity, loads
+ * the WebView provider on a background thread so the bridge doesn't pay for it on the main thread.
+ * Processes started for an alarm or the widget skip the warm-up.
+ */
+public class MainApplication extends Application {
+    private static final String TAG = "MainApplication";
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        long now = SystemClock.uptimeMillis();
+        if (!isForegroundLaunch()) return;
+
+        long processStart = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N ? Process.getStartUptimeMillis() : now;
+        StartupTrace.processStarted(processStart, now);
+        prewarmWebView();
+    }
+
+    /** Whether the process is starting because an activity is about to be shown. */
+    private static boolean isForegroundLaunch() {
+        ActivityManager.RunningAppProcessInfo info = new ActivityManager.RunningAppProcessInfo();
+        ActivityManager.getMyMemoryState(info);
+        return info.importance <= ActivityManager.RunningAppProcessInfo.IMPORTANCE_FOREGROUND;
+    }
+
+    private void prewarmWebView() {
+        Thread thread = new Thread(() -> {
+            long start = SystemClock.uptimeMillis();
+            try {
+                // Loads and initializes the WebView provider library, the slowest part of creating
+                // the first WebView
+                WebSettings.getDefaultUserAgent(this);
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                    // Brings up the service worker machinery the bundle's first fetches go through
+                    ServiceWorkerController.getInstance();
+                }
+                Log.d(TAG, "WebView prewarmed in " + (SystemClock.uptimeMillis() - start) + " ms");
+            } catch (RuntimeException e) {
+                // WebView missing or being updated; the bridge will report it properly
+                Log.w(TAG, "WebView prewarm failed", e);
+            }
+        }, "WebViewPrewarm");
+        thread.setPriority(Thread.NORM_PRIORITY);
+        thread.start();
+    }
+}
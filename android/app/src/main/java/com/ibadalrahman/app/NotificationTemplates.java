@@ -0,0 +1,266 @@
+package com.ibadalrahman.app;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.os.Build;
+
+import androidx.core.app.NotificationCompat;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Notifications for AdhanService, AlarmService and the reminder chain. Strings come from
+ * resources in the language JS picked (see {@link #setLanguage}) and are resolved once; channels
+ * and PendingIntents are created once per process; the Adhan and alarm notifications are built
+ * once per prayer and reused on every fire. Callers identify the prayer by its
+ * {@link AlarmStore} slot.
+ */
+public final class NotificationTemplates {
+    static final String CHANNEL_ADHAN = "adhan_channel";
+    static final String CHANNEL_ALARM = "alarm_channel";
+    static final String CHANNEL_REMINDER = "prayer_reminder";
+
+    private static final String KEY_LANGUAGE = "notificationLanguage";
+    private static final String DEFAULT_LANGUAGE = "ar";
+    private static final int COLOR = 0xFF0F5132;
+
+    private static final int[] PRAYER_NAMES = {R.string.fajr, R.string.dhuhr, R.string.asr, R.string.maghrib, R.string.isha};
+
+    /** Everything a notification needs from resources, in one language. */
+    private static final class Strings {
+        final Locale locale;
+        final String[] prayers = new String[PRAYER_NAMES.length];
+        final String prayerTime;
+        final String prayerTitle;
+        final String prayerBody;
+        final String prayerBodyGeneric;
+        final String stop;
+        final String snooze;
+        final String alarmTitle;
+        final String alarmBody;
+        // Indexed by AlarmStore event kind; the Adhan kind is unused
+        final String[] eventTitles = new String[4];
+        final String[] eventBodies = new String[4];
+
+        Strings(Resources res, Locale locale) {
+            this.locale = locale;
+            for (int slot = 0; slot < prayers.length; slot++) prayers[slot] = res.getString(PRAYER_NAMES[slot]);
+            prayerTime = res.getString(R.string.notification_prayer_time);
+            prayerTitle = res.getString(R.string.notification_prayer_title);
+            prayerBody = res.getString(R.string.notification_prayer_body);
+            prayerBodyGeneric = res.getString(R.string.notification_prayer_body_generic);
+            stop = res.getString(R.string.notification_action_stop);
+            snooze = res.getString(R.string.notification_action_snooze);
+            alarmTitle = res.getString(R.string.notification_alarm_title);
+            alarmBody = res.getString(R.string.notification_alarm_body);
+            eventTitles[AlarmStore.KIND_REMINDER] = res.getString(R.string.notification_reminder_title);
+            eventBodies[AlarmStore.KIND_REMINDER] = res.getString(R.string.notification_reminder_body);
+            eventTitles[AlarmStore.KIND_PRE_ADHAN] = res.getString(R.string.notification_pre_adhan_title);
+            eventBodies[AlarmStore.KIND_PRE_ADHAN] = res.getString(R.string.notification_pre_adhan_body);
+            eventTitles[AlarmStore.KIND_POST_PRAYER] = res.getString(R.string.notification_post_prayer_title);
+            eventBodies[AlarmStore.KIND_POST_PRAYER] = res.getString(R.string.notification_post_prayer_body);
+        }
+
+        String prayer(int slot) {
+            return slot >= 0 && slot < prayers.length ? prayers[slot] : null;
+        }
+    }
+
+    private static Strings strings;
+    private static final Notification[] adhan = new Notification[AlarmStore.SLOT_ADHOC + 1];
+    private static Notification alarm;
+    private static boolean channelsCreated;
+
+    private static PendingIntent openApp;
+    private static PendingIntent adhanStop;
+    private static PendingIntent adhanSnooze;
+    private static PendingIntent alarmOpen;
+    private static PendingIntent alarmFullScreen;
+    private static PendingIntent alarmStop;
+
+    private NotificationTemplates() {}
+
+    /** Switches notification text to {@code language} ("ar", "en"); built notifications are dropped. */
+    public static synchronized void setLanguage(Context context, String language) {
+        DeviceStorage.prefs(context, PrayerSettings.PREFS_NAME).edit().putString(KEY_LANGUAGE, language).apply();
+        strings = null;
+        java.util.Arrays.fill(adhan, null);
+        alarm = null;
+        // Channel names follow the language too
+        channelsCreated = false;
+    }
+
+    /** The ongoing Adhan notification for {@code slot}, with Stop and Snooze. */
+    public static synchronized Notification adhan(Context context, int slot) {
+        int index = slot >= 0 && slot < adhan.length ? slot : AlarmStore.SLOT_ADHOC;
+        if (adhan[index] != null) return adhan[index];
+        ensureChannels(context);
+        Strings s = strings(context);
+        String prayer = s.prayer(slot);
+        PendingIntent content = openApp(context);
+        adhan[index] = new NotificationCompat.Builder(context, CHANNEL_ADHAN)
+                .setContentTitle(prayer != null ? String.format(s.locale, s.prayerTitle, prayer) : s.prayerTime)
+                .setContentText(prayer != null ? String.format(s.locale, s.prayerBody, prayer) : s.prayerBodyGeneric)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setColor(COLOR)
+                .setColorized(true)
+                .setShowWhen(false)
+                .setPriority(NotificationCompat.PRIORITY_MAX)
+                .setCategory(NotificationCompat.CATEGORY_ALARM)
+                .setFullScreenIntent(content, true)
+                .setContentIntent(content)
+                .addAction(android.R.drawable.ic_menu_close_clear_cancel, s.stop, adhanStop(context))
+                .addAction(android.R.drawable.ic_popup_reminder, s.snooze, adhanSnooze(context))
+                .setOngoing(true)
+                .build();
+        return adhan[index];
+    }
+
+    /** The ongoing alarm clock notification. */
+    public static synchronized Notification alarm(Context context) {
+        if (alarm != null) return alarm;
+        ensureChannels(context);
+        Strings s = strings(context);
+        alarm = new NotificationCompat.Builder(context, CHANNEL_ALARM)
+                .setContentTitle(s.alarmTitle)
+                .setContentText(s.alarmBody)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setShowWhen(false)
+                .setPriority(NotificationCompat.PRIORITY_MAX)
+                .setCategory(NotificationCompat.CATEGORY_ALARM)
+                .setFullScreenIntent(alarmFullScreen(context), true)
+                .setContentIntent(alarmOpen(context))
+                .addAction(android.R.drawable.ic_menu_close_clear_cancel, s.stop, alarmStop(context))
+                .setOngoing(true)
+                .build();
+        return alarm;
+    }
+
+    /**
+     * A reminder-chain event of {@code kind} for {@code slot}. {@code minutes} fills the reminder
+     * and pre-Adhan bodies; a {@code timeoutMs} above 0 withdraws the notification after that long.
+     */
+    public static synchronized Notification event(Context context, int kind, int slot, int minutes, long timeoutMs) {
+        ensureChannels(context);
+        Strings s = strings(context);
+        String prayer = s.prayer(slot);
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_REMINDER)
+                .setContentTitle(String.format(s.locale, s.eventTitles[kind], prayer))
+                .setContentText(kind == AlarmStore.KIND_POST_PRAYER
+                        ? String.format(s.locale, s.eventBodies[kind], prayer)
+                        : String.format(s.locale, s.eventBodies[kind], minutes))
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setColor(COLOR)
+                .setCategory(NotificationCompat.CATEGORY_REMINDER)
+                .setContentIntent(openApp(context))
+                .setAutoCancel(true);
+        if (timeoutMs > 0) builder.setTimeoutAfter(timeoutMs);
+        return builder.build();
+    }
+
+    private static Strings strings(Context context) {
+        if (strings != null) return strings;
+        String language = DeviceStorage.prefs(context, PrayerSettings.PREFS_NAME).getString(KEY_LANGUAGE, DEFAULT_LANGUAGE);
+        Locale locale = new Locale(language);
+        Configuration config = new Configuration(context.getResources().getConfiguration());
+        config.setLocale(locale);
+        strings = new Strings(context.createConfigurationContext(config).getResources(), locale);
+        return strings;
+    }
+
+    static synchronized void ensureChannels(Context context) {
+        if (channelsCreated) return;
+        channelsCreated = true;
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) return;
+        NotificationManager manager = context.getSystemService(NotificationManager.class);
+        if (manager == null) return;
+        Configuration config = new Configuration(context.getResources().getConfiguration());
+        config.setLocale(strings(context).locale);
+        Resources res = context.createConfigurationContext(config).getResources();
+
+        NotificationChannel adhanChannel = new NotificationChannel(CHANNEL_ADHAN,
+                res.getString(R.string.channel_adhan), NotificationManager.IMPORTANCE_HIGH);
+        adhanChannel.setDescription(res.getString(R.string.channel_adhan_description));
+        adhanChannel.setSound(null, null); // Sound handled by AudioEngine
+        adhanChannel.enableVibration(true);
+        adhanChannel.setLockscreenVisibility(Notification.VISIBILITY_PUBLIC);
+
+        NotificationChannel alarmChannel = new NotificationChannel(CHANNEL_ALARM,
+                res.getString(R.string.channel_alarm), NotificationManager.IMPORTANCE_HIGH);
+        alarmChannel.setDescription(res.getString(R.string.channel_alarm_description));
+        alarmChannel.setSound(null, null);
+        alarmChannel.enableVibration(true);
+        alarmChannel.setLockscreenVisibility(Notification.VISIBILITY_PUBLIC);
+
+        NotificationChannel reminderChannel = new NotificationChannel(CHANNEL_REMINDER,
+                res.getString(R.string.channel_reminder), NotificationManager.IMPORTANCE_DEFAULT);
+        reminderChannel.setDescription(res.getString(R.string.channel_reminder_description));
+        reminderChannel.setLockscreenVisibility(Notification.VISIBILITY_PUBLIC);
+
+        manager.createNotificationChannels(Arrays.asList(adhanChannel, alarmChannel, reminderChannel));
+    }
+
+    // Request codes keep the activity intents apart: extras don't make PendingIntents distinct
+
+    private static PendingIntent openApp(Context context) {
+        if (openApp == null) {
+            openApp = PendingIntent.getActivity(context, 0, new Intent(context, MainActivity.class),
+                    PendingIntent.FLAG_IMMUTABLE);
+        }
+        return openApp;
+    }
+
+    private static PendingIntent adhanStop(Context context) {
+        if (adhanStop == null) {
+            adhanStop = PendingIntent.getService(context, 0,
+                    new Intent(context, AdhanService.class).setAction(AdhanService.ACTION_STOP),
+                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        }
+        return adhanStop;
+    }
+
+    private static PendingIntent adhanSnooze(Context context) {
+        if (adhanSnooze == null) {
+            adhanSnooze = PendingIntent.getService(context, 1,
+                    new Intent(context, AdhanService.class).setAction(AdhanService.ACTION_SNOOZE),
+                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        }
+        return adhanSnooze;
+    }
+
+    private static PendingIntent alarmOpen(Context context) {
+        if (alarmOpen == null) {
+            Intent intent = new Intent(context, MainActivity.class).putExtra("trigger", "alarm");
+            alarmOpen = PendingIntent.getActivity(context, 2, intent,
+                    PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+        }
+        return alarmOpen;
+    }
+
+    private static PendingIntent alarmFullScreen(Context context) {
+        if (alarmFullScreen == null) {
+            Intent intent = new Intent(context, MainActivity.class)
+                    .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP | Intent.FLAG_ACTIVITY_CLEAR_TOP)
+                    .putExtra("trigger", "alarm");
+            alarmFullScreen = PendingIntent.getActivity(context, 3, intent,
+                    PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+        }
+        return alarmFullScreen;
+    }
+
+    private static PendingIntent alarmStop(Context context) {
+        if (alarmStop == null) {
+            alarmStop = PendingIntent.getService(context, 0,
+                    new Intent(context, AlarmService.class).setAction(AlarmService.ACTION_STOP),
+                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        }
+        return alarmStop;
+    }
+}
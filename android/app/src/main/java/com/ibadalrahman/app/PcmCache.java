@@ -0,0 +1,268 @@
+package com.ibadalrahman.app;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.AudioFormat;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Decoded copies of the bundled Adhan recordings, so an alarm can stream PCM straight into an
+ * AudioTrack instead of spinning up an MP3 decoder while the device leaves Doze.
+ *
+ * <p>Each file is a 32-byte header followed by native-order 16-bit samples and is read through a
+ * read-only memory map. Only the most recently decoded recording is kept on disk.
+ */
+public final class PcmCache {
+    private static final String TAG = "PcmCache";
+    private static final String DIR = "adhan_pcm";
+
+    private static final int MAGIC = 0x50434D31; // "PCM1"
+    private static final int HEADER_BYTES = 32;
+    private static final long DEQUEUE_TIMEOUT_US = 10_000;
+
+    private final Context context;
+    private final File dir;
+    // Decoding a full recording takes a few seconds; keep it off the audio thread
+    private final ExecutorService decoder = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "PcmCacheDecoder");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private Clip mapped;
+
+    public PcmCache(Context context) {
+        this.context = context.getApplicationContext();
+        this.dir = new File(this.context.getNoBackupFilesDir(), DIR);
+    }
+
+    /** A mapped, ready-to-play recording. */
+    public static final class Clip {
+        public final String soundName;
+        public final int sampleRate;
+        public final int channelCount;
+        public final int frameCount;
+        final ShortBuffer samples;
+
+        Clip(String soundName, int sampleRate, int channelCount, ShortBuffer samples) {
+            this.soundName = soundName;
+            this.sampleRate = sampleRate;
+            this.channelCount = channelCount;
+            this.samples = samples;
+            this.frameCount = samples.capacity() / channelCount;
+        }
+
+        public int channelMask() {
+            return channelCount == 1 ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO;
+        }
+    }
+
+    /** Returns the mapped clip if it has already been decoded, without blocking on the decoder. */
+    public synchronized Clip get(String soundName) {
+        if (mapped != null && mapped.soundName.equals(soundName)) return mapped;
+        File file = fileFor(soundName);
+        if (!file.exists()) return null;
+        try {
+            mapped = map(soundName, file, rawResource(soundName));
+            return mapped;
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable cache for " + soundName, e);
+            file.delete();
+            return null;
+        }
+    }
+
+    /** Decodes {@code soundName} in the background if it isn't cached yet. */
+    public void prepare(String soundName) {
+        prepare(soundName, null);
+    }
+
+    /**
+     * Decodes and maps {@code soundName} in the background, so a later {@link #get} returns at
+     * once; runs {@code done} on the decoder thread afterwards, whether or not it worked.
+     */
+    public void prepare(String soundName, Runnable done) {
+        decoder.execute(() -> {
+            try {
+                if (get(soundName) != null) return;
+                long start = System.currentTimeMillis();
+                decode(soundName);
+                Log.d(TAG, "Decoded " + soundName + " in " + (System.currentTimeMillis() - start) + " ms");
+                get(soundName);
+            } catch (IOException | RuntimeException e) {
+                // MediaCodec throws IllegalStateException/CodecException on bad input
+                Log.e(TAG, "Failed to decode " + soundName, e);
+            } finally {
+                if (done != null) done.run();
+            }
+        });
+    }
+
+    /** Drops the mapping and deletes every cached recording. */
+    public void clear() {
+        decoder.execute(() -> {
+            synchronized (this) {
+                mapped = null;
+                File[] files = dir.listFiles();
+                if (files != null) {
+                    for (File file : files) file.delete();
+                }
+            }
+        });
+    }
+
+    private File fileFor(String soundName) {
+        return new File(dir, soundName + ".pcm");
+    }
+
+    private static int rawResource(String soundName) {
+        if ("adhan_madinah".equals(soundName)) return R.raw.adhan_madinah;
+        if ("adhan_egypt".equals(soundName)) return R.raw.adhan_egypt;
+        return R.raw.adhan_makkah;
+    }
+
+    private long sourceLength(int resId) throws IOException {
+        try (AssetFileDescriptor afd = context.getResources().openRawResourceFd(resId)) {
+            return afd.getLength();
+        }
+    }
+
+    private Clip map(String soundName, File file, int resId) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            if (channel.read(header, 0) != HEADER_BYTES) throw new IOException("Short header");
+            header.flip();
+            int magic = header.getInt();
+            int sampleRate = header.getInt();
+            int channelCount = header.getInt();
+            header.getInt(); // reserved
+            long source = header.getLong();
+            long dataBytes = header.getLong();
+            if (magic != MAGIC || source != sourceLength(resId)
+                    || channelCount < 1 || channelCount > 2
+                    || dataBytes != channel.size() - HEADER_BYTES) {
+                throw new IOException("Stale or corrupt PCM cache");
+            }
+
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, dataBytes);
+            data.order(ByteOrder.nativeOrder());
+            return new Clip(soundName, sampleRate, channelCount, data.asShortBuffer());
+        }
+    }
+
+    private void decode(String soundName) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        int resId = rawResource(soundName);
+        File tmp = new File(dir, soundName + ".tmp");
+
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+        try (AssetFileDescriptor afd = context.getResources().openRawResourceFd(resId);
+             RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+             FileChannel out = raf.getChannel()) {
+            extractor.setDataSource(afd.getFileDescriptor(), afd.getStartOffset(), afd.getLength());
+            MediaFormat format = selectAudioTrack(extractor);
+            int sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+            int channelCount = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+
+            out.truncate(0);
+            out.position(HEADER_BYTES);
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            boolean inputDone = false;
+            while (true) {
+                if (!inputDone) {
+                    int inIndex = codec.dequeueInputBuffer(DEQUEUE_TIMEOUT_US);
+                    if (inIndex >= 0) {
+                        int size = extractor.readSampleData(codec.getInputBuffer(inIndex), 0);
+                        if (size < 0) {
+                            codec.queueInputBuffer(inIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            codec.queueInputBuffer(inIndex, 0, size, extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+
+                int outIndex = codec.dequeueOutputBuffer(info, DEQUEUE_TIMEOUT_US);
+                if (outIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    MediaFormat outFormat = codec.getOutputFormat();
+                    sampleRate = outFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+                    channelCount = outFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+                    if (outFormat.containsKey(MediaFormat.KEY_PCM_ENCODING)
+                            && outFormat.getInteger(MediaFormat.KEY_PCM_ENCODING) != AudioFormat.ENCODING_PCM_16BIT) {
+                        throw new IOException("Unsupported decoder output encoding");
+                    }
+                } else if (outIndex >= 0) {
+                    ByteBuffer buffer = codec.getOutputBuffer(outIndex);
+                    buffer.position(info.offset);
+                    buffer.limit(info.offset + info.size);
+                    while (buffer.hasRemaining()) out.write(buffer);
+                    codec.releaseOutputBuffer(outIndex, false);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) break;
+                }
+            }
+            if (channelCount < 1 || channelCount > 2) throw new IOException("Unsupported channel count " + channelCount);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(sampleRate).putInt(channelCount).putInt(0)
+                    .putLong(afd.getLength()).putLong(out.size() - HEADER_BYTES);
+            header.flip();
+            out.write(header, 0);
+            out.force(false);
+        } finally {
+            if (codec != null) {
+                try {
+                    codec.stop();
+                } catch (IllegalStateException ignored) {
+                    // Never started
+                }
+                codec.release();
+            }
+            extractor.release();
+        }
+
+        synchronized (this) {
+            // Only the selected recording is worth the disk space
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (file.getName().endsWith(".pcm")) file.delete();
+                }
+            }
+            mapped = null;
+            if (!tmp.renameTo(fileFor(soundName))) throw new IOException("Could not replace " + fileFor(soundName));
+        }
+    }
+
+    private static MediaFormat selectAudioTrack(MediaExtractor extractor) throws IOException {
+        for (int i = 0; i < extractor.getTrackCount(); i++) {
+            MediaFormat format = extractor.getTrackFormat(i);
+            String mime = format.getString(MediaFormat.KEY_MIME);
+            if (mime != null && mime.startsWith("audio/")) {
+                extractor.selectTrack(i);
+                return format;
+            }
+        }
+        throw new IOException("No audio track");
+    }
+}
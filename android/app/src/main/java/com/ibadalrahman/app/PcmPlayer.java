@@ -0,0 +1,129 @@
+package com.ibadalrahman.app;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.os.Handler;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Streams a {@link PcmCache.Clip} into an AudioTrack from the audio HandlerThread. The track is
+ * topped up with non-blocking writes on its periodic position callback, so no extra thread is
+ * needed; the fade-in gain is evaluated per frame while copying, so it is sample-accurate.
+ */
+final class PcmPlayer implements AudioTrack.OnPlaybackPositionUpdateListener {
+    private static final int PERIOD_MS = 100;
+    private static final int BUFFER_MS = 500;
+
+    interface Callback {
+        void onEnd(boolean error);
+    }
+
+    private final PcmCache.Clip clip;
+    private final ShortBuffer source;
+    private final Callback callback;
+    private final AudioFade fade;
+    private final int fadeFrames;
+    private final short[] scratch;
+    private AudioTrack track;
+    private int framesWritten;
+
+    PcmPlayer(PcmCache.Clip clip, AudioFade fade, Callback callback) {
+        this.clip = clip;
+        this.source = clip.samples.duplicate();
+        this.callback = callback;
+        this.fade = fade;
+        this.fadeFrames = fade == null ? 0 : (int) Math.min(clip.frameCount, fade.durationMs * clip.sampleRate / 1000);
+        this.scratch = new short[clip.sampleRate * PERIOD_MS / 1000 * clip.channelCount];
+    }
+
+    /** Must be called on {@code handler}'s thread; returns false if the track couldn't be created. */
+    boolean start(Handler handler) {
+        int minBuffer = AudioTrack.getMinBufferSize(clip.sampleRate, clip.channelMask(), AudioFormat.ENCODING_PCM_16BIT);
+        int bufferBytes = Math.max(minBuffer, clip.sampleRate * BUFFER_MS / 1000 * clip.channelCount * 2);
+        try {
+            track = new AudioTrack.Builder()
+                    .setAudioAttributes(new AudioAttributes.Builder()
+                            .setUsage(AudioAttributes.USAGE_ALARM)
+                            .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                            .build())
+                    .setAudioFormat(new AudioFormat.Builder()
+                            .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                            .setSampleRate(clip.sampleRate)
+                            .setChannelMask(clip.channelMask())
+                            .build())
+                    .setBufferSizeInBytes(bufferBytes)
+                    .setTransferMode(AudioTrack.MODE_STREAM)
+                    .build();
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            return false;
+        }
+        if (track.getState() != AudioTrack.STATE_INITIALIZED) {
+            track.release();
+            track = null;
+            return false;
+        }
+
+        track.setPlaybackPositionUpdateListener(this, handler);
+        track.setPositionNotificationPeriod(clip.sampleRate * PERIOD_MS / 1000);
+        track.setNotificationMarkerPosition(clip.frameCount);
+        if (!fill()) {
+            stop();
+            return false;
+        }
+        track.play();
+        return true;
+    }
+
+    void stop() {
+        if (track == null) return;
+        track.setPlaybackPositionUpdateListener(null, null);
+        track.pause();
+        track.flush();
+        track.release();
+        track = null;
+    }
+
+    @Override
+    public void onPeriodicNotification(AudioTrack audioTrack) {
+        if (!fill()) {
+            stop();
+            callback.onEnd(true);
+        }
+    }
+
+    @Override
+    public void onMarkerReached(AudioTrack audioTrack) {
+        stop();
+        callback.onEnd(false);
+    }
+
+    /** Writes as much of the clip as the track will take without blocking; false on a write error. */
+    private boolean fill() {
+        int channels = clip.channelCount;
+        while (framesWritten < clip.frameCount) {
+            int frames = Math.min(scratch.length / channels, clip.frameCount - framesWritten);
+            source.position(framesWritten * channels);
+            source.get(scratch, 0, frames * channels);
+            if (framesWritten < fadeFrames) applyFade(frames);
+
+            int written = track.write(scratch, 0, frames * channels, AudioTrack.WRITE_NON_BLOCKING);
+            if (written < 0) return false;
+            framesWritten += written / channels;
+            if (written < frames * channels) break; // Buffer full; continue on the next period
+        }
+        return true;
+    }
+
+    private void applyFade(int frames) {
+        int channels = clip.channelCount;
+        for (int frame = 0; frame < frames && framesWritten + frame < fadeFrames; frame++) {
+            float gain = fade.gain((float) (framesWritten + frame) / fadeFrames);
+            for (int c = 0; c < channels; c++) {
+                int index = frame * channels + c;
+                scratch[index] = (short) (scratch[index] * gain);
+            }
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.ibadalrahman.app;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Nearby-search results cached per search tile: the {@link Geohash} cell the search is centred
+ * in plus its radius rounded up to {@link #RADIUS_STEP_M}. A search costs at most one request,
+ * made from the cell's centre with the cell's own radius added, so it answers every later search
+ * from anywhere in that cell with no larger radius until the TTL runs out. A tile wanted by
+ * several searches at once is fetched once. Tiles live one file each, evicted least recently
+ * used past {@code maxTiles}, and a stale tile is still served when it can't be refreshed, so
+ * places seen before stay listed offline.
+ *
+ * <p>File layout: the fetch time in epoch millis on the first line, then the decoded payload.
+ * Plain Java so it can be tested against a local HTTP server.
+ */
+public final class PlaceCache {
+    /** Turns a response body into what the tile stores; throws to leave the tile unfetched. */
+    public interface Decoder {
+        String decode(String body) throws IOException;
+    }
+
+    /** One tile's payload, and whether it is past the TTL because a refresh failed. */
+    public static final class Tile {
+        public final String key;
+        public final long fetchedAt;
+        public final String payload;
+        public final boolean stale;
+
+        Tile(String key, long fetchedAt, String payload, boolean stale) {
+            this.key = key;
+            this.fetchedAt = fetchedAt;
+            this.payload = payload;
+            this.stale = stale;
+        }
+    }
+
+    /** Counters since this instance was created. */
+    public static final class Stats {
+        public final long hits;
+        public final long fetches;
+        public final long failures;
+        public final long evictions;
+        public final int tiles;
+
+        Stats(long hits, long fetches, long failures, long evictions, int tiles) {
+            this.hits = hits;
+            this.fetches = fetches;
+            this.failures = failures;
+            this.evictions = evictions;
+            this.tiles = tiles;
+        }
+    }
+
+    // About 1.2 x 0.6 km: a request reaches at most 700 m further than the search asked for
+    static final int PRECISION = 6;
+    static final int RADIUS_STEP_M = 1000;
+    static final long DEFAULT_TTL_MS = 7L * 24 * 60 * 60 * 1000;
+    static final int DEFAULT_MAX_TILES = 512;
+    private static final String SUFFIX = ".tile";
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    private static final int READ_TIMEOUT_MS = 15_000;
+
+    private final File dir;
+    private final String baseUrl;
+    private final String query;
+    private final Decoder decoder;
+    private final long ttlMs;
+    private final int maxTiles;
+
+    // Access-ordered; values are read from disk on first use and null until then
+    private final LinkedHashMap<String, Tile> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, FutureTask<Tile>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService fetcher = Executors.newFixedThreadPool(3, r -> new Thread(r, "PlaceFetch"));
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong fetches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param baseUrl nearby-search endpoint; {@code location} and {@code radius} are appended
+     * @param query   fixed parameters appended after them, e.g. {@code "type=mosque"}
+     */
+    public PlaceCache(File dir, String baseUrl, String query, Decoder decoder, long ttlMs, int maxTiles) {
+        this.dir = dir;
+        this.baseUrl = baseUrl;
+        this.query = query;
+        this.decoder = decoder;
+        this.ttlMs = ttlMs;
+        this.maxTiles = maxTiles;
+        load();
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits.get(), fetches.get(), failures.get(), evictions.get(), tiles.size());
+    }
+
+    /** Key of the tile a search of {@code radiusMeters} around the point is answered from. */
+    static String tileFor(double latitude, double longitude, double radiusMeters) {
+        int steps = Math.max(1, (int) Math.ceil(radiusMeters / RADIUS_STEP_M));
+        return Geohash.encode(latitude, longitude, PRECISION) + "_" + steps * RADIUS_STEP_M;
+    }
+
+    /**
+     * A tile holding every place within {@code radiusMeters} of the point: a fresh one from the
+     * same cell at this radius or wider, else this search's own tile, fetched. When the fetch fails
+     * an expired tile is served marked stale; throws only if there is none. Blocks.
+     *
+     * @param apiKey appended as {@code key}, or null
+     */
+    public Tile nearby(double latitude, double longitude, double radiusMeters, String apiKey, long now) throws IOException {
+        String key = tileFor(latitude, longitude, radiusMeters);
+        Tile cached = freshCovering(key, now);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        try {
+            return fetch(key, apiKey, now).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching places", e);
+        } catch (ExecutionException e) {
+            failures.incrementAndGet();
+            // Offline or over quota: what was known before beats nothing
+            Tile stale = read(key);
+            if (stale != null) return new Tile(stale.key, stale.fetchedAt, stale.payload, true);
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    /** A fresh tile from {@code key}'s cell with at least its radius, or null. */
+    private synchronized Tile freshCovering(String key, long now) {
+        int separator = key.indexOf('_');
+        String cell = key.substring(0, separator + 1);
+        int radius = Integer.parseInt(key.substring(separator + 1));
+        Tile tile = read(key);
+        if (tile != null && now - tile.fetchedAt < ttlMs) return tile;
+        for (String other : new ArrayList<>(tiles.keySet())) {
+            if (!other.startsWith(cell) || Integer.parseInt(other.substring(cell.length())) < radius) continue;
+            tile = read(other);
+            if (tile != null && now - tile.fetchedAt < ttlMs) return tile;
+        }
+        return null;
+    }
+
+    /** Stops fetching; tiles already on disk stay. */
+    public void shutdown() {
+        fetcher.shutdownNow();
+    }
+
+    /** Starts a download for {@code key}, or joins the one already running. */
+    private Future<Tile> fetch(String key, String apiKey, long now) {
+        FutureTask<Tile> task = new FutureTask<>(() -> {
+            // Another search may have refreshed it while this one was queued
+            Tile cached = read(key);
+            if (cached != null && now - cached.fetchedAt < ttlMs) return cached;
+            Tile tile = store(key, decoder.decode(download(key, apiKey)), now);
+            fetches.incrementAndGet();
+            return tile;
+        });
+        FutureTask<Tile> existing = inFlight.putIfAbsent(key, task);
+        // A finished download stays in the map until its runner gets to remove it
+        if (existing != null && existing.isDone() && inFlight.replace(key, existing, task)) existing = null;
+        if (existing != null) return existing;
+        fetcher.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, task);
+            }
+        });
+        return task;
+    }
+
+    private String download(String key, String apiKey) throws IOException {
+        int separator = key.indexOf('_');
+        String hash = key.substring(0, separator);
+        double[] b = Geohash.bounds(hash);
+        // Reaches the search radius from every point in the cell
+        int radius = Integer.parseInt(key.substring(separator + 1)) + (int) Math.ceil(Geohash.radiusMeters(hash));
+        StringBuilder url = new StringBuilder(baseUrl)
+                .append("?location=").append(String.format(Locale.US, "%.6f,%.6f", (b[0] + b[2]) / 2, (b[1] + b[3]) / 2))
+                .append("&radius=").append(radius);
+        if (query != null && !query.isEmpty()) url.append('&').append(query);
+        if (apiKey != null) url.append("&key=").append(URLEncoder.encode(apiKey, "UTF-8"));
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(url.toString()).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        connection.setRequestProperty("Accept", "application/json");
+        try {
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) throw new IOException("API Error: " + status);
+            try (InputStream in = connection.getInputStream()) {
+                return readFully(in);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /** Writes to a temporary file outside the lock, then publishes it. */
+    private Tile store(String key, String payload, long now) throws IOException {
+        if (!dir.exists() && !dir.mkdirs() && !dir.exists()) throw new IOException("Cannot create " + dir);
+        File tmp = new File(dir, key + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            out.write((now + "\n" + payload).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+
+        synchronized (this) {
+            File file = fileFor(key);
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+                throw new IOException("Cannot store tile " + key);
+            }
+            Tile tile = new Tile(key, now, payload, false);
+            tiles.put(key, tile);
+            trim();
+            return tile;
+        }
+    }
+
+    /** The cached tile, marked as just used, or null. */
+    private synchronized Tile read(String key) {
+        if (!tiles.containsKey(key)) return null;
+        Tile tile = tiles.get(key);
+        File file = fileFor(key);
+        if (tile == null) {
+            try (InputStream in = new FileInputStream(file)) {
+                String content = readFully(in);
+                int newline = content.indexOf('\n');
+                tile = new Tile(key, Long.parseLong(content.substring(0, newline)), content.substring(newline + 1), false);
+                tiles.put(key, tile);
+            } catch (IOException | RuntimeException e) {
+                // Deleted behind our back, or cut short; fetch it again
+                tiles.remove(key);
+                file.delete();
+                return null;
+            }
+        }
+        file.setLastModified(System.currentTimeMillis());
+        return tile;
+    }
+
+    private void trim() {
+        Iterator<String> eldest = tiles.keySet().iterator();
+        while (tiles.size() > maxTiles && eldest.hasNext()) {
+            fileFor(eldest.next()).delete();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /** Rebuilds the LRU order from file modification times; tiles themselves load on use. */
+    private synchronized void load() {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        List<File> cached = new ArrayList<>();
+        for (File file : files) {
+            // Anything else is a partial write from a killed process, or a tile from before
+            // keys carried their radius
+            if (file.getName().endsWith(SUFFIX) && file.getName().indexOf('_') > 0) cached.add(file);
+            else file.delete();
+        }
+        File[] ordered = cached.toArray(new File[0]);
+        Arrays.sort(ordered, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : ordered) {
+            String name = file.getName();
+            tiles.put(name.substring(0, name.length() - SUFFIX.length()), null);
+        }
+        trim();
+    }
+
+    private File fileFor(String key) {
+        return new File(dir, key + SUFFIX);
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) out.write(buffer, 0, n);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
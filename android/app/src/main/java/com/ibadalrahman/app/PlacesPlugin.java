@@ -0,0 +1,147 @@
+package com.ibadalrahman.app;
+
+import android.content.Context;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Mosques near a point through {@link PlaceCache}, so searching the same spot again, or reopening
+ * the finder there, is answered from disk instead of another Places request.
+ */
+@CapacitorPlugin(name = "Places")
+public class PlacesPlugin extends Plugin {
+    static final String API_BASE_URL = "https://maps.googleapis.com/maps/api/place/nearbysearch/json";
+    private static final String QUERY = "type=mosque";
+    private static final String CACHE_DIR = "places";
+    private static final double DEFAULT_RADIUS_M = 5000;
+    // One page is 20 results; past this a search would only list the most prominent few
+    private static final double MAX_RADIUS_M = 15_000;
+
+    private static PlaceCache cache;
+
+    // Searches block on the network; keep them off the bridge thread all plugins share
+    private final ExecutorService loader = Executors.newFixedThreadPool(2);
+
+    static synchronized PlaceCache cache(Context context) {
+        if (cache == null) {
+            File dir = new File(context.getApplicationContext().getNoBackupFilesDir(), CACHE_DIR);
+            cache = new PlaceCache(dir, API_BASE_URL, QUERY, PlacesPlugin::decode,
+                    PlaceCache.DEFAULT_TTL_MS, PlaceCache.DEFAULT_MAX_TILES);
+        }
+        return cache;
+    }
+
+    @PluginMethod
+    public void nearbyMosques(PluginCall call) {
+        Double latitude = call.getDouble("latitude");
+        Double longitude = call.getDouble("longitude");
+        if (latitude == null || longitude == null) {
+            call.reject("Must provide latitude and longitude");
+            return;
+        }
+        double radius = Math.max(1, Math.min(MAX_RADIUS_M, call.getDouble("radius", DEFAULT_RADIUS_M)));
+        String apiKey = call.getString("apiKey");
+        PlaceCache places = cache(getContext());
+
+        loader.execute(() -> {
+            PlaceCache.Tile tile;
+            try {
+                tile = places.nearby(latitude, longitude, radius, apiKey, System.currentTimeMillis());
+            } catch (IOException e) {
+                System.err.println("PlacesPlugin: " + e.getMessage());
+                call.reject(e.getMessage());
+                return;
+            }
+
+            List<JSONObject> found = new ArrayList<>();
+            try {
+                JSONArray entries = new JSONArray(tile.payload);
+                for (int i = 0; i < entries.length(); i++) {
+                    JSONObject place = entries.getJSONObject(i);
+                    // The tile was searched from its cell's centre, a little wider than asked
+                    double distance = Geohash.distanceMeters(latitude, longitude, place.getDouble("lat"), place.getDouble("lng"));
+                    if (distance > radius) continue;
+                    place.put("distance", Math.round(distance));
+                    found.add(place);
+                }
+            } catch (JSONException e) {
+                call.reject("Malformed place tile");
+                return;
+            }
+            Collections.sort(found, (a, b) -> Long.compare(a.optLong("distance"), b.optLong("distance")));
+
+            JSArray list = new JSArray();
+            for (JSONObject place : found) list.put(place);
+            JSObject ret = new JSObject();
+            ret.put("places", list);
+            ret.put("stale", tile.stale);
+            call.resolve(ret);
+        });
+    }
+
+    @PluginMethod
+    public void getCacheStats(PluginCall call) {
+        PlaceCache.Stats stats = cache(getContext()).stats();
+        JSObject ret = new JSObject();
+        ret.put("hits", stats.hits);
+        ret.put("fetches", stats.fetches);
+        ret.put("failures", stats.failures);
+        ret.put("evictions", stats.evictions);
+        ret.put("tiles", stats.tiles);
+        call.resolve(ret);
+    }
+
+    /**
+     * Keeps what the finder shows of a nearby-search response:
+     * {@code [{id, name, vicinity, lat, lng, rating?}]}. Error statuses throw, so a denied key or
+     * exhausted quota is never cached as an empty tile.
+     */
+    static String decode(String body) throws IOException {
+        try {
+            JSONObject response = new JSONObject(body);
+            String status = response.optString("status");
+            if (!"OK".equals(status) && !"ZERO_RESULTS".equals(status)) {
+                throw new IOException("Places API: " + status + " " + response.optString("error_message"));
+            }
+            JSONArray results = response.optJSONArray("results");
+            JSONArray places = new JSONArray();
+            for (int i = 0; results != null && i < results.length(); i++) {
+                JSONObject result = results.getJSONObject(i);
+                JSONObject location = result.getJSONObject("geometry").getJSONObject("location");
+                JSONObject place = new JSONObject();
+                place.put("id", result.getString("place_id"));
+                place.put("name", result.optString("name"));
+                place.put("vicinity", result.optString("vicinity"));
+                place.put("lat", location.getDouble("lat"));
+                place.put("lng", location.getDouble("lng"));
+                if (result.has("rating")) place.put("rating", result.getDouble("rating"));
+                places.put(place);
+            }
+            return places.toString();
+        } catch (JSONException e) {
+            throw new IOException("Malformed places response", e);
+        }
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        loader.shutdown();
+    }
+}
@@ -0,0 +1,111 @@
+package com.ibadalrahman.app;
+
+import android.app.AlarmManager;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+/**
+ * Reminder, pre-Adhan and after-prayer notifications, driven by the Adhan table instead of a
+ * separately scheduled batch. One PendingIntent points at the next event on the
+ * {@link ReminderTimeline}; AdhanReceiver posts it from {@link NotificationTemplates} and re-arms
+ * for the one after.
+ */
+public final class PrayerReminders {
+    private static final String TAG = "PrayerReminders";
+
+    public static final String ACTION_REMINDER = "com.ibadalrahman.app.PRAYER_REMINDER";
+    private static final int REQUEST_CODE = 0xAD4D;
+
+    private static final String KEY_REMINDER_MINUTES = "reminderMinutes";
+    private static final String KEY_PRE_ADHAN = "preAdhanReminder";
+    private static final String KEY_POST_PRAYER_MINUTES = "postPrayerMinutes";
+
+    private PrayerReminders() {}
+
+    public static ReminderTimeline.Config config(Context context) {
+        SharedPreferences prefs = DeviceStorage.prefs(context, PrayerSettings.PREFS_NAME);
+        return new ReminderTimeline.Config(
+                prefs.getInt(KEY_REMINDER_MINUTES, 0),
+                prefs.getBoolean(KEY_PRE_ADHAN, false),
+                prefs.getInt(KEY_POST_PRAYER_MINUTES, 0));
+    }
+
+    /** Stores which events are on and re-arms the next one. */
+    public static void configure(Context context, int reminderMinutes, boolean preAdhan, int postPrayerMinutes) {
+        DeviceStorage.prefs(context, PrayerSettings.PREFS_NAME).edit()
+                .putInt(KEY_REMINDER_MINUTES, Math.max(0, reminderMinutes))
+                .putBoolean(KEY_PRE_ADHAN, preAdhan)
+                .putInt(KEY_POST_PRAYER_MINUTES, Math.max(0, postPrayerMinutes))
+                .apply();
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        armNext(context, alarmManager, System.currentTimeMillis(), Integer.MIN_VALUE);
+    }
+
+    /**
+     * Arms the single reminder alarm for the first event after ({@code afterTime}, {@code afterId}),
+     * or cancels it if there is none.
+     */
+    public static void armNext(Context context, AlarmManager alarmManager, long afterTime, int afterId) {
+        ReminderTimeline.Event event = ReminderTimeline.next(AdhanScheduler.store(context), config(context), afterTime, afterId);
+        if (event == null) {
+            PendingIntent existing = PendingIntent.getBroadcast(context, REQUEST_CODE, buildIntent(context),
+                    PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE);
+            if (existing != null) {
+                alarmManager.cancel(existing);
+                existing.cancel();
+            }
+            return;
+        }
+
+        Intent intent = buildIntent(context);
+        intent.putExtra("eventId", event.id);
+        intent.putExtra("eventTime", event.time);
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(context, REQUEST_CODE, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        try {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, event.time, pendingIntent);
+        } catch (SecurityException e) {
+            // Without exact alarms a reminder a few minutes late is still useful
+            alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, event.time, pendingIntent);
+        }
+    }
+
+    /**
+     * Posts the event AdhanReceiver was woken for, unless its Adhan has since been dropped or
+     * moved, then arms the next one.
+     */
+    static void onAlarm(Context context, Intent intent) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        int eventId = intent.getIntExtra("eventId", AlarmStore.NONE);
+        long eventTime = intent.getLongExtra("eventTime", 0);
+        if (eventId == AlarmStore.NONE) return;
+
+        AlarmStore alarms = AdhanScheduler.store(context);
+        ReminderTimeline.Event event = new ReminderTimeline.Event(eventId, eventTime);
+        long adhanTime = alarms.time(event.adhanId());
+        if (adhanTime != 0 && config(context).timeFor(event.kind(), adhanTime) == eventTime) {
+            post(context, event, adhanTime);
+        } else {
+            Log.d(TAG, "Skipping stale reminder " + eventId);
+        }
+        armNext(context, alarmManager, eventTime, eventId);
+    }
+
+    private static void post(Context context, ReminderTimeline.Event event, long adhanTime) {
+        NotificationManager manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        if (manager == null) return;
+        int kind = event.kind();
+        int minutes = kind == AlarmStore.KIND_PRE_ADHAN ? ReminderTimeline.PRE_ADHAN_MINUTES : config(context).reminderMinutes;
+        // Reminders are stale once the Adhan itself is up
+        long timeout = kind == AlarmStore.KIND_POST_PRAYER ? 0 : Math.max(1, adhanTime - System.currentTimeMillis());
+        manager.notify(event.id, NotificationTemplates.event(context, kind, event.slot(), minutes, timeout));
+    }
+
+    private static Intent buildIntent(Context context) {
+        return new Intent(context, AdhanReceiver.class).setAction(ACTION_REMINDER);
+    }
+}
@@ -0,0 +1,83 @@
+package com.ibadalrahman.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Calculation inputs pushed from SchedulerOptions, persisted so receivers and the widget can
+ * compute upcoming prayer times with PrayerTimesCalculator without the WebView.
+ */
+public final class PrayerSettings {
+    public static final String PREFS_NAME = "PrayerSettings";
+
+    private static final String KEY_LATITUDE = "latitude";
+    private static final String KEY_LONGITUDE = "longitude";
+    private static final String KEY_METHOD = "calculationMethod";
+    private static final String KEY_MADHAB = "madhab";
+    private static final String KEY_ENABLED_MASK = "enabledPrayers";
+    private static final String KEY_SOUND = "soundName";
+    private static final String KEY_ENABLED = "enabled";
+
+    private static final int ALL_PRAYERS = (1 << PrayerTimesCalculator.PRAYER_COUNT) - 1;
+
+    public final double latitude;
+    public final double longitude;
+    public final int calculationMethod;
+    public final String madhab;
+    public final int enabledMask;
+    public final String soundName;
+    public final boolean enabled;
+
+    public PrayerSettings(double latitude, double longitude, int calculationMethod, String madhab,
+                          int enabledMask, String soundName, boolean enabled) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.calculationMethod = calculationMethod;
+        this.madhab = madhab;
+        this.enabledMask = enabledMask;
+        this.soundName = soundName;
+        this.enabled = enabled;
+    }
+
+    /** Returns null until JS has pushed a location at least once. */
+    public static PrayerSettings load(Context context) {
+        SharedPreferences prefs = DeviceStorage.prefs(context, PREFS_NAME);
+        if (!prefs.contains(KEY_LATITUDE) || !prefs.contains(KEY_LONGITUDE)) return null;
+
+        return new PrayerSettings(
+                Double.longBitsToDouble(prefs.getLong(KEY_LATITUDE, 0)),
+                Double.longBitsToDouble(prefs.getLong(KEY_LONGITUDE, 0)),
+                prefs.getInt(KEY_METHOD, 3),
+                prefs.getString(KEY_MADHAB, "shafi"),
+                prefs.getInt(KEY_ENABLED_MASK, ALL_PRAYERS),
+                prefs.getString(KEY_SOUND, "adhan_makkah"),
+                prefs.getBoolean(KEY_ENABLED, true));
+    }
+
+    public void save(Context context) {
+        DeviceStorage.prefs(context, PREFS_NAME).edit()
+                .putLong(KEY_LATITUDE, Double.doubleToRawLongBits(latitude))
+                .putLong(KEY_LONGITUDE, Double.doubleToRawLongBits(longitude))
+                .putInt(KEY_METHOD, calculationMethod)
+                .putString(KEY_MADHAB, madhab)
+                .putInt(KEY_ENABLED_MASK, enabledMask)
+                .putString(KEY_SOUND, soundName)
+                .putBoolean(KEY_ENABLED, enabled)
+                .apply();
+    }
+
+    /** Flips only the master switch, for when JS clears the schedule without pushing a location. */
+    public static void setEnabled(Context context, boolean enabled) {
+        DeviceStorage.prefs(context, PREFS_NAME).edit().putBoolean(KEY_ENABLED, enabled).apply();
+    }
+
+    public boolean isPrayerEnabled(int slot) {
+        return enabled && (enabledMask & (1 << slot)) != 0;
+    }
+
+    public PrayerTimesCalculator calculator() {
+        return new PrayerTimesCalculator(latitude, longitude,
+                PrayerTimesCalculator.Method.fromSettingsId(calculationMethod),
+                PrayerTimesCalculator.Madhab.fromSettings(madhab));
+    }
+}
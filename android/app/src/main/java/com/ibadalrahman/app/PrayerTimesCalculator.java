@@ -0,0 +1,437 @@
+package com.ibadalrahman.app;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Pure-Java port of the astronomical calculation used by the "adhan" npm package, so alarms and
+ * the widget can be computed without the WebView. Results match PrayerTimes from adhan-js 4.x for
+ * the methods exposed in SchedulerOptions (same angles, method adjustments, night-portion safety
+ * limits and nearest-minute rounding).
+ */
+public final class PrayerTimesCalculator {
+
+    public static final int FAJR = 0;
+    public static final int DHUHR = 1;
+    public static final int ASR = 2;
+    public static final int MAGHRIB = 3;
+    public static final int ISHA = 4;
+    public static final int PRAYER_COUNT = 5;
+
+    public static final String[] PRAYER_NAMES = {"fajr", "dhuhr", "asr", "maghrib", "isha"};
+
+    /** Returned for times that can't be computed (e.g. no sunrise above the polar circle). */
+    public static final long INVALID_TIME = Long.MIN_VALUE;
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    public enum Madhab {
+        SHAFI(1), HANAFI(2);
+
+        final int shadowLength;
+
+        Madhab(int shadowLength) {
+            this.shadowLength = shadowLength;
+        }
+
+        public static Madhab fromSettings(String value) {
+            return "hanafi".equals(value) ? HANAFI : SHAFI;
+        }
+    }
+
+    public enum Method {
+        // fajrAngle, ishaAngle, ishaInterval (min), maghribAngle, dhuhr adjustment (min)
+        MUSLIM_WORLD_LEAGUE(18, 17, 0, 0, 1),
+        NORTH_AMERICA(15, 15, 0, 0, 1),
+        EGYPTIAN(19.5, 17.5, 0, 0, 1),
+        UMM_AL_QURA(18.5, 0, 90, 0, 0),
+        KARACHI(18, 18, 0, 0, 1),
+        TEHRAN(17.7, 14, 0, 4.5, 0);
+
+        final double fajrAngle;
+        final double ishaAngle;
+        final int ishaInterval;
+        final double maghribAngle;
+        final int dhuhrAdjustment;
+
+        Method(double fajrAngle, double ishaAngle, int ishaInterval, double maghribAngle, int dhuhrAdjustment) {
+            this.fajrAngle = fajrAngle;
+            this.ishaAngle = ishaAngle;
+            this.ishaInterval = ishaInterval;
+            this.maghribAngle = maghribAngle;
+            this.dhuhrAdjustment = dhuhrAdjustment;
+        }
+
+        /** Same mapping as the calculationMethod switch in PrayerScheduleService / PrayerTimesContext. */
+        public static Method fromSettingsId(int id) {
+            switch (id) {
+                case 3: return MUSLIM_WORLD_LEAGUE;
+                case 2: return NORTH_AMERICA;
+                case 5: return EGYPTIAN;
+                case 4: return UMM_AL_QURA;
+                case 1: return KARACHI;
+                case 7:
+                case 0: return TEHRAN;
+                default: return MUSLIM_WORLD_LEAGUE;
+            }
+        }
+    }
+
+    /** One day's times as epoch milliseconds. */
+    public static final class DayTimes {
+        public final long fajr;
+        public final long sunrise;
+        public final long dhuhr;
+        public final long asr;
+        public final long maghrib;
+        public final long isha;
+
+        DayTimes(long fajr, long sunrise, long dhuhr, long asr, long maghrib, long isha) {
+            this.fajr = fajr;
+            this.sunrise = sunrise;
+            this.dhuhr = dhuhr;
+            this.asr = asr;
+            this.maghrib = maghrib;
+            this.isha = isha;
+        }
+
+        public long prayer(int slot) {
+            switch (slot) {
+                case FAJR: return fajr;
+                case DHUHR: return dhuhr;
+                case ASR: return asr;
+                case MAGHRIB: return maghrib;
+                case ISHA: return isha;
+                default: throw new IllegalArgumentException("Unknown prayer slot " + slot);
+            }
+        }
+    }
+
+    private final double latitude;
+    private final double longitude;
+    private final Method method;
+    private final Madhab madhab;
+
+    public PrayerTimesCalculator(double latitude, double longitude, Method method, Madhab madhab) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.method = method;
+        this.madhab = madhab;
+    }
+
+    /** Times for the calendar day containing {@code instant} in {@code zone}. */
+    public DayTimes forDay(long instant, TimeZone zone) {
+        Calendar cal = Calendar.getInstance(zone);
+        cal.setTimeInMillis(instant);
+        return forDate(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH), zone);
+    }
+
+    /** Times for {@code days} consecutive calendar days starting with the one containing {@code instant}. */
+    public DayTimes[] forDays(long instant, int days, TimeZone zone) {
+        Calendar cal = Calendar.getInstance(zone);
+        cal.setTimeInMillis(instant);
+        DayTimes[] result = new DayTimes[days];
+        for (int i = 0; i < days; i++) {
+            result[i] = forDate(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH), zone);
+            cal.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        return result;
+    }
+
+    /** Times for a local calendar date; {@code month} is 1-based. */
+    public DayTimes forDate(int year, int month, int day, TimeZone zone) {
+        SolarTime solarTime = new SolarTime(year, month, day, latitude, longitude);
+
+        long dhuhrTime = utcDate(year, month, day, solarTime.transit);
+        long sunriseTime = utcDate(year, month, day, solarTime.sunrise);
+        long sunsetTime = utcDate(year, month, day, solarTime.sunset);
+        long asrTime = utcDate(year, month, day, solarTime.afternoon(madhab.shadowLength));
+
+        // adhan-js adds a calendar day in local time, which differs from +24h across DST changes
+        long tomorrowSunrise = addLocalDay(sunriseTime, zone);
+        double night = tomorrowSunrise == INVALID_TIME || sunsetTime == INVALID_TIME
+                ? Double.NaN : tomorrowSunrise - sunsetTime;
+
+        // Default high latitude rule is "middle of the night" for both fajr and isha
+        long fajrTime = utcDate(year, month, day, solarTime.hourAngle(-method.fajrAngle, false));
+        long safeFajr = addSeconds(sunriseTime, -(0.5 * night / 1000));
+        if (fajrTime == INVALID_TIME || safeFajr > fajrTime) fajrTime = safeFajr;
+
+        long ishaTime;
+        if (method.ishaInterval > 0) {
+            ishaTime = addSeconds(sunsetTime, method.ishaInterval * 60);
+        } else {
+            ishaTime = utcDate(year, month, day, solarTime.hourAngle(-method.ishaAngle, true));
+            long safeIsha = addSeconds(sunsetTime, 0.5 * night / 1000);
+            if (ishaTime == INVALID_TIME || (safeIsha != INVALID_TIME && safeIsha < ishaTime)) ishaTime = safeIsha;
+        }
+
+        long maghribTime = sunsetTime;
+        if (method.maghribAngle > 0) {
+            long angleBasedMaghrib = utcDate(year, month, day, solarTime.hourAngle(-method.maghribAngle, true));
+            if (angleBasedMaghrib != INVALID_TIME && sunsetTime < angleBasedMaghrib && ishaTime > angleBasedMaghrib) {
+                maghribTime = angleBasedMaghrib;
+            }
+        }
+
+        return new DayTimes(
+                roundedMinute(fajrTime),
+                roundedMinute(sunriseTime),
+                roundedMinute(addSeconds(dhuhrTime, method.dhuhrAdjustment * 60)),
+                roundedMinute(asrTime),
+                roundedMinute(maghribTime),
+                roundedMinute(ishaTime));
+    }
+
+    // --- Time helpers (mirror adhan-js DateUtils / TimeComponents) ---
+
+    private static long utcDate(int year, int month, int day, double hoursValue) {
+        if (Double.isNaN(hoursValue) || Double.isInfinite(hoursValue)) return INVALID_TIME;
+        double hours = Math.floor(hoursValue);
+        double minutes = Math.floor((hoursValue - hours) * 60);
+        double seconds = Math.floor((hoursValue - (hours + minutes / 60)) * 60 * 60);
+        long secondsOfDay = (long) hours * 3600 + (long) minutes * 60 + (long) seconds;
+        return daysFromCivil(year, month, day) * DAY_MS + secondsOfDay * 1000;
+    }
+
+    private static long addSeconds(long time, double seconds) {
+        if (time == INVALID_TIME || Double.isNaN(seconds)) return INVALID_TIME;
+        // Date(ms) truncates, and epoch times are positive, so this is a floor
+        return time + (long) Math.floor(seconds * 1000);
+    }
+
+    private static long addLocalDay(long time, TimeZone zone) {
+        if (time == INVALID_TIME) return INVALID_TIME;
+        Calendar cal = Calendar.getInstance(zone);
+        cal.setTimeInMillis(time);
+        cal.add(Calendar.DAY_OF_MONTH, 1);
+        return cal.getTimeInMillis();
+    }
+
+    private static long roundedMinute(long time) {
+        if (time == INVALID_TIME) return INVALID_TIME;
+        int seconds = (int) (Math.floorMod(time, 60_000L) / 1000);
+        int offset = seconds >= 30 ? 60 - seconds : -seconds;
+        return time + offset * 1000L;
+    }
+
+    /** Days since 1970-01-01 for a proleptic Gregorian date (month 1-based). */
+    static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    // --- Solar position (Jean Meeus, Astronomical Algorithms, as in adhan-js) ---
+
+    private static final class SolarTime {
+        final double latitude;
+        final double longitude;
+        final SolarCoordinates solar;
+        final SolarCoordinates prevSolar;
+        final SolarCoordinates nextSolar;
+        final double approxTransit;
+        final double transit;
+        final double sunrise;
+        final double sunset;
+
+        SolarTime(int year, int month, int day, double latitude, double longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            double julianDay = julianDay(year, month, day);
+            solar = new SolarCoordinates(julianDay);
+            prevSolar = new SolarCoordinates(julianDay - 1);
+            nextSolar = new SolarCoordinates(julianDay + 1);
+
+            double m0 = approximateTransit(longitude, solar.apparentSiderealTime, solar.rightAscension);
+            double solarAltitude = -50.0 / 60.0;
+
+            approxTransit = m0;
+            transit = correctedTransit(m0, longitude, solar.apparentSiderealTime, solar.rightAscension,
+                    prevSolar.rightAscension, nextSolar.rightAscension);
+            sunrise = hourAngle(solarAltitude, false);
+            sunset = hourAngle(solarAltitude, true);
+        }
+
+        double hourAngle(double angle, boolean afterTransit) {
+            return correctedHourAngle(approxTransit, angle, afterTransit);
+        }
+
+        double afternoon(double shadowLength) {
+            double tangent = Math.abs(latitude - solar.declination);
+            double inverse = shadowLength + Math.tan(Math.toRadians(tangent));
+            double angle = Math.toDegrees(Math.atan(1.0 / inverse));
+            return hourAngle(angle, true);
+        }
+
+        private double correctedHourAngle(double m0, double h0, boolean afterTransit) {
+            double lw = longitude * -1;
+            double term1 = Math.sin(Math.toRadians(h0)) - Math.sin(Math.toRadians(latitude)) * Math.sin(Math.toRadians(solar.declination));
+            double term2 = Math.cos(Math.toRadians(latitude)) * Math.cos(Math.toRadians(solar.declination));
+            double bigH0 = Math.toDegrees(Math.acos(term1 / term2));
+            double m = afterTransit ? m0 + bigH0 / 360 : m0 - bigH0 / 360;
+            double theta = unwindAngle(solar.apparentSiderealTime + 360.985647 * m);
+            double alpha = unwindAngle(interpolateAngles(solar.rightAscension, prevSolar.rightAscension, nextSolar.rightAscension, m));
+            double delta = interpolate(solar.declination, prevSolar.declination, nextSolar.declination, m);
+            double bigH = theta - lw - alpha;
+            double h = altitudeOfCelestialBody(latitude, delta, bigH);
+            double term3 = h - h0;
+            double term4 = 360 * Math.cos(Math.toRadians(delta)) * Math.cos(Math.toRadians(latitude)) * Math.sin(Math.toRadians(bigH));
+            double deltaM = term3 / term4;
+            return (m + deltaM) * 24;
+        }
+    }
+
+    private static final class SolarCoordinates {
+        final double declination;
+        final double rightAscension;
+        final double apparentSiderealTime;
+
+        SolarCoordinates(double julianDay) {
+            double t = julianCentury(julianDay);
+            double l0 = meanSolarLongitude(t);
+            double lp = meanLunarLongitude(t);
+            double omega = ascendingLunarNodeLongitude(t);
+            double lambda = Math.toRadians(apparentSolarLongitude(t, l0));
+            double theta0 = meanSiderealTime(t);
+            double dPsi = nutationInLongitude(l0, lp, omega);
+            double dEpsilon = nutationInObliquity(l0, lp, omega);
+            double epsilon0 = meanObliquityOfTheEcliptic(t);
+            double epsilonApparent = Math.toRadians(apparentObliquityOfTheEcliptic(t, epsilon0));
+
+            declination = Math.toDegrees(Math.asin(Math.sin(epsilonApparent) * Math.sin(lambda)));
+            rightAscension = unwindAngle(Math.toDegrees(Math.atan2(Math.cos(epsilonApparent) * Math.sin(lambda), Math.cos(lambda))));
+            apparentSiderealTime = theta0 + (dPsi * 3600 * Math.cos(Math.toRadians(epsilon0 + dEpsilon))) / 3600;
+        }
+    }
+
+    private static double meanSolarLongitude(double t) {
+        return unwindAngle(280.4664567 + 36000.76983 * t + 0.0003032 * t * t);
+    }
+
+    private static double meanLunarLongitude(double t) {
+        return unwindAngle(218.3165 + 481267.8813 * t);
+    }
+
+    private static double ascendingLunarNodeLongitude(double t) {
+        return unwindAngle(125.04452 - 1934.136261 * t + 0.0020708 * t * t + (t * t * t) / 450000);
+    }
+
+    private static double meanSolarAnomaly(double t) {
+        return unwindAngle(357.52911 + 35999.05029 * t - 0.0001537 * t * t);
+    }
+
+    private static double solarEquationOfTheCenter(double t, double m) {
+        double mRad = Math.toRadians(m);
+        double term1 = (1.914602 - 0.004817 * t - 0.000014 * t * t) * Math.sin(mRad);
+        double term2 = (0.019993 - 0.000101 * t) * Math.sin(2 * mRad);
+        double term3 = 0.000289 * Math.sin(3 * mRad);
+        return term1 + term2 + term3;
+    }
+
+    private static double apparentSolarLongitude(double t, double l0) {
+        double longitude = l0 + solarEquationOfTheCenter(t, meanSolarAnomaly(t));
+        double omega = 125.04 - 1934.136 * t;
+        double lambda = longitude - 0.00569 - 0.00478 * Math.sin(Math.toRadians(omega));
+        return unwindAngle(lambda);
+    }
+
+    private static double meanObliquityOfTheEcliptic(double t) {
+        return 23.439291 - 0.013004167 * t - 0.0000001639 * t * t + 0.0000005036 * t * t * t;
+    }
+
+    private static double apparentObliquityOfTheEcliptic(double t, double epsilon0) {
+        double o = 125.04 - 1934.136 * t;
+        return epsilon0 + 0.00256 * Math.cos(Math.toRadians(o));
+    }
+
+    private static double meanSiderealTime(double t) {
+        double jd = t * 36525 + 2451545.0;
+        double term1 = 280.46061837;
+        double term2 = 360.98564736629 * (jd - 2451545);
+        double term3 = 0.000387933 * t * t;
+        double term4 = (t * t * t) / 38710000;
+        return unwindAngle(term1 + term2 + term3 - term4);
+    }
+
+    private static double nutationInLongitude(double l0, double lp, double omega) {
+        double term1 = (-17.2 / 3600) * Math.sin(Math.toRadians(omega));
+        double term2 = (1.32 / 3600) * Math.sin(2 * Math.toRadians(l0));
+        double term3 = (0.23 / 3600) * Math.sin(2 * Math.toRadians(lp));
+        double term4 = (0.21 / 3600) * Math.sin(2 * Math.toRadians(omega));
+        return term1 - term2 - term3 + term4;
+    }
+
+    private static double nutationInObliquity(double l0, double lp, double omega) {
+        double term1 = (9.2 / 3600) * Math.cos(Math.toRadians(omega));
+        double term2 = (0.57 / 3600) * Math.cos(2 * Math.toRadians(l0));
+        double term3 = (0.1 / 3600) * Math.cos(2 * Math.toRadians(lp));
+        double term4 = (0.09 / 3600) * Math.cos(2 * Math.toRadians(omega));
+        return term1 + term2 + term3 - term4;
+    }
+
+    private static double altitudeOfCelestialBody(double phi, double delta, double bigH) {
+        double term1 = Math.sin(Math.toRadians(phi)) * Math.sin(Math.toRadians(delta));
+        double term2 = Math.cos(Math.toRadians(phi)) * Math.cos(Math.toRadians(delta)) * Math.cos(Math.toRadians(bigH));
+        return Math.toDegrees(Math.asin(term1 + term2));
+    }
+
+    private static double approximateTransit(double longitude, double siderealTime, double rightAscension) {
+        double lw = longitude * -1;
+        return normalizeToScale((rightAscension + lw - siderealTime) / 360, 1);
+    }
+
+    private static double correctedTransit(double m0, double longitude, double siderealTime,
+                                           double alpha2, double alpha1, double alpha3) {
+        double lw = longitude * -1;
+        double theta = unwindAngle(siderealTime + 360.985647 * m0);
+        double alpha = unwindAngle(interpolateAngles(alpha2, alpha1, alpha3, m0));
+        double bigH = quadrantShiftAngle(theta - lw - alpha);
+        double deltaM = bigH / -360;
+        return (m0 + deltaM) * 24;
+    }
+
+    private static double interpolate(double y2, double y1, double y3, double n) {
+        double a = y2 - y1;
+        double b = y3 - y2;
+        double c = b - a;
+        return y2 + (n / 2) * (a + b + n * c);
+    }
+
+    private static double interpolateAngles(double y2, double y1, double y3, double n) {
+        double a = unwindAngle(y2 - y1);
+        double b = unwindAngle(y3 - y2);
+        double c = b - a;
+        return y2 + (n / 2) * (a + b + n * c);
+    }
+
+    private static double julianDay(int year, int month, int day) {
+        int y = month > 2 ? year : year - 1;
+        int m = month > 2 ? month : month + 12;
+        double a = Math.floor(y / 100.0);
+        double b = Math.floor(2 - a + Math.floor(a / 4));
+        double i0 = Math.floor(365.25 * (y + 4716));
+        double i1 = Math.floor(30.6001 * (m + 1));
+        return i0 + i1 + day + b - 1524.5;
+    }
+
+    private static double julianCentury(double julianDay) {
+        return (julianDay - 2451545.0) / 36525;
+    }
+
+    private static double normalizeToScale(double number, double max) {
+        return number - max * Math.floor(number / max);
+    }
+
+    private static double unwindAngle(double angle) {
+        return normalizeToScale(angle, 360.0);
+    }
+
+    private static double quadrantShiftAngle(double angle) {
+        if (angle >= -180 && angle <= 180) return angle;
+        return angle - 360 * Math.round(angle / 360);
+    }
+}
@@ -1,5 +1,6 @@
 package com.ibadalrahman.app;
 
+import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.appwidget.AppWidgetManager;
 import android.appwidget.AppWidgetProvider;
@@ -7,94 +8,313 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
 import android.widget.RemoteViews;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.ibadalrahman.app.R;
 
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * The home-screen prayer widget. It keeps today's prayer timestamps and arms one inexact,
+ * non-wakeup alarm for the next boundary (a prayer time or local midnight), so the highlight and
+ * the Hijri date move on by themselves while the app is closed and only the changed cells are re-sent.
+ */
 public class PrayerWidgetProvider extends AppWidgetProvider {
+    static final String ACTION_ADVANCE = "com.ibadalrahman.app.WIDGET_ADVANCE";
+    private static final int ADVANCE_REQUEST_CODE = 0xAD57;
+    // Lets the system batch the boundary with other work without visibly lagging the highlight
+    private static final long ADVANCE_WINDOW_MS = 60_000;
+
+    // Bursts of updateWidgetData calls within this window are rendered once
+    private static final long COALESCE_MS = 250;
+
+    private static final String PREFS_NAME = "PrayerWidgetPrefs";
+    // Today's five prayer timestamps from JS, comma separated
+    static final String KEY_SCHEDULE = "prayerSchedule";
+    private static final String KEY_RENDERED_STATE = "renderedState";
+    private static final String KEY_RENDERED_IDS = "renderedIds";
+
+    private static final int[] LAYOUT_IDS = {R.id.layout_fajr, R.id.layout_dhuhr, R.id.layout_asr, R.id.layout_maghrib, R.id.layout_isha};
+    private static final int[] TIME_IDS = {R.id.widget_fajr_time, R.id.widget_dhuhr_time, R.id.widget_asr_time, R.id.widget_maghrib_time, R.id.widget_isha_time};
+    private static final String[] TIME_KEYS = {"fajr", "dhuhr", "asr", "maghrib", "isha"};
+
+    // Colors
+    private static final int WHITE = android.graphics.Color.WHITE;
+    private static final int GOLD = 0xFFC5A059; // Matte Gold Color
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static Context pendingContext;
+
+    // Last state pushed to the host, and the widget IDs that have had a full update with it.
+    // Mirrored to prefs so a boundary alarm in a fresh process can still send a partial update.
+    // Only touched on the main thread.
+    private static WidgetState lastState;
+    private static final Set<Integer> renderedIds = new HashSet<>();
+    private static boolean restored;
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (ACTION_ADVANCE.equals(intent.getAction())) {
+            render(context, AppWidgetManager.getInstance(context), new int[0]);
+            return;
+        }
+        super.onReceive(context, intent);
+    }
 
     @Override
     public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
-        // There may be multiple widgets active, so update all of them
-        for (int appWidgetId : appWidgetIds) {
-            updateAppWidget(context, appWidgetManager, appWidgetId);
-        }
-    }
-
-    public static void updateAppWidget(Context context, AppWidgetManager appWidgetManager, int appWidgetId) {
-        // Retrieve data from SharedPreferences
-        SharedPreferences prefs = context.getSharedPreferences("PrayerWidgetPrefs", Context.MODE_PRIVATE);
-        
-        String fajr = prefs.getString("fajr", "--:--");
-        String dhuhr = prefs.getString("dhuhr", "--:--");
-        String asr = prefs.getString("asr", "--:--");
-        String maghrib = prefs.getString("maghrib", "--:--");
-        String isha = prefs.getString("isha", "--:--");
-        String hijriDate = prefs.getString("hijriDate", "--");
-        String locationName = prefs.getString("locationName", "--");
-        
-        String nextPrayerName = prefs.getString("nextPrayerName", ""); 
-        // We will use nextPrayerName to decide which one to highlight
-
-        // Construct the RemoteViews object
+        // The host may have re-inflated these, so they get a full update
+        render(context, appWidgetManager, appWidgetIds);
+    }
+
+    @Override
+    public void onDeleted(Context context, int[] appWidgetIds) {
+        restore(context);
+        for (int appWidgetId : appWidgetIds) renderedIds.remove(appWidgetId);
+        persist(context);
+    }
+
+    /**
+     * Schedules a render of the current prefs. Calls within {@link #COALESCE_MS} of each other are
+     * batched, and the batch sends only the cells that changed to widgets that are already drawn.
+     */
+    public static void requestUpdate(Context context) {
+        synchronized (PrayerWidgetProvider.class) {
+            boolean scheduled = pendingContext != null;
+            pendingContext = context.getApplicationContext();
+            if (scheduled) return;
+        }
+        mainHandler.postDelayed(() -> {
+            Context appContext;
+            synchronized (PrayerWidgetProvider.class) {
+                appContext = pendingContext;
+                pendingContext = null;
+            }
+            render(appContext, AppWidgetManager.getInstance(appContext), new int[0]);
+        }, COALESCE_MS);
+    }
+
+    /** Draws every placed widget, fully for {@code forceFullIds} and ones not drawn yet, partially for the rest. */
+    static void render(Context context, AppWidgetManager appWidgetManager, int[] forceFullIds) {
+        int[] allIds = appWidgetManager.getAppWidgetIds(new ComponentName(context, PrayerWidgetProvider.class));
+        if (allIds.length == 0) {
+            cancelAdvance(context);
+            return;
+        }
+        restore(context);
+
+        long now = System.currentTimeMillis();
+        Snapshot snapshot = snapshot(context, now);
+        WidgetState state = snapshot.state;
+        int changed = state.diff(lastState);
+
+        Set<Integer> force = new HashSet<>();
+        for (int id : forceFullIds) force.add(id);
+        int[] fresh = new int[allIds.length];
+        int[] known = new int[allIds.length];
+        int freshCount = 0;
+        int knownCount = 0;
+        for (int id : allIds) {
+            if (force.contains(id) || !renderedIds.contains(id)) fresh[freshCount++] = id;
+            else known[knownCount++] = id;
+        }
+
+        if (freshCount > 0) {
+            appWidgetManager.updateAppWidget(java.util.Arrays.copyOf(fresh, freshCount), buildFullViews(context, state));
+        }
+        if (knownCount > 0 && changed != 0) {
+            appWidgetManager.partiallyUpdateAppWidget(java.util.Arrays.copyOf(known, knownCount), buildPartialViews(context, state, changed));
+        }
+
+        boolean idsChanged = freshCount > 0 || renderedIds.size() != allIds.length;
+        renderedIds.clear();
+        for (int id : allIds) renderedIds.add(id);
+        lastState = state;
+        if (changed != 0 || idsChanged) persist(context);
+
+        armAdvance(context, snapshot.schedule, now);
+    }
+
+    /** What the widget shows at a moment, and today's timestamps it was worked out from. */
+    static final class Snapshot {
+        // Null if no prayer settings have reached native code yet
+        final long[] schedule;
+        final WidgetState state;
+
+        Snapshot(long[] schedule, WidgetState state) {
+            this.schedule = schedule;
+            this.state = state;
+        }
+    }
+
+    static Snapshot snapshot(Context context, long now) {
+        SharedPreferences prefs = DeviceStorage.prefs(context, PREFS_NAME);
+        long[] schedule = jsSchedule(prefs, now);
+        boolean jsIsCurrent = schedule != null;
+        if (schedule == null) schedule = nativeSchedule(context, now);
+        return new Snapshot(schedule, readState(context, prefs, schedule, jsIsCurrent, now));
+    }
+
+    /**
+     * The timestamps JS last sent, if they are for today. Older builds don't send them, and once
+     * the day rolls over without the app being opened they are stale.
+     */
+    private static long[] jsSchedule(SharedPreferences prefs, long now) {
+        String value = prefs.getString(KEY_SCHEDULE, null);
+        if (value == null) return null;
+        String[] parts = value.split(",");
+        if (parts.length != PrayerTimesCalculator.PRAYER_COUNT) return null;
+        long[] schedule = new long[parts.length];
+        try {
+            for (int slot = 0; slot < parts.length; slot++) schedule[slot] = Long.parseLong(parts[slot]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return AdhanScheduler.localEpochDay(schedule[0]) == AdhanScheduler.localEpochDay(now) ? schedule : null;
+    }
+
+    /** Today's times from the native engine, or null if JS has never sent prayer settings. */
+    private static long[] nativeSchedule(Context context, long now) {
+        PrayerSettings settings = PrayerSettings.load(context);
+        if (settings == null) return null;
+        PrayerTimesCalculator.DayTimes day = settings.calculator().forDay(now, TimeZone.getDefault());
+        long[] schedule = new long[PrayerTimesCalculator.PRAYER_COUNT];
+        for (int slot = 0; slot < schedule.length; slot++) schedule[slot] = day.prayer(slot);
+        return schedule;
+    }
+
+    private static WidgetState readState(Context context, SharedPreferences prefs, long[] schedule, boolean jsIsCurrent, long now) {
+        String[] times = new String[TIME_KEYS.length];
+        for (int slot = 0; slot < TIME_KEYS.length; slot++) {
+            // The JS strings are from an earlier day if the native engine had to fill in
+            times[slot] = schedule != null && !jsIsCurrent
+                    ? WidgetState.formatTime(schedule[slot], TimeZone.getDefault())
+                    : prefs.getString(TIME_KEYS[slot], "--:--");
+        }
+        // Without any timestamps, fall back to the name JS last computed
+        int highlight = schedule != null
+                ? WidgetState.nextPrayerSlot(schedule, now)
+                : WidgetState.slotForDisplayName(prefs.getString("nextPrayerName", ""));
+        // Drawn natively so it rolls over at midnight (or Maghrib) with the app closed; the JS
+        // string is only used past the end of the Umm al-Qura table
+        String hijriDate = HijriPlugin.widgetDate(context,
+                schedule != null ? schedule[PrayerTimesCalculator.MAGHRIB] : PrayerTimesCalculator.INVALID_TIME, now);
+        if (hijriDate == null) hijriDate = prefs.getString("hijriDate", "--");
+        return new WidgetState(times, hijriDate, highlight);
+    }
+
+    /** Arms the inexact, non-wakeup alarm for the next prayer or midnight, whichever is first. */
+    private static void armAdvance(Context context, long[] schedule, long now) {
+        Calendar midnight = Calendar.getInstance(TimeZone.getDefault());
+        midnight.setTimeInMillis(now);
+        midnight.add(Calendar.DAY_OF_MONTH, 1);
+        midnight.set(Calendar.HOUR_OF_DAY, 0);
+        midnight.set(Calendar.MINUTE, 0);
+        midnight.set(Calendar.SECOND, 0);
+        midnight.set(Calendar.MILLISECOND, 0);
+        long next = midnight.getTimeInMillis();
+        if (schedule != null) {
+            for (long time : schedule) {
+                if (time != PrayerTimesCalculator.INVALID_TIME && time > now && time < next) next = time;
+            }
+        }
+
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) return;
+        // Same request code and action, so this replaces the previous boundary
+        alarmManager.setWindow(AlarmManager.RTC, next, ADVANCE_WINDOW_MS, advanceIntent(context));
+    }
+
+    private static void cancelAdvance(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager != null) alarmManager.cancel(advanceIntent(context));
+    }
+
+    private static PendingIntent advanceIntent(Context context) {
+        Intent intent = new Intent(context, PrayerWidgetProvider.class).setAction(ACTION_ADVANCE);
+        return PendingIntent.getBroadcast(context, ADVANCE_REQUEST_CODE, intent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    /** Forgets what was drawn, as a fresh process would; for tests and benchmarks. */
+    @VisibleForTesting
+    static void reset() {
+        lastState = null;
+        renderedIds.clear();
+        restored = false;
+    }
+
+    private static void restore(Context context) {
+        if (restored) return;
+        restored = true;
+        SharedPreferences prefs = DeviceStorage.prefs(context, PREFS_NAME);
+        lastState = WidgetState.decode(prefs.getString(KEY_RENDERED_STATE, null));
+        String ids = prefs.getString(KEY_RENDERED_IDS, "");
+        if (lastState == null || ids.isEmpty()) return;
+        for (String id : ids.split(",")) {
+            try {
+                renderedIds.add(Integer.parseInt(id));
+            } catch (NumberFormatException ignored) {
+                // Corrupt entry; that widget just gets a full update
+            }
+        }
+    }
+
+    private static void persist(Context context) {
+        StringBuilder ids = new StringBuilder();
+        for (int id : renderedIds) {
+            if (ids.length() > 0) ids.append(',');
+            ids.append(id);
+        }
+        DeviceStorage.prefs(context, PREFS_NAME).edit()
+                .putString(KEY_RENDERED_STATE, lastState == null ? null : lastState.encode())
+                .putString(KEY_RENDERED_IDS, ids.toString())
+                .apply();
+    }
+
+    static RemoteViews buildFullViews(Context context, WidgetState state) {
         RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.prayer_widget);
-        
-        // Set Texts
-        views.setTextViewText(R.id.widget_fajr_time, fajr);
-        views.setTextViewText(R.id.widget_dhuhr_time, dhuhr);
-        views.setTextViewText(R.id.widget_asr_time, asr);
-        views.setTextViewText(R.id.widget_maghrib_time, maghrib);
-        views.setTextViewText(R.id.widget_isha_time, isha);
-        
-        views.setTextViewText(R.id.widget_hijri_date, hijriDate);
-
-        // Colors
-        int white = android.graphics.Color.WHITE;
-        int gold = 0xFFC5A059; // Matte Gold Color
-        int goldLabel = 0xFFC5A059;
-
-        // Reset all time colors to white and labels to gold
-        views.setTextColor(R.id.widget_fajr_time, white);
-        views.setTextColor(R.id.widget_dhuhr_time, white);
-        views.setTextColor(R.id.widget_asr_time, white);
-        views.setTextColor(R.id.widget_maghrib_time, white);
-        views.setTextColor(R.id.widget_isha_time, white);
-
-        // Reset all backgrounds to normal
-        views.setInt(R.id.layout_fajr, "setBackgroundResource", R.drawable.widget_prayer_card);
-        views.setInt(R.id.layout_dhuhr, "setBackgroundResource", R.drawable.widget_prayer_card);
-        views.setInt(R.id.layout_asr, "setBackgroundResource", R.drawable.widget_prayer_card);
-        views.setInt(R.id.layout_maghrib, "setBackgroundResource", R.drawable.widget_prayer_card);
-        views.setInt(R.id.layout_isha, "setBackgroundResource", R.drawable.widget_prayer_card);
-
-        // Highlight Next Prayer with active card style
-        if (nextPrayerName.equals("Fajr") || nextPrayerName.equals("الفجر")) {
-            views.setInt(R.id.layout_fajr, "setBackgroundResource", R.drawable.widget_prayer_card_active);
-            views.setTextColor(R.id.widget_fajr_time, gold);
-        }
-        if (nextPrayerName.equals("Dhuhr") || nextPrayerName.equals("الظهر")) {
-            views.setInt(R.id.layout_dhuhr, "setBackgroundResource", R.drawable.widget_prayer_card_active);
-            views.setTextColor(R.id.widget_dhuhr_time, gold);
-        }
-        if (nextPrayerName.equals("Asr") || nextPrayerName.equals("العصر")) {
-            views.setInt(R.id.layout_asr, "setBackgroundResource", R.drawable.widget_prayer_card_active);
-            views.setTextColor(R.id.widget_asr_time, gold);
-        }
-        if (nextPrayerName.equals("Maghrib") || nextPrayerName.equals("المغرب")) {
-            views.setInt(R.id.layout_maghrib, "setBackgroundResource", R.drawable.widget_prayer_card_active);
-            views.setTextColor(R.id.widget_maghrib_time, gold);
-        }
-        if (nextPrayerName.equals("Isha") || nextPrayerName.equals("العشاء")) {
-            views.setInt(R.id.layout_isha, "setBackgroundResource", R.drawable.widget_prayer_card_active);
-            views.setTextColor(R.id.widget_isha_time, gold);
+        for (int slot = 0; slot < TIME_IDS.length; slot++) {
+            views.setTextViewText(TIME_IDS[slot], state.times[slot]);
+            setHighlighted(views, slot, slot == state.highlight);
         }
+        views.setTextViewText(R.id.widget_hijri_date, state.hijriDate);
 
         // App Launch Intent
         Intent intent = new Intent(context, MainActivity.class);
         PendingIntent pendingIntent = PendingIntent.getActivity(context, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
         views.setOnClickPendingIntent(R.id.top_bar, pendingIntent);
-        
-        appWidgetManager.updateAppWidget(appWidgetId, views);
+        return views;
+    }
+
+    /** Only the cells flagged in {@code changed}; the host merges these into what it already shows. */
+    private static RemoteViews buildPartialViews(Context context, WidgetState state, int changed) {
+        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.prayer_widget);
+        for (int slot = 0; slot < TIME_IDS.length; slot++) {
+            if ((changed & (1 << slot)) != 0) views.setTextViewText(TIME_IDS[slot], state.times[slot]);
+        }
+        if ((changed & WidgetState.CHANGED_HIJRI) != 0) {
+            views.setTextViewText(R.id.widget_hijri_date, state.hijriDate);
+        }
+        if ((changed & WidgetState.CHANGED_HIGHLIGHT) != 0) {
+            if (lastState != null && lastState.highlight != WidgetState.NO_HIGHLIGHT) {
+                setHighlighted(views, lastState.highlight, false);
+            }
+            if (state.highlight != WidgetState.NO_HIGHLIGHT) setHighlighted(views, state.highlight, true);
+        }
+        return views;
+    }
+
+    /** Highlight Next Prayer with active card style */
+    private static void setHighlighted(RemoteViews views, int slot, boolean active) {
+        views.setInt(LAYOUT_IDS[slot], "setBackgroundResource", active ? R.drawable.widget_prayer_card_active : R.drawable.widget_prayer_card);
+        views.setTextColor(TIME_IDS[slot], active ? GOLD : WHITE);
     }
 
     @Override
@@ -104,6 +324,11 @@ public class PrayerWidgetProvider extends AppWidgetProvider {
 
     @Override
     public void onDisabled(Context context) {
-        // Enter relevant functionality for when the last widget is disabled
+        // Last widget removed; the next one starts from a full update
+        cancelAdvance(context);
+        restored = true;
+        renderedIds.clear();
+        lastState = null;
+        persist(context);
     }
 }
@@ -0,0 +1,92 @@
+package com.ibadalrahman.app;
+
+/**
+ * Qibla math for QiblaPlugin: the great-circle bearing to the Kaaba and the filter that turns raw
+ * compass samples into a steady heading worth sending over the bridge. Angles are degrees
+ * clockwise from true north. Plain Java.
+ */
+final class Qibla {
+    static final double KAABA_LATITUDE = 21.4225;
+    static final double KAABA_LONGITUDE = 39.8262;
+
+    private Qibla() {}
+
+    /** Initial great-circle bearing from the given point to the Kaaba, in [0, 360). */
+    static double bearing(double latitude, double longitude) {
+        double lat1 = Math.toRadians(latitude);
+        double lat2 = Math.toRadians(KAABA_LATITUDE);
+        double dLng = Math.toRadians(KAABA_LONGITUDE - longitude);
+        double y = Math.sin(dLng) * Math.cos(lat2);
+        double x = Math.cos(lat1) * Math.sin(lat2) - Math.sin(lat1) * Math.cos(lat2) * Math.cos(dLng);
+        return normalize(Math.toDegrees(Math.atan2(y, x)));
+    }
+
+    /** Shortest signed turn from {@code from} to {@code to}, in [-180, 180). */
+    static double delta(double from, double to) {
+        double delta = normalize(to - from);
+        return delta >= 180 ? delta - 360 : delta;
+    }
+
+    static double normalize(double degrees) {
+        double normalized = degrees % 360;
+        return normalized < 0 ? normalized + 360 : normalized;
+    }
+
+    /**
+     * Low-pass filters headings as unit vectors, so 359 and 1 average to 0 rather than 180, with a
+     * time constant rather than a fixed factor so the sensor rate doesn't change the smoothing.
+     * {@link #update} says when the result has moved far enough, and long enough after the last
+     * emitted one, to be worth a bridge event.
+     */
+    static final class HeadingFilter {
+        private final double timeConstantMs;
+        private final double thresholdDegrees;
+        private final long minIntervalMs;
+
+        private double x;
+        private double y;
+        private long lastSample = -1;
+        private double lastEmitted = Double.NaN;
+        private long lastEmit;
+
+        HeadingFilter(double timeConstantMs, double thresholdDegrees, long minIntervalMs) {
+            this.timeConstantMs = timeConstantMs;
+            this.thresholdDegrees = thresholdDegrees;
+            this.minIntervalMs = minIntervalMs;
+        }
+
+        /** Feeds a raw heading taken at {@code uptime}; true when {@link #heading} should be emitted. */
+        boolean update(double degrees, long uptime) {
+            double radians = Math.toRadians(degrees);
+            if (lastSample < 0) {
+                x = Math.cos(radians);
+                y = Math.sin(radians);
+            } else {
+                double dt = Math.max(0, uptime - lastSample);
+                double alpha = dt / (timeConstantMs + dt);
+                x += alpha * (Math.cos(radians) - x);
+                y += alpha * (Math.sin(radians) - y);
+            }
+            lastSample = uptime;
+
+            double heading = heading();
+            if (!Double.isNaN(lastEmitted)) {
+                if (uptime - lastEmit < minIntervalMs) return false;
+                if (Math.abs(delta(lastEmitted, heading)) < thresholdDegrees) return false;
+            }
+            lastEmitted = heading;
+            lastEmit = uptime;
+            return true;
+        }
+
+        double heading() {
+            return normalize(Math.toDegrees(Math.atan2(y, x)));
+        }
+
+        /** Starts over, e.g. after the sensor was paused and the phone may have turned. */
+        void reset() {
+            lastSample = -1;
+            lastEmitted = Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.ibadalrahman.app;
+
+import android.content.Context;
+import android.hardware.GeomagneticField;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.Surface;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+
+/**
+ * Compass heading for the Qibla screen from the fused rotation-vector sensor, corrected to true
+ * north and filtered off the main thread. Only headings that moved past a threshold are sent, at
+ * most {@code maxRate} per second, so the web view re-renders a few times a second while the
+ * phone turns and not at all while it is still.
+ */
+@CapacitorPlugin(name = "Qibla")
+public class QiblaPlugin extends Plugin implements SensorEventListener {
+    private static final double DEFAULT_THRESHOLD_DEGREES = 1.0;
+    private static final int DEFAULT_MAX_RATE = 30;
+    // Long enough to hide magnetometer noise, short enough that the dial keeps up with a turn
+    private static final double FILTER_TIME_CONSTANT_MS = 120;
+    // Not a SENSOR_STATUS_* value, so the first report after registering is always sent
+    private static final int UNKNOWN_ACCURACY = -2;
+
+    private final float[] rotationVector = new float[4];
+    private final float[] rotation = new float[9];
+    private final float[] remapped = new float[9];
+    private final float[] orientation = new float[3];
+
+    private SensorManager sensorManager;
+    private Sensor sensor;
+    private HandlerThread sensorThread;
+    private Handler sensorHandler;
+
+    // Set by start(), read on the sensor thread
+    private volatile boolean running;
+    private volatile Qibla.HeadingFilter filter;
+    private volatile float declination;
+    private volatile int displayRotation;
+    private int accuracy = UNKNOWN_ACCURACY;
+
+    /**
+     * Starts streaming "heading" events for a location. Resolves with the Qibla bearing and the
+     * magnetic declination applied; unavailable on devices without a rotation-vector sensor.
+     */
+    @PluginMethod
+    public void start(PluginCall call) {
+        Double latitude = call.getDouble("latitude");
+        Double longitude = call.getDouble("longitude");
+        if (latitude == null || longitude == null) {
+            call.reject("Must provide latitude and longitude");
+            return;
+        }
+        if (sensorManager == null) sensorManager = (SensorManager) getContext().getSystemService(Context.SENSOR_SERVICE);
+        sensor = sensorManager != null ? sensorManager.getDefaultSensor(Sensor.TYPE_ROTATION_VECTOR) : null;
+        if (sensor == null) {
+            call.unavailable("No rotation vector sensor");
+            return;
+        }
+
+        double threshold = call.getDouble("threshold", DEFAULT_THRESHOLD_DEGREES);
+        int maxRate = Math.max(1, call.getInt("maxRate", DEFAULT_MAX_RATE));
+        filter = new Qibla.HeadingFilter(FILTER_TIME_CONSTANT_MS, threshold, 1000L / maxRate);
+        // The sensor's north is magnetic; the bearing is to true north
+        declination = new GeomagneticField(latitude.floatValue(), longitude.floatValue(), 0f, System.currentTimeMillis()).getDeclination();
+        double bearing = Qibla.bearing(latitude, longitude);
+
+        register();
+        JSObject ret = new JSObject();
+        ret.put("bearing", bearing);
+        ret.put("declination", declination);
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void stop(PluginCall call) {
+        unregister();
+        running = false;
+        call.resolve();
+    }
+
+    @Override
+    protected void handleOnPause() {
+        // The sensor stays off in the background; handleOnResume turns it back on
+        if (running && sensorManager != null) sensorManager.unregisterListener(this);
+    }
+
+    @Override
+    protected void handleOnResume() {
+        if (running) register();
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        unregister();
+        running = false;
+        if (sensorThread != null) {
+            sensorThread.quitSafely();
+            sensorThread = null;
+            sensorHandler = null;
+        }
+    }
+
+    private void register() {
+        if (sensorThread == null) {
+            sensorThread = new HandlerThread("QiblaSensor");
+            sensorThread.start();
+            sensorHandler = new Handler(sensorThread.getLooper());
+        }
+        sensorManager.unregisterListener(this);
+        if (getActivity() != null) displayRotation = getActivity().getWindowManager().getDefaultDisplay().getRotation();
+        filter.reset();
+        accuracy = UNKNOWN_ACCURACY;
+        running = true;
+        sensorManager.registerListener(this, sensor, SensorManager.SENSOR_DELAY_GAME, sensorHandler);
+    }
+
+    private void unregister() {
+        if (sensorManager != null) sensorManager.unregisterListener(this);
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        Qibla.HeadingFilter filter = this.filter;
+        if (filter == null) return;
+        // Some devices report extra values that getRotationMatrixFromVector rejects
+        System.arraycopy(event.values, 0, rotationVector, 0, rotationVector.length);
+        SensorManager.getRotationMatrixFromVector(rotation, rotationVector);
+        remapForDisplay(rotation, remapped);
+        SensorManager.getOrientation(remapped, orientation);
+        double heading = Qibla.normalize(Math.toDegrees(orientation[0]) + declination);
+
+        if (!filter.update(heading, event.timestamp / 1_000_000L)) return;
+        JSObject data = new JSObject();
+        data.put("heading", filter.heading());
+        // Estimated heading accuracy in degrees, where the sensor provides one
+        if (event.values.length > 4 && event.values[4] >= 0) data.put("headingAccuracy", Math.toDegrees(event.values[4]));
+        notifyListeners("heading", data);
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        if (accuracy == this.accuracy) return;
+        this.accuracy = accuracy;
+        JSObject data = new JSObject();
+        data.put("accuracy", accuracyName(accuracy));
+        // Unreliable or low means the magnetometer wants a figure-eight calibration
+        data.put("needsCalibration", accuracy < SensorManager.SENSOR_STATUS_ACCURACY_MEDIUM);
+        notifyListeners("accuracy", data, true);
+    }
+
+    /** Rotates the device axes into screen axes so north stays put when the screen rotates. */
+    private void remapForDisplay(float[] in, float[] out) {
+        switch (displayRotation) {
+            case Surface.ROTATION_90:
+                SensorManager.remapCoordinateSystem(in, SensorManager.AXIS_Y, SensorManager.AXIS_MINUS_X, out);
+                break;
+            case Surface.ROTATION_180:
+                SensorManager.remapCoordinateSystem(in, SensorManager.AXIS_MINUS_X, SensorManager.AXIS_MINUS_Y, out);
+                break;
+            case Surface.ROTATION_270:
+                SensorManager.remapCoordinateSystem(in, SensorManager.AXIS_MINUS_Y, SensorManager.AXIS_X, out);
+                break;
+            default:
+                System.arraycopy(in, 0, out, 0, in.length);
+        }
+    }
+
+    private static String accuracyName(int accuracy) {
+        switch (accuracy) {
+            case SensorManager.SENSOR_STATUS_ACCURACY_HIGH: return "high";
+            case SensorManager.SENSOR_STATUS_ACCURACY_MEDIUM: return "medium";
+            case SensorManager.SENSOR_STATUS_ACCURACY_LOW: return "low";
+            default: return "unreliable";
+        }
+    }
+}
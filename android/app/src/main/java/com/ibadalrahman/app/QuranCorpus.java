@@ -0,0 +1,186 @@
+package com.ibadalrahman.app;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only view over one Quran edition packed by quran-corpus.gradle. Nothing is decoded up
+ * front; each lookup reads the few bytes it needs from the (usually memory-mapped) buffer.
+ *
+ * <p>Layout, all big-endian:
+ * <pre>
+ * header   32 bytes  magic "QTX1", version, surahCount, ayahCount, stringsOffset, textOffset, textBytes, reserved
+ * surahs   20 bytes  firstAyah int, ayahCount short, revelation byte (1 = Medinan), pad byte,
+ *                    name, englishName, englishNameTranslation (int offsets into the string pool)
+ * ayahs    14 bytes  textStart int, page short, ruku short, hizbQuarter short, juz byte, manzil byte,
+ *                    sajdaId byte (0 = none), sajdaFlags byte (1 recommended, 2 obligatory)
+ * strings            short length + UTF-8 bytes each
+ * text               UTF-8 ayah text back to back; an ayah ends where the next one starts
+ * </pre>
+ */
+public final class QuranCorpus {
+    static final int MAGIC = 0x51545831; // "QTX1"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int SURAH_BYTES = 20;
+    static final int AYAH_BYTES = 14;
+
+    private final ByteBuffer buffer;
+    private final int surahCount;
+    private final int ayahCount;
+    private final int ayahTable;
+    private final int stringsOffset;
+    private final int textOffset;
+    private final int textBytes;
+
+    public QuranCorpus(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.duplicate();
+        if (this.buffer.capacity() < HEADER_BYTES || this.buffer.getInt(0) != MAGIC || this.buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a Quran corpus");
+        }
+        surahCount = this.buffer.getInt(8);
+        ayahCount = this.buffer.getInt(12);
+        stringsOffset = this.buffer.getInt(16);
+        textOffset = this.buffer.getInt(20);
+        textBytes = this.buffer.getInt(24);
+        ayahTable = HEADER_BYTES + surahCount * SURAH_BYTES;
+        if (ayahTable + ayahCount * AYAH_BYTES != stringsOffset || (long) textOffset + textBytes != this.buffer.capacity()) {
+            throw new IOException("Truncated Quran corpus");
+        }
+    }
+
+    public static final class Surah {
+        public final int number;
+        public final String name;
+        public final String englishName;
+        public final String englishNameTranslation;
+        public final String revelationType;
+        public final int numberOfAyahs;
+        final int firstAyah;
+
+        Surah(int number, String name, String englishName, String englishNameTranslation, String revelationType, int numberOfAyahs, int firstAyah) {
+            this.number = number;
+            this.name = name;
+            this.englishName = englishName;
+            this.englishNameTranslation = englishNameTranslation;
+            this.revelationType = revelationType;
+            this.numberOfAyahs = numberOfAyahs;
+            this.firstAyah = firstAyah;
+        }
+    }
+
+    public static final class Ayah {
+        public final int number;
+        public final int numberInSurah;
+        public final String text;
+        public final int juz;
+        public final int manzil;
+        public final int page;
+        public final int ruku;
+        public final int hizbQuarter;
+        // 0 if the ayah has no sajda
+        public final int sajdaId;
+        public final boolean sajdaRecommended;
+        public final boolean sajdaObligatory;
+
+        Ayah(int number, int numberInSurah, String text, int juz, int manzil, int page, int ruku, int hizbQuarter,
+             int sajdaId, boolean sajdaRecommended, boolean sajdaObligatory) {
+            this.number = number;
+            this.numberInSurah = numberInSurah;
+            this.text = text;
+            this.juz = juz;
+            this.manzil = manzil;
+            this.page = page;
+            this.ruku = ruku;
+            this.hizbQuarter = hizbQuarter;
+            this.sajdaId = sajdaId;
+            this.sajdaRecommended = sajdaRecommended;
+            this.sajdaObligatory = sajdaObligatory;
+        }
+    }
+
+    public int surahCount() {
+        return surahCount;
+    }
+
+    public int ayahCount() {
+        return ayahCount;
+    }
+
+    /** {@code number} is 1-based; throws IllegalArgumentException if it is out of range. */
+    public Surah surah(int number) {
+        if (number < 1 || number > surahCount) throw new IllegalArgumentException("No surah " + number);
+        int record = HEADER_BYTES + (number - 1) * SURAH_BYTES;
+        return new Surah(
+                number,
+                string(buffer.getInt(record + 8)),
+                string(buffer.getInt(record + 12)),
+                string(buffer.getInt(record + 16)),
+                buffer.get(record + 6) == 1 ? "Medinan" : "Meccan",
+                buffer.getShort(record + 4) & 0xFFFF,
+                buffer.getInt(record));
+    }
+
+    /** Number of the surah holding the 0-based corpus ayah {@code index}. */
+    public int surahOf(int index) {
+        int low = 1;
+        int high = surahCount;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (buffer.getInt(HEADER_BYTES + (mid - 1) * SURAH_BYTES) <= index) low = mid;
+            else high = mid - 1;
+        }
+        return low;
+    }
+
+    /** Ayahs {@code from}..{@code to} (1-based, inclusive) of {@code surah}, clamped to the surah. */
+    public Ayah[] ayahs(Surah surah, int from, int to) {
+        int first = Math.max(1, from);
+        int last = Math.min(surah.numberOfAyahs, to);
+        if (last < first) return new Ayah[0];
+        Ayah[] ayahs = new Ayah[last - first + 1];
+        for (int i = 0; i < ayahs.length; i++) {
+            ayahs[i] = ayah(surah.firstAyah + first - 1 + i, first + i);
+        }
+        return ayahs;
+    }
+
+    /** Text of the ayah at 0-based corpus {@code index}, without building its metadata. */
+    public String text(int index) {
+        int record = ayahTable + index * AYAH_BYTES;
+        int start = buffer.getInt(record);
+        int end = index + 1 < ayahCount ? buffer.getInt(record + AYAH_BYTES) : textBytes;
+        return utf8(textOffset + start, end - start);
+    }
+
+    private Ayah ayah(int index, int numberInSurah) {
+        int record = ayahTable + index * AYAH_BYTES;
+        int flags = buffer.get(record + 13);
+        return new Ayah(
+                index + 1,
+                numberInSurah,
+                text(index),
+                buffer.get(record + 10) & 0xFF,
+                buffer.get(record + 11) & 0xFF,
+                buffer.getShort(record + 4) & 0xFFFF,
+                buffer.getShort(record + 6) & 0xFFFF,
+                buffer.getShort(record + 8) & 0xFFFF,
+                buffer.get(record + 12) & 0xFF,
+                (flags & 1) != 0,
+                (flags & 2) != 0);
+    }
+
+    private String string(int offset) {
+        int position = stringsOffset + offset;
+        return utf8(position + 2, buffer.getShort(position) & 0xFFFF);
+    }
+
+    private String utf8(int position, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,191 @@
+package com.ibadalrahman.app;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Inverted index over one Quran edition, packed by quran-corpus.gradle with the same
+ * {@link ArabicNormalizer} used for queries here. Terms are binary searched in the mapped file
+ * and postings are decoded only for the terms a query touches.
+ *
+ * <p>Layout, all big-endian:
+ * <pre>
+ * header   32 bytes  magic "QIX1", version, ayahCount, tokenCount, stemCount, stringsOffset, postingsOffset, postingsBytes
+ * terms    12 bytes  string offset, postings offset, ayah count; normalized tokens then stems, each sorted
+ * strings            short length + UTF-8 bytes each
+ * postings           ascending 0-based corpus ayah indices as varint gaps
+ * </pre>
+ */
+public final class QuranSearchIndex {
+    static final int MAGIC = 0x51495831; // "QIX1"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int TERM_BYTES = 12;
+
+    // Per query word: an exact word beats a shared stem, which beats a word that merely starts with it
+    static final float EXACT_WEIGHT = 3f;
+    static final float STEM_WEIGHT = 2f;
+    static final float PREFIX_WEIGHT = 1f;
+    // Prefixes shorter than this, or matching more words than this, would touch most of the index
+    static final int MIN_PREFIX_LENGTH = 2;
+    static final int MAX_PREFIX_TERMS = 256;
+
+    private final ByteBuffer buffer;
+    private final int ayahCount;
+    private final int tokenCount;
+    private final int stemCount;
+    private final int stringsOffset;
+    private final int postingsOffset;
+
+    public QuranSearchIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.duplicate();
+        if (this.buffer.capacity() < HEADER_BYTES || this.buffer.getInt(0) != MAGIC || this.buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a Quran search index");
+        }
+        ayahCount = this.buffer.getInt(8);
+        tokenCount = this.buffer.getInt(12);
+        stemCount = this.buffer.getInt(16);
+        stringsOffset = this.buffer.getInt(20);
+        postingsOffset = this.buffer.getInt(24);
+        int postingsBytes = this.buffer.getInt(28);
+        if (HEADER_BYTES + (tokenCount + stemCount) * TERM_BYTES != stringsOffset
+                || (long) postingsOffset + postingsBytes != this.buffer.capacity()) {
+            throw new IOException("Truncated Quran search index");
+        }
+    }
+
+    /** Ranked matches: {@code ayahs[i]} is a 0-based corpus ayah index scored {@code scores[i]}. */
+    public static final class Result {
+        public final int[] ayahs;
+        public final float[] scores;
+
+        Result(int[] ayahs, float[] scores) {
+            this.ayahs = ayahs;
+            this.scores = scores;
+        }
+
+        public int size() {
+            return ayahs.length;
+        }
+    }
+
+    /**
+     * Ayahs containing every word of {@code query}, best first. Each word scores its best match
+     * kind (exact, stem, prefix) times how rare the word is overall; ties keep mushaf order.
+     */
+    public Result search(String query) {
+        List<String> words = ArabicNormalizer.tokens(query);
+        if (words.isEmpty()) return new Result(new int[0], new float[0]);
+
+        float[] scores = new float[ayahCount];
+        int[] matchedWords = new int[ayahCount];
+        float[] wordScore = new float[ayahCount];
+        for (int w = 0; w < words.size(); w++) {
+            String word = words.get(w);
+            Arrays.fill(wordScore, 0f);
+
+            int exact = find(0, tokenCount, word);
+            if (exact >= 0) accumulate(exact, EXACT_WEIGHT, wordScore);
+            int stem = find(tokenCount, tokenCount + stemCount, ArabicNormalizer.stem(word));
+            if (stem >= 0) accumulate(stem, STEM_WEIGHT, wordScore);
+            if (word.length() >= MIN_PREFIX_LENGTH) {
+                // Words and stems starting with it, so "رحم" also finds "الرحمن" through its stem
+                accumulatePrefix(0, tokenCount, word, wordScore);
+                accumulatePrefix(tokenCount, tokenCount + stemCount, word, wordScore);
+            }
+
+            int matches = 0;
+            for (int ayah = 0; ayah < ayahCount; ayah++) {
+                if (wordScore[ayah] > 0f) matches++;
+            }
+            // Rarity of the word as a whole, so a rare inflection doesn't outrank an exact match
+            float rarity = (float) Math.log(1.0 + (double) ayahCount / Math.max(1, matches));
+
+            // Only ayahs that matched every earlier word stay in the running
+            for (int ayah = 0; ayah < ayahCount; ayah++) {
+                if (wordScore[ayah] > 0f && matchedWords[ayah] == w) {
+                    matchedWords[ayah]++;
+                    scores[ayah] += wordScore[ayah] * rarity;
+                }
+            }
+        }
+
+        int count = 0;
+        for (int ayah = 0; ayah < ayahCount; ayah++) {
+            if (matchedWords[ayah] == words.size()) count++;
+        }
+        Integer[] order = new Integer[count];
+        count = 0;
+        for (int ayah = 0; ayah < ayahCount; ayah++) {
+            if (matchedWords[ayah] == words.size()) order[count++] = ayah;
+        }
+        // Stable, so equal scores stay in mushaf order
+        Arrays.sort(order, (a, b) -> Float.compare(scores[b], scores[a]));
+
+        int[] ayahs = new int[count];
+        float[] ranked = new float[count];
+        for (int i = 0; i < count; i++) {
+            ayahs[i] = order[i];
+            ranked[i] = scores[order[i]];
+        }
+        return new Result(ayahs, ranked);
+    }
+
+    private void accumulatePrefix(int from, int to, String prefix, float[] wordScore) {
+        int first = lowerBound(from, to, prefix);
+        for (int term = first; term < to && term - first < MAX_PREFIX_TERMS && term(term).startsWith(prefix); term++) {
+            accumulate(term, PREFIX_WEIGHT, wordScore);
+        }
+    }
+
+    /** Raises every ayah in the term's postings to at least {@code weight}. */
+    private void accumulate(int term, float weight, float[] wordScore) {
+        int record = HEADER_BYTES + term * TERM_BYTES;
+        int position = postingsOffset + buffer.getInt(record + 4);
+        int count = buffer.getInt(record + 8);
+        int ayah = 0;
+        for (int i = 0; i < count; i++) {
+            int gap = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = buffer.get(position++);
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            ayah += gap;
+            if (weight > wordScore[ayah]) wordScore[ayah] = weight;
+        }
+    }
+
+    /** Index of {@code key} among terms [from, to), or -1. */
+    private int find(int from, int to, String key) {
+        int index = lowerBound(from, to, key);
+        return index < to && term(index).equals(key) ? index : -1;
+    }
+
+    /** First term in [from, to) that is not less than {@code key}. */
+    private int lowerBound(int from, int to, String key) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (term(mid).compareTo(key) < 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private String term(int index) {
+        int position = stringsOffset + buffer.getInt(HEADER_BYTES + index * TERM_BYTES);
+        int length = buffer.getShort(position) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(position + 2);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,187 @@
+package com.ibadalrahman.app;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Serves Quran text from the binary corpora packed at build time (see quran-corpus.gradle), so
+ * opening a surah maps a few pages of the APK instead of parsing a multi-megabyte JSON import.
+ */
+@CapacitorPlugin(name = "QuranText")
+public class QuranTextPlugin extends Plugin {
+    public static final String EDITION_SIMPLE = "simple";
+    public static final String EDITION_WARSH = "warsh";
+
+    // The index covers this edition; hits are returned with its text
+    private static final String SEARCH_EDITION = EDITION_SIMPLE;
+
+    private static final Map<String, QuranCorpus> corpora = new HashMap<>();
+    private static QuranSearchIndex searchIndex;
+
+    // Ranked hits for the last query, so later pages don't search again
+    private String lastQuery;
+    private QuranSearchIndex.Result lastResult;
+
+    /** The mapped corpus for {@code edition}, opened on first use and kept for the process. */
+    static synchronized QuranCorpus corpus(Context context, String edition) throws IOException {
+        if (!EDITION_SIMPLE.equals(edition) && !EDITION_WARSH.equals(edition)) {
+            throw new IOException("Unknown edition " + edition);
+        }
+        QuranCorpus corpus = corpora.get(edition);
+        if (corpus != null) return corpus;
+
+        // The asset is stored uncompressed, so it can be mapped straight out of the APK
+        try (AssetFileDescriptor afd = context.getAssets().openFd("quran/" + edition + ".qtx");
+             FileInputStream in = afd.createInputStream();
+             FileChannel channel = in.getChannel()) {
+            corpus = new QuranCorpus(channel.map(FileChannel.MapMode.READ_ONLY, afd.getStartOffset(), afd.getLength()));
+        }
+        corpora.put(edition, corpus);
+        return corpus;
+    }
+
+    static synchronized QuranSearchIndex searchIndex(Context context) throws IOException {
+        if (searchIndex != null) return searchIndex;
+        try (AssetFileDescriptor afd = context.getAssets().openFd("quran/" + SEARCH_EDITION + ".qix");
+             FileInputStream in = afd.createInputStream();
+             FileChannel channel = in.getChannel()) {
+            searchIndex = new QuranSearchIndex(channel.map(FileChannel.MapMode.READ_ONLY, afd.getStartOffset(), afd.getLength()));
+        }
+        return searchIndex;
+    }
+
+    @PluginMethod
+    public void getAyahs(PluginCall call) {
+        Integer surahNumber = call.getInt("surah");
+        if (surahNumber == null) {
+            call.reject("Must provide surah");
+            return;
+        }
+
+        QuranCorpus corpus;
+        try {
+            corpus = corpus(getContext(), call.getString("edition", EDITION_SIMPLE));
+        } catch (IOException e) {
+            System.err.println("QuranTextPlugin: " + e.getMessage());
+            call.reject("Quran text unavailable: " + e.getMessage());
+            return;
+        }
+        if (surahNumber < 1 || surahNumber > corpus.surahCount()) {
+            call.reject("Invalid surah " + surahNumber);
+            return;
+        }
+
+        QuranCorpus.Surah surah = corpus.surah(surahNumber);
+        JSArray ayahs = new JSArray();
+        for (QuranCorpus.Ayah ayah : corpus.ayahs(surah, call.getInt("from", 1), call.getInt("to", surah.numberOfAyahs))) {
+            ayahs.put(toJson(ayah));
+        }
+
+        JSObject ret = new JSObject();
+        ret.put("surah", toJson(surah));
+        ret.put("ayahs", ayahs);
+        call.resolve(ret);
+    }
+
+    /**
+     * Diacritic-insensitive search. Returns one page of ranked hits; pass the returned
+     * nextOffset back to get the next page, which is served from the cached ranking.
+     */
+    @PluginMethod
+    public void searchQuran(PluginCall call) {
+        String query = call.getString("query");
+        if (query == null || query.trim().isEmpty()) {
+            call.reject("Must provide query");
+            return;
+        }
+        int limit = Math.max(1, call.getInt("limit", 20));
+        int offset = Math.max(0, call.getInt("offset", 0));
+
+        QuranCorpus corpus;
+        QuranSearchIndex index;
+        try {
+            corpus = corpus(getContext(), SEARCH_EDITION);
+            index = searchIndex(getContext());
+        } catch (IOException e) {
+            System.err.println("QuranTextPlugin: " + e.getMessage());
+            call.reject("Quran search unavailable: " + e.getMessage());
+            return;
+        }
+
+        QuranSearchIndex.Result result;
+        synchronized (this) {
+            if (!query.equals(lastQuery)) {
+                lastResult = index.search(query);
+                lastQuery = query;
+            }
+            result = lastResult;
+        }
+
+        JSArray hits = new JSArray();
+        int end = Math.min(result.size(), offset + limit);
+        for (int i = offset; i < end; i++) {
+            int ayahIndex = result.ayahs[i];
+            QuranCorpus.Surah surah = corpus.surah(corpus.surahOf(ayahIndex));
+            JSObject hit = new JSObject();
+            hit.put("surah", toJson(surah));
+            hit.put("number", ayahIndex + 1);
+            hit.put("numberInSurah", ayahIndex - surah.firstAyah + 1);
+            hit.put("text", corpus.text(ayahIndex));
+            hit.put("score", result.scores[i]);
+            hits.put(hit);
+        }
+
+        JSObject ret = new JSObject();
+        ret.put("hits", hits);
+        ret.put("total", result.size());
+        if (end < result.size()) ret.put("nextOffset", end);
+        call.resolve(ret);
+    }
+
+    static JSObject toJson(QuranCorpus.Surah surah) {
+        JSObject json = new JSObject();
+        json.put("number", surah.number);
+        json.put("name", surah.name);
+        json.put("englishName", surah.englishName);
+        json.put("englishNameTranslation", surah.englishNameTranslation);
+        json.put("revelationType", surah.revelationType);
+        json.put("numberOfAyahs", surah.numberOfAyahs);
+        return json;
+    }
+
+    /** Same shape as the ayahs in the JSON editions, sajda included. */
+    static JSObject toJson(QuranCorpus.Ayah ayah) {
+        JSObject json = new JSObject();
+        json.put("number", ayah.number);
+        json.put("numberInSurah", ayah.numberInSurah);
+        json.put("text", ayah.text);
+        json.put("juz", ayah.juz);
+        json.put("manzil", ayah.manzil);
+        json.put("page", ayah.page);
+        json.put("ruku", ayah.ruku);
+        json.put("hizbQuarter", ayah.hizbQuarter);
+        if (ayah.sajdaId == 0) {
+            json.put("sajda", false);
+        } else {
+            JSObject sajda = new JSObject();
+            sajda.put("id", ayah.sajdaId);
+            sajda.put("recommended", ayah.sajdaRecommended);
+            sajda.put("obligatory", ayah.sajdaObligatory);
+            json.put("sajda", sajda);
+        }
+        return json;
+    }
+}
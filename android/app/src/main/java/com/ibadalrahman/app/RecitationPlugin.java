@@ -0,0 +1,136 @@
+package com.ibadalrahman.app;
+
+import android.content.Intent;
+import android.os.Build;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Controls {@link RecitationService} and forwards its "ayahChange" and "stateChange" events to
+ * the web view.
+ */
+@CapacitorPlugin(name = "Recitation")
+public class RecitationPlugin extends Plugin {
+
+    @Override
+    public void load() {
+        RecitationService.setListener(new RecitationService.Listener() {
+            @Override
+            public void onAyah(int surah, int ayah) {
+                JSObject data = new JSObject();
+                data.put("surah", surah);
+                data.put("ayah", ayah);
+                notifyListeners("ayahChange", data);
+            }
+
+            @Override
+            public void onState(String state) {
+                JSObject data = new JSObject();
+                data.put("state", state);
+                notifyListeners("stateChange", data);
+            }
+        });
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        RecitationService.setListener(null);
+    }
+
+    /** Starts reciting {@code urls} (one per ayah) of {@code surah} from {@code ayah}. */
+    @PluginMethod
+    public void play(PluginCall call) {
+        Integer surah = call.getInt("surah");
+        JSArray urlArray = call.getArray("urls");
+        if (surah == null || urlArray == null || urlArray.length() == 0) {
+            call.reject("Must provide surah and urls");
+            return;
+        }
+        ArrayList<String> urls;
+        try {
+            List<String> list = urlArray.toList();
+            urls = new ArrayList<>(list);
+        } catch (JSONException e) {
+            call.reject("urls must be strings");
+            return;
+        }
+
+        Intent intent = new Intent(getContext(), RecitationService.class);
+        intent.setAction(RecitationService.ACTION_PLAY);
+        intent.putExtra(RecitationService.EXTRA_SURAH, (int) surah);
+        intent.putStringArrayListExtra(RecitationService.EXTRA_URLS, urls);
+        intent.putExtra(RecitationService.EXTRA_AYAH, (int) call.getInt("ayah", 1));
+        intent.putExtra(RecitationService.EXTRA_TITLE, call.getString("title"));
+        intent.putExtra(RecitationService.EXTRA_DOWNLOADED_DIR, call.getString("downloadedDir"));
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            getContext().startForegroundService(intent);
+        } else {
+            getContext().startService(intent);
+        }
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void pause(PluginCall call) {
+        send(RecitationService.ACTION_PAUSE, null);
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void resume(PluginCall call) {
+        send(RecitationService.ACTION_RESUME, null);
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void seekTo(PluginCall call) {
+        Integer ayah = call.getInt("ayah");
+        if (ayah == null) {
+            call.reject("Must provide ayah");
+            return;
+        }
+        send(RecitationService.ACTION_SEEK, ayah);
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void stop(PluginCall call) {
+        send(RecitationService.ACTION_STOP, null);
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void getCacheStats(PluginCall call) {
+        DiskLruCache.Stats stats = RecitationService.cache(getContext()).stats();
+        JSObject ret = new JSObject();
+        ret.put("hits", stats.hits);
+        ret.put("misses", stats.misses);
+        ret.put("downloads", stats.downloads);
+        ret.put("evictions", stats.evictions);
+        ret.put("entries", stats.entries);
+        ret.put("bytes", stats.bytes);
+        call.resolve(ret);
+    }
+
+    private void send(String action, Integer ayah) {
+        Intent intent = new Intent(getContext(), RecitationService.class);
+        intent.setAction(action);
+        if (ayah != null) intent.putExtra(RecitationService.EXTRA_AYAH, (int) ayah);
+        try {
+            getContext().startService(intent);
+        } catch (IllegalStateException e) {
+            // Not running and the app is in the background: there is nothing to control
+            System.err.println("RecitationPlugin: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.ibadalrahman.app;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Position within one surah's recitation: the ayah playing now and the few after it that
+ * should already be on disk. Ayahs are 1-based; {@code urls.get(i)} is the audio for ayah i + 1.
+ */
+final class RecitationQueue {
+    static final int LOOK_AHEAD = 3;
+
+    final int surah;
+    private final List<String> urls;
+    // Relative to the app's files dir, where SurahAudioPlayer stores downloaded surahs; may be null
+    final String downloadedDir;
+    private int current;
+
+    RecitationQueue(int surah, List<String> urls, int startAyah, String downloadedDir) {
+        if (urls.isEmpty()) throw new IllegalArgumentException("No ayahs to recite");
+        this.surah = surah;
+        this.urls = new ArrayList<>(urls);
+        this.downloadedDir = downloadedDir;
+        seek(startAyah);
+    }
+
+    int current() {
+        return current;
+    }
+
+    int size() {
+        return urls.size();
+    }
+
+    boolean hasNext() {
+        return current < urls.size();
+    }
+
+    void advance() {
+        if (hasNext()) current++;
+    }
+
+    /** Clamped to the surah. */
+    void seek(int ayah) {
+        current = Math.max(1, Math.min(urls.size(), ayah));
+    }
+
+    String url(int ayah) {
+        return urls.get(ayah - 1);
+    }
+
+    /** Ayahs after the current one to download ahead of time, nearest first. */
+    int[] lookAhead() {
+        int count = Math.min(LOOK_AHEAD, urls.size() - current);
+        int[] ayahs = new int[count];
+        for (int i = 0; i < count; i++) ayahs[i] = current + 1 + i;
+        return ayahs;
+    }
+
+    /**
+     * Cache key for an ayah's audio, from the reciter folder and file name of its URL so the
+     * same recording is shared whichever surah or reading style asked for it.
+     */
+    String cacheKey(int ayah) {
+        String url = url(ayah);
+        int file = url.lastIndexOf('/');
+        int folder = url.lastIndexOf('/', file - 1);
+        String name = url.substring(folder + 1).replace('/', '_');
+        if (name.endsWith(".mp3")) name = name.substring(0, name.length() - 4);
+        return name.replaceAll("[^A-Za-z0-9_.-]", "_");
+    }
+
+    /**
+     * Path of the ayah under {@link #downloadedDir}, or null. Downloads are named by the last
+     * three digits of the remote file, e.g. ".../001002.mp3" is stored as "002.mp3".
+     */
+    String downloadedPath(int ayah) {
+        if (downloadedDir == null) return null;
+        String url = url(ayah);
+        String name = url.substring(url.lastIndexOf('/') + 1);
+        if (!name.endsWith(".mp3") || name.length() < 7) return null;
+        return downloadedDir + "/" + name.substring(name.length() - 7);
+    }
+}
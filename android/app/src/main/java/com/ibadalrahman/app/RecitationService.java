@@ -0,0 +1,453 @@
+package com.ibadalrahman.app;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.media.AudioAttributes;
+import android.media.AudioManager;
+import android.media.MediaPlayer;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.IBinder;
+import android.os.PowerManager;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Foreground media service reciting one surah ayah by ayah. The next ayah is downloaded ahead
+ * into a {@link DiskLruCache} and chained with {@link MediaPlayer#setNextMediaPlayer}, so the
+ * framework starts it the moment the current one ends, with no gap and no network on replays.
+ *
+ * <p>All player work happens on a dedicated HandlerThread; downloads run on a separate pool and
+ * post back to it.
+ */
+public class RecitationService extends Service {
+    private static final String TAG = "RecitationService";
+    private static final String CHANNEL_ID = "recitation_channel";
+    private static final int NOTIFICATION_ID = 3;
+    private static final String CACHE_DIR = "recitation";
+    static final long CACHE_MAX_BYTES = 200L * 1024 * 1024;
+    // Held only while waiting on a download; MediaPlayer holds its own while playing
+    private static final long BUFFERING_WAKE_MS = 60 * 1000L;
+
+    static final String ACTION_PLAY = "com.ibadalrahman.app.RECITATION_PLAY";
+    static final String ACTION_PAUSE = "com.ibadalrahman.app.RECITATION_PAUSE";
+    static final String ACTION_RESUME = "com.ibadalrahman.app.RECITATION_RESUME";
+    static final String ACTION_SEEK = "com.ibadalrahman.app.RECITATION_SEEK";
+    static final String ACTION_STOP = "com.ibadalrahman.app.RECITATION_STOP";
+    static final String EXTRA_SURAH = "surah";
+    static final String EXTRA_URLS = "urls";
+    static final String EXTRA_AYAH = "ayah";
+    static final String EXTRA_DOWNLOADED_DIR = "downloadedDir";
+    static final String EXTRA_TITLE = "title";
+
+    static final String STATE_BUFFERING = "buffering";
+    static final String STATE_PLAYING = "playing";
+    static final String STATE_PAUSED = "paused";
+    static final String STATE_ENDED = "ended";
+    static final String STATE_STOPPED = "stopped";
+    static final String STATE_ERROR = "error";
+
+    /** Playback events, delivered on the recitation thread. */
+    interface Listener {
+        void onAyah(int surah, int ayah);
+        void onState(String state);
+    }
+
+    private static DiskLruCache cache;
+    private static volatile Listener listener;
+
+    private final ExecutorService downloader = Executors.newFixedThreadPool(2);
+    private HandlerThread thread;
+    private Handler handler;
+    private AudioManager audioManager;
+    private android.media.AudioFocusRequest focusRequest;
+    private PowerManager.WakeLock bufferingLock;
+
+    // Only touched on the recitation thread
+    private RecitationQueue queue;
+    private MediaPlayer current;
+    private MediaPlayer next;
+    private int nextAyah;
+    // Bumped on every play/seek/stop so late downloads for an old position are dropped
+    private int generation;
+    private String state = STATE_STOPPED;
+    private boolean pausedForFocus;
+    private String surahTitle;
+
+    static synchronized DiskLruCache cache(Context context) {
+        if (cache == null) {
+            File dir = new File(context.getApplicationContext().getNoBackupFilesDir(), CACHE_DIR);
+            cache = new DiskLruCache(dir, ".mp3", null, CACHE_MAX_BYTES);
+        }
+        return cache;
+    }
+
+    static void setListener(Listener l) {
+        listener = l;
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        createNotificationChannel();
+        thread = new HandlerThread("Recitation", android.os.Process.THREAD_PRIORITY_AUDIO);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        audioManager = (AudioManager) getSystemService(Context.AUDIO_SERVICE);
+        PowerManager powerManager = (PowerManager) getSystemService(Context.POWER_SERVICE);
+        if (powerManager != null) {
+            bufferingLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "PrayerCompanion:RecitationBuffering");
+            bufferingLock.setReferenceCounted(false);
+        }
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (intent == null || intent.getAction() == null) return START_NOT_STICKY;
+        String action = intent.getAction();
+
+        if (ACTION_PLAY.equals(action)) {
+            ArrayList<String> urls = intent.getStringArrayListExtra(EXTRA_URLS);
+            int surah = intent.getIntExtra(EXTRA_SURAH, 0);
+            if (urls == null || urls.isEmpty()) {
+                stopSelf();
+                return START_NOT_STICKY;
+            }
+            String title = intent.getStringExtra(EXTRA_TITLE);
+            surahTitle = title != null ? title : "سورة " + surah;
+            // Must be called promptly after startForegroundService
+            startForeground(NOTIFICATION_ID, createNotification(intent.getIntExtra(EXTRA_AYAH, 1), false));
+            RecitationQueue queue = new RecitationQueue(surah, urls, intent.getIntExtra(EXTRA_AYAH, 1), intent.getStringExtra(EXTRA_DOWNLOADED_DIR));
+            handler.post(() -> play(queue));
+        } else if (ACTION_PAUSE.equals(action)) {
+            handler.post(() -> ifActive(() -> pause(false)));
+        } else if (ACTION_RESUME.equals(action)) {
+            handler.post(() -> ifActive(this::resume));
+        } else if (ACTION_SEEK.equals(action)) {
+            int ayah = intent.getIntExtra(EXTRA_AYAH, 1);
+            handler.post(() -> ifActive(() -> seek(ayah)));
+        } else if (ACTION_STOP.equals(action)) {
+            handler.post(() -> finish(STATE_STOPPED));
+        }
+        return START_NOT_STICKY;
+    }
+
+    /** Controls sent after the recitation ended would otherwise leave an idle started service. */
+    private void ifActive(Runnable command) {
+        if (queue == null) {
+            stopSelf();
+            return;
+        }
+        command.run();
+    }
+
+    private void play(RecitationQueue newQueue) {
+        releasePlayers();
+        queue = newQueue;
+        if (!requestFocus()) Log.w(TAG, "Audio focus denied; reciting anyway");
+        startCurrent();
+    }
+
+    private void seek(int ayah) {
+        releasePlayers();
+        queue.seek(ayah);
+        startCurrent();
+    }
+
+    private void pause(boolean forFocus) {
+        if (current == null || !STATE_PLAYING.equals(state)) return;
+        current.pause();
+        pausedForFocus = forFocus;
+        setState(STATE_PAUSED);
+    }
+
+    private void resume() {
+        pausedForFocus = false;
+        if (current == null || !STATE_PAUSED.equals(state)) return;
+        requestFocus();
+        current.start();
+        setState(STATE_PLAYING);
+    }
+
+    /** Starts the queue's current ayah once its file is on disk. */
+    private void startCurrent() {
+        int token = ++generation;
+        int ayah = queue.current();
+        setState(STATE_BUFFERING);
+        notifyAyah(ayah);
+        resolve(ayah, true, token, file -> {
+            MediaPlayer player;
+            try {
+                player = createPlayer(file);
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot play ayah " + ayah, e);
+                finish(STATE_ERROR);
+                return;
+            }
+            current = player;
+            current.start();
+            setState(STATE_PLAYING);
+            prepareNext();
+        }, () -> finish(STATE_ERROR));
+    }
+
+    /** Prepares the following ayah and hands it to the framework to start gaplessly. */
+    private void prepareNext() {
+        int[] ahead = queue.lookAhead();
+        if (ahead.length == 0) return;
+        int token = generation;
+        int following = ahead[0];
+        resolve(following, false, token, file -> {
+            if (current == null || next != null || queue.current() + 1 != following) return;
+            try {
+                next = createPlayer(file);
+                nextAyah = following;
+                current.setNextMediaPlayer(next);
+            } catch (IOException e) {
+                // Played without chaining when the current ayah ends
+                Log.w(TAG, "Cannot chain ayah " + following, e);
+                if (next != null) next.release();
+                next = null;
+            }
+        }, null);
+        // Further ayahs are only downloaded, so a brief network drop later doesn't leave a gap
+        for (int i = 1; i < ahead.length; i++) resolve(ahead[i], false, token, null, null);
+    }
+
+    private void onCompletion(MediaPlayer player) {
+        if (player != current) return;
+        player.release();
+        current = null;
+
+        if (next != null) {
+            // Already playing: the framework started it as this one ended
+            current = next;
+            next = null;
+            queue.seek(nextAyah);
+            notifyAyah(nextAyah);
+            updateNotification();
+            prepareNext();
+        } else if (queue.hasNext()) {
+            // The download didn't make it in time; wait for it
+            queue.advance();
+            startCurrent();
+        } else {
+            finish(STATE_ENDED);
+        }
+    }
+
+    private MediaPlayer createPlayer(File file) throws IOException {
+        MediaPlayer player = new MediaPlayer();
+        try {
+            player.setAudioAttributes(new AudioAttributes.Builder()
+                    .setUsage(AudioAttributes.USAGE_MEDIA)
+                    .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+                    .build());
+            player.setWakeMode(getApplicationContext(), PowerManager.PARTIAL_WAKE_LOCK);
+            player.setDataSource(file.getAbsolutePath());
+            // A local file prepares in a few milliseconds
+            player.prepare();
+        } catch (IOException | RuntimeException e) {
+            player.release();
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+        player.setOnCompletionListener(this::onCompletion);
+        player.setOnErrorListener((mp, what, extra) -> {
+            Log.e(TAG, "MediaPlayer error " + what + "/" + extra);
+            if (mp == current) finish(STATE_ERROR);
+            return true;
+        });
+        return player;
+    }
+
+    private interface FileCallback {
+        void onFile(File file);
+    }
+
+    /**
+     * Finds the ayah's audio: the user's downloaded copy, else the cache, downloading if needed.
+     * {@code onFile}/{@code onError} run on the recitation thread, and only if nothing was
+     * played, sought or stopped in the meantime.
+     */
+    private void resolve(int ayah, boolean counted, int token, FileCallback onFile, Runnable onError) {
+        RecitationQueue queue = this.queue;
+        String downloaded = queue.downloadedPath(ayah);
+        if (downloaded != null) {
+            File file = new File(getFilesDir(), downloaded);
+            if (file.exists()) {
+                if (onFile != null) onFile.onFile(file);
+                return;
+            }
+        }
+
+        DiskLruCache audio = cache(this);
+        String key = queue.cacheKey(ayah);
+        String url = queue.url(ayah);
+        if (onFile == null && audio.contains(key)) return;
+        if (onFile != null && bufferingLock != null && !audio.contains(key)) bufferingLock.acquire(BUFFERING_WAKE_MS);
+        downloader.execute(() -> {
+            File file = null;
+            try {
+                file = counted ? audio.get(key, url) : audio.fetch(key, url);
+            } catch (IOException e) {
+                Log.w(TAG, "Download failed for " + url + ": " + e.getMessage());
+            }
+            File result = file;
+            handler.post(() -> {
+                if (token != generation) return;
+                if (result != null && onFile != null) onFile.onFile(result);
+                else if (result == null && onError != null) onError.run();
+            });
+        });
+    }
+
+    private void finish(String finalState) {
+        generation++;
+        releasePlayers();
+        queue = null;
+        abandonFocus();
+        setState(finalState);
+        stopForeground(true);
+        stopSelf();
+    }
+
+    private void releasePlayers() {
+        if (current != null) current.release();
+        if (next != null) next.release();
+        current = null;
+        next = null;
+    }
+
+    private void setState(String newState) {
+        state = newState;
+        if (bufferingLock != null && !STATE_BUFFERING.equals(newState) && bufferingLock.isHeld()) bufferingLock.release();
+        Listener l = listener;
+        if (l != null) l.onState(newState);
+        if (queue != null) updateNotification();
+    }
+
+    private void notifyAyah(int ayah) {
+        Listener l = listener;
+        if (l != null && queue != null) l.onAyah(queue.surah, ayah);
+    }
+
+    private final AudioManager.OnAudioFocusChangeListener focusListener = change -> handler.post(() -> {
+        if (change == AudioManager.AUDIOFOCUS_LOSS || change == AudioManager.AUDIOFOCUS_LOSS_TRANSIENT) {
+            pause(change == AudioManager.AUDIOFOCUS_LOSS_TRANSIENT);
+        } else if (change == AudioManager.AUDIOFOCUS_GAIN && pausedForFocus) {
+            resume();
+        }
+    });
+
+    private boolean requestFocus() {
+        if (audioManager == null) return true;
+        int result;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            if (focusRequest == null) {
+                focusRequest = new android.media.AudioFocusRequest.Builder(AudioManager.AUDIOFOCUS_GAIN)
+                        .setAudioAttributes(new AudioAttributes.Builder()
+                                .setUsage(AudioAttributes.USAGE_MEDIA)
+                                .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+                                .build())
+                        .setOnAudioFocusChangeListener(focusListener, handler)
+                        .build();
+            }
+            result = audioManager.requestAudioFocus(focusRequest);
+        } else {
+            //noinspection deprecation
+            result = audioManager.requestAudioFocus(focusListener, AudioManager.STREAM_MUSIC, AudioManager.AUDIOFOCUS_GAIN);
+        }
+        return result == AudioManager.AUDIOFOCUS_REQUEST_GRANTED;
+    }
+
+    private void abandonFocus() {
+        if (audioManager == null) return;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            if (focusRequest != null) audioManager.abandonAudioFocusRequest(focusRequest);
+        } else {
+            //noinspection deprecation
+            audioManager.abandonAudioFocus(focusListener);
+        }
+    }
+
+    private void updateNotification() {
+        NotificationManager manager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        if (manager != null && queue != null) {
+            manager.notify(NOTIFICATION_ID, createNotification(queue.current(), STATE_PAUSED.equals(state)));
+        }
+    }
+
+    private Notification createNotification(int ayah, boolean paused) {
+        Intent openIntent = new Intent(this, MainActivity.class);
+        PendingIntent contentIntent = PendingIntent.getActivity(this, 0, openIntent, PendingIntent.FLAG_IMMUTABLE);
+
+        Intent toggleIntent = new Intent(this, RecitationService.class).setAction(paused ? ACTION_RESUME : ACTION_PAUSE);
+        PendingIntent togglePendingIntent = PendingIntent.getService(this, 1, toggleIntent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        Intent stopIntent = new Intent(this, RecitationService.class).setAction(ACTION_STOP);
+        PendingIntent stopPendingIntent = PendingIntent.getService(this, 2, stopIntent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setContentTitle(surahTitle)
+                .setContentText("الآية " + ayah)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setColor(0xFF0F5132)
+                .setCategory(NotificationCompat.CATEGORY_TRANSPORT)
+                .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
+                .setContentIntent(contentIntent)
+                .addAction(paused ? android.R.drawable.ic_media_play : android.R.drawable.ic_media_pause,
+                        paused ? "متابعة / Resume" : "إيقاف مؤقت / Pause", togglePendingIntent)
+                .addAction(android.R.drawable.ic_menu_close_clear_cancel, "إيقاف / Stop", stopPendingIntent)
+                .setOnlyAlertOnce(true)
+                .setOngoing(!paused)
+                .build();
+    }
+
+    private void createNotificationChannel() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(
+                    CHANNEL_ID,
+                    "Quran Recitation",
+                    NotificationManager.IMPORTANCE_LOW
+            );
+            channel.setDescription("Playback controls while a surah is being recited");
+            channel.setSound(null, null);
+            channel.setLockscreenVisibility(Notification.VISIBILITY_PUBLIC);
+
+            NotificationManager manager = getSystemService(NotificationManager.class);
+            if (manager != null) {
+                manager.createNotificationChannel(channel);
+            }
+        }
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        handler.post(() -> {
+            generation++;
+            releasePlayers();
+            abandonFocus();
+            if (bufferingLock != null && bufferingLock.isHeld()) bufferingLock.release();
+        });
+        thread.quitSafely();
+        downloader.shutdownNow();
+    }
+}
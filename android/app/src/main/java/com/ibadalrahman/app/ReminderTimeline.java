@@ -0,0 +1,102 @@
+package com.ibadalrahman.app;
+
+/**
+ * The notification events that hang off each stored Adhan: a reminder some minutes before, the
+ * fixed pre-Adhan heads-up, and a nudge for the after-prayer Azkar. They are not stored; an
+ * event's ID is its Adhan's ID with the kind bits set, which also makes it the notification ID,
+ * and {@link #next} walks the table to find the earliest one still ahead. Only that one gets a
+ * system alarm. Plain Java.
+ */
+final class ReminderTimeline {
+    static final int PRE_ADHAN_MINUTES = 9;
+    private static final long MINUTE_MS = 60 * 1000L;
+
+    /** Which events are on; minutes of 0 turn an event off. */
+    static final class Config {
+        final int reminderMinutes;
+        final boolean preAdhan;
+        final int postPrayerMinutes;
+
+        Config(int reminderMinutes, boolean preAdhan, int postPrayerMinutes) {
+            this.reminderMinutes = Math.max(0, reminderMinutes);
+            this.preAdhan = preAdhan;
+            this.postPrayerMinutes = Math.max(0, postPrayerMinutes);
+        }
+
+        /** How long after its time an Adhan entry still has an event ahead, so must stay stored. */
+        long retentionMs() {
+            return postPrayerMinutes * MINUTE_MS;
+        }
+
+        boolean isEmpty() {
+            return reminderMinutes == 0 && !preAdhan && postPrayerMinutes == 0;
+        }
+
+        /** Event time for {@code kind} relative to an Adhan at {@code adhanTime}, or 0 if it is off. */
+        long timeFor(int kind, long adhanTime) {
+            switch (kind) {
+                case AlarmStore.KIND_REMINDER:
+                    return reminderMinutes > 0 ? adhanTime - reminderMinutes * MINUTE_MS : 0;
+                case AlarmStore.KIND_PRE_ADHAN:
+                    return preAdhan ? adhanTime - PRE_ADHAN_MINUTES * MINUTE_MS : 0;
+                case AlarmStore.KIND_POST_PRAYER:
+                    return postPrayerMinutes > 0 ? adhanTime + postPrayerMinutes * MINUTE_MS : 0;
+                default:
+                    return 0;
+            }
+        }
+    }
+
+    static final class Event {
+        final int id;
+        final long time;
+
+        Event(int id, long time) {
+            this.id = id;
+            this.time = time;
+        }
+
+        int kind() {
+            return AlarmStore.kindOf(id);
+        }
+
+        int slot() {
+            return AlarmStore.slotOf(id);
+        }
+
+        /** The Adhan this event belongs to. */
+        int adhanId() {
+            return id - kind() + AlarmStore.KIND_ADHAN;
+        }
+    }
+
+    private ReminderTimeline() {}
+
+    /**
+     * Earliest event after ({@code afterTime}, {@code afterId}), or null. Ties on time are broken
+     * by ID, so two events due together both fire when the receiver passes the one it just posted.
+     * Test alarms get no events.
+     */
+    static Event next(AlarmStore alarms, Config config, long afterTime, int afterId) {
+        if (config.isEmpty()) return null;
+        // Post-prayer events trail their Adhan, so look back that far
+        long from = afterTime - config.postPrayerMinutes * MINUTE_MS - 1;
+        Event best = null;
+        for (int adhanId : alarms.idsBetween(from, Long.MAX_VALUE)) {
+            if (AlarmStore.slotOf(adhanId) >= PrayerTimesCalculator.PRAYER_COUNT) continue;
+            long adhanTime = alarms.time(adhanId);
+            // Every event is within a reminder's lead of its Adhan; nothing later can win
+            if (best != null && adhanTime - config.reminderMinutes * MINUTE_MS - PRE_ADHAN_MINUTES * MINUTE_MS > best.time) break;
+            for (int kind = AlarmStore.KIND_REMINDER; kind <= AlarmStore.KIND_POST_PRAYER; kind++) {
+                long time = config.timeFor(kind, adhanTime);
+                if (time == 0) continue;
+                int id = adhanId - AlarmStore.KIND_ADHAN + kind;
+                if (time < afterTime || (time == afterTime && id <= afterId)) continue;
+                if (best == null || time < best.time || (time == best.time && id < best.id)) {
+                    best = new Event(id, time);
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,92 @@
+package com.ibadalrahman.app;
+
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Map;
+
+/**
+ * Exposes {@link StartupTrace} to the web view, which reports the milestones only it can see
+ * (the first prayer card). Completed launches are kept so regressions show up across builds.
+ */
+@CapacitorPlugin(name = "Startup")
+public class StartupPlugin extends Plugin {
+    private static final String PREFS = "StartupTrace";
+    private static final String KEY_HISTORY = "history";
+    private static final int HISTORY_SIZE = 20;
+
+    /** Records a milestone reached in the web view, e.g. "firstPrayerCard". */
+    @PluginMethod
+    public void mark(PluginCall call) {
+        String name = call.getString("name");
+        if (name == null) {
+            call.reject("Must provide name");
+            return;
+        }
+        StartupTrace trace = StartupTrace.current();
+        if (trace != null && trace.mark(name, SystemClock.uptimeMillis())
+                && StartupTrace.FIRST_PRAYER_CARD.equals(name)) {
+            // Tells the system (and Play vitals) when the app became usable
+            if (getActivity() != null) getActivity().runOnUiThread(() -> getActivity().reportFullyDrawn());
+            appendHistory(trace);
+        }
+        call.resolve();
+    }
+
+    /** The current launch's milestones plus the last completed launches, newest first. */
+    @PluginMethod
+    public void getStartupMetrics(PluginCall call) {
+        JSObject ret = new JSObject();
+        StartupTrace trace = StartupTrace.current();
+        if (trace != null) ret.put("current", toJson(trace));
+        try {
+            ret.put("history", new JSArray(prefs().getString(KEY_HISTORY, "[]")));
+        } catch (JSONException e) {
+            ret.put("history", new JSArray());
+        }
+        call.resolve(ret);
+    }
+
+    private void appendHistory(StartupTrace trace) {
+        SharedPreferences prefs = prefs();
+        JSONArray history;
+        try {
+            history = new JSONArray(prefs.getString(KEY_HISTORY, "[]"));
+        } catch (JSONException e) {
+            history = new JSONArray();
+        }
+        JSONArray updated = new JSONArray();
+        updated.put(toJson(trace));
+        for (int i = 0; i < history.length() && updated.length() < HISTORY_SIZE; i++) {
+            updated.put(history.opt(i));
+        }
+        prefs.edit().putString(KEY_HISTORY, updated.toString()).apply();
+    }
+
+    private SharedPreferences prefs() {
+        return getContext().getSharedPreferences(PREFS, android.content.Context.MODE_PRIVATE);
+    }
+
+    private static JSObject toJson(StartupTrace trace) {
+        JSObject milestones = new JSObject();
+        for (Map.Entry<String, Long> milestone : trace.milestones().entrySet()) {
+            milestones.put(milestone.getKey(), milestone.getValue());
+        }
+        JSObject json = new JSObject();
+        json.put("type", trace.type);
+        json.put("timestamp", System.currentTimeMillis() - (SystemClock.uptimeMillis() - trace.origin));
+        json.put("milestones", milestones);
+        return json;
+    }
+}
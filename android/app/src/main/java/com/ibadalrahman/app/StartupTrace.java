@@ -0,0 +1,83 @@
+package com.ibadalrahman.app;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Milestones of one app launch, in uptime milliseconds since its origin: process start for a
+ * cold launch, MainActivity.onCreate for a warm one (process already running). Only the first
+ * mark of each milestone counts, so re-renders and recreated activities don't move them.
+ *
+ * <p>Plain Java; callers pass {@code SystemClock.uptimeMillis()}.
+ */
+final class StartupTrace {
+    static final String COLD = "cold";
+    static final String WARM = "warm";
+
+    static final String APPLICATION_CREATE = "applicationCreate";
+    static final String ACTIVITY_CREATE = "activityCreate";
+    static final String BRIDGE_READY = "bridgeReady";
+    static final String FIRST_FRAME = "firstFrame";
+    static final String PAGE_LOADED = "pageLoaded";
+    // Reported from the web view; the launch counts as complete from here
+    static final String FIRST_PRAYER_CARD = "firstPrayerCard";
+
+    private static long processStart = -1;
+    private static long applicationCreate = -1;
+    private static StartupTrace current;
+
+    final String type;
+    final long origin;
+    private final LinkedHashMap<String, Long> milestones = new LinkedHashMap<>();
+
+    private StartupTrace(String type, long origin) {
+        this.type = type;
+        this.origin = origin;
+    }
+
+    /** Called from Application.onCreate when the process was started to show an activity. */
+    static synchronized void processStarted(long processStartUptime, long applicationCreateUptime) {
+        if (processStart >= 0) return;
+        processStart = processStartUptime;
+        applicationCreate = applicationCreateUptime;
+    }
+
+    /**
+     * Starts the trace for an activity launch. The first launch in a process is cold and measured
+     * from process start; any later one is warm and measured from {@code uptime}.
+     */
+    static synchronized StartupTrace launch(long uptime) {
+        boolean cold = current == null && processStart >= 0;
+        current = new StartupTrace(cold ? COLD : WARM, cold ? processStart : uptime);
+        if (cold) current.mark(APPLICATION_CREATE, applicationCreate);
+        return current;
+    }
+
+    /** The latest launch, or null before MainActivity was created. */
+    static synchronized StartupTrace current() {
+        return current;
+    }
+
+    /** Records {@code name} at {@code uptime} unless it was already recorded. */
+    synchronized boolean mark(String name, long uptime) {
+        if (milestones.containsKey(name)) return false;
+        milestones.put(name, Math.max(0, uptime - origin));
+        return true;
+    }
+
+    /** Milestone name to milliseconds since the origin, in the order they were reached. */
+    synchronized Map<String, Long> milestones() {
+        return new LinkedHashMap<>(milestones);
+    }
+
+    synchronized boolean isComplete() {
+        return milestones.containsKey(FIRST_PRAYER_CARD);
+    }
+
+    /** For tests: forget the process start and any launch. */
+    static synchronized void reset() {
+        processStart = -1;
+        applicationCreate = -1;
+        current = null;
+    }
+}
@@ -0,0 +1,120 @@
+package com.ibadalrahman.app;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tafsir responses kept in a {@link DiskLruCache}, one file per ayah, with whole surahs
+ * prefetched in the background so reading on continues to work offline.
+ *
+ * <p>Plain Java so it can be tested against a local HTTP server.
+ */
+public final class TafsirCache {
+    static final long DEFAULT_MAX_BYTES = 8L * 1024 * 1024;
+    // Ayahs fetched per background task; a batch yields to interactive requests between tasks
+    static final int PREFETCH_BATCH = 10;
+
+    private final String baseUrl;
+    private final int tafsirId;
+    private final DiskLruCache files;
+
+    private final Set<String> queued = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final ExecutorService prefetcher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "TafsirPrefetch");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /**
+     * @param baseUrl  endpoint serving {@code {baseUrl}/{tafsirId}/{surah}/{ayah}}
+     * @param maxBytes total size the cached responses may take on disk
+     */
+    public TafsirCache(File dir, String baseUrl, int tafsirId, long maxBytes) {
+        this.baseUrl = baseUrl;
+        this.tafsirId = tafsirId;
+        this.files = new DiskLruCache(dir, ".json", "application/json", maxBytes);
+    }
+
+    public DiskLruCache.Stats stats() {
+        return files.stats();
+    }
+
+    /** Whether the ayah can be served without the network. */
+    public boolean contains(int surah, int ayah) {
+        return files.contains(key(surah, ayah));
+    }
+
+    /**
+     * The raw response body for one ayah, from disk if cached, otherwise downloaded and stored.
+     * Blocks; callers wanting the same ayah at the same time share a single download.
+     */
+    public String get(int surah, int ayah) throws IOException {
+        File file = files.get(key(surah, ayah), url(surah, ayah));
+        try (InputStream in = new FileInputStream(file)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) out.write(buffer, 0, n);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Queues ayahs {@code from}..{@code to} of {@code surah} for background download, skipping
+     * the ones already on disk. Failures are ignored; the ayah is simply fetched again on demand.
+     */
+    public void prefetch(int surah, int from, int to) {
+        List<Integer> batch = new ArrayList<>();
+        for (int ayah = from; ayah <= to; ayah++) {
+            // Tapping through a surah asks for the same range again and again
+            if (contains(surah, ayah) || !queued.add(key(surah, ayah))) continue;
+            batch.add(ayah);
+            if (batch.size() == PREFETCH_BATCH) {
+                submit(surah, batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) submit(surah, batch);
+    }
+
+    /** Stops prefetching; anything already on disk stays. */
+    public void shutdown() {
+        prefetcher.shutdownNow();
+    }
+
+    private void submit(int surah, List<Integer> ayahs) {
+        prefetcher.execute(() -> {
+            boolean failed = false;
+            for (int ayah : ayahs) {
+                String key = key(surah, ayah);
+                try {
+                    if (!failed) files.fetch(key, url(surah, ayah));
+                } catch (IOException e) {
+                    // Most likely offline; don't keep hammering the rest of the batch
+                    failed = true;
+                } finally {
+                    queued.remove(key);
+                }
+            }
+        });
+    }
+
+    private String key(int surah, int ayah) {
+        return tafsirId + "_" + surah + "_" + ayah;
+    }
+
+    private String url(int surah, int ayah) {
+        return baseUrl + "/" + tafsirId + "/" + surah + "/" + ayah;
+    }
+}
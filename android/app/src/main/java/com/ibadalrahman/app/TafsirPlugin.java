@@ -0,0 +1,127 @@
+package com.ibadalrahman.app;
+
+import android.content.Context;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tafsir lookups through {@link TafsirCache}, so ayahs that were read (or prefetched) before
+ * open instantly and keep working offline.
+ */
+@CapacitorPlugin(name = "Tafsir")
+public class TafsirPlugin extends Plugin {
+    static final String API_BASE_URL = "http://api.quran-tafseer.com/tafseer";
+    static final int TAFSIR_ID = 6; // Al-Mukhtasar fi Tafsir al-Quran
+    private static final String CACHE_DIR = "tafsir";
+
+    private static TafsirCache cache;
+
+    // Downloads block; keep them off the bridge thread all plugins share
+    private final ExecutorService loader = Executors.newFixedThreadPool(2);
+
+    static synchronized TafsirCache cache(Context context) {
+        if (cache == null) {
+            File dir = new File(context.getApplicationContext().getNoBackupFilesDir(), CACHE_DIR);
+            cache = new TafsirCache(dir, API_BASE_URL, TAFSIR_ID, TafsirCache.DEFAULT_MAX_BYTES);
+        }
+        return cache;
+    }
+
+    @PluginMethod
+    public void getTafsir(PluginCall call) {
+        Integer surah = call.getInt("surah");
+        Integer ayah = call.getInt("ayah");
+        if (surah == null || ayah == null) {
+            call.reject("Must provide surah and ayah");
+            return;
+        }
+        boolean prefetch = call.getBoolean("prefetch", true);
+        TafsirCache tafsir = cache(getContext());
+
+        loader.execute(() -> {
+            boolean cached = tafsir.contains(surah, ayah);
+            String body;
+            try {
+                body = tafsir.get(surah, ayah);
+            } catch (IOException e) {
+                System.err.println("TafsirPlugin: " + e.getMessage());
+                call.reject(e.getMessage());
+                return;
+            }
+
+            // Reading tends to continue through the surah; fetch the rest while the user reads
+            if (prefetch) prefetchRest(tafsir, surah, ayah);
+
+            JSObject ret = new JSObject();
+            ret.put("sura", surah);
+            ret.put("aya", ayah);
+            ret.put("cached", cached);
+            try {
+                // { "tafseer_id": 6, "tafseer_name": "...", "ayah_url": "...", "ayah_number": 1, "text": "..." }
+                JSONObject data = new JSONObject(body);
+                ret.put("id", data.optInt("tafseer_id", TAFSIR_ID));
+                String text = data.optString("text", "");
+                if (!text.isEmpty()) ret.put("text", text);
+            } catch (JSONException e) {
+                call.reject("Malformed tafsir response");
+                return;
+            }
+            call.resolve(ret);
+        });
+    }
+
+    /** Queues the whole surah for background download. */
+    @PluginMethod
+    public void prefetchSurah(PluginCall call) {
+        Integer surah = call.getInt("surah");
+        if (surah == null) {
+            call.reject("Must provide surah");
+            return;
+        }
+        prefetchRest(cache(getContext()), surah, 0);
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void getCacheStats(PluginCall call) {
+        DiskLruCache.Stats stats = cache(getContext()).stats();
+        JSObject ret = new JSObject();
+        ret.put("hits", stats.hits);
+        ret.put("misses", stats.misses);
+        ret.put("downloads", stats.downloads);
+        ret.put("evictions", stats.evictions);
+        ret.put("entries", stats.entries);
+        ret.put("bytes", stats.bytes);
+        call.resolve(ret);
+    }
+
+    private void prefetchRest(TafsirCache tafsir, int surah, int afterAyah) {
+        int ayahCount;
+        try {
+            QuranCorpus corpus = QuranTextPlugin.corpus(getContext(), QuranTextPlugin.EDITION_SIMPLE);
+            if (surah < 1 || surah > corpus.surahCount()) return;
+            ayahCount = corpus.surah(surah).numberOfAyahs;
+        } catch (IOException e) {
+            System.err.println("TafsirPlugin: no corpus to size the prefetch: " + e.getMessage());
+            return;
+        }
+        tafsir.prefetch(surah, afterAyah + 1, ayahCount);
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        loader.shutdown();
+    }
+}
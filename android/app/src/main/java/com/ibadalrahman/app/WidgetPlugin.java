@@ -1,11 +1,10 @@
 package com.ibadalrahman.app;
 
-import android.appwidget.AppWidgetManager;
-import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
@@ -27,33 +26,46 @@ public class WidgetPlugin extends Plugin {
         String locationName = call.getString("locationName");
 
         Context context = getContext();
-        SharedPreferences prefs = context.getSharedPreferences("PrayerWidgetPrefs", Context.MODE_PRIVATE);
+        SharedPreferences prefs = DeviceStorage.prefs(context, "PrayerWidgetPrefs");
         SharedPreferences.Editor editor = prefs.edit();
-        
-        if (fajr != null) editor.putString("fajr", fajr);
-        if (dhuhr != null) editor.putString("dhuhr", dhuhr);
-        if (asr != null) editor.putString("asr", asr);
-        if (maghrib != null) editor.putString("maghrib", maghrib);
-        if (isha != null) editor.putString("isha", isha);
-        if (nextPrayerName != null) editor.putString("nextPrayerName", nextPrayerName);
-        if (hijriDate != null) editor.putString("hijriDate", hijriDate);
-        if (locationName != null) editor.putString("locationName", locationName);
-        
-        editor.apply();
 
-        // Trigger widget update
-        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
-        ComponentName thisWidget = new ComponentName(context, PrayerWidgetProvider.class);
-        int[] appWidgetIds = appWidgetManager.getAppWidgetIds(thisWidget);
-        
-        // Update all widgets
-        for (int appWidgetId : appWidgetIds) {
-            PrayerWidgetProvider.updateAppWidget(context, appWidgetManager, appWidgetId);
+        // JS pushes the same values on every tick; only write and redraw when something changed
+        boolean changed = putIfChanged(prefs, editor, "fajr", fajr);
+        changed |= putIfChanged(prefs, editor, "dhuhr", dhuhr);
+        changed |= putIfChanged(prefs, editor, "asr", asr);
+        changed |= putIfChanged(prefs, editor, "maghrib", maghrib);
+        changed |= putIfChanged(prefs, editor, "isha", isha);
+        changed |= putIfChanged(prefs, editor, "nextPrayerName", nextPrayerName);
+        changed |= putIfChanged(prefs, editor, "hijriDate", hijriDate);
+        changed |= putIfChanged(prefs, editor, "locationName", locationName);
+        // Today's timestamps let the widget move its own highlight while the app is closed
+        changed |= putIfChanged(prefs, editor, PrayerWidgetProvider.KEY_SCHEDULE, joinTimestamps(call.getArray("prayerTimestamps")));
+
+        if (changed) {
+            editor.apply();
+            // Coalesced; sends only the changed cells to widgets that are already drawn
+            PrayerWidgetProvider.requestUpdate(context);
         }
 
         call.resolve();
     }
 
+    private static String joinTimestamps(JSArray timestamps) {
+        if (timestamps == null || timestamps.length() != PrayerTimesCalculator.PRAYER_COUNT) return null;
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < timestamps.length(); i++) {
+            if (i > 0) joined.append(',');
+            joined.append(timestamps.optLong(i, PrayerTimesCalculator.INVALID_TIME));
+        }
+        return joined.toString();
+    }
+
+    private static boolean putIfChanged(SharedPreferences prefs, SharedPreferences.Editor editor, String key, String value) {
+        if (value == null || value.equals(prefs.getString(key, null))) return false;
+        editor.putString(key, value);
+        return true;
+    }
+
     @PluginMethod
     public void openBatterySettings(PluginCall call) {
         try {
@@ -91,46 +103,21 @@ public class WidgetPlugin extends Plugin {
         try {
             Context context = getContext();
             android.app.AlarmManager alarmManager = (android.app.AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-            
-            // Check for Exact Alarm Permission (Android 12+)
-            if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.S) {
-                if (!alarmManager.canScheduleExactAlarms()) {
-                    System.out.println("WidgetPlugin: Exact Alarm permission denied!");
-                    // We should technically request permission here or fall back, but for now log it.
-                    // call.reject("Exact alarm permission denied"); // Don't reject, maybe use inexact? No, Azan needs exact.
-                }
-            }
-
-            Intent intent = new Intent(context, AdhanReceiver.class);
-            intent.putExtra("prayerName", prayerName);
-            intent.putExtra("soundName", soundName);
-            
-            // Use a unique ID for each prayer to allow multiple alarms
-            int notificationId = prayerName.hashCode();
-            
-            android.app.PendingIntent pendingIntent = android.app.PendingIntent.getBroadcast(
-                    context, 
-                    notificationId, 
-                    intent, 
-                    android.app.PendingIntent.FLAG_UPDATE_CURRENT | android.app.PendingIntent.FLAG_IMMUTABLE
-            );
-
-            // Save to SharedPreferences for boot restoration
-            SharedPreferences prefs = context.getSharedPreferences("AdhanAlarms", Context.MODE_PRIVATE);
-            SharedPreferences.Editor editor = prefs.edit();
-            editor.putLong("time_" + prayerName, timestamp);
-            editor.putString("sound_" + prayerName, soundName);
-            editor.apply();
+            AdhanScheduler.warnIfExactAlarmsDenied(alarmManager);
 
-            System.out.println("WidgetPlugin: Scheduling " + prayerName + " at " + timestamp);
+            // Save to the alarm table for boot restoration
+            AlarmStore alarms = AdhanScheduler.store(context);
+            int id = AdhanScheduler.idFor(prayerName, timestamp);
+            alarms.put(id, timestamp, soundName);
+            AdhanScheduler.commit(alarms);
 
-            if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.M) {
-                // Use setAlarmClock for maximum reliability (like a real alarm clock)
-                android.app.AlarmManager.AlarmClockInfo alarmClockInfo = new android.app.AlarmManager.AlarmClockInfo(timestamp, pendingIntent);
-                alarmManager.setAlarmClock(alarmClockInfo, pendingIntent);
+            System.out.println("WidgetPlugin: Scheduling " + prayerName + " (" + id + ") at " + timestamp);
+            if (AdhanScheduler.isRollingMode(context)) {
+                AdhanScheduler.armNext(context, alarmManager);
             } else {
-                alarmManager.setExact(android.app.AlarmManager.RTC_WAKEUP, timestamp, pendingIntent);
+                AdhanScheduler.arm(context, alarmManager, id, timestamp, soundName);
             }
+            AdhanScheduler.armUpcoming(context, alarmManager);
 
             call.resolve();
         } catch (SecurityException se) {
@@ -152,29 +139,178 @@ public class WidgetPlugin extends Plugin {
 
         Context context = getContext();
         android.app.AlarmManager alarmManager = (android.app.AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        Intent intent = new Intent(context, AdhanReceiver.class);
-        
-        int notificationId = prayerName.hashCode();
-        
-        android.app.PendingIntent pendingIntent = android.app.PendingIntent.getBroadcast(
-                context, 
-                notificationId, 
-                intent, 
-                android.app.PendingIntent.FLAG_UPDATE_CURRENT | android.app.PendingIntent.FLAG_IMMUTABLE
-        );
+        AlarmStore alarms = AdhanScheduler.store(context);
+        for (int id : AdhanScheduler.idsForName(alarms, prayerName)) {
+            AdhanScheduler.cancel(context, alarmManager, id);
+            alarms.remove(id);
+        }
+        AdhanScheduler.commit(alarms);
 
-        alarmManager.cancel(pendingIntent);
-        
-        // Remove from SharedPreferences
-        SharedPreferences prefs = context.getSharedPreferences("AdhanAlarms", Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
-        editor.remove("time_" + prayerName);
-        editor.remove("sound_" + prayerName);
-        editor.apply();
+        if (AdhanScheduler.isRollingMode(context)) {
+            AdhanScheduler.armNext(context, alarmManager);
+        }
+        AdhanScheduler.armUpcoming(context, alarmManager);
 
         call.resolve();
     }
 
+    /** Replaces the whole Adhan schedule in one bridge call; see {@link AdhanScheduler#replace}. */
+    @PluginMethod
+    public void replaceAdhanSchedule(PluginCall call) {
+        JSArray alarms = call.getArray("alarms");
+        if (alarms == null) {
+            call.reject("Must provide alarms");
+            return;
+        }
+
+        try {
+            Context context = getContext();
+            android.app.AlarmManager alarmManager = (android.app.AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+            AdhanScheduler.warnIfExactAlarmsDenied(alarmManager);
+
+            // Restoration regenerates days natively, so it has to know when JS turned Adhans off
+            Boolean enabled = call.getBoolean("enabled");
+            if (enabled != null) {
+                PrayerSettings.setEnabled(context, enabled);
+                if (!enabled) AdhanRefillJob.cancel(context);
+            }
+
+            AdhanScheduler.Replaced replaced = AdhanScheduler.replace(context, alarms, System.currentTimeMillis());
+            System.out.println("WidgetPlugin: Schedule replaced (armed " + replaced.armed + ", unchanged " + replaced.unchanged + ", cancelled " + replaced.cancelled + ")");
+
+            JSObject ret = new JSObject();
+            ret.put("armed", replaced.armed);
+            ret.put("unchanged", replaced.unchanged);
+            ret.put("cancelled", replaced.cancelled);
+            call.resolve(ret);
+        } catch (SecurityException se) {
+            System.err.println("WidgetPlugin: SecurityException: " + se.getMessage());
+            call.reject("Security Exception: " + se.getMessage());
+        } catch (Exception e) {
+            System.err.println("WidgetPlugin: Exception: " + e.getMessage());
+            call.reject("Error replacing schedule: " + e.getMessage());
+        }
+    }
+
+    /** Toggles "next alarm only" scheduling: one live AlarmClock entry instead of one per prayer. */
+    @PluginMethod
+    public void setRollingAlarms(PluginCall call) {
+        Boolean enabled = call.getBoolean("enabled");
+        if (enabled == null) {
+            call.reject("Must provide enabled");
+            return;
+        }
+        AdhanScheduler.setRollingMode(getContext(), enabled);
+        call.resolve();
+    }
+
+    /**
+     * Which notifications hang off each scheduled Adhan: a reminder {@code reminderMinutes} before
+     * (0 for none), the 9-minute pre-Adhan notice, and an after-prayer Azkar nudge
+     * {@code postPrayerMinutes} after.
+     */
+    @PluginMethod
+    public void setReminders(PluginCall call) {
+        PrayerReminders.configure(
+                getContext(),
+                call.getInt("reminderMinutes", 0),
+                call.getBoolean("preAdhan", false),
+                call.getInt("postPrayerMinutes", 0));
+        call.resolve();
+    }
+
+    /** Language of Adhan, alarm and reminder notifications ("ar" or "en"). */
+    @PluginMethod
+    public void setNotificationLanguage(PluginCall call) {
+        String language = call.getString("language");
+        if (language == null) {
+            call.reject("Must provide language");
+            return;
+        }
+        NotificationTemplates.setLanguage(getContext(), language);
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void setPrayerSettings(PluginCall call) {
+        Double latitude = call.getDouble("latitude");
+        Double longitude = call.getDouble("longitude");
+        if (latitude == null || longitude == null) {
+            call.reject("Must provide latitude and longitude");
+            return;
+        }
+
+        int enabledMask = 0;
+        JSObject enabledPrayers = call.getObject("enabledPrayers", new JSObject());
+        for (int slot = 0; slot < PrayerTimesCalculator.PRAYER_COUNT; slot++) {
+            if (enabledPrayers.optBoolean(PrayerTimesCalculator.PRAYER_NAMES[slot], true)) {
+                enabledMask |= 1 << slot;
+            }
+        }
+
+        String soundName = call.getString("soundName", "adhan_makkah");
+        boolean enabled = call.getBoolean("enabled", true);
+        new PrayerSettings(
+                latitude,
+                longitude,
+                call.getInt("calculationMethod", 3),
+                call.getString("madhab", "shafi"),
+                enabledMask,
+                soundName,
+                enabled
+        ).save(getContext());
+
+        Integer horizonDays = call.getInt("horizonDays");
+        if (horizonDays != null) AdhanScheduler.setHorizonDays(getContext(), horizonDays);
+        // With a location stored the schedule can be kept filled natively from now on
+        if (enabled) {
+            AdhanRefillJob.schedule(getContext());
+        } else {
+            AdhanRefillJob.cancel(getContext());
+        }
+
+        // Re-decode right away if the user picked a different recording
+        if (AdhanService.isPcmCacheEnabled(getContext())) {
+            AdhanService.pcmCache(getContext()).prepare(soundName);
+        }
+
+        call.resolve();
+    }
+
+    /** Natively computed times for the next {@code days} days, for comparing against the JS results. */
+    @PluginMethod
+    public void getNativePrayerTimes(PluginCall call) {
+        PrayerSettings settings = PrayerSettings.load(getContext());
+        if (settings == null) {
+            call.reject("Prayer settings not set");
+            return;
+        }
+
+        int days = call.getInt("days", 1);
+        PrayerTimesCalculator.DayTimes[] schedule = settings.calculator()
+                .forDays(System.currentTimeMillis(), days, java.util.TimeZone.getDefault());
+
+        JSArray result = new JSArray();
+        for (PrayerTimesCalculator.DayTimes times : schedule) {
+            JSObject day = new JSObject();
+            putTime(day, "fajr", times.fajr);
+            putTime(day, "sunrise", times.sunrise);
+            putTime(day, "dhuhr", times.dhuhr);
+            putTime(day, "asr", times.asr);
+            putTime(day, "maghrib", times.maghrib);
+            putTime(day, "isha", times.isha);
+            result.put(day);
+        }
+
+        JSObject ret = new JSObject();
+        ret.put("days", result);
+        call.resolve(ret);
+    }
+
+    private static void putTime(JSObject target, String key, long time) {
+        target.put(key, time == PrayerTimesCalculator.INVALID_TIME ? org.json.JSONObject.NULL : (Object) time);
+    }
+
     @PluginMethod
     public void scheduleAlarm(PluginCall call) {
         Long timestamp = call.getLong("timestamp");
@@ -220,35 +356,125 @@ public class WidgetPlugin extends Plugin {
     @PluginMethod
     public void getPendingAlarms(PluginCall call) {
         Context context = getContext();
-        SharedPreferences prefs = context.getSharedPreferences("AdhanAlarms", Context.MODE_PRIVATE);
-        java.util.Map<String, ?> allEntries = prefs.getAll();
+        AlarmStore store = AdhanScheduler.store(context);
+        long now = System.currentTimeMillis();
+        long today = AdhanScheduler.localEpochDay(now);
         JSObject ret = new JSObject();
         com.getcapacitor.JSArray alarms = new com.getcapacitor.JSArray();
 
-        for (java.util.Map.Entry<String, ?> entry : allEntries.entrySet()) {
-            String key = entry.getKey();
-            if (key.startsWith("time_")) {
-                try {
-                    String prayerName = key.substring(5);
-                    Long timestamp = (Long) entry.getValue();
-                    String soundName = prefs.getString("sound_" + prayerName, "default");
-                    
-                    if (timestamp > System.currentTimeMillis()) {
-                        JSObject alarm = new JSObject();
-                        alarm.put("prayerName", prayerName);
-                        alarm.put("timestamp", timestamp);
-                        alarm.put("soundName", soundName);
-                        alarms.put(alarm);
-                    }
-                } catch (Exception e) {
-                   // ignore
-                }
-            }
+        for (int id : store.idsBetween(now, Long.MAX_VALUE)) {
+            String soundName = store.sound(id);
+            JSObject alarm = new JSObject();
+            alarm.put("id", id);
+            alarm.put("prayerName", AlarmStore.nameForSlot(AlarmStore.slotOf(id)) + "_" + (AdhanScheduler.localEpochDay(store.time(id)) - today));
+            alarm.put("timestamp", store.time(id));
+            alarm.put("soundName", soundName != null ? soundName : "default");
+            alarms.put(alarm);
         }
         ret.put("alarms", alarms);
         call.resolve(ret);
     }
 
+    /**
+     * Delivery telemetry for the Adhans in the journal: outcome counts, latency percentiles for
+     * each stage, counts per standby bucket and the most recent records.
+     */
+    @PluginMethod
+    public void getAlarmStats(PluginCall call) {
+        Context context = getContext();
+        AlarmJournal journal = AdhanScheduler.journal(context);
+        if (journal == null) {
+            call.reject("Alarm journal unavailable");
+            return;
+        }
+        // Stored Adhans that are overdue and never fired count as missed right away
+        AdhanScheduler.journalMissed(context, AdhanScheduler.store(context), System.currentTimeMillis());
+
+        java.util.List<AlarmJournal.Record> records = journal.records();
+        AlarmJournal.Stats stats = journal.stats();
+        JSObject ret = new JSObject();
+        ret.put("total", stats.total);
+        ret.put("played", stats.played);
+        ret.put("silenced", stats.silenced);
+        ret.put("failed", stats.failed);
+        ret.put("missed", stats.missed);
+        ret.put("duplicates", stats.duplicates);
+        ret.put("incomplete", stats.incomplete);
+        ret.put("late", stats.late);
+        ret.put("fireDelay", toJson(stats.fireDelay));
+        ret.put("serviceDelay", toJson(stats.serviceDelay));
+        ret.put("audioDelay", toJson(stats.audioDelay));
+        ret.put("totalDelay", toJson(stats.totalDelay));
+        ret.put("horizonDays", AdhanScheduler.horizonDays(context));
+        long lastRefill = AdhanScheduler.lastRefill(context);
+        ret.put("lastRefill", lastRefill > 0 ? (Object) lastRefill : org.json.JSONObject.NULL);
+
+        JSObject byBucket = new JSObject();
+        for (AlarmJournal.Record record : records) {
+            if (record.outcome == AlarmJournal.OUTCOME_MISSED || record.outcome == AlarmJournal.OUTCOME_DUPLICATE) continue;
+            String bucket = bucketName(record.bucket);
+            byBucket.put(bucket, byBucket.optInt(bucket, 0) + 1);
+        }
+        ret.put("byBucket", byBucket);
+
+        JSArray recent = new JSArray();
+        int limit = Math.max(0, call.getInt("recent", 20));
+        for (int i = records.size() - 1; i >= 0 && recent.length() < limit; i--) {
+            AlarmJournal.Record record = records.get(i);
+            JSObject entry = new JSObject();
+            entry.put("prayerName", AlarmStore.nameForSlot(AlarmStore.slotOf(record.alarmId)));
+            entry.put("scheduledAt", record.scheduledAt);
+            entry.put("outcome", outcomeName(record.outcome));
+            if (record.outcome != AlarmJournal.OUTCOME_MISSED) {
+                entry.put("fireDelay", record.fireDelay());
+                if (record.serviceDelay >= 0) entry.put("serviceDelay", record.serviceDelay);
+                if (record.audioDelay >= 0) entry.put("audioDelay", record.audioDelay);
+                entry.put("bucket", bucketName(record.bucket));
+                entry.put("deviceIdle", (record.flags & AlarmJournal.FLAG_DEVICE_IDLE) != 0);
+                entry.put("powerSave", (record.flags & AlarmJournal.FLAG_POWER_SAVE) != 0);
+                entry.put("batteryExempt", (record.flags & AlarmJournal.FLAG_BATTERY_EXEMPT) != 0);
+            }
+            recent.put(entry);
+        }
+        ret.put("recent", recent);
+        call.resolve(ret);
+    }
+
+    private static JSObject toJson(AlarmJournal.Distribution distribution) {
+        JSObject json = new JSObject();
+        json.put("count", distribution.count);
+        json.put("p50", distribution.p50);
+        json.put("p90", distribution.p90);
+        json.put("p99", distribution.p99);
+        json.put("max", distribution.max);
+        return json;
+    }
+
+    private static String outcomeName(int outcome) {
+        switch (outcome) {
+            case AlarmJournal.OUTCOME_PLAYED: return "played";
+            case AlarmJournal.OUTCOME_SILENCED: return "silenced";
+            case AlarmJournal.OUTCOME_FAILED: return "failed";
+            case AlarmJournal.OUTCOME_MISSED: return "missed";
+            case AlarmJournal.OUTCOME_DUPLICATE: return "duplicate";
+            default: return "incomplete";
+        }
+    }
+
+    /** UsageStatsManager.STANDBY_BUCKET_* names. */
+    private static String bucketName(int bucket) {
+        switch (bucket) {
+            case 5: return "exempted";
+            case 10: return "active";
+            case 20: return "workingSet";
+            case 30: return "frequent";
+            case 40: return "rare";
+            case 45: return "restricted";
+            case AlarmJournal.BUCKET_UNKNOWN: return "unknown";
+            default: return "bucket" + bucket;
+        }
+    }
+
     private PluginCall savedRingtoneCall = null;
     private static final int RINGTONE_PICKER_REQUEST = 1001;
 
@@ -304,6 +530,19 @@ public class WidgetPlugin extends Plugin {
         call.resolve(ret);
     }
 
+    /** Plays an Adhan recording through the same path a real Adhan uses, at the Adhan volume. */
+    @PluginMethod
+    public void previewAdhan(PluginCall call) {
+        AdhanService.preview(getContext(), call.getString("soundName", "adhan_makkah"));
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void stopAdhan(PluginCall call) {
+        AdhanService.stop(getContext());
+        call.resolve();
+    }
+
     @PluginMethod
     public void setAzanVolume(PluginCall call) {
         Integer volume = call.getInt("volume");
@@ -317,7 +556,7 @@ public class WidgetPlugin extends Plugin {
         if (volume > 100) volume = 100;
 
         Context context = getContext();
-        SharedPreferences prefs = context.getSharedPreferences("PrayerWidgetPrefs", Context.MODE_PRIVATE);
+        SharedPreferences prefs = DeviceStorage.prefs(context, "PrayerWidgetPrefs");
         prefs.edit().putInt("azanVolume", volume).apply();
 
         call.resolve();
@@ -330,7 +569,7 @@ public class WidgetPlugin extends Plugin {
             call.reject("Must provide enabled");
             return;
         }
-        getContext().getSharedPreferences("PrayerWidgetPrefs", Context.MODE_PRIVATE)
+        DeviceStorage.prefs(getContext(), "PrayerWidgetPrefs")
                 .edit().putBoolean("smartDnd", enabled).apply();
         call.resolve();
     }
@@ -342,8 +581,44 @@ public class WidgetPlugin extends Plugin {
             call.reject("Must provide enabled");
             return;
         }
-        getContext().getSharedPreferences("PrayerWidgetPrefs", Context.MODE_PRIVATE)
-                .edit().putBoolean("azanFadeIn", enabled).apply();
+        String curve = call.getString("curve");
+        if (curve != null && !AudioFade.isKnownCurve(curve)) {
+            call.reject("Unknown fade curve: " + curve);
+            return;
+        }
+        Long durationMs = call.getLong("durationMs");
+        if (durationMs != null && (durationMs < 0 || durationMs > AudioFade.MAX_DURATION_MS)) {
+            call.reject("durationMs must be between 0 and " + AudioFade.MAX_DURATION_MS);
+            return;
+        }
+
+        SharedPreferences.Editor editor = DeviceStorage.prefs(getContext(), "PrayerWidgetPrefs").edit();
+        editor.putBoolean("azanFadeIn", enabled);
+        if (curve != null) editor.putString(AudioFade.KEY_CURVE, curve);
+        if (durationMs != null) editor.putLong(AudioFade.KEY_DURATION, durationMs);
+        editor.apply();
+        call.resolve();
+    }
+
+    /** Toggles playing the Adhan from a decoded PCM copy instead of decoding the MP3 on each alarm. */
+    @PluginMethod
+    public void setAzanPcmCache(PluginCall call) {
+        Boolean enabled = call.getBoolean("enabled");
+        if (enabled == null) {
+            call.reject("Must provide enabled");
+            return;
+        }
+        Context context = getContext();
+        DeviceStorage.prefs(context, "PrayerWidgetPrefs")
+                .edit().putBoolean("azanPcmCache", enabled).apply();
+
+        PcmCache cache = AdhanService.pcmCache(context);
+        if (enabled) {
+            PrayerSettings settings = PrayerSettings.load(context);
+            cache.prepare(settings != null ? settings.soundName : "adhan_makkah");
+        } else {
+            cache.clear();
+        }
         call.resolve();
     }
 }
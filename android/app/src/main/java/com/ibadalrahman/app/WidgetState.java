@@ -0,0 +1,108 @@
+package com.ibadalrahman.app;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * What the prayer widget currently shows. PrayerWidgetProvider keeps the last rendered state and
+ * uses {@link #diff} to push only the cells that changed.
+ */
+public final class WidgetState {
+    public static final int NO_HIGHLIGHT = -1;
+
+    // diff() bits: one per prayer time cell, then the Hijri date, then the highlight
+    static final int CHANGED_HIJRI = 1 << PrayerTimesCalculator.PRAYER_COUNT;
+    static final int CHANGED_HIGHLIGHT = 1 << (PrayerTimesCalculator.PRAYER_COUNT + 1);
+    static final int CHANGED_ALL = (CHANGED_HIGHLIGHT << 1) - 1;
+
+    // Unit separator; never appears in a formatted time or date
+    private static final char FIELD_SEPARATOR = '\u001F';
+
+    final String[] times;
+    final String hijriDate;
+    final int highlight;
+
+    public WidgetState(String[] times, String hijriDate, int highlight) {
+        this.times = times.clone();
+        this.hijriDate = hijriDate;
+        this.highlight = highlight;
+    }
+
+    /** Maps the English or Arabic prayer name JS sends as nextPrayerName to a slot. */
+    public static int slotForDisplayName(String name) {
+        if (name == null) return NO_HIGHLIGHT;
+        switch (name) {
+            case "Fajr": case "الفجر": return PrayerTimesCalculator.FAJR;
+            case "Dhuhr": case "الظهر": return PrayerTimesCalculator.DHUHR;
+            case "Asr": case "العصر": return PrayerTimesCalculator.ASR;
+            case "Maghrib": case "المغرب": return PrayerTimesCalculator.MAGHRIB;
+            case "Isha": case "العشاء": return PrayerTimesCalculator.ISHA;
+            default: return NO_HIGHLIGHT;
+        }
+    }
+
+    /**
+     * Slot of the first prayer in today's {@code schedule} still after {@code now}. Once Isha has
+     * passed the next prayer is tomorrow's Fajr.
+     */
+    public static int nextPrayerSlot(long[] schedule, long now) {
+        for (int slot = 0; slot < schedule.length; slot++) {
+            if (schedule[slot] != PrayerTimesCalculator.INVALID_TIME && schedule[slot] > now) return slot;
+        }
+        return PrayerTimesCalculator.FAJR;
+    }
+
+    /** Same compact "h:mm" (12-hour, no suffix) format useWidgetUpdater sends. */
+    public static String formatTime(long time, TimeZone zone) {
+        if (time == PrayerTimesCalculator.INVALID_TIME) return "--:--";
+        Calendar cal = Calendar.getInstance(zone);
+        cal.setTimeInMillis(time);
+        int hour = cal.get(Calendar.HOUR);
+        int minute = cal.get(Calendar.MINUTE);
+        return (hour == 0 ? 12 : hour) + ":" + (minute < 10 ? "0" : "") + minute;
+    }
+
+    /** Bitmask of cells that differ from {@code previous}; everything if there is none. */
+    int diff(WidgetState previous) {
+        if (previous == null) return CHANGED_ALL;
+        int changed = 0;
+        for (int slot = 0; slot < times.length; slot++) {
+            if (!times[slot].equals(previous.times[slot])) changed |= 1 << slot;
+        }
+        if (!hijriDate.equals(previous.hijriDate)) changed |= CHANGED_HIJRI;
+        if (highlight != previous.highlight) changed |= CHANGED_HIGHLIGHT;
+        return changed;
+    }
+
+    /** Flat string form, so the provider can diff against what it drew before the process died. */
+    String encode() {
+        StringBuilder out = new StringBuilder().append(highlight).append(FIELD_SEPARATOR).append(hijriDate);
+        for (String time : times) out.append(FIELD_SEPARATOR).append(time);
+        return out.toString();
+    }
+
+    /** Inverse of {@link #encode}; null if {@code encoded} is missing or malformed. */
+    static WidgetState decode(String encoded) {
+        if (encoded == null) return null;
+        String[] fields = encoded.split(String.valueOf(FIELD_SEPARATOR), -1);
+        if (fields.length != PrayerTimesCalculator.PRAYER_COUNT + 2) return null;
+        try {
+            return new WidgetState(Arrays.copyOfRange(fields, 2, fields.length), fields[1], Integer.parseInt(fields[0]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof WidgetState)) return false;
+        WidgetState other = (WidgetState) o;
+        return highlight == other.highlight && hijriDate.equals(other.hijriDate) && Arrays.equals(times, other.times);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Arrays.hashCode(times) + hijriDate.hashCode()) + highlight;
+    }
+}
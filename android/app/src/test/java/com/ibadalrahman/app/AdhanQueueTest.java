@@ -0,0 +1,74 @@
+package com.ibadalrahman.app;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class AdhanQueueTest {
+
+    private static AdhanQueue.Command play(String prayerName, long sequence) {
+        return new AdhanQueue.Command(AdhanQueue.PLAY, AlarmStore.slotForName(prayerName), "adhan_makkah", 0, sequence);
+    }
+
+    private static AdhanQueue.Command preview() {
+        return new AdhanQueue.Command(AdhanQueue.PREVIEW, AlarmStore.SLOT_ADHOC, "adhan_egypt", 0, -1);
+    }
+
+    @Test
+    public void play_waitsBehindTheCurrentAdhanAndDropsDuplicates() {
+        AdhanQueue queue = new AdhanQueue();
+        List<AdhanQueue.Command> dropped = new ArrayList<>();
+        AdhanQueue.Command maghrib = play("maghrib", 1);
+        AdhanQueue.Command isha = play("isha", 2);
+
+        assertSame(maghrib, queue.offer(maghrib, dropped));
+        assertNull(queue.offer(isha, dropped));
+        assertNull(queue.offer(play("maghrib", 3), dropped));
+        assertNull(queue.offer(play("isha", 4), dropped));
+        assertEquals(2, dropped.size());
+        assertEquals(3, dropped.get(0).journalSequence);
+        assertEquals(4, dropped.get(1).journalSequence);
+
+        assertSame(isha, queue.finished());
+        assertNull(queue.finished());
+        assertTrue(queue.isIdle());
+    }
+
+    @Test
+    public void preview_neverInterruptsAnAdhanButIsReplacedByOne() {
+        AdhanQueue queue = new AdhanQueue();
+        List<AdhanQueue.Command> dropped = new ArrayList<>();
+        AdhanQueue.Command first = preview();
+        assertSame(first, queue.offer(first, dropped));
+        AdhanQueue.Command second = preview();
+        assertSame(second, queue.offer(second, dropped));
+
+        AdhanQueue.Command fajr = play("fajr", 1);
+        assertSame(fajr, queue.offer(fajr, dropped));
+        assertNull(queue.offer(preview(), dropped));
+        assertSame(fajr, queue.current());
+        assertTrue(dropped.isEmpty());
+    }
+
+    @Test
+    public void clear_returnsOnlyTheWaitingAdhans() {
+        AdhanQueue queue = new AdhanQueue();
+        List<AdhanQueue.Command> dropped = new ArrayList<>();
+        queue.offer(play("asr", 1), dropped);
+        queue.offer(play("maghrib", 2), dropped);
+        List<AdhanQueue.Command> cleared = queue.clear();
+        assertEquals(1, cleared.size());
+        assertEquals(AlarmStore.slotForName("maghrib"), cleared.get(0).slot);
+        assertTrue(queue.isIdle());
+        assertNull(queue.finished());
+    }
+
+    @Test
+    public void wakeLock_coversTheClipPlusMargin() {
+        assertEquals(200_000 + AdhanQueue.WAKE_LOCK_MARGIN_MS, AdhanQueue.wakeLockMs(200_000));
+        assertEquals(AdhanQueue.UNKNOWN_DURATION_MS + AdhanQueue.WAKE_LOCK_MARGIN_MS, AdhanQueue.wakeLockMs(-1));
+    }
+}
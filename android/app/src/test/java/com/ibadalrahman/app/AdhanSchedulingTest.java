@@ -0,0 +1,103 @@
+package com.ibadalrahman.app;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.AlarmManager;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowAlarmManager;
+
+@RunWith(RobolectricTestRunner.class)
+public class AdhanSchedulingTest {
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private Context context;
+    private ShadowAlarmManager alarmManager;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        AdhanScheduler.reset();
+        alarmManager = shadowOf((AlarmManager) context.getSystemService(Context.ALARM_SERVICE));
+    }
+
+    @After
+    public void tearDown() {
+        AdhanScheduler.reset();
+    }
+
+    /** What useAdhanScheduler sends: five prayers a day, the first an hour from {@code now}. */
+    static JSONArray week(long now, int days) throws Exception {
+        String[] names = {"fajr", "dhuhr", "asr", "maghrib", "isha"};
+        JSONArray alarms = new JSONArray();
+        for (int day = 0; day < days; day++) {
+            for (int slot = 0; slot < names.length; slot++) {
+                JSONObject alarm = new JSONObject();
+                alarm.put("prayerName", names[slot] + "_" + day);
+                alarm.put("timestamp", now + HOUR + day * 24 * HOUR + slot * 3 * HOUR);
+                alarm.put("soundName", "adhan_makkah");
+                alarms.put(alarm);
+            }
+        }
+        return alarms;
+    }
+
+    @Test
+    public void replace_armsAWeekOnceAndLeavesItAloneAfter() throws Exception {
+        long now = System.currentTimeMillis();
+        AdhanScheduler.Replaced first = AdhanScheduler.replace(context, week(now, 7), now);
+        assertEquals(35, first.armed);
+        assertEquals(35, AdhanScheduler.store(context).size());
+        // Every Adhan plus the preload wakeup ahead of the first one
+        assertEquals(36, alarmManager.getScheduledAlarms().size());
+
+        AdhanScheduler.Replaced again = AdhanScheduler.replace(context, week(now, 7), now);
+        assertEquals(0, again.armed);
+        assertEquals(35, again.unchanged);
+        assertEquals(0, again.cancelled);
+    }
+
+    @Test
+    public void replace_cancelsWhatTheNewListDrops() throws Exception {
+        long now = System.currentTimeMillis();
+        AdhanScheduler.replace(context, week(now, 7), now);
+        AdhanScheduler.Replaced shorter = AdhanScheduler.replace(context, week(now, 3), now);
+        assertEquals(20, shorter.cancelled);
+        assertEquals(15, AdhanScheduler.store(context).size());
+        assertEquals(16, alarmManager.getScheduledAlarms().size());
+    }
+
+    @Test
+    public void replace_keepsPendingTestAlarms() throws Exception {
+        long now = System.currentTimeMillis();
+        AlarmStore alarms = AdhanScheduler.store(context);
+        int test = AdhanScheduler.idFor("Test_" + now, now + 15_000);
+        alarms.put(test, now + 15_000, "adhan_egypt");
+        AdhanScheduler.arm(context, (AlarmManager) context.getSystemService(Context.ALARM_SERVICE), test, now + 15_000, "adhan_egypt");
+
+        AdhanScheduler.Replaced replaced = AdhanScheduler.replace(context, week(now, 1), now);
+        assertEquals(0, replaced.cancelled);
+        assertEquals(now + 15_000, alarms.time(test));
+        assertTrue(AdhanScheduler.isArmed(context, test));
+    }
+
+    @Test
+    public void replace_inRollingModeArmsOnlyTheNextAdhan() throws Exception {
+        AdhanScheduler.setRollingMode(context, true);
+        long now = System.currentTimeMillis();
+        AdhanScheduler.replace(context, week(now, 7), now);
+        assertEquals(35, AdhanScheduler.store(context).size());
+        assertEquals(2, alarmManager.getScheduledAlarms().size());
+        assertEquals(now + HOUR, alarmManager.getNextAlarmClock().getTriggerTime());
+    }
+}
@@ -0,0 +1,128 @@
+package com.ibadalrahman.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+public class AlarmJournalTest {
+
+    private static final long T0 = 1_728_000_000_000L;
+
+    private File dir;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = java.nio.file.Files.createTempDirectory("journal").toFile();
+        file = new File(dir, "alarm_journal.bin");
+    }
+
+    @After
+    public void tearDown() {
+        for (File f : dir.listFiles()) f.delete();
+        dir.delete();
+    }
+
+    @Test
+    public void stages_areRecordedAndSurviveReopening() throws Exception {
+        AlarmJournal journal = new AlarmJournal(file);
+        long sequence = journal.fired(101, T0, T0 + 1500, 10, AlarmJournal.FLAG_DEVICE_IDLE);
+        journal.serviceStarted(sequence, 40);
+        journal.audioStarted(sequence, 320);
+        // The first outcome sticks
+        journal.finish(sequence, AlarmJournal.OUTCOME_FAILED);
+
+        List<AlarmJournal.Record> records = new AlarmJournal(file).records();
+        assertEquals(1, records.size());
+        AlarmJournal.Record record = records.get(0);
+        assertEquals(101, record.alarmId);
+        assertEquals(AlarmJournal.OUTCOME_PLAYED, record.outcome);
+        assertEquals(10, record.bucket);
+        assertEquals(AlarmJournal.FLAG_DEVICE_IDLE, record.flags);
+        assertEquals(1500, record.fireDelay());
+        assertEquals(40, record.serviceDelay);
+        assertEquals(320, record.audioDelay);
+    }
+
+    @Test
+    public void ring_dropsTheOldestAndIgnoresStaleSequences() throws Exception {
+        AlarmJournal journal = new AlarmJournal(file, 4);
+        long first = journal.fired(1, T0, T0, AlarmJournal.BUCKET_UNKNOWN, 0);
+        for (int id = 2; id <= 5; id++) journal.fired(id, T0, T0, AlarmJournal.BUCKET_UNKNOWN, 0);
+
+        // Record 1 was overwritten by record 5; its late audio report must not land on it
+        journal.audioStarted(first, 100);
+        List<AlarmJournal.Record> records = journal.records();
+        assertEquals(4, records.size());
+        assertEquals(2, records.get(0).alarmId);
+        assertEquals(5, records.get(3).alarmId);
+        assertEquals(AlarmJournal.OUTCOME_PENDING, records.get(3).outcome);
+        assertFalse(journal.contains(1));
+    }
+
+    @Test
+    public void lateDelivery_replacesTheMissedRecord() throws Exception {
+        AlarmJournal journal = new AlarmJournal(file);
+        journal.missed(7, T0);
+        assertTrue(journal.contains(7));
+        assertEquals(1, journal.stats().missed);
+
+        long sequence = journal.fired(7, T0, T0 + 5 * 60_000, 40, 0);
+        journal.audioStarted(sequence, 200);
+        AlarmJournal.Stats stats = journal.stats();
+        assertEquals(1, stats.total);
+        assertEquals(0, stats.missed);
+        assertEquals(1, stats.late);
+        assertEquals(5 * 60_000 + 200, stats.totalDelay.max);
+    }
+
+    @Test
+    public void duplicates_areCountedApartFromSilencedAndDelays() throws Exception {
+        AlarmJournal journal = new AlarmJournal(file);
+        long played = journal.fired(9, T0, T0 + 100, 10, 0);
+        journal.audioStarted(played, 200);
+        // The same Adhan delivered again while it was playing
+        journal.finish(journal.fired(9, T0, T0 + 90_000, 10, 0), AlarmJournal.OUTCOME_DUPLICATE);
+
+        AlarmJournal.Stats stats = journal.stats();
+        assertEquals(2, stats.total);
+        assertEquals(1, stats.played);
+        assertEquals(1, stats.duplicates);
+        assertEquals(0, stats.silenced);
+        assertEquals(0, stats.incomplete);
+        assertEquals(0, stats.late);
+        assertEquals(1, stats.fireDelay.count);
+    }
+
+    @Test
+    public void stats_reportNearestRankPercentiles() throws Exception {
+        AlarmJournal journal = new AlarmJournal(file);
+        for (int i = 1; i <= 100; i++) {
+            long sequence = journal.fired(i, T0, T0 + i * 10, 10, 0);
+            journal.audioStarted(sequence, i);
+        }
+        journal.fired(200, T0, T0, 10, 0);
+        journal.finish(journal.fired(201, T0, T0, 10, 0), AlarmJournal.OUTCOME_SILENCED);
+        journal.missed(202, T0);
+
+        AlarmJournal.Stats stats = journal.stats();
+        assertEquals(103, stats.total);
+        assertEquals(100, stats.played);
+        assertEquals(1, stats.incomplete);
+        assertEquals(1, stats.silenced);
+        assertEquals(1, stats.missed);
+        assertEquals(102, stats.fireDelay.count);
+        // The two zero delays of the unplayed records shift the median down a rank
+        assertEquals(490, stats.fireDelay.p50);
+        assertEquals(100, stats.audioDelay.count);
+        assertEquals(50, stats.audioDelay.p50);
+        assertEquals(90, stats.audioDelay.p90);
+        assertEquals(99, stats.audioDelay.p99);
+        assertEquals(100, stats.audioDelay.max);
+    }
+}
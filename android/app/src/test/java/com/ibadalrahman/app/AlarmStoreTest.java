@@ -0,0 +1,145 @@
+package com.ibadalrahman.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+public class AlarmStoreTest {
+
+    private static final long DAY = 20000; // 2024-10-04
+
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = java.nio.file.Files.createTempDirectory("alarms").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : dir.listFiles()) file.delete();
+        dir.delete();
+    }
+
+    @Test
+    public void ids_areUniqueAcrossDaysSlotsAndKinds() {
+        java.util.Set<Integer> seen = new java.util.HashSet<>();
+        for (long day = DAY; day < DAY + 30; day++) {
+            for (int slot = 0; slot <= AlarmStore.SLOT_ADHOC; slot++) {
+                for (int kind = 0; kind < 4; kind++) {
+                    int id = AlarmStore.idFor(day, slot, kind);
+                    assertTrue(seen.add(id));
+                    assertEquals(day, AlarmStore.dayOf(id));
+                    assertEquals(slot, AlarmStore.slotOf(id));
+                    assertEquals(kind, AlarmStore.kindOf(id));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void slotForName_acceptsJsNames() {
+        assertEquals(PrayerTimesCalculator.FAJR, AlarmStore.slotForName("fajr_3"));
+        assertEquals(PrayerTimesCalculator.MAGHRIB, AlarmStore.slotForName("Maghrib"));
+        assertEquals(AlarmStore.SLOT_ADHOC, AlarmStore.slotForName("Test_1700000000000"));
+        assertEquals(AlarmStore.SLOT_ADHOC, AlarmStore.slotForName(null));
+    }
+
+    @Test
+    public void put_reportsOnlyRealChanges() throws Exception {
+        AlarmStore store = new AlarmStore(new File(dir, "alarms.bin"));
+        int id = AlarmStore.idFor(DAY, PrayerTimesCalculator.DHUHR, AlarmStore.KIND_ADHAN);
+
+        assertTrue(store.put(id, 1000L, "adhan_makkah"));
+        assertFalse(store.put(id, 1000L, "adhan_makkah"));
+        assertTrue(store.put(id, 1000L, "adhan_egypt"));
+        assertTrue(store.put(id, 2000L, "adhan_egypt"));
+        assertEquals(2000L, store.time(id));
+        assertEquals("adhan_egypt", store.sound(id));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void rangeQueries_followTriggerTime() throws Exception {
+        AlarmStore store = new AlarmStore(new File(dir, "alarms.bin"));
+        int tomorrowFajr = AlarmStore.idFor(DAY + 1, PrayerTimesCalculator.FAJR, AlarmStore.KIND_ADHAN);
+        int todayIsha = AlarmStore.idFor(DAY, PrayerTimesCalculator.ISHA, AlarmStore.KIND_ADHAN);
+        int todayAsr = AlarmStore.idFor(DAY, PrayerTimesCalculator.ASR, AlarmStore.KIND_ADHAN);
+        store.put(tomorrowFajr, 300L, null);
+        store.put(todayIsha, 200L, null);
+        store.put(todayAsr, 100L, null);
+
+        assertArrayEquals(new int[] {todayAsr, todayIsha, tomorrowFajr}, store.ids());
+        assertArrayEquals(new int[] {todayIsha, tomorrowFajr}, store.idsBetween(100L, 300L));
+        assertEquals(todayIsha, store.nextAfter(150L));
+        assertEquals(AlarmStore.NONE, store.nextAfter(300L));
+
+        assertEquals(2, store.prune(200L));
+        assertArrayEquals(new int[] {tomorrowFajr}, store.ids());
+        assertEquals(0L, store.time(todayAsr));
+    }
+
+    @Test
+    public void commit_roundTripsThroughTheFile() throws Exception {
+        File file = new File(dir, "alarms.bin");
+        AlarmStore store = new AlarmStore(file);
+        for (int day = 0; day < 7; day++) {
+            for (int slot = 0; slot < PrayerTimesCalculator.PRAYER_COUNT; slot++) {
+                store.put(AlarmStore.idFor(DAY + day, slot, AlarmStore.KIND_ADHAN), 1000L * (day * 10 + slot + 1), "adhan_madinah");
+            }
+        }
+        store.commit();
+
+        AlarmStore reloaded = new AlarmStore(file);
+        assertArrayEquals(store.ids(), reloaded.ids());
+        int id = AlarmStore.idFor(DAY + 6, PrayerTimesCalculator.ISHA, AlarmStore.KIND_ADHAN);
+        assertEquals(store.time(id), reloaded.time(id));
+        assertEquals("adhan_madinah", reloaded.sound(id));
+        // 12-byte header + 13 bytes per entry
+        assertEquals(12 + 35 * 13, file.length());
+    }
+
+    @Test
+    public void adhocIds_areUniquePerAlarmAndKeptBesideTheDays() throws Exception {
+        long noon = DAY * 86_400_000L + 43_200_000L;
+        int first = AlarmStore.adhocId(noon);
+        int second = AlarmStore.adhocId(noon + 15_000);
+        assertNotEquals(first, second);
+        assertTrue(AlarmStore.isAdhoc(first));
+        assertEquals(AlarmStore.SLOT_ADHOC, AlarmStore.slotOf(first));
+        assertEquals(AlarmStore.KIND_ADHAN, AlarmStore.kindOf(first));
+        assertNotEquals(AlarmStore.NONE, first);
+        assertFalse(AlarmStore.isAdhoc(AlarmStore.idFor(DAY, AlarmStore.SLOT_ADHOC, AlarmStore.KIND_ADHAN)));
+
+        File file = new File(dir, "alarms.bin");
+        AlarmStore store = new AlarmStore(file);
+        int dhuhr = AlarmStore.idFor(DAY, PrayerTimesCalculator.DHUHR, AlarmStore.KIND_ADHAN);
+        store.put(dhuhr, noon + 60_000, "adhan_makkah");
+        store.put(second, noon + 15_000, "adhan_egypt");
+        store.put(first, noon, "adhan_madinah");
+        assertArrayEquals(new int[] {first, second, dhuhr}, store.ids());
+        store.commit();
+
+        AlarmStore reloaded = new AlarmStore(file);
+        assertArrayEquals(store.ids(), reloaded.ids());
+        assertEquals("adhan_egypt", reloaded.sound(second));
+        assertEquals(1, reloaded.prune(noon));
+        assertTrue(reloaded.remove(second));
+        assertArrayEquals(new int[] {dhuhr}, reloaded.ids());
+        assertEquals(0L, reloaded.time(second));
+    }
+
+    @Test
+    public void corruptFile_loadsAsEmpty() throws Exception {
+        File file = new File(dir, "alarms.bin");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[] {1, 2, 3});
+        }
+        assertEquals(0, new AlarmStore(file).size());
+    }
+}
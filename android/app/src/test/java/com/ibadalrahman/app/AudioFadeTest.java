@@ -0,0 +1,53 @@
+package com.ibadalrahman.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class AudioFadeTest {
+
+    private static final String[] CURVES = {
+            AudioFade.CURVE_LINEAR, AudioFade.CURVE_EXPONENTIAL, AudioFade.CURVE_LOGARITHMIC, AudioFade.CURVE_SCURVE
+    };
+
+    @Test
+    public void everyCurveRisesMonotonicallyFromSilenceToFull() {
+        for (String curve : CURVES) {
+            AudioFade fade = new AudioFade(curve, 10_000);
+            assertEquals(curve, 0f, fade.gain(0f), 0f);
+            assertEquals(curve, 1f, fade.gain(1f), 0f);
+            float previous = 0f;
+            for (int i = 1; i <= 1000; i++) {
+                float gain = fade.gain(i / 1000f);
+                assertTrue(curve, gain >= previous);
+                previous = gain;
+            }
+        }
+    }
+
+    @Test
+    public void curvesDifferInShape() {
+        float linear = new AudioFade(AudioFade.CURVE_LINEAR, 1000).gain(0.5f);
+        assertEquals(0.5f, linear, 1e-6f);
+        assertTrue(new AudioFade(AudioFade.CURVE_EXPONENTIAL, 1000).gain(0.5f) < linear);
+        assertTrue(new AudioFade(AudioFade.CURVE_LOGARITHMIC, 1000).gain(0.5f) > linear);
+        assertEquals(0.5f, new AudioFade(AudioFade.CURVE_SCURVE, 1000).gain(0.5f), 1e-6f);
+    }
+
+    @Test
+    public void gainAt_scalesByDuration() {
+        AudioFade fade = new AudioFade(AudioFade.CURVE_LINEAR, 8000);
+        assertEquals(0.25f, fade.gainAt(2000), 1e-6f);
+        assertEquals(1f, fade.gainAt(60_000), 0f);
+        assertEquals(1f, new AudioFade(AudioFade.CURVE_LINEAR, 0).gainAt(0), 0f);
+    }
+
+    @Test
+    public void unknownCurveAndOutOfRangeDurationAreClamped() {
+        AudioFade fade = new AudioFade("bounce", AudioFade.MAX_DURATION_MS * 2);
+        assertEquals(AudioFade.CURVE_LINEAR, fade.curve);
+        assertEquals(AudioFade.MAX_DURATION_MS, fade.durationMs);
+        assertEquals(0, new AudioFade(AudioFade.CURVE_LINEAR, -5).durationMs);
+        assertFalse(AudioFade.isKnownCurve("bounce"));
+    }
+}
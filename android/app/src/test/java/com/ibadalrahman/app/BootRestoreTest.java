@@ -0,0 +1,169 @@
+package com.ibadalrahman.app;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.AlarmManager;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Looper;
+import android.os.UserManager;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowAlarmManager;
+
+@RunWith(RobolectricTestRunner.class)
+public class BootRestoreTest {
+    private Context context;
+    private ShadowAlarmManager alarmManager;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        AdhanScheduler.reset();
+        alarmManager = shadowOf((AlarmManager) context.getSystemService(Context.ALARM_SERVICE));
+    }
+
+    @After
+    public void tearDown() {
+        AdhanScheduler.reset();
+    }
+
+    private void boot() throws Exception {
+        boot(Intent.ACTION_BOOT_COMPLETED);
+    }
+
+    private void boot(String action) throws Exception {
+        context.sendBroadcast(new Intent(action).setPackage(context.getPackageName()));
+        shadowOf(Looper.getMainLooper()).idle();
+        BootReceiver.awaitRestores();
+    }
+
+    private static void saveSettings(Context context, boolean enabled) {
+        // Cairo, Egyptian General Authority, every prayer
+        new PrayerSettings(30.0444, 31.2357, 5, "shafi", 0x1F, "adhan_makkah", enabled).save(context);
+    }
+
+    @Test
+    public void boot_regeneratesAndArmsTheHorizon() throws Exception {
+        saveSettings(context, true);
+        boot();
+
+        AlarmStore alarms = AdhanScheduler.store(context);
+        // Today's passed prayers aren't added, so between six and seven days' worth
+        assertTrue("stored " + alarms.size(), alarms.size() > 5 * (AdhanScheduler.DEFAULT_HORIZON_DAYS - 1));
+        assertTrue("stored " + alarms.size(), alarms.size() <= 5 * AdhanScheduler.DEFAULT_HORIZON_DAYS);
+        assertEquals(alarms.size() + 1, alarmManager.getScheduledAlarms().size());
+    }
+
+    @Test
+    public void lockedBoot_commitsAndArmsRegeneratedDays() throws Exception {
+        saveSettings(context, true);
+        UserManager userManager = (UserManager) context.getSystemService(Context.USER_SERVICE);
+        shadowOf(userManager).setUserUnlocked(false);
+        boot("android.intent.action.LOCKED_BOOT_COMPLETED");
+
+        AlarmStore locked = AdhanScheduler.store(context);
+        assertTrue("stored " + locked.size(), locked.size() > 5 * (AdhanScheduler.DEFAULT_HORIZON_DAYS - 1));
+        assertEquals(locked.size() + 1, alarmManager.getScheduledAlarms().size());
+
+        // The first unlock reads the table back from disk; the regenerated days must be there
+        shadowOf(userManager).setUserUnlocked(true);
+        AlarmStore unlocked = AdhanScheduler.store(context);
+        assertNotSame(locked, unlocked);
+        assertEquals(locked.size(), unlocked.size());
+        for (int id : locked.ids()) assertEquals(locked.time(id), unlocked.time(id));
+    }
+
+    @Test
+    public void boot_armsNothingWhenAdhansAreOff() throws Exception {
+        saveSettings(context, false);
+        boot();
+
+        assertEquals(0, AdhanScheduler.store(context).size());
+        assertTrue(alarmManager.getScheduledAlarms().isEmpty());
+    }
+
+    @Test
+    public void boot_keepsWhatJsScheduled() throws Exception {
+        saveSettings(context, true);
+        long now = System.currentTimeMillis();
+        JSONArray week = AdhanSchedulingTest.week(now, 7);
+        AdhanScheduler.replace(context, week, now);
+        // A fresh process after boot reads the table back from disk
+        AdhanScheduler.reset();
+        boot();
+
+        AlarmStore alarms = AdhanScheduler.store(context);
+        for (int i = 0; i < week.length(); i++) {
+            JSONObject alarm = week.getJSONObject(i);
+            long timestamp = alarm.getLong("timestamp");
+            assertEquals(timestamp, alarms.time(AdhanScheduler.idFor(alarm.getString("prayerName"), timestamp)));
+        }
+    }
+
+    @Test
+    public void restoreBetweenAdhanAndPostPrayerReminder_keepsTheReminder() throws Exception {
+        saveSettings(context, false);
+        PrayerReminders.configure(context, 0, false, 20);
+        long now = System.currentTimeMillis();
+        // Dhuhr went off five minutes ago; its after-prayer reminder is due in fifteen
+        long adhanTime = now - 5 * 60_000L;
+        AlarmStore alarms = AdhanScheduler.store(context);
+        int dhuhr = AdhanScheduler.idFor(PrayerTimesCalculator.DHUHR, adhanTime);
+        alarms.put(dhuhr, adhanTime, "adhan_makkah");
+        AdhanScheduler.commit(alarms);
+        AdhanScheduler.reset();
+        boot();
+
+        ReminderTimeline.Event event = ReminderTimeline.next(
+                AdhanScheduler.store(context), PrayerReminders.config(context), now, Integer.MIN_VALUE);
+        assertNotNull(event);
+        assertEquals(AlarmStore.KIND_POST_PRAYER, event.kind());
+        assertEquals(adhanTime + 20 * 60_000L, event.time);
+
+        // Opening the app replaces the schedule with future Adhans only; the reminder stays
+        AdhanScheduler.replace(context, AdhanSchedulingTest.week(now, 1), now);
+        assertEquals(adhanTime, AdhanScheduler.store(context).time(dhuhr));
+
+        // Once the reminder is past too, the entry goes
+        AdhanScheduler.topUp(context, now + 16 * 60_000L);
+        assertEquals(0, AdhanScheduler.store(context).time(dhuhr));
+    }
+
+    @Test
+    public void topUp_fillsTheConfiguredHorizonOnce() {
+        saveSettings(context, true);
+        AdhanScheduler.setHorizonDays(context, 14);
+        long now = System.currentTimeMillis();
+        int added = AdhanScheduler.topUp(context, now);
+
+        AlarmStore alarms = AdhanScheduler.store(context);
+        assertEquals(alarms.size(), added);
+        assertTrue("stored " + added, added > 5 * 13);
+        assertEquals(added + 1, alarmManager.getScheduledAlarms().size());
+        assertEquals(now, AdhanScheduler.lastRefill(context));
+
+        // Nothing missing the next day: no alarms touched
+        assertEquals(0, AdhanScheduler.topUp(context, now + 1));
+        assertEquals(added + 1, alarmManager.getScheduledAlarms().size());
+    }
+
+    @Test
+    public void topUp_addsNothingWhenAdhansAreOff() {
+        saveSettings(context, false);
+        long now = System.currentTimeMillis();
+
+        assertEquals(0, AdhanScheduler.topUp(context, now));
+        assertTrue(alarmManager.getScheduledAlarms().isEmpty());
+        assertEquals(now, AdhanScheduler.lastRefill(context));
+    }
+}
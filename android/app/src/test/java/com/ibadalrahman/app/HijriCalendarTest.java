@@ -0,0 +1,83 @@
+package com.ibadalrahman.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+public class HijriCalendarTest {
+
+    private static final TimeZone CAIRO = TimeZone.getTimeZone("Africa/Cairo");
+
+    private static long epochDay(int year, int month, int day) {
+        return PrayerTimesCalculator.daysFromCivil(year, month, day);
+    }
+
+    private static long localTime(int year, int month, int day, int hour, int minute) {
+        Calendar cal = Calendar.getInstance(CAIRO);
+        cal.clear();
+        cal.set(year, month - 1, day, hour, minute);
+        return cal.getTimeInMillis();
+    }
+
+    private static void assertHijri(int year, int month, int day, HijriCalendar.Day actual) {
+        assertNotNull(actual);
+        assertEquals(year, actual.year);
+        assertEquals(month, actual.month);
+        assertEquals(day, actual.day);
+    }
+
+    @Test
+    public void fromEpochDay_matchesUmmAlQura() {
+        assertHijri(1300, 1, 1, HijriCalendar.fromEpochDay(epochDay(1882, 11, 12)));
+        assertHijri(1447, 9, 1, HijriCalendar.fromEpochDay(epochDay(2026, 2, 18)));
+        assertHijri(1446, 12, 10, HijriCalendar.fromEpochDay(epochDay(2025, 6, 6)));
+        assertHijri(1448, 5, 7, HijriCalendar.fromEpochDay(epochDay(2026, 10, 18)));
+        assertNull(HijriCalendar.fromEpochDay(epochDay(1882, 11, 11)));
+    }
+
+    @Test
+    public void toEpochDay_roundTripsEveryDayOfTheTable() {
+        for (int year = HijriCalendar.FIRST_YEAR; year <= HijriCalendar.LAST_YEAR; year++) {
+            for (int month = 1; month <= 12; month++) {
+                int length = HijriCalendar.monthLength(year, month);
+                assertTrue(length == 29 || length == 30);
+                for (int day = 1; day <= length; day++) {
+                    assertHijri(year, month, day, HijriCalendar.fromEpochDay(HijriCalendar.toEpochDay(year, month, day)));
+                }
+            }
+        }
+        long last = HijriCalendar.toEpochDay(HijriCalendar.LAST_YEAR, 12, HijriCalendar.monthLength(HijriCalendar.LAST_YEAR, 12));
+        assertNull(HijriCalendar.fromEpochDay(last + 1));
+    }
+
+    @Test
+    public void at_rollsOverAtMaghribOnlyWhenGivenOne() {
+        long maghrib = localTime(2026, 10, 18, 17, 20);
+        long evening = localTime(2026, 10, 18, 19, 0);
+
+        assertHijri(1448, 5, 7, HijriCalendar.at(evening, CAIRO, 0, PrayerTimesCalculator.INVALID_TIME));
+        assertHijri(1448, 5, 7, HijriCalendar.at(localTime(2026, 10, 18, 12, 0), CAIRO, 0, maghrib));
+        assertHijri(1448, 5, 8, HijriCalendar.at(evening, CAIRO, 0, maghrib));
+        assertHijri(1448, 5, 6, HijriCalendar.at(evening, CAIRO, -1, PrayerTimesCalculator.INVALID_TIME));
+    }
+
+    @Test
+    public void events_skipWhiteDayFastingOnTashreeq() {
+        assertArrayEquals(new String[] {HijriCalendar.WHITE_DAYS}, HijriCalendar.events(5, 13));
+        assertArrayEquals(new String[] {HijriCalendar.TASHREEQ}, HijriCalendar.events(12, 13));
+        assertArrayEquals(new String[] {HijriCalendar.TASHREEQ}, HijriCalendar.events(12, 12));
+        assertArrayEquals(new String[] {HijriCalendar.WHITE_DAYS}, HijriCalendar.events(12, 14));
+        assertArrayEquals(new String[] {HijriCalendar.ASHURA}, HijriCalendar.events(1, 10));
+        assertEquals(0, HijriCalendar.events(5, 20).length);
+    }
+
+    @Test
+    public void format_usesArabicIndicDigitsForArabic() {
+        HijriCalendar.Day day = new HijriCalendar.Day(1448, 5, 7);
+        assertEquals("7 Jumada al-Ula 1448 AH", HijriCalendar.format(day, "en"));
+        assertEquals("٧ جمادى الأولى ١٤٤٨ هـ", HijriCalendar.format(day, "ar"));
+    }
+}
@@ -0,0 +1,130 @@
+package com.ibadalrahman.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+public class KeyValueStoreTest {
+
+    private File dir;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = java.nio.file.Files.createTempDirectory("kv").toFile();
+        file = new File(dir, "kv.log");
+    }
+
+    @After
+    public void tearDown() {
+        for (File f : dir.listFiles()) f.delete();
+        dir.delete();
+    }
+
+    @Test
+    public void writes_areReadFromMemoryAndSurviveReopening() {
+        KeyValueStore store = new KeyValueStore(file, 10_000);
+        store.put("quran", "bookmarks", "{\"2:255\":true}", null);
+        store.put("azkar", "progress-morning", "{\"1\":3}", null);
+        store.put("azkar", "last-active-morning", "2026-10-18", null);
+        store.remove("azkar", "last-active-morning", null);
+        // Nothing on disk until the flush
+        assertFalse(file.exists());
+        assertEquals("{\"1\":3}", store.get("azkar", "progress-morning"));
+        store.flushAndWait();
+
+        KeyValueStore reopened = new KeyValueStore(file, 10_000);
+        assertEquals("{\"2:255\":true}", reopened.get("quran", "bookmarks"));
+        assertEquals("{\"1\":3}", reopened.get("azkar", "progress-morning"));
+        assertNull(reopened.get("azkar", "last-active-morning"));
+        assertEquals(1, reopened.entries("azkar").size());
+    }
+
+    @Test
+    public void burstOfWrites_isOneRecordAndTheLogIsCompacted() {
+        KeyValueStore store = new KeyValueStore(file, 10_000);
+        for (int count = 1; count <= 33; count++) store.put("azkar", "tasbih", Integer.toString(count), null);
+        store.flushAndWait();
+        long oneRecord = store.logBytes();
+
+        // Flushed one at a time, each count would be a record of its own until compaction
+        String padding = new String(new char[1000]).replace('\0', 'x');
+        for (int count = 0; count < 200; count++) {
+            store.put("azkar", "tasbih", padding + count, null);
+            store.flushAndWait();
+        }
+        assertTrue("log " + store.logBytes(), store.logBytes() < KeyValueStore.COMPACT_MIN_BYTES + 2 * oneRecord + 2000);
+        assertEquals(padding + 199, new KeyValueStore(file, 10_000).get("azkar", "tasbih"));
+    }
+
+    @Test
+    public void recordBytes_matchesTheEncodedLengthOfArabicText() {
+        KeyValueStore store = new KeyValueStore(file, 10_000);
+        String value = "{\"note\":\"سُبْحَانَ اللَّهِ وَبِحَمْدِهِ ✨ 🤲\uD800\"}";
+        store.put("azkar", "ذكر", value, null);
+        store.flushAndWait();
+        // 8-byte header, then the single record
+        assertEquals(8 + KeyValueStore.recordBytes("azkar", "ذكر", value), store.logBytes());
+    }
+
+    @Test
+    public void clear_removesANamespaceAndLaterWritesSurvive() {
+        KeyValueStore store = new KeyValueStore(file, 10_000);
+        store.put("qada", "plan", "{}", null);
+        store.put("qada", "missed", "{}", null);
+        store.put("duas", "favorites", "[1]", null);
+        store.flushAndWait();
+        store.clear("qada", null);
+        store.put("qada", "plan", "{\"years\":1}", null);
+        store.flushAndWait();
+
+        KeyValueStore reopened = new KeyValueStore(file, 10_000);
+        assertEquals(1, reopened.entries("qada").size());
+        assertEquals("{\"years\":1}", reopened.get("qada", "plan"));
+        assertEquals("[1]", reopened.get("duas", "favorites"));
+    }
+
+    @Test
+    public void tornTail_isDroppedOnLoad() throws Exception {
+        KeyValueStore store = new KeyValueStore(file, 10_000);
+        store.put("quran", "progress-2", "3", null);
+        store.flushAndWait();
+        long good = file.length();
+        store.put("quran", "progress-3", "7", null);
+        store.flushAndWait();
+        // A crash partway through the second batch
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 3);
+        }
+
+        KeyValueStore reopened = new KeyValueStore(file, 10_000);
+        assertEquals("3", reopened.get("quran", "progress-2"));
+        assertNull(reopened.get("quran", "progress-3"));
+        assertEquals(good, file.length());
+        reopened.put("quran", "progress-4", "1", null);
+        reopened.flushAndWait();
+        assertEquals("1", new KeyValueStore(file, 10_000).get("quran", "progress-4"));
+    }
+
+    @Test
+    public void listeners_hearChangesWithTheirOrigin() {
+        KeyValueStore store = new KeyValueStore(file, 10_000);
+        List<String> heard = new ArrayList<>();
+        Object js = new Object();
+        store.addListener((namespace, key, value, origin) ->
+                heard.add(namespace + "/" + key + "=" + value + (origin == js ? " (js)" : "")));
+        store.put("quran", "lastRead", "{}", js);
+        // Unchanged values are not reported
+        store.put("quran", "lastRead", "{}", js);
+        store.put("qada", "plan", "{}", null);
+        store.clear("qada", null);
+        assertEquals(List.of("quran/lastRead={} (js)", "qada/plan={}", "qada/plan=null"), heard);
+    }
+}
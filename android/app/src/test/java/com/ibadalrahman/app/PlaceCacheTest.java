@@ -0,0 +1,200 @@
+package com.ibadalrahman.app;
+
+import static org.junit.Assert.*;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PlaceCacheTest {
+    private static final double LAT = 30.0444;
+    private static final double LNG = 31.2357;
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long TTL = 60 * 60 * 1000L;
+
+    private File dir;
+    private HttpServer server;
+    private String baseUrl;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile CountDownLatch release;
+    private volatile boolean offline;
+    private volatile boolean denied;
+
+    /** Stands in for the nearby-search endpoint: the body names the location it was asked for. */
+    @Before
+    public void setUp() throws Exception {
+        dir = java.nio.file.Files.createTempDirectory("places").toFile();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/nearbysearch/json", exchange -> {
+            requests.incrementAndGet();
+            try {
+                if (release != null) release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+            String query = exchange.getRequestURI().getQuery();
+            byte[] body = (denied ? "REQUEST_DENIED" : query).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(offline ? 503 : 200, offline ? -1 : body.length);
+            if (!offline) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/nearbysearch/json";
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        for (File file : dir.listFiles()) file.delete();
+        dir.delete();
+    }
+
+    private PlaceCache newCache(int maxTiles) {
+        return new PlaceCache(dir, baseUrl, "type=mosque", body -> {
+            if (body.equals("REQUEST_DENIED")) throw new IOException(body);
+            return body;
+        }, TTL, maxTiles);
+    }
+
+    @Test
+    public void tileFor_sharesOneTileAcrossTheCellAndRadiusStep() {
+        // Wikipedia's example point
+        assertEquals("u4pruy", Geohash.encode(57.64911, 10.40744, 6));
+        double[] bounds = Geohash.bounds("u4pruy");
+        assertTrue(bounds[0] <= 57.64911 && 57.64911 < bounds[2]);
+        assertTrue(bounds[1] <= 10.40744 && 10.40744 < bounds[3]);
+
+        String key = PlaceCache.tileFor(LAT, LNG, 5000);
+        assertEquals(Geohash.encode(LAT, LNG, PlaceCache.PRECISION) + "_5000", key);
+        assertEquals(key, PlaceCache.tileFor(LAT, LNG, 4200));
+        assertNotEquals(key, PlaceCache.tileFor(LAT, LNG, 5001));
+        assertNotEquals(key, PlaceCache.tileFor(LAT + 0.05, LNG, 5000));
+        assertEquals(Geohash.encode(LAT, LNG, PlaceCache.PRECISION) + "_1000", PlaceCache.tileFor(LAT, LNG, 1));
+    }
+
+    @Test
+    public void nearby_makesOneRequestAndServesItFromDiskAcrossInstances() throws IOException {
+        PlaceCache cache = newCache(PlaceCache.DEFAULT_MAX_TILES);
+        PlaceCache.Tile tile = cache.nearby(LAT, LNG, 5000, "secret", NOW);
+        assertEquals(1, requests.get());
+        assertTrue(tile.payload.contains("type=mosque"));
+        assertTrue(tile.payload.contains("key=secret"));
+        // Asked from the cell's centre, wide enough for any search from inside the cell
+        String hash = Geohash.encode(LAT, LNG, PlaceCache.PRECISION);
+        int radius = 5000 + (int) Math.ceil(Geohash.radiusMeters(hash));
+        assertTrue(tile.payload.contains("radius=" + radius));
+        assertTrue(radius < 5800);
+
+        // Searching again from the same cell with a smaller radius costs nothing
+        double[] b = Geohash.bounds(hash);
+        cache.nearby((b[0] + b[2]) / 2, (b[1] + b[3]) / 2, 4000, "secret", NOW + 1000);
+        assertEquals(1, requests.get());
+
+        offline = true;
+        PlaceCache reopened = newCache(PlaceCache.DEFAULT_MAX_TILES);
+        PlaceCache.Tile again = reopened.nearby(LAT, LNG, 5000, "secret", NOW + 2000);
+        assertEquals(tile.payload, again.payload);
+        assertEquals(1, requests.get());
+        assertEquals(1, reopened.stats().hits);
+    }
+
+    @Test
+    public void nearby_concurrentSearchesShareOneFetch() throws Exception {
+        PlaceCache cache = newCache(PlaceCache.DEFAULT_MAX_TILES);
+        release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        List<Future<PlaceCache.Tile>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) results.add(callers.submit(() -> cache.nearby(LAT, LNG, 2000, null, NOW)));
+
+        Thread.sleep(100);
+        release.countDown();
+        for (Future<PlaceCache.Tile> result : results) assertNotNull(result.get(5, TimeUnit.SECONDS));
+        callers.shutdown();
+        assertEquals(1, requests.get());
+        assertEquals(1, cache.stats().fetches);
+    }
+
+    @Test
+    public void nearby_refetchesExpiredTilesAndFallsBackToThemOffline() throws IOException {
+        PlaceCache cache = newCache(PlaceCache.DEFAULT_MAX_TILES);
+        cache.nearby(LAT, LNG, 100, null, NOW);
+
+        cache.nearby(LAT, LNG, 100, null, NOW + TTL);
+        assertEquals(2, requests.get());
+
+        offline = true;
+        PlaceCache.Tile stale = cache.nearby(LAT, LNG, 100, null, NOW + 3 * TTL);
+        assertTrue(stale.stale);
+        assertEquals(NOW + TTL, stale.fetchedAt);
+
+        try {
+            cache.nearby(LAT + 1, LNG + 1, 100, null, NOW);
+            fail("Expected the stand-in server error");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void nearby_doesNotCacheRejectedResponses() throws IOException {
+        PlaceCache cache = newCache(PlaceCache.DEFAULT_MAX_TILES);
+        denied = true;
+        try {
+            cache.nearby(LAT, LNG, 100, null, NOW);
+            fail("Expected the decoder's rejection");
+        } catch (IOException expected) {
+        }
+        assertEquals(0, cache.stats().tiles);
+
+        denied = false;
+        assertFalse(cache.nearby(LAT, LNG, 100, null, NOW).payload.isEmpty());
+    }
+
+    @Test
+    public void load_dropsTilesFromOlderKeyFormats() throws Exception {
+        try (java.io.FileWriter out = new java.io.FileWriter(new File(dir, "stq4s.tile"))) {
+            out.write(NOW + "\n[]");
+        }
+        PlaceCache cache = newCache(PlaceCache.DEFAULT_MAX_TILES);
+        assertEquals(0, cache.stats().tiles);
+        assertEquals(0, dir.listFiles().length);
+    }
+
+    @Test
+    public void store_evictsLeastRecentlyUsedTiles() throws IOException {
+        PlaceCache cache = newCache(2);
+        // Points a tile apart, each well inside its own tile
+        double step = 0.05;
+        cache.nearby(LAT, LNG, 1, null, NOW);
+        cache.nearby(LAT + step, LNG, 1, null, NOW);
+        cache.nearby(LAT, LNG, 1, null, NOW); // now the most recently used
+        cache.nearby(LAT + 2 * step, LNG, 1, null, NOW);
+
+        assertEquals(1, cache.stats().evictions);
+        assertEquals(2, dir.listFiles().length);
+        int before = requests.get();
+        cache.nearby(LAT, LNG, 1, null, NOW);
+        assertEquals(before, requests.get());
+        cache.nearby(LAT + step, LNG, 1, null, NOW);
+        assertEquals(before + 1, requests.get());
+    }
+}
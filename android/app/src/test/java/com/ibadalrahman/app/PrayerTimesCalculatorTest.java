@@ -0,0 +1,132 @@
+package com.ibadalrahman.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Checks PrayerTimesCalculator against the output of the "adhan" npm package used by
+ * PrayerScheduleService.
+ */
+public class PrayerTimesCalculatorTest {
+
+    private static final TimeZone NEW_YORK = TimeZone.getTimeZone("America/New_York");
+    private static final TimeZone RIYADH = TimeZone.getTimeZone("Asia/Riyadh");
+    private static final TimeZone TEHRAN = TimeZone.getTimeZone("Asia/Tehran");
+
+    private static String format(long time, TimeZone zone) {
+        SimpleDateFormat format = new SimpleDateFormat("h:mm a", Locale.US);
+        format.setTimeZone(zone);
+        return format.format(new Date(time));
+    }
+
+    @Test
+    public void northAmericaHanafi_matchesAdhanJs() {
+        // new PrayerTimes(new Coordinates(35.7750, -78.6336), new Date(2015, 6, 12), NorthAmerica + Hanafi)
+        PrayerTimesCalculator calculator = new PrayerTimesCalculator(35.7750, -78.6336,
+                PrayerTimesCalculator.Method.NORTH_AMERICA, PrayerTimesCalculator.Madhab.HANAFI);
+        PrayerTimesCalculator.DayTimes times = calculator.forDate(2015, 7, 12, NEW_YORK);
+
+        assertEquals("4:42 AM", format(times.fajr, NEW_YORK));
+        assertEquals("6:08 AM", format(times.sunrise, NEW_YORK));
+        assertEquals("1:21 PM", format(times.dhuhr, NEW_YORK));
+        assertEquals("6:22 PM", format(times.asr, NEW_YORK));
+        assertEquals("8:32 PM", format(times.maghrib, NEW_YORK));
+        assertEquals("9:57 PM", format(times.isha, NEW_YORK));
+    }
+
+    @Test
+    public void hanafiAsrIsLaterThanShafi() {
+        PrayerTimesCalculator shafi = new PrayerTimesCalculator(35.7750, -78.6336,
+                PrayerTimesCalculator.Method.NORTH_AMERICA, PrayerTimesCalculator.Madhab.SHAFI);
+        PrayerTimesCalculator hanafi = new PrayerTimesCalculator(35.7750, -78.6336,
+                PrayerTimesCalculator.Method.NORTH_AMERICA, PrayerTimesCalculator.Madhab.HANAFI);
+
+        PrayerTimesCalculator.DayTimes shafiTimes = shafi.forDate(2015, 7, 12, NEW_YORK);
+        PrayerTimesCalculator.DayTimes hanafiTimes = hanafi.forDate(2015, 7, 12, NEW_YORK);
+
+        assertTrue(hanafiTimes.asr > shafiTimes.asr);
+        assertEquals(shafiTimes.fajr, hanafiTimes.fajr);
+        assertEquals(shafiTimes.isha, hanafiTimes.isha);
+    }
+
+    @Test
+    public void ummAlQura_ishaIsNinetyMinutesAfterMaghrib() {
+        PrayerTimesCalculator calculator = new PrayerTimesCalculator(21.4225, 39.8262,
+                PrayerTimesCalculator.Method.UMM_AL_QURA, PrayerTimesCalculator.Madhab.SHAFI);
+        PrayerTimesCalculator.DayTimes times = calculator.forDate(2024, 3, 15, RIYADH);
+
+        assertEquals(90 * 60 * 1000L, times.isha - times.maghrib);
+    }
+
+    @Test
+    public void tehran_maghribUsesAngleAfterSunset() {
+        PrayerTimesCalculator tehran = new PrayerTimesCalculator(35.6892, 51.3890,
+                PrayerTimesCalculator.Method.TEHRAN, PrayerTimesCalculator.Madhab.SHAFI);
+        PrayerTimesCalculator mwl = new PrayerTimesCalculator(35.6892, 51.3890,
+                PrayerTimesCalculator.Method.MUSLIM_WORLD_LEAGUE, PrayerTimesCalculator.Madhab.SHAFI);
+
+        // MWL maghrib is plain sunset; Tehran waits for the sun to reach 4.5 degrees below the horizon
+        assertTrue(tehran.forDate(2024, 6, 1, TEHRAN).maghrib > mwl.forDate(2024, 6, 1, TEHRAN).maghrib);
+    }
+
+    @Test
+    public void timesAreOrderedAndRoundedToTheMinute() {
+        PrayerTimesCalculator calculator = new PrayerTimesCalculator(30.0444, 31.2357,
+                PrayerTimesCalculator.Method.EGYPTIAN, PrayerTimesCalculator.Madhab.SHAFI);
+        TimeZone cairo = TimeZone.getTimeZone("Africa/Cairo");
+
+        for (PrayerTimesCalculator.DayTimes times : calculator.forDays(1704067200000L, 366, cairo)) {
+            assertTrue(times.fajr < times.sunrise);
+            assertTrue(times.sunrise < times.dhuhr);
+            assertTrue(times.dhuhr < times.asr);
+            assertTrue(times.asr < times.maghrib);
+            assertTrue(times.maghrib < times.isha);
+            for (int slot = 0; slot < PrayerTimesCalculator.PRAYER_COUNT; slot++) {
+                assertEquals(0, times.prayer(slot) % 60_000L);
+            }
+        }
+    }
+
+    @Test
+    public void forDays_advancesOneCalendarDayAtATime() {
+        PrayerTimesCalculator calculator = new PrayerTimesCalculator(35.7750, -78.6336,
+                PrayerTimesCalculator.Method.NORTH_AMERICA, PrayerTimesCalculator.Madhab.HANAFI);
+        // 2015-07-12 12:00 New York
+        PrayerTimesCalculator.DayTimes[] week = calculator.forDays(1436716800000L, 7, NEW_YORK);
+
+        assertEquals(7, week.length);
+        assertEquals(calculator.forDate(2015, 7, 12, NEW_YORK).fajr, week[0].fajr);
+        assertEquals(calculator.forDate(2015, 7, 18, NEW_YORK).isha, week[6].isha);
+    }
+
+    @Test
+    public void polarDay_hasNoSunriseButStillHasDhuhr() {
+        PrayerTimesCalculator calculator = new PrayerTimesCalculator(69.65, 18.95,
+                PrayerTimesCalculator.Method.MUSLIM_WORLD_LEAGUE, PrayerTimesCalculator.Madhab.SHAFI);
+        PrayerTimesCalculator.DayTimes times = calculator.forDate(2024, 6, 21, TimeZone.getTimeZone("Europe/Oslo"));
+
+        assertEquals(PrayerTimesCalculator.INVALID_TIME, times.sunrise);
+        assertEquals(PrayerTimesCalculator.INVALID_TIME, times.maghrib);
+        assertNotEquals(PrayerTimesCalculator.INVALID_TIME, times.dhuhr);
+    }
+
+    @Test
+    public void methodIdsMatchSchedulerOptions() {
+        assertEquals(PrayerTimesCalculator.Method.KARACHI, PrayerTimesCalculator.Method.fromSettingsId(1));
+        assertEquals(PrayerTimesCalculator.Method.NORTH_AMERICA, PrayerTimesCalculator.Method.fromSettingsId(2));
+        assertEquals(PrayerTimesCalculator.Method.MUSLIM_WORLD_LEAGUE, PrayerTimesCalculator.Method.fromSettingsId(3));
+        assertEquals(PrayerTimesCalculator.Method.UMM_AL_QURA, PrayerTimesCalculator.Method.fromSettingsId(4));
+        assertEquals(PrayerTimesCalculator.Method.EGYPTIAN, PrayerTimesCalculator.Method.fromSettingsId(5));
+        assertEquals(PrayerTimesCalculator.Method.TEHRAN, PrayerTimesCalculator.Method.fromSettingsId(7));
+        assertEquals(PrayerTimesCalculator.Method.TEHRAN, PrayerTimesCalculator.Method.fromSettingsId(0));
+        assertEquals(PrayerTimesCalculator.Method.MUSLIM_WORLD_LEAGUE, PrayerTimesCalculator.Method.fromSettingsId(99));
+        assertEquals(PrayerTimesCalculator.Madhab.HANAFI, PrayerTimesCalculator.Madhab.fromSettings("hanafi"));
+        assertEquals(PrayerTimesCalculator.Madhab.SHAFI, PrayerTimesCalculator.Madhab.fromSettings("shafi"));
+    }
+}
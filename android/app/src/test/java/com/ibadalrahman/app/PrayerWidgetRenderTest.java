@@ -0,0 +1,88 @@
+package com.ibadalrahman.app;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.appwidget.AppWidgetManager;
+import android.content.Context;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowAppWidgetManager;
+
+import java.util.Calendar;
+
+@RunWith(RobolectricTestRunner.class)
+public class PrayerWidgetRenderTest {
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final int GOLD = 0xFFC5A059;
+
+    private Context context;
+    private ShadowAppWidgetManager widgets;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        PrayerWidgetProvider.reset();
+        widgets = shadowOf(AppWidgetManager.getInstance(context));
+    }
+
+    @After
+    public void tearDown() {
+        PrayerWidgetProvider.reset();
+    }
+
+    /** What updateWidgetData stores: Fajr at the start of today, the rest still to come. */
+    private void pushFromJs() {
+        long now = System.currentTimeMillis();
+        Calendar midnight = Calendar.getInstance();
+        midnight.setTimeInMillis(now);
+        midnight.set(Calendar.HOUR_OF_DAY, 0);
+        midnight.set(Calendar.MINUTE, 0);
+        midnight.set(Calendar.SECOND, 0);
+        midnight.set(Calendar.MILLISECOND, 0);
+        String schedule = midnight.getTimeInMillis() + "," + (now + HOUR) + "," + (now + 2 * HOUR)
+                + "," + (now + 3 * HOUR) + "," + (now + 4 * HOUR);
+        DeviceStorage.prefs(context, "PrayerWidgetPrefs").edit()
+                .putString("fajr", "4:30")
+                .putString("dhuhr", "12:05")
+                .putString("asr", "3:30")
+                .putString("maghrib", "6:10")
+                .putString("isha", "7:35")
+                .putString(PrayerWidgetProvider.KEY_SCHEDULE, schedule)
+                .commit();
+    }
+
+    private static TextView text(View view, int id) {
+        return (TextView) view.findViewById(id);
+    }
+
+    @Test
+    public void render_drawsTimesHijriDateAndNextPrayer() {
+        pushFromJs();
+        int id = widgets.createWidget(PrayerWidgetProvider.class, R.layout.prayer_widget);
+        View view = widgets.getViewFor(id);
+
+        assertEquals("4:30", text(view, R.id.widget_fajr_time).getText().toString());
+        assertEquals("7:35", text(view, R.id.widget_isha_time).getText().toString());
+        String hijri = text(view, R.id.widget_hijri_date).getText().toString();
+        assertFalse(hijri.isEmpty() || hijri.equals("--"));
+        assertEquals(GOLD, text(view, R.id.widget_dhuhr_time).getCurrentTextColor());
+        assertNotEquals(GOLD, text(view, R.id.widget_fajr_time).getCurrentTextColor());
+    }
+
+    @Test
+    public void snapshot_fallsBackToNativeTimesWithoutJs() {
+        new PrayerSettings(30.0444, 31.2357, 5, "shafi", 0x1F, "adhan_makkah", true).save(context);
+        PrayerWidgetProvider.Snapshot snapshot = PrayerWidgetProvider.snapshot(context, System.currentTimeMillis());
+        assertNotNull(snapshot.schedule);
+        for (String time : snapshot.state.times) assertTrue(time, time.matches("\\d{1,2}:\\d{2}"));
+    }
+}
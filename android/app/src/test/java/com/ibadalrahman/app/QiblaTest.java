@@ -0,0 +1,40 @@
+package com.ibadalrahman.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class QiblaTest {
+
+    @Test
+    public void bearing_pointsAlongTheGreatCircle() {
+        // Cairo faces a little south of east, London south-east, Jakarta west-north-west
+        assertEquals(136.1, Qibla.bearing(30.0444, 31.2357), 0.1);
+        assertEquals(119.0, Qibla.bearing(51.5074, -0.1278), 0.1);
+        assertEquals(295.1, Qibla.bearing(-6.2088, 106.8456), 0.1);
+    }
+
+    @Test
+    public void filter_averagesAcrossNorth() {
+        Qibla.HeadingFilter filter = new Qibla.HeadingFilter(100, 1, 0);
+        filter.update(358, 0);
+        for (int i = 1; i <= 50; i++) filter.update(i % 2 == 0 ? 358 : 2, i * 20);
+        double heading = filter.heading();
+        assertTrue("heading " + heading, heading > 359 || heading < 1);
+    }
+
+    @Test
+    public void filter_emitsOnlyPastTheThresholdAndRateCap() {
+        Qibla.HeadingFilter filter = new Qibla.HeadingFilter(0, 2, 33);
+        assertTrue(filter.update(90, 0));
+        // Past the threshold but too soon after the last event
+        assertFalse(filter.update(100, 20));
+        // Late enough but below the threshold
+        assertFalse(filter.update(91, 40));
+        assertTrue(filter.update(100, 50));
+        assertEquals(100, filter.heading(), 1e-9);
+
+        filter.reset();
+        assertTrue(filter.update(100.5, 51));
+    }
+}
@@ -0,0 +1,128 @@
+package com.ibadalrahman.app;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class QuranCorpusTest {
+
+    /** Two surahs (2 + 1 ayahs) in the layout quran-corpus.gradle writes. */
+    private static ByteBuffer sampleCorpus() throws IOException {
+        String[] texts = {"بسم الله", "الحمد لله", "قل هو الله أحد"};
+        ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        DataOutputStream stringsOut = new DataOutputStream(strings);
+        int[] stringOffsets = new int[6];
+        String[] names = {"الفاتحة", "Al-Faatiha", "The Opening", "الإخلاص", "Al-Ikhlaas", "Sincerity"};
+        for (int i = 0; i < names.length; i++) {
+            stringOffsets[i] = stringsOut.size();
+            byte[] bytes = names[i].getBytes(StandardCharsets.UTF_8);
+            stringsOut.writeShort(bytes.length);
+            stringsOut.write(bytes);
+        }
+
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        ByteArrayOutputStream ayahTable = new ByteArrayOutputStream();
+        DataOutputStream ayahOut = new DataOutputStream(ayahTable);
+        for (int i = 0; i < texts.length; i++) {
+            ayahOut.writeInt(text.size());
+            ayahOut.writeShort(600 + i);
+            ayahOut.writeShort(1);
+            ayahOut.writeShort(240);
+            ayahOut.writeByte(30);
+            ayahOut.writeByte(7);
+            ayahOut.writeByte(i == 1 ? 15 : 0);
+            ayahOut.writeByte(i == 1 ? 2 : 0);
+            text.write(texts[i].getBytes(StandardCharsets.UTF_8));
+        }
+
+        int stringsOffset = QuranCorpus.HEADER_BYTES + 2 * QuranCorpus.SURAH_BYTES + ayahTable.size();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(QuranCorpus.MAGIC);
+        data.writeInt(QuranCorpus.VERSION);
+        data.writeInt(2);
+        data.writeInt(texts.length);
+        data.writeInt(stringsOffset);
+        data.writeInt(stringsOffset + strings.size());
+        data.writeInt(text.size());
+        data.writeInt(0);
+        int[][] surahs = {{0, 2, 0}, {2, 1, 1}};
+        for (int s = 0; s < surahs.length; s++) {
+            data.writeInt(surahs[s][0]);
+            data.writeShort(surahs[s][1]);
+            data.writeByte(surahs[s][2]);
+            data.writeByte(0);
+            data.writeInt(stringOffsets[s * 3]);
+            data.writeInt(stringOffsets[s * 3 + 1]);
+            data.writeInt(stringOffsets[s * 3 + 2]);
+        }
+        ayahTable.writeTo(data);
+        strings.writeTo(data);
+        text.writeTo(data);
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    @Test
+    public void readsSurahMetadata() throws IOException {
+        QuranCorpus corpus = new QuranCorpus(sampleCorpus());
+        assertEquals(2, corpus.surahCount());
+        assertEquals(3, corpus.ayahCount());
+
+        QuranCorpus.Surah second = corpus.surah(2);
+        assertEquals("الإخلاص", second.name);
+        assertEquals("Al-Ikhlaas", second.englishName);
+        assertEquals("Sincerity", second.englishNameTranslation);
+        assertEquals("Medinan", second.revelationType);
+        assertEquals(1, second.numberOfAyahs);
+    }
+
+    @Test
+    public void readsAyahRangeWithTextAndSajda() throws IOException {
+        QuranCorpus corpus = new QuranCorpus(sampleCorpus());
+        QuranCorpus.Ayah[] ayahs = corpus.ayahs(corpus.surah(1), 1, 2);
+        assertEquals(2, ayahs.length);
+        assertEquals("بسم الله", ayahs[0].text);
+        assertEquals(0, ayahs[0].sajdaId);
+        assertEquals("الحمد لله", ayahs[1].text);
+        assertEquals(2, ayahs[1].numberInSurah);
+        assertEquals(601, ayahs[1].page);
+        assertEquals(15, ayahs[1].sajdaId);
+        assertTrue(ayahs[1].sajdaObligatory);
+        assertFalse(ayahs[1].sajdaRecommended);
+
+        // The last ayah's text runs to the end of the blob
+        QuranCorpus.Ayah[] last = corpus.ayahs(corpus.surah(2), 1, 1);
+        assertEquals("قل هو الله أحد", last[0].text);
+        assertEquals(3, last[0].number);
+    }
+
+    @Test
+    public void clampsRangeToSurah() throws IOException {
+        QuranCorpus corpus = new QuranCorpus(sampleCorpus());
+        assertEquals(2, corpus.ayahs(corpus.surah(1), -5, 99).length);
+        assertEquals(0, corpus.ayahs(corpus.surah(1), 3, 9).length);
+    }
+
+    @Test
+    public void rejectsForeignOrTruncatedData() {
+        try {
+            new QuranCorpus(ByteBuffer.wrap(new byte[64]));
+            fail("Expected IOException");
+        } catch (IOException expected) {
+            // Wrong magic
+        }
+        try {
+            ByteBuffer full = sampleCorpus();
+            new QuranCorpus(ByteBuffer.wrap(full.array(), 0, full.capacity() - 1).slice());
+            fail("Expected IOException");
+        } catch (IOException expected) {
+            // Text blob cut short
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.ibadalrahman.app;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class QuranSearchIndexTest {
+
+    private static final String[] AYAHS = {
+            "بِسْمِ ٱللَّهِ ٱلرَّحْمَٰنِ ٱلرَّحِيمِ",
+            "ٱلْحَمْدُ لِلَّهِ رَبِّ ٱلْعَٰلَمِينَ",
+            "وَأَقِيمُوا۟ ٱلصَّلَوٰةَ وَءَاتُوا۟ ٱلزَّكَوٰةَ",
+            "قُلْ هُوَ ٱللَّهُ أَحَدٌ",
+            "إِنَّ ٱلصَّلَاةَ كَانَتْ عَلَى ٱلْمُؤْمِنِينَ كِتَٰبًا مَّوْقُوتًا",
+            "رَحْمَتِى وَسِعَتْ كُلَّ شَىْءٍ",
+            "وَٱلرَّحْمَٰنُ عَلَى ٱلْعَرْشِ",
+    };
+
+    /** Same layout and folding quran-corpus.gradle uses. */
+    private static QuranSearchIndex buildIndex(String... ayahs) throws IOException {
+        TreeMap<String, TreeSet<Integer>> tokens = new TreeMap<>();
+        TreeMap<String, TreeSet<Integer>> stems = new TreeMap<>();
+        for (int i = 0; i < ayahs.length; i++) {
+            for (String token : ArabicNormalizer.tokens(ayahs[i])) {
+                tokens.computeIfAbsent(token, k -> new TreeSet<>()).add(i);
+                stems.computeIfAbsent(ArabicNormalizer.stem(token), k -> new TreeSet<>()).add(i);
+            }
+        }
+
+        ByteArrayOutputStream termTable = new ByteArrayOutputStream();
+        DataOutputStream termOut = new DataOutputStream(termTable);
+        ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        DataOutputStream stringsOut = new DataOutputStream(strings);
+        ByteArrayOutputStream postings = new ByteArrayOutputStream();
+        for (TreeMap<String, TreeSet<Integer>> terms : Arrays.asList(tokens, stems)) {
+            for (Map.Entry<String, TreeSet<Integer>> term : terms.entrySet()) {
+                byte[] bytes = term.getKey().getBytes(StandardCharsets.UTF_8);
+                termOut.writeInt(stringsOut.size());
+                termOut.writeInt(postings.size());
+                termOut.writeInt(term.getValue().size());
+                stringsOut.writeShort(bytes.length);
+                stringsOut.write(bytes);
+                int previous = 0;
+                for (int ayah : term.getValue()) {
+                    int gap = ayah - previous;
+                    while ((gap & ~0x7F) != 0) {
+                        postings.write((gap & 0x7F) | 0x80);
+                        gap >>>= 7;
+                    }
+                    postings.write(gap);
+                    previous = ayah;
+                }
+            }
+        }
+
+        int stringsOffset = QuranSearchIndex.HEADER_BYTES + termTable.size();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(QuranSearchIndex.MAGIC);
+        data.writeInt(QuranSearchIndex.VERSION);
+        data.writeInt(ayahs.length);
+        data.writeInt(tokens.size());
+        data.writeInt(stems.size());
+        data.writeInt(stringsOffset);
+        data.writeInt(stringsOffset + strings.size());
+        data.writeInt(postings.size());
+        termTable.writeTo(data);
+        strings.writeTo(data);
+        postings.writeTo(data);
+        return new QuranSearchIndex(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    @Test
+    public void normalize_foldsTashkeelAndLetterVariants() {
+        assertEquals("الرحمن", ArabicNormalizer.normalize("ٱلرَّحْمَٰنِ"));
+        assertEquals("الصلوه", ArabicNormalizer.normalize("ٱلصَّلَوٰةَ"));
+        assertEquals("احد", ArabicNormalizer.normalize("أَحَدٌ"));
+        assertEquals(Arrays.asList("قل", "هو", "الله", "احد"), ArabicNormalizer.tokens("﻿قُلْ هُوَ ٱللَّهُ أَحَدٌ ۝"));
+    }
+
+    @Test
+    public void stem_stripsCliticsButKeepsShortWords() {
+        assertEquals("رحمن", ArabicNormalizer.stem("الرحمن"));
+        assertEquals("مؤمن".replace('ؤ', 'و'), ArabicNormalizer.stem("المومنين"));
+        assertEquals("الله", ArabicNormalizer.stem("الله"));
+        assertEquals("رب", ArabicNormalizer.stem("رب"));
+    }
+
+    @Test
+    public void search_ignoresDiacriticsAndSpellingVariants() throws IOException {
+        QuranSearchIndex index = buildIndex(AYAHS);
+        QuranSearchIndex.Result result = index.search("الصلاة");
+        assertEquals(1, result.size());
+        assertEquals(4, result.ayahs[0]);
+
+        assertEquals(3, index.search("أحد").ayahs[0]);
+        assertEquals(0, index.search("الرَّحْمَٰن").ayahs[0]);
+    }
+
+    @Test
+    public void search_requiresEveryWordAndRanksExactFirst() throws IOException {
+        QuranSearchIndex index = buildIndex(AYAHS);
+        assertEquals(0, index.search("قل الرحمن").size());
+
+        // "رحم" starts the stem "رحمن" of ayahs 0 and 6 and the word "رحمتي" of ayah 5
+        assertEquals(Arrays.asList(0, 5, 6), sorted(index.search("رحم").ayahs));
+
+        // Ayah 0 has the exact word; ayah 6 only shares its stem through "والرحمن"
+        QuranSearchIndex.Result result = index.search("الرحمن");
+        assertEquals(2, result.size());
+        assertEquals(0, result.ayahs[0]);
+        assertEquals(6, result.ayahs[1]);
+        assertTrue(result.scores[0] > result.scores[1]);
+    }
+
+    @Test
+    public void search_emptyOrUnknownQueryFindsNothing() throws IOException {
+        QuranSearchIndex index = buildIndex(AYAHS);
+        assertEquals(0, index.search("   ").size());
+        assertEquals(0, index.search("xyz").size());
+    }
+
+    private static List<Integer> sorted(int[] values) {
+        Integer[] boxed = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) boxed[i] = values[i];
+        Arrays.sort(boxed);
+        return Arrays.asList(boxed);
+    }
+}
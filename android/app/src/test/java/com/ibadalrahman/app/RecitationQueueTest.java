@@ -0,0 +1,59 @@
+package com.ibadalrahman.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class RecitationQueueTest {
+
+    private static final String BASE = "https://everyayah.com/data/Alafasy_128kbps/";
+
+    private static List<String> urls(int surah, int count) {
+        List<String> urls = new ArrayList<>();
+        for (int ayah = 1; ayah <= count; ayah++) urls.add(BASE + String.format("%03d%03d.mp3", surah, ayah));
+        return urls;
+    }
+
+    @Test
+    public void lookAhead_coversTheNextAyahsWithinTheSurah() {
+        RecitationQueue queue = new RecitationQueue(112, urls(112, 4), 1, null);
+        assertArrayEquals(new int[] {2, 3, 4}, queue.lookAhead());
+
+        queue.advance();
+        queue.advance();
+        assertEquals(3, queue.current());
+        assertArrayEquals(new int[] {4}, queue.lookAhead());
+
+        queue.advance();
+        assertFalse(queue.hasNext());
+        assertEquals(0, queue.lookAhead().length);
+        queue.advance();
+        assertEquals(4, queue.current());
+    }
+
+    @Test
+    public void seek_isClampedToTheSurah() {
+        RecitationQueue queue = new RecitationQueue(1, urls(1, 7), 99, null);
+        assertEquals(7, queue.current());
+        queue.seek(0);
+        assertEquals(1, queue.current());
+    }
+
+    @Test
+    public void cacheKey_identifiesTheRecordingNotThePosition() {
+        // Warsh Fatiha borrows another reciter's basmalah for ayah 1
+        List<String> warsh = Arrays.asList(
+                BASE + "001001.mp3",
+                "https://everyayah.com/data/warsh/warsh_ibrahim_aldosary_128kbps/001001.mp3");
+        RecitationQueue queue = new RecitationQueue(1, warsh, 1, "quran/warsh/1");
+        assertEquals("Alafasy_128kbps_001001", queue.cacheKey(1));
+        assertEquals("warsh_ibrahim_aldosary_128kbps_001001", queue.cacheKey(2));
+        assertEquals("quran/warsh/1/001.mp3", queue.downloadedPath(2));
+
+        assertNull(new RecitationQueue(1, warsh, 1, null).downloadedPath(1));
+    }
+}
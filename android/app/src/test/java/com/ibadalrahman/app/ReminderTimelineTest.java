@@ -0,0 +1,61 @@
+package com.ibadalrahman.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+public class ReminderTimelineTest {
+    private static final long MINUTE = 60 * 1000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 20000;
+    private static final long NOON = 1_800_000_000_000L;
+
+    private AlarmStore alarms;
+
+    @Before
+    public void setUp() throws Exception {
+        alarms = new AlarmStore(new File(java.nio.file.Files.createTempDirectory("timeline").toFile(), "alarms.bin"));
+        // Dhuhr at noon and Asr three hours later, plus a test alarm in between
+        alarms.put(AlarmStore.idFor(DAY, 1, AlarmStore.KIND_ADHAN), NOON, null);
+        alarms.put(AlarmStore.idFor(DAY, 2, AlarmStore.KIND_ADHAN), NOON + 3 * HOUR, null);
+        alarms.put(AlarmStore.idFor(DAY, AlarmStore.SLOT_ADHOC, AlarmStore.KIND_ADHAN), NOON + HOUR, null);
+    }
+
+    @Test
+    public void next_walksEveryEventInOrder() {
+        ReminderTimeline.Config config = new ReminderTimeline.Config(15, true, 20);
+        StringBuilder order = new StringBuilder();
+        long time = NOON - HOUR;
+        int id = Integer.MIN_VALUE;
+        for (ReminderTimeline.Event event; (event = ReminderTimeline.next(alarms, config, time, id)) != null; ) {
+            order.append(event.slot()).append(':').append(event.kind()).append(' ');
+            assertEquals(AlarmStore.idFor(DAY, event.slot(), AlarmStore.KIND_ADHAN), event.adhanId());
+            time = event.time;
+            id = event.id;
+        }
+        assertEquals("1:1 1:2 1:3 2:1 2:2 2:3 ", order.toString());
+    }
+
+    @Test
+    public void next_firesEventsDueTogetherOneAfterTheOther() {
+        // A 9-minute reminder lands on the pre-Adhan notice
+        ReminderTimeline.Config config = new ReminderTimeline.Config(9, true, 0);
+        ReminderTimeline.Event first = ReminderTimeline.next(alarms, config, NOON - HOUR, Integer.MIN_VALUE);
+        ReminderTimeline.Event second = ReminderTimeline.next(alarms, config, first.time, first.id);
+        assertEquals(first.time, second.time);
+        assertEquals(AlarmStore.KIND_REMINDER, first.kind());
+        assertEquals(AlarmStore.KIND_PRE_ADHAN, second.kind());
+    }
+
+    @Test
+    public void next_findsAPostPrayerEventForAnAdhanAlreadyPast() {
+        ReminderTimeline.Config config = new ReminderTimeline.Config(0, false, 20);
+        ReminderTimeline.Event event = ReminderTimeline.next(alarms, config, NOON + 5 * MINUTE, Integer.MIN_VALUE);
+        assertEquals(NOON + 20 * MINUTE, event.time);
+        assertEquals(1, event.slot());
+        assertNull(ReminderTimeline.next(alarms, new ReminderTimeline.Config(0, false, 0), NOON - HOUR, Integer.MIN_VALUE));
+    }
+}
@@ -0,0 +1,62 @@
+package com.ibadalrahman.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+public class StartupTraceTest {
+
+    @After
+    public void tearDown() {
+        StartupTrace.reset();
+    }
+
+    @Test
+    public void firstLaunch_isColdAndMeasuredFromProcessStart() {
+        StartupTrace.processStarted(1000, 1040);
+        StartupTrace trace = StartupTrace.launch(1100);
+        assertEquals(StartupTrace.COLD, trace.type);
+
+        trace.mark(StartupTrace.ACTIVITY_CREATE, 1100);
+        trace.mark(StartupTrace.FIRST_FRAME, 1450);
+        Map<String, Long> milestones = trace.milestones();
+        assertEquals(Long.valueOf(40), milestones.get(StartupTrace.APPLICATION_CREATE));
+        assertEquals(Long.valueOf(100), milestones.get(StartupTrace.ACTIVITY_CREATE));
+        assertEquals(Long.valueOf(450), milestones.get(StartupTrace.FIRST_FRAME));
+        assertEquals(Arrays.asList(StartupTrace.APPLICATION_CREATE, StartupTrace.ACTIVITY_CREATE, StartupTrace.FIRST_FRAME),
+                new ArrayList<>(milestones.keySet()));
+    }
+
+    @Test
+    public void laterLaunch_isWarmAndMeasuredFromActivityCreate() {
+        StartupTrace.processStarted(1000, 1040);
+        StartupTrace.launch(1100);
+        StartupTrace warm = StartupTrace.launch(60_000);
+        assertEquals(StartupTrace.WARM, warm.type);
+        assertSame(warm, StartupTrace.current());
+
+        warm.mark(StartupTrace.FIRST_FRAME, 60_200);
+        assertEquals(Long.valueOf(200), warm.milestones().get(StartupTrace.FIRST_FRAME));
+        assertFalse(warm.milestones().containsKey(StartupTrace.APPLICATION_CREATE));
+    }
+
+    @Test
+    public void backgroundProcess_launchIsWarm() {
+        // Started for an alarm, so MainApplication never reported a foreground process start
+        assertEquals(StartupTrace.WARM, StartupTrace.launch(5000).type);
+    }
+
+    @Test
+    public void mark_keepsTheFirstTimeOnly() {
+        StartupTrace trace = StartupTrace.launch(0);
+        assertTrue(trace.mark(StartupTrace.FIRST_PRAYER_CARD, 800));
+        assertFalse(trace.mark(StartupTrace.FIRST_PRAYER_CARD, 5000));
+        assertEquals(Long.valueOf(800), trace.milestones().get(StartupTrace.FIRST_PRAYER_CARD));
+        assertTrue(trace.isComplete());
+    }
+}
@@ -0,0 +1,143 @@
+package com.ibadalrahman.app;
+
+import static org.junit.Assert.*;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TafsirCacheTest {
+
+    private File dir;
+    private HttpServer server;
+    private String baseUrl;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile CountDownLatch release;
+    private volatile boolean offline;
+
+    /** Stands in for api.quran-tafseer.com: {@code /tafseer/{id}/{surah}/{ayah}}. */
+    @Before
+    public void setUp() throws Exception {
+        dir = java.nio.file.Files.createTempDirectory("tafsir").toFile();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/tafseer/", exchange -> {
+            requests.incrementAndGet();
+            try {
+                if (release != null) release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+            String[] parts = exchange.getRequestURI().getPath().split("/");
+            byte[] body = ("{\"tafseer_id\":" + parts[2] + ",\"ayah_number\":" + parts[4]
+                    + ",\"text\":\"tafsir " + parts[3] + ":" + parts[4] + "\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(offline ? 503 : 200, offline ? -1 : body.length);
+            if (!offline) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/tafseer";
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        for (File file : dir.listFiles()) file.delete();
+        dir.delete();
+    }
+
+    private TafsirCache newCache(long maxBytes) {
+        return new TafsirCache(dir, baseUrl, 6, maxBytes);
+    }
+
+    @Test
+    public void get_servesRepeatsFromDiskAcrossInstances() throws IOException {
+        TafsirCache cache = newCache(TafsirCache.DEFAULT_MAX_BYTES);
+        assertTrue(cache.get(2, 255).contains("tafsir 2:255"));
+        assertTrue(cache.get(2, 255).contains("tafsir 2:255"));
+        assertEquals(1, requests.get());
+        assertEquals(1, cache.stats().hits);
+        assertEquals(1, cache.stats().misses);
+
+        offline = true;
+        TafsirCache reopened = newCache(TafsirCache.DEFAULT_MAX_BYTES);
+        assertTrue(reopened.contains(2, 255));
+        assertTrue(reopened.get(2, 255).contains("tafsir 2:255"));
+        assertEquals(1, requests.get());
+        try {
+            reopened.get(2, 256);
+            fail("Expected the stand-in server error");
+        } catch (IOException expected) {
+            assertFalse(reopened.contains(2, 256));
+        }
+    }
+
+    @Test
+    public void get_concurrentRequestsShareOneDownload() throws Exception {
+        TafsirCache cache = newCache(TafsirCache.DEFAULT_MAX_BYTES);
+        release = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        java.util.concurrent.ExecutorService callers = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 4; i++) results.add(callers.submit(() -> cache.get(1, 1)));
+
+        // Let every caller reach the cache before the server answers
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cache.stats().misses < 4 && System.currentTimeMillis() < deadline) Thread.sleep(5);
+        release.countDown();
+
+        for (Future<String> result : results) assertTrue(result.get(5, TimeUnit.SECONDS).contains("tafsir 1:1"));
+        callers.shutdown();
+        assertEquals(1, requests.get());
+        assertEquals(1, cache.stats().downloads);
+    }
+
+    @Test
+    public void write_evictsLeastRecentlyUsedPastTheLimit() throws IOException {
+        long entryBytes = newCache(Long.MAX_VALUE).get(1, 1).getBytes(StandardCharsets.UTF_8).length;
+        TafsirCache cache = newCache(entryBytes * 3);
+        cache.get(1, 2);
+        cache.get(1, 3);
+        cache.get(1, 1); // now the most recently used
+        cache.get(1, 4);
+
+        assertFalse(cache.contains(1, 2));
+        assertTrue(cache.contains(1, 1));
+        assertTrue(cache.contains(1, 3));
+        assertTrue(cache.contains(1, 4));
+        assertEquals(1, cache.stats().evictions);
+        assertEquals(3, cache.stats().entries);
+        assertEquals(3, dir.listFiles().length);
+    }
+
+    @Test
+    public void prefetch_downloadsTheRangeOnceInTheBackground() throws Exception {
+        TafsirCache cache = newCache(TafsirCache.DEFAULT_MAX_BYTES);
+        cache.get(112, 1);
+        cache.prefetch(112, 1, 4);
+        cache.prefetch(112, 2, 4);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cache.stats().entries < 4 && System.currentTimeMillis() < deadline) Thread.sleep(5);
+        cache.shutdown();
+        for (int ayah = 1; ayah <= 4; ayah++) assertTrue(cache.contains(112, ayah));
+        assertEquals(4, requests.get());
+    }
+}
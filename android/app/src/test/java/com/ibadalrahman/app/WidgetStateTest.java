@@ -0,0 +1,74 @@
+package com.ibadalrahman.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.TimeZone;
+
+public class WidgetStateTest {
+
+    private static final String[] TIMES = {"4:42", "1:21", "6:22", "8:32", "9:57"};
+
+    @Test
+    public void firstRender_changesEverything() {
+        WidgetState state = new WidgetState(TIMES, "1 Ramadan", PrayerTimesCalculator.ASR);
+        assertEquals(WidgetState.CHANGED_ALL, state.diff(null));
+    }
+
+    @Test
+    public void identicalState_changesNothing() {
+        WidgetState a = new WidgetState(TIMES, "1 Ramadan", PrayerTimesCalculator.ASR);
+        WidgetState b = new WidgetState(TIMES.clone(), "1 Ramadan", PrayerTimesCalculator.ASR);
+        assertEquals(0, b.diff(a));
+        assertEquals(a, b);
+    }
+
+    @Test
+    public void diff_flagsOnlyTheChangedCells() {
+        WidgetState before = new WidgetState(TIMES, "1 Ramadan", PrayerTimesCalculator.ASR);
+        String[] times = TIMES.clone();
+        times[PrayerTimesCalculator.ISHA] = "9:58";
+        WidgetState after = new WidgetState(times, "1 Ramadan", PrayerTimesCalculator.MAGHRIB);
+
+        assertEquals((1 << PrayerTimesCalculator.ISHA) | WidgetState.CHANGED_HIGHLIGHT, after.diff(before));
+        assertEquals(WidgetState.CHANGED_HIJRI,
+                new WidgetState(TIMES, "2 Ramadan", PrayerTimesCalculator.ASR).diff(before));
+    }
+
+    @Test
+    public void displayNames_mapToSlotsInBothLanguages() {
+        assertEquals(PrayerTimesCalculator.FAJR, WidgetState.slotForDisplayName("Fajr"));
+        assertEquals(PrayerTimesCalculator.MAGHRIB, WidgetState.slotForDisplayName("المغرب"));
+        assertEquals(WidgetState.NO_HIGHLIGHT, WidgetState.slotForDisplayName("Sunrise"));
+        assertEquals(WidgetState.NO_HIGHLIGHT, WidgetState.slotForDisplayName(null));
+    }
+
+    @Test
+    public void nextPrayerSlot_advancesAtEachBoundaryAndWrapsToFajr() {
+        long[] schedule = {1000, 2000, 3000, 4000, 5000};
+        assertEquals(PrayerTimesCalculator.FAJR, WidgetState.nextPrayerSlot(schedule, 0));
+        assertEquals(PrayerTimesCalculator.DHUHR, WidgetState.nextPrayerSlot(schedule, 1000));
+        assertEquals(PrayerTimesCalculator.ISHA, WidgetState.nextPrayerSlot(schedule, 4999));
+        assertEquals(PrayerTimesCalculator.FAJR, WidgetState.nextPrayerSlot(schedule, 5000));
+
+        schedule[PrayerTimesCalculator.ISHA] = PrayerTimesCalculator.INVALID_TIME;
+        assertEquals(PrayerTimesCalculator.FAJR, WidgetState.nextPrayerSlot(schedule, 4500));
+    }
+
+    @Test
+    public void formatTime_matchesTheJsRowFormat() {
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        assertEquals("12:05", WidgetState.formatTime(5 * 60_000L, utc));
+        assertEquals("1:21", WidgetState.formatTime((13 * 60 + 21) * 60_000L, utc));
+        assertEquals("--:--", WidgetState.formatTime(PrayerTimesCalculator.INVALID_TIME, utc));
+    }
+
+    @Test
+    public void encode_roundTrips() {
+        WidgetState state = new WidgetState(TIMES, "18 أكتوبر 2026", WidgetState.NO_HIGHLIGHT);
+        assertEquals(state, WidgetState.decode(state.encode()));
+        assertNull(WidgetState.decode(null));
+        assertNull(WidgetState.decode("garbage"));
+    }
+}
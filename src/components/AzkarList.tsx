@@ -14,6 +14,7 @@ import {
 } from "@/components/ui/dialog";
 import { CheckCircle2, RotateCcw, Info, Heart } from "lucide-react";
 import { useAzkarProgress } from "@/hooks/useAzkarProgress";
+import { storeNamespace, useStoreReady } from "@/lib/kv-store";
 import { toast } from "sonner";
 import { useFontSize } from "@/contexts/FontSizeContext";
 import {
@@ -55,14 +56,14 @@ const AzkarCategory = ({
 
   useEffect(() => {
     if (showPersonalizedTabs) {
-      const savedFavorites = localStorage.getItem(`azkar-favorites-${type}`);
+      const savedFavorites = storeNamespace<number[]>("azkar").get(`favorites-${type}`);
       if (savedFavorites) {
-        setFavorites(JSON.parse(savedFavorites));
+        setFavorites(savedFavorites);
       } else {
         // Initialize with defaults if no saved data
         const defaults = data.filter(item => item.isFavoriteDefault).map(item => item.id);
         setFavorites(defaults);
-        localStorage.setItem(`azkar-favorites-${type}`, JSON.stringify(defaults));
+        storeNamespace<number[]>("azkar").set(`favorites-${type}`, defaults);
       }
     }
   }, [type, data, showPersonalizedTabs]);
@@ -77,7 +78,7 @@ const AzkarCategory = ({
       toast.success(language === "ar" ? "تم الإضافة إلى أذكارك" : "Added to Your Azkar");
     }
     setFavorites(newFavorites);
-    localStorage.setItem(`azkar-favorites-${type}`, JSON.stringify(newFavorites));
+    storeNamespace<number[]>("azkar").set(`favorites-${type}`, newFavorites);
     triggerHaptic();
   };
 
@@ -310,18 +311,15 @@ const AzkarCategory = ({
 };
 
 export const AzkarList = () => {
+  useStoreReady();
   const { t, language } = useLanguage();
   const [resetKey, setResetKey] = useState(0);
 
   const handleResetAll = () => {
-    const d = new Date();
-    const today = `${d.getFullYear()}-${String(d.getMonth() + 1).padStart(2, '0')}-${String(d.getDate()).padStart(2, '0')}`;
-    const types = ["morning", "evening", "afterPrayer", "sleep", "nightAnxiety", "badDreams"];
-
-    types.forEach(type => {
-      localStorage.removeItem(`azkar-progress-${type}-${today}`);
-      localStorage.removeItem(`azkar-last-active-${type}`);
-    });
+    const azkar = storeNamespace("azkar");
+    azkar.keys()
+      .filter(key => key.startsWith("progress-") || key.startsWith("last-active-"))
+      .forEach(key => azkar.remove(key));
 
     setResetKey(prev => prev + 1);
     toast.success(language === "ar" ? "تم إعادة تعيين الأذكار" : "Azkar reset successfully");
@@ -6,15 +6,17 @@ import { useNotification } from "@/contexts/NotificationContext";
 import { Terminal, Trash2 } from "lucide-react";
 import { toast } from "sonner";
 import { specialDuas, simpleDuas } from "@/lib/developer-data";
+import { clearStore } from "@/lib/kv-store";
 
 export const DeveloperPanel = () => {
     const { language, t } = useLanguage();
     const settings = useSettings(); // Get settings
     const { settings: notifSettings } = useNotification(); // Get notification settings
 
-    const handleClearStorage = () => {
+    const handleClearStorage = async () => {
         if (confirm("Are you sure you want to clear ALL local storage? This will reset the app completely.")) {
             localStorage.clear();
+            await clearStore();
             window.location.reload();
         }
     };
@@ -132,6 +134,126 @@ export const DeveloperPanel = () => {
                         Check Pending Alarms
                     </Button>
 
+                    <Button
+                        variant="outline"
+                        className="w-full justify-start text-white border-white/20 hover:bg-white/10"
+                        onClick={async () => {
+                            try {
+                                // eslint-disable-next-line @typescript-eslint/no-explicit-any
+                                if ((window as any).Capacitor?.isNativePlatform()) {
+                                    const { default: WidgetBridge } = await import("@/lib/widget-bridge");
+                                    const stats = await WidgetBridge.getAlarmStats({ recent: 20 });
+                                    const logDiv = document.getElementById('dev-debug-log');
+                                    if (logDiv) {
+                                        const seconds = (ms: number) => `${(ms / 1000).toFixed(1)}s`;
+                                        const percentiles = (name: string, d: { count: number; p50: number; p90: number; p99: number; max: number }) =>
+                                            `${name} (n=${d.count}): p50 ${seconds(d.p50)}, p90 ${seconds(d.p90)}, p99 ${seconds(d.p99)}, max ${seconds(d.max)}`;
+                                        logDiv.innerHTML = [
+                                            `${stats.total} alarms: ${stats.played} played, ${stats.silenced} silenced, ${stats.failed} failed, ` +
+                                            `${stats.incomplete} incomplete, ${stats.missed} missed, ${stats.duplicates} duplicate, ${stats.late} late`,
+                                            percentiles("Fire delay", stats.fireDelay),
+                                            percentiles("Service start", stats.serviceDelay),
+                                            percentiles("Audio start", stats.audioDelay),
+                                            percentiles("Due to sound", stats.totalDelay),
+                                            `Buckets: ${Object.entries(stats.byBucket).map(([bucket, count]) => `${bucket} ${count}`).join(', ') || "none"}`,
+                                            `Refill: ${stats.horizonDays} days, last ${stats.lastRefill ? new Date(stats.lastRefill).toLocaleString() : "never"}`,
+                                            ...stats.recent.map(r =>
+                                                `[${r.prayerName}] ${new Date(r.scheduledAt).toLocaleString()} ${r.outcome}` +
+                                                (r.fireDelay !== undefined ? ` +${seconds(r.fireDelay)}` : '') +
+                                                (r.audioDelay !== undefined ? `, sound +${r.audioDelay}ms` : '') +
+                                                (r.bucket ? ` (${r.bucket}${r.deviceIdle ? ', idle' : ''}${r.powerSave ? ', saver' : ''})` : '')
+                                            ),
+                                        ].join('<br/>');
+                                    }
+                                } else {
+                                    toast.error("Not on native platform");
+                                }
+                            } catch (e) {
+                                console.error(e);
+                                toast.error("Failed to fetch alarm stats");
+                            }
+                        }}
+                    >
+                        Show Alarm Stats
+                    </Button>
+
+                    <Button
+                        variant="outline"
+                        className="w-full justify-start text-white border-white/20 hover:bg-white/10"
+                        onClick={async () => {
+                            try {
+                                // eslint-disable-next-line @typescript-eslint/no-explicit-any
+                                if ((window as any).Capacitor?.isNativePlatform()) {
+                                    const { default: Startup } = await import("@/lib/startup");
+                                    const { current, history } = await Startup.getStartupMetrics();
+                                    const logDiv = document.getElementById('dev-debug-log');
+                                    if (logDiv) {
+                                        const launches = current ? [current, ...history.filter(h => h.timestamp !== current.timestamp)] : history;
+                                        logDiv.innerHTML = launches.length === 0 ? "No launches recorded." : launches.map(launch =>
+                                            `[${launch.type}] ${new Date(launch.timestamp).toLocaleString()}: ` +
+                                            Object.entries(launch.milestones).map(([name, ms]) => `${name} ${ms}ms`).join(', ')
+                                        ).join('<br/>');
+                                    }
+                                } else {
+                                    toast.error("Not on native platform");
+                                }
+                            } catch (e) {
+                                console.error(e);
+                                toast.error("Failed to fetch startup metrics");
+                            }
+                        }}
+                    >
+                        Show Startup Metrics
+                    </Button>
+
+                    <Button
+                        variant="outline"
+                        className="w-full justify-start text-white border-white/20 hover:bg-white/10"
+                        onClick={async () => {
+                            try {
+                                // eslint-disable-next-line @typescript-eslint/no-explicit-any
+                                if ((window as any).Capacitor?.isNativePlatform()) {
+                                    const { default: WidgetBridge } = await import("@/lib/widget-bridge");
+                                    const enabled = localStorage.getItem("rollingAlarms") !== "true";
+                                    await WidgetBridge.setRollingAlarms({ enabled });
+                                    localStorage.setItem("rollingAlarms", String(enabled));
+                                    toast.success(enabled ? "Rolling mode: only the next Adhan is armed" : "Per-prayer mode: every Adhan is armed");
+                                } else {
+                                    toast.error("Not on native platform");
+                                }
+                            } catch (e) {
+                                console.error(e);
+                                toast.error("Failed to switch scheduler mode");
+                            }
+                        }}
+                    >
+                        Toggle Rolling Alarm Mode (Next Alarm Only)
+                    </Button>
+
+                    <Button
+                        variant="outline"
+                        className="w-full justify-start text-white border-white/20 hover:bg-white/10"
+                        onClick={async () => {
+                            try {
+                                // eslint-disable-next-line @typescript-eslint/no-explicit-any
+                                if ((window as any).Capacitor?.isNativePlatform()) {
+                                    const { default: WidgetBridge } = await import("@/lib/widget-bridge");
+                                    const enabled = localStorage.getItem("azanPcmCache") !== "true";
+                                    await WidgetBridge.setAzanPcmCache({ enabled });
+                                    localStorage.setItem("azanPcmCache", String(enabled));
+                                    toast.success(enabled ? "Adhan will play from decoded PCM" : "Adhan will play through MediaPlayer");
+                                } else {
+                                    toast.error("Not on native platform");
+                                }
+                            } catch (e) {
+                                console.error(e);
+                                toast.error("Failed to switch Adhan playback");
+                            }
+                        }}
+                    >
+                        Toggle Pre-decoded Adhan (PCM Cache)
+                    </Button>
+
                     <div className="mt-2 text-xs font-mono bg-black/40 text-white/80 p-2 rounded max-h-60 overflow-auto whitespace-pre-wrap border border-white/10" id="dev-debug-log">
                         Logs will appear here...
                     </div>
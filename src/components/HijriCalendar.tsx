@@ -7,6 +7,19 @@ import { ChevronRight, ChevronLeft, Calendar as CalendarIcon, StickyNote } from
 import { useLanguage } from "@/contexts/LanguageContext";
 import { cn } from "@/lib/utils";
 import { toast } from "sonner";
+import { getHijriMonthGrid, HijriMonthGrid } from "@/lib/hijri";
+import { IslamicEventId } from "@/lib/islamic-events";
+
+// Short labels that fit under the day number
+const SHORT_EVENT_NAMES: Partial<Record<IslamicEventId, { ar: string; en: string }>> = {
+    ramadanStart: { ar: "رمضان", en: "Ramadan" },
+    eidAlFitr: { ar: "عيد الفطر", en: "Eid Fitr" },
+    arafah: { ar: "عرفة", en: "Arafat" },
+    eidAlAdha: { ar: "عيد الأضحى", en: "Eid Adha" },
+    islamicNewYear: { ar: "رأس السنة", en: "New Year" },
+    mawlid: { ar: "المولد", en: "Mawlid" },
+    ashura: { ar: "عاشوراء", en: "Ashura" },
+};
 
 export const HijriCalendar = () => {
     const { language } = useLanguage();
@@ -77,37 +90,20 @@ export const HijriCalendar = () => {
     // Arabic numbers helper
     const toArabic = (n: number) => n.toLocaleString("ar-EG").replace(/,/g, "");
 
-    // Format Helpers using Native Intl
-    const getHijriMonthName = (date: Date) => {
-        return new Intl.DateTimeFormat(language === "ar" ? "ar-SA" : "en-US", {
-            calendar: "islamic-umalqura",
-            month: "long",
-        }).format(date);
-    };
-
-    const getHijriYear = (date: Date) => {
-        return new Intl.DateTimeFormat(language === "ar" ? "ar-SA" : "en-US", {
-            calendar: "islamic-umalqura",
-            year: "numeric",
-        }).format(date);
-    };
-
-    const getHijriDay = (date: Date) => {
-        const day = new Intl.DateTimeFormat("en-US", {
-            calendar: "islamic-umalqura",
-            day: "numeric",
-        }).format(date);
-        return parseInt(day, 10);
-    };
+    // The whole month's Hijri dates and events in one lookup, instead of Intl calls per cell
+    const [loadedGrid, setLoadedGrid] = useState<{ key: string; grid: HijriMonthGrid } | null>(null);
+    const gridKey = `${currentDate.getFullYear()}-${currentDate.getMonth()}-${language}`;
+    useEffect(() => {
+        let cancelled = false;
+        const key = `${currentDate.getFullYear()}-${currentDate.getMonth()}-${language}`;
+        getHijriMonthGrid(currentDate.getFullYear(), currentDate.getMonth(), language === "ar" ? "ar" : "en")
+            .then((grid) => { if (!cancelled) setLoadedGrid({ key, grid }); });
+        return () => { cancelled = true; };
+    }, [currentDate, language]);
 
-    const getHijriMonthIndex = (date: Date) => {
-        const parts = new Intl.DateTimeFormat("en-US", {
-            calendar: "islamic-umalqura",
-            month: "numeric"
-        }).formatToParts(date);
-        const m = parts.find(p => p.type === 'month')?.value;
-        return m ? parseInt(m) - 1 : 0;
-    };
+    // Nothing from the previous month is shown while the next one loads
+    const grid = loadedGrid?.key === gridKey ? loadedGrid.grid : null;
+    const headerMonth = grid?.months[0];
 
     // Navigation
     const nextMonth = () => {
@@ -120,6 +116,7 @@ export const HijriCalendar = () => {
 
     // Generate Calendar Grid
     const renderCalendarDays = () => {
+        if (!grid) return [];
         const year = currentDate.getFullYear();
         const month = currentDate.getMonth();
         const firstDay = new Date(year, month, 1);
@@ -137,23 +134,15 @@ export const HijriCalendar = () => {
         // Days
         for (let d = 1; d <= daysInMonth; d++) {
             const date = new Date(year, month, d);
-            const hijriDay = getHijriDay(date);
-            const hijriMonth = getHijriMonthIndex(date);
+            const { hijriDay, events } = grid.days[d - 1];
 
             const isToday = new Date().toDateString() === date.toDateString();
             const isFriday = date.getDay() === 5;
-            const isWhiteDay = [13, 14, 15].includes(hijriDay);
+            const isWhiteDay = events.includes("whiteDays");
             const hasNote = !!notes[date.toDateString()];
 
-            // Holidays Logic (Simple check)
-            let holidayName = null;
-            if (hijriMonth === 8 && hijriDay === 1) holidayName = language === 'ar' ? "رمضان" : "Ramadan";
-            if (hijriMonth === 9 && hijriDay === 1) holidayName = language === 'ar' ? "عيد الفطر" : "Eid Fitr";
-            if (hijriMonth === 11 && hijriDay === 9) holidayName = language === 'ar' ? "عرفة" : "Arafat";
-            if (hijriMonth === 11 && hijriDay === 10) holidayName = language === 'ar' ? "عيد الأضحى" : "Eid Adha";
-            if (hijriMonth === 0 && hijriDay === 1) holidayName = language === 'ar' ? "رأس السنة" : "New Year";
-            if (hijriMonth === 2 && hijriDay === 12) holidayName = language === 'ar' ? "المولد" : "Mawlid";
-            if (hijriMonth === 0 && hijriDay === 10) holidayName = language === 'ar' ? "عاشوراء" : "Ashura";
+            const holiday = events.find((id) => id !== "whiteDays");
+            const holidayName = holiday ? SHORT_EVENT_NAMES[holiday]?.[language === 'ar' ? 'ar' : 'en'] ?? null : null;
 
             days.push(
                 <div
@@ -221,7 +210,9 @@ export const HijriCalendar = () => {
 
                     <div className="text-center">
                         <h2 className="text-xl font-bold font-tajawal text-gold-matte">
-                            {getHijriMonthName(currentDate)} {getHijriYear(currentDate)}
+                            {headerMonth
+                                ? `${headerMonth.name} ${language === 'ar' ? `${toArabic(headerMonth.year)} هـ` : `${headerMonth.year} AH`}`
+                                : "\u00A0"}
                         </h2>
                         <div className="flex items-center justify-center gap-2 text-xs text-white/70 mt-1 font-sans">
                             <CalendarIcon className="w-3 h-3" />
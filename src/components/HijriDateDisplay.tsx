@@ -1,11 +1,22 @@
+import { useEffect, useState } from "react";
 import { useLanguage } from "@/contexts/LanguageContext";
-import { getHijriDate } from "@/lib/date-utils";
+import { formatHijriDate } from "@/lib/hijri";
 import { Moon } from "lucide-react";
 
 export const HijriDateDisplay = () => {
     const { language } = useLanguage();
     const today = new Date();
-    const hijriDate = getHijriDate(today, language as "ar" | "en");
+    const todayKey = today.toDateString();
+    const [hijriDate, setHijriDate] = useState("");
+
+    // Converted once per day and language rather than on every render
+    useEffect(() => {
+        let cancelled = false;
+        formatHijriDate(new Date(), language as "ar" | "en").then((formatted) => {
+            if (!cancelled) setHijriDate(formatted);
+        });
+        return () => { cancelled = true; };
+    }, [language, todayKey]);
 
     return (
         <div className="flex items-center justify-center gap-2 text-primary-foreground/90 font-amiri text-lg mt-2 animate-fade-in">
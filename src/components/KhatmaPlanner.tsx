@@ -10,6 +10,7 @@ import { Calendar, BookOpen, Clock, Target, CheckCircle2, RotateCcw } from "luci
 import { toast } from "sonner";
 import { triggerHaptic } from "@/lib/haptics";
 import confetti from "canvas-confetti";
+import { storeNamespace, useStoreReady } from "@/lib/kv-store";
 
 interface KhatmaState {
     isActive: boolean;
@@ -23,6 +24,7 @@ interface KhatmaState {
 const TOTAL_QURAN_PAGES = 604;
 
 export const KhatmaPlanner = () => {
+    useStoreReady();
     const { t, language } = useLanguage();
     const [khatma, setKhatma] = useState<KhatmaState>({
         isActive: false,
@@ -37,15 +39,15 @@ export const KhatmaPlanner = () => {
 
     useEffect(() => {
         // Load saved khatma state
-        const savedKhatma = localStorage.getItem("khatma-planner");
+        const savedKhatma = storeNamespace<KhatmaState>("quran").get("khatma");
         if (savedKhatma) {
-            setKhatma(JSON.parse(savedKhatma));
+            setKhatma(savedKhatma);
         }
     }, []);
 
     const saveKhatma = (newState: KhatmaState) => {
         setKhatma(newState);
-        localStorage.setItem("khatma-planner", JSON.stringify(newState));
+        storeNamespace<KhatmaState>("quran").set("khatma", newState);
     };
 
     const startNewKhatma = () => {
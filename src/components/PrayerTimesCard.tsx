@@ -5,6 +5,7 @@ import { useNotification } from "@/contexts/NotificationContext";
 import { MapPin, Bell, BellOff } from "lucide-react";
 import { toast } from "sonner";
 import { cn } from "@/lib/utils";
+import { markStartup } from "@/lib/startup";
 import {
   getAccessiblePrayerLabel,
   getAccessibleBellLabel,
@@ -37,6 +38,14 @@ export const PrayerTimesCard = () => {
     return () => clearInterval(timer);
   }, []);
 
+  // Startup milestone: the first frame that shows real prayer times
+  const hasTimes = !loading && !!prayerTimes;
+  useEffect(() => {
+    if (!hasTimes) return;
+    const frame = requestAnimationFrame(() => markStartup("firstPrayerCard"));
+    return () => cancelAnimationFrame(frame);
+  }, [hasTimes]);
+
   const toggleNotification = (key: string) => {
     // Check if it's a valid prayer key for settings
     if (key === 'sunrise') return; // Usually sunrise doesn't have a notification/adhan
@@ -1,8 +1,10 @@
-import { useEffect, useState } from "react";
+import { useCallback, useEffect, useState } from "react";
+import { Capacitor, PluginListenerHandle } from "@capacitor/core";
 import { Card } from "@/components/ui/card";
 import { useLanguage } from "@/contexts/LanguageContext";
 import { Compass, Navigation } from "lucide-react";
 import { toast } from "sonner";
+import Qibla from "@/lib/qibla";
 
 export const QiblaCompass = () => {
   const { t, language } = useLanguage();
@@ -12,7 +14,21 @@ export const QiblaCompass = () => {
     return cached ? parseFloat(cached) : 0;
   });
   const [deviceHeading, setDeviceHeading] = useState<number>(0);
+  // Unwrapped dial angle, so turning past north rotates a few degrees instead of a full circle
+  const [dialRotation, setDialRotation] = useState<number>(0);
   const [hasPermission, setHasPermission] = useState(false);
+  const [coords, setCoords] = useState<{ latitude: number; longitude: number } | null>(null);
+  // Native sensor fusion when available; the deviceorientation event otherwise
+  const [useNativeCompass, setUseNativeCompass] = useState(Capacitor.isNativePlatform());
+  const [needsCalibration, setNeedsCalibration] = useState(false);
+
+  const applyHeading = useCallback((heading: number) => {
+    setDeviceHeading(heading);
+    setDialRotation((previous) => {
+      const delta = ((heading - previous) % 360 + 540) % 360 - 180;
+      return previous + delta;
+    });
+  }, []);
 
   useEffect(() => {
     const calculateQibla = (latitude: number, longitude: number) => {
@@ -35,6 +51,7 @@ export const QiblaCompass = () => {
 
       setQiblaDirection(bearing);
       localStorage.setItem("qiblaDirection", bearing.toString());
+      setCoords({ latitude, longitude });
     };
 
     if ("geolocation" in navigator) {
@@ -50,7 +67,11 @@ export const QiblaCompass = () => {
             (position) => {
               calculateQibla(position.coords.latitude, position.coords.longitude);
             },
-            (err) => console.error("Error getting location:", err),
+            (err) => {
+              console.error("Error getting location:", err);
+              // The native compass needs a location for its declination; the web one doesn't
+              setUseNativeCompass(false);
+            },
             { enableHighAccuracy: true, timeout: 10000 }
           );
         },
@@ -81,16 +102,44 @@ export const QiblaCompass = () => {
   }, []);
 
   useEffect(() => {
-    if (!hasPermission) return;
+    if (!useNativeCompass || !coords) return;
+
+    let cancelled = false;
+    const handles: PluginListenerHandle[] = [];
+    const startNative = async () => {
+      try {
+        handles.push(await Qibla.addListener("heading", ({ heading }) => applyHeading(heading)));
+        handles.push(await Qibla.addListener("accuracy", (event) => setNeedsCalibration(event.needsCalibration)));
+        const { bearing } = await Qibla.start({ latitude: coords.latitude, longitude: coords.longitude });
+        if (cancelled) return;
+        setQiblaDirection(bearing);
+        localStorage.setItem("qiblaDirection", bearing.toString());
+      } catch (error) {
+        // No rotation-vector sensor, or an older native build
+        console.warn("Native compass unavailable, using deviceorientation:", error);
+        if (!cancelled) setUseNativeCompass(false);
+      }
+    };
+
+    startNative();
+    return () => {
+      cancelled = true;
+      handles.forEach((handle) => handle.remove());
+      Qibla.stop().catch(() => { /* not started */ });
+    };
+  }, [useNativeCompass, coords, applyHeading]);
+
+  useEffect(() => {
+    if (!hasPermission || useNativeCompass) return;
 
     const handleOrientation = (event: DeviceOrientationEvent) => {
       const alpha = event.alpha || 0;
-      setDeviceHeading(360 - alpha);
+      applyHeading(360 - alpha);
     };
 
     window.addEventListener("deviceorientation", handleOrientation);
     return () => window.removeEventListener("deviceorientation", handleOrientation);
-  }, [hasPermission]);
+  }, [hasPermission, useNativeCompass, applyHeading]);
 
   const relativeQibla = (qiblaDirection - deviceHeading + 360) % 360;
   const isAligned = Math.abs(relativeQibla) < 5 || Math.abs(relativeQibla) > 355;
@@ -120,8 +169,8 @@ export const QiblaCompass = () => {
 
             {/* Rotating Dial (Compass Face) - Rotates to point North */}
             <div
-              className="absolute inset-0 transition-transform duration-500 ease-out"
-              style={{ transform: `rotate(${-deviceHeading}deg)` }}
+              className={`absolute inset-0 transition-transform ease-out ${useNativeCompass ? "duration-100" : "duration-500"}`}
+              style={{ transform: `rotate(${-dialRotation}deg)` }}
             >
               {/* Golden Ratio Spiral Element (Creative Addition) */}
               <div className="absolute inset-6 opacity-10">
@@ -142,8 +191,8 @@ export const QiblaCompass = () => {
 
             {/* Qibla Needle (The Golden Pointer) */}
             <div
-              className="absolute inset-0 transition-transform duration-500 ease-out"
-              style={{ transform: `rotate(${-deviceHeading}deg)` }}
+              className={`absolute inset-0 transition-transform ease-out ${useNativeCompass ? "duration-100" : "duration-500"}`}
+              style={{ transform: `rotate(${-dialRotation}deg)` }}
             >
               <div
                 className="absolute inset-0 transition-transform duration-700 ease-out"
@@ -187,6 +236,12 @@ export const QiblaCompass = () => {
           </span>
         </div>
 
+        {needsCalibration && (
+          <p className="text-xs text-muted-foreground">
+            {language === "ar" ? "حرّك الهاتف على شكل الرقم 8 لمعايرة البوصلة" : "Move your phone in a figure 8 to calibrate the compass"}
+          </p>
+        )}
+
         <div className="h-8 flex items-center justify-center">
           {isAligned && (
             <div className="flex items-center gap-2 text-green-600 bg-green-100/50 px-3 py-1 rounded-full animate-bounce">
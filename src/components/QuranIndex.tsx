@@ -1,4 +1,4 @@
-import { useState, useEffect } from "react";
+import { useState, useEffect, useRef } from "react";
 import { Card } from "@/components/ui/card";
 import { Input } from "@/components/ui/input";
 import { Button } from "@/components/ui/button";
@@ -11,6 +11,9 @@ import patternBg from "@/assets/pattern.png";
 import { removeTashkil } from "@/lib/utils";
 import { juzData } from "@/lib/juz-data";
 import { KhatmaPlanner } from "@/components/KhatmaPlanner";
+import { Capacitor } from "@capacitor/core";
+import QuranText from "@/lib/quran-text";
+import { storeNamespace, useStoreReady } from "@/lib/kv-store";
 
 interface QuranIndexProps {
     isEmbedded?: boolean;
@@ -50,22 +53,29 @@ interface SearchResult {
     text: string;
 }
 
+const SEARCH_PAGE_SIZE = 50;
+
 export const QuranIndex = ({ isEmbedded = false }: QuranIndexProps) => {
+    useStoreReady();
     const { language } = useLanguage();
     const { readingStyle, setReadingStyle } = useSettings();
     const [searchQuery, setSearchQuery] = useState("");
     const [ayahResults, setAyahResults] = useState<SearchResult[]>([]);
     const [isSearching, setIsSearching] = useState(false);
+    // Native search pages: the query the shown hits belong to and where its next page starts
+    const [resultQuery, setResultQuery] = useState("");
+    const [nextOffset, setNextOffset] = useState<number | undefined>(undefined);
+    const [isLoadingMore, setIsLoadingMore] = useState(false);
+    // Bumped per search so responses to an older query are dropped
+    const searchSeq = useRef(0);
     // eslint-disable-next-line @typescript-eslint/no-explicit-any
     const [lastRead, setLastRead] = useState<any>(null);
     const [viewMode, setViewMode] = useState<'surah' | 'juz' | 'khatma'>('surah');
 
     useEffect(() => {
-        const saved = localStorage.getItem("last_read_position");
+        const saved = storeNamespace("quran").get("lastRead");
         if (saved) {
-            try {
-                setLastRead(JSON.parse(saved));
-            } catch (e) { console.error(e); }
+            setLastRead(saved);
         }
     }, []);
 
@@ -73,13 +83,32 @@ export const QuranIndex = ({ isEmbedded = false }: QuranIndexProps) => {
     // User must press Enter or click Search button
 
     const handleSearch = async () => {
+        const seq = ++searchSeq.current;
+        setNextOffset(undefined);
+        setIsLoadingMore(false);
         // If empty, clear results (already handled by useEffect debounce, but good for direct calls)
         if (!searchQuery.trim()) {
             setAyahResults([]);
+            setIsSearching(false);
             return;
         }
 
         setIsSearching(true);
+        if (Capacitor.isNativePlatform()) {
+            try {
+                // Ranked native index; later pages load on "Show more"
+                const page = await QuranText.searchQuran({ query: searchQuery, limit: SEARCH_PAGE_SIZE, offset: 0 });
+                if (seq !== searchSeq.current) return;
+                setAyahResults(page.hits);
+                setResultQuery(searchQuery);
+                setNextOffset(page.nextOffset);
+                setIsSearching(false);
+                return;
+            } catch (error) {
+                if (seq !== searchSeq.current) return;
+                console.error("Native search failed, falling back to JSON:", error);
+            }
+        }
         try {
             // Import local JSON directly for offline search
             const quranData = await import("@/lib/quran-simple-clean.json");
@@ -110,12 +139,28 @@ export const QuranIndex = ({ isEmbedded = false }: QuranIndexProps) => {
                 });
             }
 
-            setAyahResults(matches);
+            if (seq === searchSeq.current) setAyahResults(matches);
         } catch (error) {
             console.error("Search failed:", error);
-            setAyahResults([]);
+            if (seq === searchSeq.current) setAyahResults([]);
         } finally {
-            setIsSearching(false);
+            if (seq === searchSeq.current) setIsSearching(false);
+        }
+    };
+
+    const loadMoreResults = async () => {
+        if (nextOffset === undefined || isLoadingMore) return;
+        const seq = searchSeq.current;
+        setIsLoadingMore(true);
+        try {
+            const page = await QuranText.searchQuran({ query: resultQuery, limit: SEARCH_PAGE_SIZE, offset: nextOffset });
+            if (seq !== searchSeq.current) return;
+            setAyahResults(prev => [...prev, ...page.hits]);
+            setNextOffset(page.nextOffset);
+        } catch (error) {
+            console.error("Loading more results failed:", error);
+        } finally {
+            if (seq === searchSeq.current) setIsLoadingMore(false);
         }
     };
 
@@ -375,6 +420,20 @@ export const QuranIndex = ({ isEmbedded = false }: QuranIndexProps) => {
                                     </Link>
                                 ))}
                             </div>
+                            {nextOffset !== undefined && (
+                                <div className="flex justify-center mt-6">
+                                    <Button
+                                        onClick={loadMoreResults}
+                                        disabled={isLoadingMore}
+                                        variant="outline"
+                                        className="rounded-full border-emerald-deep/20 text-emerald-deep font-tajawal"
+                                    >
+                                        {isLoadingMore
+                                            ? (language === "ar" ? "جارٍ التحميل..." : "Loading...")
+                                            : (language === "ar" ? "عرض المزيد" : "Show more")}
+                                    </Button>
+                                </div>
+                            )}
                         </div>
                     )}
 
@@ -9,6 +9,8 @@ import { KeepAwake } from '@capacitor-community/keep-awake';
 import { Filesystem, Directory } from '@capacitor/filesystem';
 import { Capacitor } from '@capacitor/core';
 import { toast } from "sonner";
+import Recitation from "@/lib/recitation";
+import { surahs } from "@/lib/quran-data";
 
 interface SurahAudioPlayerProps {
     surahNumber: number;
@@ -172,8 +174,8 @@ export const SurahAudioPlayer = ({ surahNumber, totalAyahs, onAyahChange, jumpTo
         }
     }, [jumpToAyah]);
 
-    // Construct URL for specific Ayah (Offline First)
-    const getAyahUrl = useCallback(async (surah: number, ayah: number) => {
+    // Remote URL for a specific Ayah, including the Warsh Fatiha mapping below
+    const getRemoteAyahUrl = useCallback((surah: number, ayah: number) => {
         const reciter = RECITERS.find(r => r.id === selectedReciterId) || RECITERS[0];
 
         // Handle Warsh Offset for Surah Al-Fatiha (1)
@@ -204,6 +206,15 @@ export const SurahAudioPlayer = ({ surahNumber, totalAyahs, onAyahChange, jumpTo
             remoteUrl = `https://everyayah.com/data/Alafasy_128kbps/001001.mp3`;
         }
 
+        return remoteUrl;
+    }, [selectedReciterId, readingStyle]);
+
+    // Construct URL for specific Ayah (Offline First)
+    const getAyahUrl = useCallback(async (surah: number, ayah: number) => {
+        const remoteUrl = getRemoteAyahUrl(surah, ayah);
+        let targetAyah = ayah;
+        if (readingStyle === 'warsh' && surah === 1 && ayah > 1) targetAyah = ayah - 1;
+        const paddedAyah = targetAyah.toString().padStart(3, "0");
         const fileName = `${paddedAyah}.mp3`;
 
         // OFFLINE CHECK: Only check filesystem if we know the Surah is downloaded
@@ -237,13 +248,99 @@ export const SurahAudioPlayer = ({ surahNumber, totalAyahs, onAyahChange, jumpTo
         }
 
         return remoteUrl;
-    }, [selectedReciterId, isDownloaded, readingStyle]);
+    }, [selectedReciterId, isDownloaded, readingStyle, getRemoteAyahUrl]);
+
+    // Native recitation: the service downloads ahead and plays gaplessly, also with the screen off.
+    // sessionRef names the reciter/surah it is playing; nativeAyahRef the ayah it reported last.
+    const isNative = Capacitor.isNativePlatform();
+    const sessionRef = useRef<string | null>(null);
+    const nativeAyahRef = useRef<number | null>(null);
+    const nativePausedRef = useRef(false);
+    const totalAyahsRef = useRef(totalAyahs);
+    totalAyahsRef.current = totalAyahs;
+
+    useEffect(() => {
+        if (!isNative) return;
+        const handles = [
+            Recitation.addListener('ayahChange', ({ ayah }) => {
+                nativeAyahRef.current = ayah;
+                setCurrentAyah(ayah);
+                onAyahChangeRef.current(ayah);
+            }),
+            Recitation.addListener('stateChange', ({ state }) => {
+                setIsLoading(state === 'buffering');
+                nativePausedRef.current = state === 'paused';
+                if (state === 'playing') setIsPlaying(true);
+                else if (state === 'paused') setIsPlaying(false);
+                else if (state !== 'buffering') {
+                    // Ended, stopped from the notification, or failed: the service is gone
+                    sessionRef.current = null;
+                    nativeAyahRef.current = null;
+                    if (state === 'ended' && onSurahEndRef.current) {
+                        onSurahEndRef.current();
+                    } else {
+                        setIsPlaying(false);
+                        setCurrentAyah(1);
+                        onAyahChangeRef.current(null);
+                    }
+                }
+            }),
+        ];
+        return () => {
+            handles.forEach(handle => handle.then(h => h.remove()));
+            Recitation.stop();
+            sessionRef.current = null;
+        };
+    }, [isNative]);
+
+    useEffect(() => {
+        if (!isNative) return;
+        const session = `${selectedReciterId}:${surahNumber}`;
+
+        if (!isPlaying) {
+            if (sessionRef.current && !nativePausedRef.current) {
+                nativePausedRef.current = true;
+                Recitation.pause();
+                onAyahChangeRef.current(null);
+            }
+            return;
+        }
+
+        if (sessionRef.current !== session) {
+            const urls = Array.from({ length: totalAyahsRef.current }, (_, i) => getRemoteAyahUrl(surahNumber, i + 1));
+            sessionRef.current = session;
+            nativeAyahRef.current = currentAyah;
+            nativePausedRef.current = false;
+            setIsLoading(true);
+            Recitation.play({
+                surah: surahNumber,
+                urls,
+                ayah: currentAyah,
+                title: surahs.find(s => s.number === surahNumber)?.name,
+                downloadedDir: isDownloaded ? `quran/${selectedReciterId}/${surahNumber}` : undefined,
+            }).catch(e => {
+                console.error("Native recitation failed", e);
+                sessionRef.current = null;
+                setIsPlaying(false);
+                setIsLoading(false);
+            });
+        } else if (nativeAyahRef.current !== currentAyah) {
+            // Skip buttons or an external jump
+            nativeAyahRef.current = currentAyah;
+            Recitation.seekTo({ ayah: currentAyah });
+        } else if (nativePausedRef.current) {
+            nativePausedRef.current = false;
+            Recitation.resume();
+        }
+        onAyahChangeRef.current(currentAyah);
+    }, [isNative, isPlaying, currentAyah, surahNumber, selectedReciterId, isDownloaded, getRemoteAyahUrl]);
 
     // Track the implementation request ID to invalidate stale async operations
     const requestIdRef = useRef(0);
 
     // Main Audio Lifecycle Effect
     useEffect(() => {
+        if (isNative) return;
         const requestId = ++requestIdRef.current;
         let isCancelled = false;
 
@@ -337,7 +434,7 @@ export const SurahAudioPlayer = ({ surahNumber, totalAyahs, onAyahChange, jumpTo
             // Cleanup provided by parent unmount effect mostly, 
             // but we ensure listeners don't fire for dead component
         };
-    }, [surahNumber, currentAyah, selectedReciterId, getAyahUrl, totalAyahs, isPlaying]);
+    }, [isNative, surahNumber, currentAyah, selectedReciterId, getAyahUrl, totalAyahs, isPlaying]);
 
     // Cleanup on unmount
     useEffect(() => {
@@ -5,6 +5,9 @@ import { useLanguage } from "@/contexts/LanguageContext";
 import { useFontSize, type FontSize } from "@/contexts/FontSizeContext";
 import { useSettings } from "@/contexts/SettingsContext";
 import { surahs } from "@/lib/quran-data";
+import QuranText from "@/lib/quran-text";
+import { storeNamespace, useStoreReady } from "@/lib/kv-store";
+import { Capacitor } from "@capacitor/core";
 import { ArrowRight, Loader2, AlertCircle, Moon, Sun, BookOpen, RotateCcw, Play, Pause, ChevronLeft, ChevronRight, ArrowLeft } from "lucide-react";
 import { toast } from "sonner";
 import { IslamicBorder } from "./IslamicBorder";
@@ -186,6 +189,7 @@ const TafsirModal = ({
 };
 
 export const SurahView = () => {
+    useStoreReady();
     const { surahId } = useParams();
     const { language } = useLanguage();
     const { fontSize } = useFontSize();
@@ -212,7 +216,7 @@ export const SurahView = () => {
     // Page change handler - defined early for use in effects
     const handlePageChange = useCallback((newPage: number) => {
         setCurrentPage(newPage);
-        localStorage.setItem(`quran_progress_${surahId}`, newPage.toString());
+        storeNamespace<number>("quran").set(`progress-${surahId}`, newPage);
         window.scrollTo(0, 0);
     }, [surahId]);
 
@@ -263,7 +267,7 @@ export const SurahView = () => {
                                 ayahNumber: ayahNum, // Save exact ayah
                                 timestamp: Date.now()
                             };
-                            localStorage.setItem("last_read_position", JSON.stringify(lastRead));
+                            storeNamespace("quran").set("lastRead", lastRead);
                         }
                     }
                 });
@@ -300,13 +304,23 @@ export const SurahView = () => {
                     targetAyahRef.current = ayahNum;
                 }
             } else {
-                const savedPage = localStorage.getItem(`quran_progress_${surahId}`);
-                initialPage = savedPage ? parseInt(savedPage) : 1;
+                initialPage = storeNamespace<number>("quran").get(`progress-${surahId}`) ?? 1;
             }
 
             setCurrentPage(initialPage);
 
             try {
+                // On device the Warsh text comes from the native memory-mapped corpus, one surah at a time
+                if (readingStyle === 'warsh' && Capacitor.isNativePlatform()) {
+                    try {
+                        const native = await QuranText.getAyahs({ edition: "warsh", surah: Number(surahId) });
+                        setSurahData({ ...native.surah, ayahs: native.ayahs as Ayah[] });
+                        return;
+                    } catch (e) {
+                        console.warn("Native Quran text unavailable, falling back to JSON", e);
+                    }
+                }
+
                 // Determine which JSON to load based on readingStyle setting
                 let quranModule;
 
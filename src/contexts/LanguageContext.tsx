@@ -1,5 +1,7 @@
 import React, { createContext, useContext, useState, useEffect } from "react";
+import { Capacitor } from "@capacitor/core";
 import { Language, translations } from "@/lib/translations";
+import WidgetBridge from "@/lib/widget-bridge";
 
 interface LanguageContextType {
   language: Language;
@@ -19,6 +21,11 @@ export const LanguageProvider: React.FC<{ children: React.ReactNode }> = ({ chil
     localStorage.setItem("language", language);
     document.documentElement.lang = language;
     document.documentElement.dir = "rtl";
+    if (Capacitor.isNativePlatform()) {
+      WidgetBridge.setNotificationLanguage({ language }).catch((e) =>
+        console.error("Failed to set notification language:", e)
+      );
+    }
   }, [language]);
 
   const value = {
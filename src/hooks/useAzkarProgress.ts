@@ -1,57 +1,40 @@
-import { useState, useEffect, useCallback } from "react";
-
-export const useAzkarProgress = (type: "morning" | "evening" | "afterPrayer" | "sleep" | "nightAnxiety" | "badDreams") => {
-    const getStorageKey = useCallback(() => {
-        const d = new Date();
-        const today = `${d.getFullYear()}-${String(d.getMonth() + 1).padStart(2, '0')}-${String(d.getDate()).padStart(2, '0')}`;
-
-        if (type === 'afterPrayer') {
-            // Simple approximation of prayer times for key generation
-            // We don't need exact times, just distinct blocks.
-            // Fajr: 3-6, Dhuhr: 11-14, Asr: 14-17, Maghrib: 17-19, Isha: 19-3
-            const hour = d.getHours();
-            let prayerName = 'isha'; // Default/Late night
-            if (hour >= 3 && hour < 11) prayerName = 'fajr';
-            else if (hour >= 11 && hour < 14) prayerName = 'dhuhr';
-            else if (hour >= 14 && hour < 17) prayerName = 'asr';
-            else if (hour >= 17 && hour < 19) prayerName = 'maghrib';
-            else if (hour >= 19 || hour < 3) prayerName = 'isha';
-
-            return `azkar-progress-${type}-${today}-${prayerName}`;
-        }
-
-        return `azkar-progress-${type}-${today}`;
-    }, [type]);
+import { useState, useEffect } from "react";
+import { storeNamespace } from "@/lib/kv-store";
+import { useStoredState } from "./useStoredState";
 
-    const [progress, setProgress] = useState<Record<number, number>>(() => {
-        try {
-            const saved = localStorage.getItem(getStorageKey());
-            return saved ? JSON.parse(saved) : {};
-        } catch (e) {
-            console.error("Error parsing azkar progress:", e);
-            return {};
-        }
-    });
-
-    // When key changes (e.g. new day or new prayer), load that new key's progress
-    useEffect(() => {
-        const key = getStorageKey();
-        const saved = localStorage.getItem(key);
-        if (saved) {
-            setProgress(JSON.parse(saved));
-        } else {
-            setProgress({});
-        }
-    }, [getStorageKey]);
-
-    // Save progress whenever it changes
-    useEffect(() => {
-        localStorage.setItem(getStorageKey(), JSON.stringify(progress));
-    }, [progress, getStorageKey]);
+type AzkarType = "morning" | "evening" | "afterPrayer" | "sleep" | "nightAnxiety" | "badDreams";
+
+const azkar = storeNamespace<string>("azkar");
+
+const dayKey = (d: Date) =>
+    `${d.getFullYear()}-${String(d.getMonth() + 1).padStart(2, '0')}-${String(d.getDate()).padStart(2, '0')}`;
+
+const progressKey = (type: AzkarType) => {
+    const d = new Date();
+    const today = dayKey(d);
 
-    // Optional: Clean up old keys (simple version: just let them be for now, or clear on load if date changed)
-    // For a pro app, we might want to clear keys older than today to save space, 
-    // but localStorage is large enough for text.
+    if (type === 'afterPrayer') {
+        // Simple approximation of prayer times for key generation
+        // We don't need exact times, just distinct blocks.
+        // Fajr: 3-6, Dhuhr: 11-14, Asr: 14-17, Maghrib: 17-19, Isha: 19-3
+        const hour = d.getHours();
+        let prayerName = 'isha'; // Default/Late night
+        if (hour >= 3 && hour < 11) prayerName = 'fajr';
+        else if (hour >= 11 && hour < 14) prayerName = 'dhuhr';
+        else if (hour >= 14 && hour < 17) prayerName = 'asr';
+        else if (hour >= 17 && hour < 19) prayerName = 'maghrib';
+        else if (hour >= 19 || hour < 3) prayerName = 'isha';
+
+        return `progress-${type}-${today}-${prayerName}`;
+    }
+
+    return `progress-${type}-${today}`;
+};
+
+export const useAzkarProgress = (type: AzkarType) => {
+    // Moves on with the day (or prayer), which starts the counts from zero
+    const [key, setKey] = useState(() => progressKey(type));
+    const [progress, setProgress] = useStoredState<Record<number, number>>("azkar", key, {});
 
     const incrementCount = (id: number, limit: number) => {
         setProgress((prev) => {
@@ -68,8 +51,7 @@ export const useAzkarProgress = (type: "morning" | "evening" | "afterPrayer" | "
     };
 
     const resetProgress = () => {
-        setProgress({});
-        localStorage.removeItem(getStorageKey());
+        azkar.remove(key);
     };
 
     const resetItem = (id: number) => {
@@ -83,16 +65,17 @@ export const useAzkarProgress = (type: "morning" | "evening" | "afterPrayer" | "
     // Check for day change on mount and visibility change
     useEffect(() => {
         const checkDate = () => {
-            const d = new Date();
-            const today = `${d.getFullYear()}-${String(d.getMonth() + 1).padStart(2, '0')}-${String(d.getDate()).padStart(2, '0')}`;
-
-            // Let's store the "last active date" in a separate key to detect day changes easily.
-            const lastActiveDate = localStorage.getItem(`azkar-last-active-${type}`);
-
-            if (lastActiveDate !== today) {
-                // Day changed! Reset state.
-                setProgress({});
-                localStorage.setItem(`azkar-last-active-${type}`, today);
+            const today = dayKey(new Date());
+            setKey(progressKey(type));
+
+            // Stored separately to detect day changes easily
+            if (azkar.get(`last-active-${type}`) !== today) {
+                // Earlier days' counts are never shown again
+                const current = `progress-${type}-${today}`;
+                azkar.keys()
+                    .filter((k) => k.startsWith(`progress-${type}-`) && !k.startsWith(current))
+                    .forEach((k) => azkar.remove(k));
+                azkar.set(`last-active-${type}`, today);
             }
         };
 
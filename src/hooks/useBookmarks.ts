@@ -1,19 +1,7 @@
-import { useState, useEffect } from 'react';
+import { useStoredState } from './useStoredState';
 
 export const useBookmarks = () => {
-    const [bookmarks, setBookmarks] = useState<Record<string, boolean>>(() => {
-        try {
-            const saved = localStorage.getItem('quran-bookmarks');
-            return saved ? JSON.parse(saved) : {};
-        } catch (e) {
-            console.error("Error parsing quran bookmarks:", e);
-            return {};
-        }
-    });
-
-    useEffect(() => {
-        localStorage.setItem('quran-bookmarks', JSON.stringify(bookmarks));
-    }, [bookmarks]);
+    const [bookmarks, setBookmarks] = useStoredState<Record<string, boolean>>('quran', 'bookmarks', {});
 
     const toggleBookmark = (surahId: number, ayahNumber: number) => {
         const key = `${surahId}:${ayahNumber}`;
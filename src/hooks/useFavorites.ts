@@ -1,17 +1,7 @@
-import { useState, useEffect } from 'react';
+import { useStoredState } from './useStoredState';
 
 export const useFavorites = () => {
-    const [favorites, setFavorites] = useState<(number | string)[]>(() => {
-        if (typeof window !== "undefined") {
-            const saved = localStorage.getItem('duaFavorites');
-            return saved ? JSON.parse(saved) : [];
-        }
-        return [];
-    });
-
-    useEffect(() => {
-        localStorage.setItem('duaFavorites', JSON.stringify(favorites));
-    }, [favorites]);
+    const [favorites, setFavorites] = useStoredState<(number | string)[]>('duas', 'favorites', []);
 
     const toggleFavorite = (id: number | string) => {
         setFavorites(prev =>
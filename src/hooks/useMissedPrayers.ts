@@ -1,4 +1,4 @@
-import { useState, useEffect } from 'react';
+import { useStoredState } from './useStoredState';
 
 export interface MissedPrayers {
     fajr: number;
@@ -8,19 +8,10 @@ export interface MissedPrayers {
     isha: number;
 }
 
-const STORAGE_KEY = 'missed_prayers';
+const EMPTY: MissedPrayers = { fajr: 0, dhuhr: 0, asr: 0, maghrib: 0, isha: 0 };
 
 export const useMissedPrayers = () => {
-    const [missedPrayers, setMissedPrayers] = useState<MissedPrayers>(() => {
-        const saved = localStorage.getItem(STORAGE_KEY);
-        return saved
-            ? JSON.parse(saved)
-            : { fajr: 0, dhuhr: 0, asr: 0, maghrib: 0, isha: 0 };
-    });
-
-    useEffect(() => {
-        localStorage.setItem(STORAGE_KEY, JSON.stringify(missedPrayers));
-    }, [missedPrayers]);
+    const [missedPrayers, setMissedPrayers] = useStoredState<MissedPrayers>('qada', 'missed', EMPTY);
 
     const increment = (prayer: keyof MissedPrayers) => {
         setMissedPrayers((prev) => ({ ...prev, [prayer]: prev[prayer] + 1 }));
@@ -34,7 +25,7 @@ export const useMissedPrayers = () => {
     };
 
     const reset = () => {
-        setMissedPrayers({ fajr: 0, dhuhr: 0, asr: 0, maghrib: 0, isha: 0 });
+        setMissedPrayers(EMPTY);
     };
 
     return { missedPrayers, increment, decrement, reset };
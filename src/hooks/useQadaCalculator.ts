@@ -1,4 +1,5 @@
-import { useState, useEffect, useCallback } from 'react';
+import { useCallback } from 'react';
+import { useStoredState } from './useStoredState';
 
 // Prayer types
 export type PrayerType = 'fajr' | 'dhuhr' | 'asr' | 'maghrib' | 'isha';
@@ -39,8 +40,6 @@ export interface QadaPlan {
 // Milestone thresholds
 export const MILESTONES = [10, 25, 50, 75, 100] as const;
 
-const STORAGE_KEY = 'qada_calculator_plan';
-
 const defaultPlan: QadaPlan = {
     isActive: false,
     startDate: '',
@@ -65,15 +64,7 @@ const defaultPlan: QadaPlan = {
 };
 
 export const useQadaCalculator = () => {
-    const [plan, setPlan] = useState<QadaPlan>(() => {
-        const saved = localStorage.getItem(STORAGE_KEY);
-        return saved ? JSON.parse(saved) : defaultPlan;
-    });
-
-    // Persist to localStorage
-    useEffect(() => {
-        localStorage.setItem(STORAGE_KEY, JSON.stringify(plan));
-    }, [plan]);
+    const [plan, setPlan] = useStoredState<QadaPlan>('qada', 'plan', defaultPlan);
 
     // Calculate total missed prayers from years and months
     const calculateMissedPrayers = useCallback((years: number, months: number): number => {
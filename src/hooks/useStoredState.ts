@@ -0,0 +1,32 @@
+import { useCallback, useEffect, useState } from 'react';
+import { StoreNamespace, storeNamespace, useStoreReady } from '@/lib/kv-store';
+
+/**
+ * useState backed by one key of the persisted store. Suspends until the store has loaded, then
+ * reads synchronously; other components and native changes to the same key re-render.
+ */
+export const useStoredState = <T>(namespace: StoreNamespace, key: string, initial: T) => {
+    useStoreReady();
+    const [value, setValue] = useState<T>(() => storeNamespace<T>(namespace).get(key) ?? initial);
+
+    useEffect(() => {
+        const store = storeNamespace<T>(namespace);
+        setValue(store.get(key) ?? initial);
+        return store.subscribe((changed) => {
+            if (changed === key) setValue(store.get(key) ?? initial);
+        });
+        // initial is only a fallback; a new literal each render must not resubscribe
+        // eslint-disable-next-line react-hooks/exhaustive-deps
+    }, [namespace, key]);
+
+    const update = useCallback((next: T | ((prev: T) => T)) => {
+        const store = storeNamespace<T>(namespace);
+        const prev = store.get(key) ?? initial;
+        const resolved = typeof next === "function" ? (next as (prev: T) => T)(prev) : next;
+        store.set(key, resolved);
+        setValue(resolved);
+        // eslint-disable-next-line react-hooks/exhaustive-deps
+    }, [namespace, key]);
+
+    return [value, update] as const;
+};
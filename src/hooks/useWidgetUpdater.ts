@@ -2,6 +2,8 @@ import { useEffect } from "react";
 import { Capacitor } from "@capacitor/core";
 import WidgetBridge from "@/lib/widget-bridge";
 import { useLanguage } from "@/contexts/LanguageContext";
+import { getHijriDate } from "@/lib/date-utils";
+import { syncHijriSettings } from "@/lib/hijri";
 
 interface PrayerTimesData {
     fajr: string;
@@ -15,6 +17,11 @@ interface PrayerTimesData {
 export const useWidgetUpdater = (prayerTimes: PrayerTimesData | null) => {
     const { language } = useLanguage();
 
+    // The widget draws its own Hijri date, in the app's language and with the sighting adjustment
+    useEffect(() => {
+        syncHijriSettings(language);
+    }, [language]);
+
     useEffect(() => {
         if (!prayerTimes || !Capacitor.isNativePlatform()) return;
 
@@ -60,15 +67,9 @@ export const useWidgetUpdater = (prayerTimes: PrayerTimesData | null) => {
                 // Name
                 const prayerName = language === 'ar' ? nextPrayer.arabicName : nextPrayer.name;
 
-                // 2. Date (Gregorian)
-                const dateOptions: Intl.DateTimeFormatOptions = {
-                    day: "numeric",
-                    month: "short",
-                    year: "numeric"
-                };
-                const formattedDate = new Intl.DateTimeFormat(language === 'ar' ? "ar-EG" : "en-US", dateOptions).format(now);
-                // We use the 'hijriDate' field to pass this date to avoid changing native code interface for now.
-                const widgetDisplayDate = formattedDate;
+                // 2. Date. The widget computes the Hijri date natively; this string is only its
+                // fallback past the end of the Umm al-Qura table
+                const widgetDisplayDate = getHijriDate(now, language as "ar" | "en");
 
                 // 3. Location
                 const locationName = prayerTimes.city;
@@ -86,6 +87,14 @@ export const useWidgetUpdater = (prayerTimes: PrayerTimesData | null) => {
                     return `${h12}:${m.toString().padStart(2, '0')}`; // Minimalist: Just time. Use bold/color for context.
                 };
 
+                // Today's timestamps let the widget advance its highlight natively
+                const prayerTimestamps = prayers.map((prayer) => {
+                    const [h, m] = prayer.time.split(':').map(Number);
+                    const prayerDate = new Date(now);
+                    prayerDate.setHours(h, m, 0, 0);
+                    return prayerDate.getTime();
+                });
+
                 await WidgetBridge.updateWidgetData({
                     fajr: formatTime(prayerTimes.fajr),
                     dhuhr: formatTime(prayerTimes.dhuhr),
@@ -95,7 +104,8 @@ export const useWidgetUpdater = (prayerTimes: PrayerTimesData | null) => {
                     nextPrayerName: prayerName, // Used for highlighting
                     nextPrayerTime: formattedTime, // Not used in new layout but good to keep
                     hijriDate: widgetDisplayDate,
-                    locationName: locationName
+                    locationName: locationName,
+                    prayerTimestamps
                 });
                 console.log("Widget updated:", { prayerName, time: formattedTime, date: widgetDisplayDate, locationName });
 
@@ -0,0 +1,106 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
+import { getHijriEventIds, IslamicEventId } from './islamic-events';
+import { getHijriDate } from './date-utils';
+import { RemoteConfigService } from './remote-config';
+
+export interface HijriGridDay {
+    /** Gregorian day of the month */
+    day: number;
+    hijriDay: number;
+    hijriMonth: number; // 0-11
+    hijriYear: number;
+    events: IslamicEventId[];
+}
+
+export interface HijriGridMonth {
+    year: number;
+    month: number; // 0-11
+    name: string;
+    /** Days in the month; 0 when computed without the native table */
+    length: number;
+}
+
+export interface HijriMonthGrid {
+    days: HijriGridDay[];
+    /** The Hijri months the Gregorian month spans, in order */
+    months: HijriGridMonth[];
+}
+
+interface HijriPlugin {
+    configure(options: { adjustment?: number; rolloverAtMaghrib?: boolean; language?: string }): Promise<void>;
+    /** Every day of a Gregorian month (month 0-11) with its Umm al-Qura date and events. */
+    getMonthGrid(options: { year: number; month: number; language?: string }): Promise<HijriMonthGrid>;
+    toHijri(options: { timestamps: number[]; language?: string }): Promise<{
+        dates: ({ hijriDay: number; hijriMonth: number; hijriYear: number; formatted: string } | null)[];
+    }>;
+}
+
+export const Hijri = registerPlugin<HijriPlugin>('Hijri');
+
+/** Pushes the sighting adjustment and language the widget draws its Hijri date with. */
+export const syncHijriSettings = (language: string) => {
+    if (!Capacitor.isNativePlatform()) return;
+    Hijri.configure({ adjustment: RemoteConfigService.getHijriAdjustment(), language })
+        .catch(() => { /* older native build */ });
+};
+
+/** The Hijri date of a local day, formatted for the header. */
+export const formatHijriDate = async (date: Date, language: "ar" | "en"): Promise<string> => {
+    if (Capacitor.isNativePlatform()) {
+        try {
+            const { dates } = await Hijri.toHijri({ timestamps: [date.getTime()], language });
+            if (dates[0]) return dates[0].formatted;
+        } catch (e) {
+            // Older native build; Intl below
+        }
+    }
+    return getHijriDate(date, language);
+};
+
+/**
+ * One call for a whole calendar month from the native table; off-device (or on an older build)
+ * each day goes through Intl instead.
+ */
+export const getHijriMonthGrid = async (year: number, month: number, language: "ar" | "en"): Promise<HijriMonthGrid> => {
+    if (Capacitor.isNativePlatform()) {
+        try {
+            return await Hijri.getMonthGrid({ year, month, language });
+        } catch (e) {
+            console.warn("Native Hijri grid failed, using Intl:", e);
+        }
+    }
+    return intlMonthGrid(year, month, language);
+};
+
+const intlMonthGrid = (year: number, month: number, language: "ar" | "en"): HijriMonthGrid => {
+    const adjustment = RemoteConfigService.getHijriAdjustment();
+    const numeric = new Intl.DateTimeFormat("en-US-u-nu-latn", {
+        calendar: "islamic-umalqura",
+        day: "numeric",
+        month: "numeric",
+        year: "numeric",
+    });
+    const monthName = new Intl.DateTimeFormat(language === "ar" ? "ar-SA" : "en-US", {
+        calendar: "islamic-umalqura",
+        month: "long",
+    });
+
+    const days: HijriGridDay[] = [];
+    const months: HijriGridMonth[] = [];
+    const daysInMonth = new Date(year, month + 1, 0).getDate();
+    for (let d = 1; d <= daysInMonth; d++) {
+        const date = new Date(year, month, d + adjustment);
+        const parts = numeric.formatToParts(date);
+        const part = (type: string) => parseInt(parts.find((p) => p.type === type)?.value ?? "0", 10);
+        const hijriDay = part("day");
+        const hijriMonth = part("month") - 1;
+        const hijriYear = part("year");
+        days.push({ day: d, hijriDay, hijriMonth, hijriYear, events: getHijriEventIds(hijriMonth, hijriDay) });
+
+        const last = months[months.length - 1];
+        if (!last || last.month !== hijriMonth || last.year !== hijriYear) {
+            months.push({ year: hijriYear, month: hijriMonth, name: monthName.format(date), length: 0 });
+        }
+    }
+    return { days, months };
+};
@@ -1,4 +1,18 @@
+export type IslamicEventId =
+    | "whiteDays"
+    | "ramadanStart"
+    | "lastTenNights"
+    | "eidAlFitr"
+    | "arafah"
+    | "eidAlAdha"
+    | "tashreeq"
+    | "islamicNewYear"
+    | "tasua"
+    | "ashura"
+    | "mawlid";
+
 export interface IslamicEvent {
+    id: IslamicEventId;
     day: number;
     month: number; // 0-11
     title: { ar: string; en: string };
@@ -6,57 +20,52 @@ export interface IslamicEvent {
     description?: { ar: string; en: string };
 }
 
-export const getHijriEvents = (month: number, year: number): IslamicEvent[] => {
-    const events: IslamicEvent[] = [];
-
-    // White Days (Ayyam al-Bid) - 13, 14, 15 of every month
-    // Exception: 13th of Dhul-Hijjah is Tashreeq (Holiday/Forbidden to fast), so usually we don't mark it as recommended fasting in the same way, or we mark it with a note.
-    // However, for simplicity, we list them generally, but maybe exclude 13 Dhul-Hijjah if we want to be precise.
-    // Let's keep it simple for now and add specific holidays that override.
-
-    if (month !== 11) { // Not Dhul-Hijjah (11) for simplicity, or handle specifically
-        events.push({ day: 13, month, title: { ar: "الأيام البيض", en: "White Days" }, type: 'fasting' });
-        events.push({ day: 14, month, title: { ar: "الأيام البيض", en: "White Days" }, type: 'fasting' });
-        events.push({ day: 15, month, title: { ar: "الأيام البيض", en: "White Days" }, type: 'fasting' });
-    } else {
-        // Dhul-Hijjah: 13 is part of Tashreeq (Forbidden to fast)
-        events.push({ day: 14, month, title: { ar: "الأيام البيض", en: "White Days" }, type: 'fasting' });
-        events.push({ day: 15, month, title: { ar: "الأيام البيض", en: "White Days" }, type: 'fasting' });
-    }
-
-    // Ramadan (Month 8)
-    if (month === 8) {
-        // It's the whole month, but we can mark the start
-        events.push({ day: 1, month, title: { ar: "بداية رمضان", en: "Start of Ramadan" }, type: 'fasting' });
-        // Last 10 days?
-        events.push({ day: 21, month, title: { ar: "العشر الأواخر", en: "Last 10 Days" }, type: 'other' });
-    }
-
-    // Shawwal (Month 9)
-    if (month === 9) {
-        events.push({ day: 1, month, title: { ar: "عيد الفطر", en: "Eid al-Fitr" }, type: 'holiday' });
-    }
+export const ISLAMIC_EVENT_INFO: Record<IslamicEventId, Pick<IslamicEvent, "title" | "type">> = {
+    whiteDays: { title: { ar: "الأيام البيض", en: "White Days" }, type: 'fasting' },
+    ramadanStart: { title: { ar: "بداية رمضان", en: "Start of Ramadan" }, type: 'fasting' },
+    lastTenNights: { title: { ar: "العشر الأواخر", en: "Last 10 Days" }, type: 'other' },
+    eidAlFitr: { title: { ar: "عيد الفطر", en: "Eid al-Fitr" }, type: 'holiday' },
+    arafah: { title: { ar: "يوم عرفة", en: "Day of Arafah" }, type: 'fasting' },
+    eidAlAdha: { title: { ar: "عيد الأضحى", en: "Eid al-Adha" }, type: 'holiday' },
+    tashreeq: { title: { ar: "أيام التشريق", en: "Tashreeq Days" }, type: 'holiday' },
+    islamicNewYear: { title: { ar: "رأس السنة الهجرية", en: "Islamic New Year" }, type: 'other' },
+    tasua: { title: { ar: "تاسوعاء", en: "Tasua" }, type: 'fasting' },
+    ashura: { title: { ar: "عاشوراء", en: "Ashura" }, type: 'fasting' },
+    mawlid: { title: { ar: "المولد النبوي", en: "Mawlid al-Nabi" }, type: 'other' },
+};
 
-    // Dhul-Hijjah (Month 11)
-    if (month === 11) {
-        events.push({ day: 9, month, title: { ar: "يوم عرفة", en: "Day of Arafah" }, type: 'fasting' });
-        events.push({ day: 10, month, title: { ar: "عيد الأضحى", en: "Eid al-Adha" }, type: 'holiday' });
-        events.push({ day: 11, month, title: { ar: "أيام التشريق", en: "Tashreeq Days" }, type: 'holiday' });
-        events.push({ day: 12, month, title: { ar: "أيام التشريق", en: "Tashreeq Days" }, type: 'holiday' });
-        events.push({ day: 13, month, title: { ar: "أيام التشريق", en: "Tashreeq Days" }, type: 'holiday' });
-    }
+// Mirrored by the native table in HijriCalendar.java; keep the two in step
+const EVENT_DAYS: { id: IslamicEventId; month: number; days: number[] }[] = [
+    { id: "islamicNewYear", month: 0, days: [1] },
+    { id: "tasua", month: 0, days: [9] },
+    { id: "ashura", month: 0, days: [10] },
+    { id: "mawlid", month: 2, days: [12] },
+    { id: "ramadanStart", month: 8, days: [1] },
+    { id: "lastTenNights", month: 8, days: [21] },
+    { id: "eidAlFitr", month: 9, days: [1] },
+    { id: "arafah", month: 11, days: [9] },
+    { id: "eidAlAdha", month: 11, days: [10] },
+    { id: "tashreeq", month: 11, days: [11, 12, 13] },
+];
 
-    // Muharram (Month 0)
-    if (month === 0) {
-        events.push({ day: 1, month, title: { ar: "رأس السنة الهجرية", en: "Islamic New Year" }, type: 'other' });
-        events.push({ day: 9, month, title: { ar: "تاسوعاء", en: "Tasua" }, type: 'fasting' });
-        events.push({ day: 10, month, title: { ar: "عاشوراء", en: "Ashura" }, type: 'fasting' });
+/** Event IDs on a Hijri day (month 0-11), for when the native table isn't available. */
+export const getHijriEventIds = (month: number, day: number): IslamicEventId[] => {
+    const ids: IslamicEventId[] = [];
+    // White Days (Ayyam al-Bid) - 13, 14, 15 of every month, except that 13 Dhul-Hijjah is
+    // a day of Tashreeq, when fasting is forbidden
+    if (day >= (month === 11 ? 14 : 13) && day <= 15) ids.push("whiteDays");
+    for (const entry of EVENT_DAYS) {
+        if (entry.month === month && entry.days.includes(day)) ids.push(entry.id);
     }
+    return ids;
+};
 
-    // Rabi' al-Awwal (Month 2)
-    if (month === 2) {
-        events.push({ day: 12, month, title: { ar: "المولد النبوي", en: "Mawlid al-Nabi" }, type: 'other' });
+export const getHijriEvents = (month: number, year: number): IslamicEvent[] => {
+    const events: IslamicEvent[] = [];
+    for (let day = 1; day <= 30; day++) {
+        for (const id of getHijriEventIds(month, day)) {
+            events.push({ id, day, month, ...ISLAMIC_EVENT_INFO[id] });
+        }
     }
-
-    return events.sort((a, b) => a.day - b.day);
+    return events;
 };
@@ -0,0 +1,256 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
+
+/**
+ * Persisted UI state, read synchronously from memory. On device the native KeyValue plugin owns
+ * the data: every namespace is loaded once at startup, alongside the first render, and writes are
+ * batched to it off the tap path. Components that read the store suspend on useStoreReady until
+ * it has loaded. In the browser the same API sits on localStorage.
+ */
+
+export type StoreNamespace = "azkar" | "quran" | "qada" | "duas";
+
+interface StoreOp {
+    namespace: string;
+    key?: string;
+    /** null removes the key */
+    value?: string | null;
+    clear?: boolean;
+}
+
+interface KeyValuePlugin {
+    getAll(): Promise<{ namespaces: Record<string, Record<string, string>> }>;
+    write(options: { ops: StoreOp[] }): Promise<void>;
+    flush(): Promise<void>;
+    addListener(
+        eventName: "change",
+        listener: (event: { namespace: string; key: string; value?: string | null }) => void,
+    ): Promise<{ remove: () => Promise<void> }>;
+}
+
+const KeyValue = registerPlugin<KeyValuePlugin>('KeyValue');
+
+type Listener = (key: string) => void;
+
+const data = new Map<string, Map<string, string>>();
+const listeners = new Map<string, Set<Listener>>();
+let queue: StoreOp[] = [];
+let native = false;
+
+// Taps within this window cross the bridge as one call
+const WRITE_BATCH_MS = 100;
+const WRITE_RETRY_MS = 5000;
+const WEB_PREFIX = "kv:";
+
+/**
+ * Where each pre-store localStorage key lives now. Moved once, the first time the store loads,
+ * and removed from localStorage after.
+ */
+const legacyKey = (key: string): [StoreNamespace, string] | null => {
+    if (key.startsWith("azkar-")) return ["azkar", key.slice("azkar-".length)];
+    if (key.startsWith("quran_progress_")) return ["quran", `progress-${key.slice("quran_progress_".length)}`];
+    switch (key) {
+        case "quran-bookmarks": return ["quran", "bookmarks"];
+        case "last_read_position": return ["quran", "lastRead"];
+        case "khatma-planner": return ["quran", "khatma"];
+        case "qada_calculator_plan": return ["qada", "plan"];
+        case "missed_prayers": return ["qada", "missed"];
+        case "duaFavorites": return ["duas", "favorites"];
+        default: return null;
+    }
+};
+
+const entries = (namespace: string) => {
+    let map = data.get(namespace);
+    if (!map) data.set(namespace, map = new Map());
+    return map;
+};
+
+const emit = (namespace: string, key: string) => {
+    listeners.get(namespace)?.forEach((listener) => listener(key));
+};
+
+const persist = (op: StoreOp) => {
+    if (!native) {
+        if (op.clear) {
+            Object.keys(localStorage)
+                .filter((k) => k.startsWith(`${WEB_PREFIX}${op.namespace}:`))
+                .forEach((k) => localStorage.removeItem(k));
+        } else if (op.value == null) {
+            localStorage.removeItem(`${WEB_PREFIX}${op.namespace}:${op.key}`);
+        } else {
+            localStorage.setItem(`${WEB_PREFIX}${op.namespace}:${op.key}`, op.value);
+        }
+        return;
+    }
+    if (queue.length === 0) setTimeout(flushQueue, WRITE_BATCH_MS);
+    queue.push(op);
+};
+
+/** Sends the queued ops across; rejects if native didn't take them, with the ops queued again. */
+const writeQueue = async () => {
+    const ops = queue;
+    queue = [];
+    if (ops.length === 0) return;
+    try {
+        await KeyValue.write({ ops });
+    } catch (e) {
+        if (queue.length === 0) setTimeout(flushQueue, WRITE_RETRY_MS);
+        queue = ops.concat(queue);
+        throw e;
+    }
+};
+
+const flushQueue = () => writeQueue().catch((e) => console.error("KeyValue write failed:", e));
+
+let hydration: Promise<void> | undefined;
+let hydrated = false;
+
+/**
+ * Loads every namespace into memory and moves legacy localStorage keys over. Started once at
+ * startup without holding up the first render; later calls share it. Never rejects.
+ */
+export const hydrateStore = () => {
+    if (!hydration) hydration = loadStore().finally(() => { hydrated = true; });
+    return hydration;
+};
+
+/**
+ * Suspends the calling component until the store has loaded. Call it before reading the store,
+ * in render or in a mount effect, below a Suspense boundary.
+ */
+export const useStoreReady = () => {
+    if (!hydrated) throw hydrateStore();
+};
+
+const loadStore = async () => {
+    if (Capacitor.isNativePlatform()) {
+        try {
+            const { namespaces } = await KeyValue.getAll();
+            for (const [namespace, values] of Object.entries(namespaces)) {
+                entries(namespace);
+                for (const [key, value] of Object.entries(values)) entries(namespace).set(key, value);
+            }
+            native = true;
+            KeyValue.addListener("change", ({ namespace, key, value }) => {
+                if (value == null) entries(namespace).delete(key);
+                else entries(namespace).set(key, value);
+                emit(namespace, key);
+            });
+            document.addEventListener("visibilitychange", () => {
+                if (document.visibilityState === "hidden") flushQueue();
+            });
+        } catch (e) {
+            // Older native build; keep the data in the web view
+            console.warn("Native key-value store unavailable, using localStorage:", e);
+        }
+    }
+
+    if (!native) {
+        for (const key of Object.keys(localStorage)) {
+            if (!key.startsWith(WEB_PREFIX)) continue;
+            const rest = key.slice(WEB_PREFIX.length);
+            const colon = rest.indexOf(":");
+            entries(rest.slice(0, colon)).set(rest.slice(colon + 1), localStorage.getItem(key) ?? "");
+        }
+    }
+
+    const migrated: string[] = [];
+    for (const key of Object.keys(localStorage)) {
+        const target = legacyKey(key);
+        if (!target) continue;
+        const [namespace, newKey] = target;
+        let value = localStorage.getItem(key);
+        try {
+            JSON.parse(value ?? "null");
+        } catch {
+            // Some keys held bare strings, such as dates
+            value = JSON.stringify(value);
+        }
+        // A value already in the store is newer than anything left behind
+        if (value != null && !entries(namespace).has(newKey)) {
+            entries(namespace).set(newKey, value);
+            persist({ namespace, key: newKey, value });
+        }
+        migrated.push(key);
+    }
+
+    // Readers don't wait on this
+    if (migrated.length > 0) void removeMigrated(migrated);
+};
+
+const removeMigrated = async (migrated: string[]) => {
+    try {
+        // The copies must be on disk before the originals go; a kill or failed write keeps them for next launch
+        if (native) {
+            await writeQueue();
+            await KeyValue.flush();
+        }
+        migrated.forEach((key) => localStorage.removeItem(key));
+    } catch (e) {
+        console.error("Legacy state not migrated yet, will retry:", e);
+    }
+};
+
+/** One namespace of the store, with values of type T kept as JSON. */
+export interface Namespace<T> {
+    get(key: string): T | undefined;
+    set(key: string, value: T): void;
+    remove(key: string): void;
+    keys(): string[];
+    clear(): void;
+    /** Called with the key after any change, including ones made natively; returns an unsubscribe. */
+    subscribe(listener: Listener): () => void;
+}
+
+export const storeNamespace = <T>(namespace: StoreNamespace): Namespace<T> => ({
+    get(key) {
+        const raw = entries(namespace).get(key);
+        if (raw === undefined) return undefined;
+        try {
+            return JSON.parse(raw) as T;
+        } catch (e) {
+            console.error(`Corrupt ${namespace}/${key}:`, e);
+            return undefined;
+        }
+    },
+    set(key, value) {
+        const raw = JSON.stringify(value);
+        if (entries(namespace).get(key) === raw) return;
+        entries(namespace).set(key, raw);
+        persist({ namespace, key, value: raw });
+        emit(namespace, key);
+    },
+    remove(key) {
+        if (!entries(namespace).delete(key)) return;
+        persist({ namespace, key, value: null });
+        emit(namespace, key);
+    },
+    keys() {
+        return Array.from(entries(namespace).keys());
+    },
+    clear() {
+        const keys = Array.from(entries(namespace).keys());
+        if (keys.length === 0) return;
+        entries(namespace).clear();
+        persist({ namespace, clear: true });
+        keys.forEach((key) => emit(namespace, key));
+    },
+    subscribe(listener) {
+        let set = listeners.get(namespace);
+        if (!set) listeners.set(namespace, set = new Set());
+        set.add(listener);
+        return () => { set?.delete(listener); };
+    },
+});
+
+/** Empties every namespace and waits until that is on disk, for a full reset before reloading. */
+export const clearStore = async () => {
+    await hydrateStore();
+    for (const namespace of Array.from(data.keys())) {
+        storeNamespace(namespace as StoreNamespace).clear();
+    }
+    if (native) {
+        await flushQueue();
+        await KeyValue.flush();
+    }
+};
@@ -0,0 +1,81 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
+
+export interface Mosque {
+    id: string;
+    name: string;
+    vicinity: string;
+    lat: number;
+    lng: number;
+    rating?: number;
+}
+
+export interface PlaceCacheStats {
+    hits: number;
+    fetches: number;
+    failures: number;
+    evictions: number;
+    tiles: number;
+}
+
+interface PlacesPlugin {
+    /**
+     * At most one Places request: a search from the same ~1 km geohash cell with no larger
+     * radius is served from disk for a week. stale is set when an expired result was served
+     * because it couldn't be refreshed.
+     */
+    nearbyMosques(options: { latitude: number; longitude: number; radius?: number; apiKey?: string }): Promise<{
+        places: (Mosque & { distance: number })[];
+        stale: boolean;
+    }>;
+    getCacheStats(): Promise<PlaceCacheStats>;
+}
+
+export const Places = registerPlugin<PlacesPlugin>('Places');
+
+const fromPlaceResult = (result: google.maps.places.PlaceResult): Mosque | null => {
+    const location = result.geometry?.location;
+    if (!result.place_id || !location) return null;
+    return {
+        id: result.place_id,
+        name: result.name ?? "",
+        vicinity: result.vicinity ?? "",
+        lat: location.lat(),
+        lng: location.lng(),
+        rating: result.rating,
+    };
+};
+
+/**
+ * Mosques within radius of location: through the native tile cache on device, otherwise a
+ * direct nearby search on the map's PlacesService. The native side only rejects when it has no
+ * tile at all, fresh or stale, so any rejection falls back to the web search too.
+ */
+export const findNearbyMosques = async (
+    map: google.maps.Map,
+    location: google.maps.LatLngLiteral,
+    radius: number,
+    apiKey: string,
+): Promise<Mosque[]> => {
+    if (Capacitor.isNativePlatform()) {
+        try {
+            const { places } = await Places.nearbyMosques({ latitude: location.lat, longitude: location.lng, radius, apiKey });
+            return places;
+        } catch (error) {
+            // Missing plugin on older builds, or nothing cached and the native fetch failed
+            console.warn("Native mosque search failed, searching from the web view:", error);
+        }
+    }
+
+    const service = new google.maps.places.PlacesService(map);
+    return new Promise((resolve, reject) => {
+        service.nearbySearch({ location, radius, type: 'mosque' }, (results, status) => {
+            if (status === google.maps.places.PlacesServiceStatus.OK && results) {
+                resolve(results.map(fromPlaceResult).filter((m): m is Mosque => m !== null));
+            } else if (status === google.maps.places.PlacesServiceStatus.ZERO_RESULTS) {
+                resolve([]);
+            } else {
+                reject(new Error(`Places search failed: ${status}`));
+            }
+        });
+    });
+};
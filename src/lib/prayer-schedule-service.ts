@@ -30,6 +30,21 @@ export interface SchedulerOptions {
     devMode: boolean;
 }
 
+const LEGACY_REMINDERS_CLEARED = "legacyRemindersCleared";
+
+/**
+ * Reminders used to be scheduled as LocalNotifications, up to three days ahead. Cancels whatever
+ * an older build left pending, once, so nothing is announced twice.
+ */
+const clearLegacyReminders = async () => {
+    if (localStorage.getItem(LEGACY_REMINDERS_CLEARED)) return;
+    const pending = await LocalNotifications.getPending();
+    if (pending.notifications.length > 0) {
+        await LocalNotifications.cancel(pending);
+    }
+    localStorage.setItem(LEGACY_REMINDERS_CLEARED, "true");
+};
+
 export const PrayerScheduleService = {
     scheduleAlarms: async (options: SchedulerOptions) => {
         console.log("[PrayerScheduleService] scheduleAlarms called with options:", JSON.stringify(options, null, 2));
@@ -77,17 +92,10 @@ export const PrayerScheduleService = {
             // Check Global Enabled
             if (!options.notifSettings.enabled) {
                 console.log("[PrayerScheduleService] Notifications disabled. Cancelling all.");
-                const pNames = ["fajr", "dhuhr", "asr", "maghrib", "isha"];
-                for (let i = 0; i < 7; i++) {
-                    for (const p of pNames) {
-                        await WidgetBridge.cancelAdhan({ prayerName: `${p}_${i}` });
-                    }
-                }
+                // An empty table leaves nothing for reminders to hang off either
+                await WidgetBridge.replaceAdhanSchedule({ alarms: [], enabled: false });
                 try {
-                    const pending = await LocalNotifications.getPending();
-                    if (pending.notifications.length > 0) {
-                        await LocalNotifications.cancel(pending);
-                    }
+                    await clearLegacyReminders();
                 } catch (e) {
                     console.error("Error clearing pending notifications", e);
                 }
@@ -136,8 +144,25 @@ export const PrayerScheduleService = {
 
             const now = new Date();
 
-            // Schedule for next 7 days
-            let scheduledCount = 0;
+            const soundName = options.notifSettings.adhanSound === "makkah" ? "adhan_makkah" : options.notifSettings.adhanSound === "madinah" ? "adhan_madinah" : "adhan_egypt";
+
+            // Mirror the calculation inputs natively so receivers/widget can compute without the WebView
+            try {
+                await WidgetBridge.setPrayerSettings({
+                    latitude: lat,
+                    longitude: lng,
+                    calculationMethod: options.calculationMethod,
+                    madhab: options.madhab,
+                    enabledPrayers: options.notifSettings.enabledPrayers,
+                    soundName,
+                    enabled: options.notifSettings.enabled,
+                });
+            } catch (e) {
+                console.error("[PrayerScheduleService] Failed to push native prayer settings", e);
+            }
+
+            // Schedule for next 7 days, collected into one batch for the native side
+            const alarms: { prayerName: string; timestamp: number; soundName: string }[] = [];
             for (let i = 0; i < 7; i++) {
                 const date = new Date();
                 date.setDate(date.getDate() + i);
@@ -152,101 +177,36 @@ export const PrayerScheduleService = {
                 ];
 
                 for (const prayer of times) {
-                    // Skip if explicitly disabled
+                    // Skip if explicitly disabled (left out of the batch, so native cancels it)
                     if (!options.notifSettings.enabledPrayers[prayer.name as keyof typeof options.notifSettings.enabledPrayers]) {
-                        await WidgetBridge.cancelAdhan({ prayerName: `${prayer.name}_${i}` });
                         continue;
                     }
 
                     // Only schedule future times
-                    if (prayer.date > now) {
-                        const soundName = options.notifSettings.adhanSound === "makkah" ? "adhan_makkah" : options.notifSettings.adhanSound === "madinah" ? "adhan_madinah" : "adhan_egypt";
-                        const uniqueKey = `${prayer.name}_${i}`;
-
-                        if (!isNaN(prayer.date.getTime())) {
-                            await WidgetBridge.scheduleAdhan({
-                                prayerName: uniqueKey,
-                                timestamp: prayer.date.getTime(),
-                                soundName: soundName
-                            });
-                            scheduledCount++;
-                        }
+                    if (prayer.date > now && !isNaN(prayer.date.getTime())) {
+                        alarms.push({
+                            prayerName: `${prayer.name}_${i}`,
+                            timestamp: prayer.date.getTime(),
+                            soundName: soundName
+                        });
                     }
                 }
             }
 
-            // Reminders Logic (Preserved from original hook)
-            // Reminders Logic - Fixed to prevent 500 Alarm Limit
-            if (hasNotificationPerm) {
-                // 1. CLEAR ALL PENDING NOTIFICATIONS to prevent buildup/leaks
-                try {
-                    const pending = await LocalNotifications.getPending();
-                    if (pending.notifications.length > 0) {
-                        await LocalNotifications.cancel(pending);
-                    }
-                } catch (e) {
-                    console.error("Error clearing pending notifications", e);
-                }
-
-                if (options.notifSettings.reminderMinutes > 0 || options.preAzanReminder) {
-                    const remindersToSchedule = [];
-                    const arabicNames: Record<string, string> = { "fajr": options.t.fajr, "dhuhr": options.t.dhuhr, "asr": options.t.asr, "maghrib": options.t.maghrib, "isha": options.t.isha };
-                    const prayerNamesList = ["fajr", "dhuhr", "asr", "maghrib", "isha"];
-
-                    for (let i = 0; i < 3; i++) {
-                        const date = new Date();
-                        date.setDate(date.getDate() + i);
-                        const prayers = new PrayerTimes(coordinates, date, params);
-                        const times = [
-                            { name: "fajr", date: prayers.fajr },
-                            { name: "dhuhr", date: prayers.dhuhr },
-                            { name: "asr", date: prayers.asr },
-                            { name: "maghrib", date: prayers.maghrib },
-                            { name: "isha", date: prayers.isha },
-                        ];
-
-                        times.forEach((prayer, prayerIndex) => {
-                            if (options.notifSettings.enabledPrayers[prayer.name as keyof typeof options.notifSettings.enabledPrayers]) {
-                                // Deterministic ID generation:
-                                // Day (0-2) * 100 + Prayer (0-4) * 10 + Type (1=Remind, 2=PreAzan)
-                                // Range: 0 to ~300. Safe from collisions.
-                                const baseId = (i * 100) + (prayerIndex * 10);
+            // One bridge hop: native diffs against what is armed and commits once
+            const batchResult = await WidgetBridge.replaceAdhanSchedule({ alarms });
+            console.log("[PrayerScheduleService] Batch result:", JSON.stringify(batchResult));
+            const scheduledCount = alarms.length;
 
-                                // Standard Reminder
-                                if (options.notifSettings.reminderMinutes > 0) {
-                                    const reminderTime = new Date(prayer.date.getTime() - options.notifSettings.reminderMinutes * 60000);
-                                    if (reminderTime > now) {
-                                        remindersToSchedule.push({
-                                            title: options.language === "ar" ? `تنبيه: ${arabicNames[prayer.name]}` : `Reminder: ${prayer.name}`,
-                                            body: options.language === "ar" ? `بعد ${options.notifSettings.reminderMinutes} دقائق` : `In ${options.notifSettings.reminderMinutes} minutes`,
-                                            id: baseId + 1,
-                                            schedule: { at: reminderTime },
-                                            channelId: 'prayer_reminder',
-                                        });
-                                    }
-                                }
-
-                                // 9-Min Pre-Azan
-                                if (options.preAzanReminder) {
-                                    const pre9MinTime = new Date(prayer.date.getTime() - 9 * 60000);
-                                    if (pre9MinTime > now) {
-                                        remindersToSchedule.push({
-                                            title: options.language === "ar" ? `اقتراب الصلاة: ${arabicNames[prayer.name]}` : `Prayer Approaching: ${prayer.name}`,
-                                            body: options.language === "ar" ? `متبقي ٩ دقائق على الأذان` : `9 minutes remaining until Azan`,
-                                            id: baseId + 2,
-                                            schedule: { at: pre9MinTime },
-                                            channelId: 'prayer_reminder',
-                                        });
-                                    }
-                                }
-                            }
-                        });
-                    }
-
-                    if (remindersToSchedule.length > 0) {
-                        await LocalNotifications.schedule({ notifications: remindersToSchedule });
-                    }
-                }
+            // Reminders hang off the native schedule: one alarm for the next event, posted from native templates
+            try {
+                await clearLegacyReminders();
+                await WidgetBridge.setReminders({
+                    reminderMinutes: hasNotificationPerm ? options.notifSettings.reminderMinutes : 0,
+                    preAdhan: hasNotificationPerm && options.preAzanReminder,
+                });
+            } catch (e) {
+                console.error("[PrayerScheduleService] Failed to configure reminders", e);
             }
 
             console.log(`[PrayerScheduleService] Scheduled ${scheduledCount} prayers.`);
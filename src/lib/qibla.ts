@@ -0,0 +1,25 @@
+import { registerPlugin, PluginListenerHandle } from '@capacitor/core';
+
+export type CompassAccuracy = "unreliable" | "low" | "medium" | "high";
+
+export interface QiblaPlugin {
+    /**
+     * Streams the filtered true-north heading from the rotation-vector sensor. Events are sent
+     * only when the heading moves by at least `threshold` degrees, at most `maxRate` per second.
+     */
+    start(options: {
+        latitude: number;
+        longitude: number;
+        /** Degrees; defaults to 1 */
+        threshold?: number;
+        /** Events per second; defaults to 30 */
+        maxRate?: number;
+    }): Promise<{ bearing: number; declination: number }>;
+    stop(): Promise<void>;
+    addListener(eventName: 'heading', listener: (event: { heading: number; headingAccuracy?: number }) => void): Promise<PluginListenerHandle>;
+    addListener(eventName: 'accuracy', listener: (event: { accuracy: CompassAccuracy; needsCalibration: boolean }) => void): Promise<PluginListenerHandle>;
+}
+
+const Qibla = registerPlugin<QiblaPlugin>('Qibla');
+
+export default Qibla;
@@ -0,0 +1,55 @@
+import { registerPlugin } from '@capacitor/core';
+
+export interface QuranTextSajda {
+    id: number;
+    recommended: boolean;
+    obligatory: boolean;
+}
+
+export interface QuranTextAyah {
+    number: number;
+    numberInSurah: number;
+    text: string;
+    juz: number;
+    manzil: number;
+    page: number;
+    ruku: number;
+    hizbQuarter: number;
+    sajda: boolean | QuranTextSajda;
+}
+
+export interface QuranTextSurah {
+    number: number;
+    name: string;
+    englishName: string;
+    englishNameTranslation: string;
+    revelationType: string;
+    numberOfAyahs: number;
+}
+
+export interface QuranSearchHit {
+    surah: QuranTextSurah;
+    number: number;
+    numberInSurah: number;
+    text: string;
+    score: number;
+}
+
+export interface QuranTextPlugin {
+    getAyahs(options: {
+        edition?: "simple" | "warsh";
+        surah: number;
+        from?: number;
+        to?: number;
+    }): Promise<{ surah: QuranTextSurah; ayahs: QuranTextAyah[] }>;
+    /** Ranked, diacritic-insensitive search; pass nextOffset back for the next page. */
+    searchQuran(options: {
+        query: string;
+        limit?: number;
+        offset?: number;
+    }): Promise<{ hits: QuranSearchHit[]; total: number; nextOffset?: number }>;
+}
+
+const QuranText = registerPlugin<QuranTextPlugin>('QuranText');
+
+export default QuranText;
@@ -0,0 +1,36 @@
+import { registerPlugin, PluginListenerHandle } from '@capacitor/core';
+
+export type RecitationState = "buffering" | "playing" | "paused" | "ended" | "stopped" | "error";
+
+export interface RecitationPlugin {
+    /**
+     * Recites a surah natively, one URL per ayah, downloading ahead and chaining players so
+     * ayahs follow each other without a gap. Keeps playing with the screen off.
+     */
+    play(options: {
+        surah: number;
+        urls: string[];
+        ayah?: number;
+        title?: string;
+        /** Directory.Data path holding a downloaded copy of the surah, if any */
+        downloadedDir?: string;
+    }): Promise<void>;
+    pause(): Promise<void>;
+    resume(): Promise<void>;
+    seekTo(options: { ayah: number }): Promise<void>;
+    stop(): Promise<void>;
+    getCacheStats(): Promise<{
+        hits: number;
+        misses: number;
+        downloads: number;
+        evictions: number;
+        entries: number;
+        bytes: number;
+    }>;
+    addListener(eventName: 'ayahChange', listener: (event: { surah: number; ayah: number }) => void): Promise<PluginListenerHandle>;
+    addListener(eventName: 'stateChange', listener: (event: { state: RecitationState }) => void): Promise<PluginListenerHandle>;
+}
+
+const Recitation = registerPlugin<RecitationPlugin>('Recitation');
+
+export default Recitation;
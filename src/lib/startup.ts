@@ -0,0 +1,27 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
+
+export interface StartupLaunch {
+    type: "cold" | "warm";
+    /** Wall-clock time of the launch origin */
+    timestamp: number;
+    /** Milestone name to milliseconds since process start (cold) or activity creation (warm) */
+    milestones: Record<string, number>;
+}
+
+export interface StartupPlugin {
+    mark(options: { name: string }): Promise<void>;
+    getStartupMetrics(): Promise<{ current?: StartupLaunch; history: StartupLaunch[] }>;
+}
+
+const Startup = registerPlugin<StartupPlugin>('Startup');
+
+const marked = new Set<string>();
+
+/** Reports a startup milestone once per page load; only the first call per name counts. */
+export const markStartup = (name: string) => {
+    if (!Capacitor.isNativePlatform() || marked.has(name)) return;
+    marked.add(name);
+    Startup.mark({ name }).catch(() => { /* older native build */ });
+};
+
+export default Startup;
@@ -1,4 +1,4 @@
-import { Capacitor, CapacitorHttp } from '@capacitor/core';
+import { Capacitor, CapacitorHttp, registerPlugin } from '@capacitor/core';
 
 export interface TafsirResponse {
     id: number;
@@ -8,6 +8,30 @@ export interface TafsirResponse {
     footnotes: string;
 }
 
+export interface TafsirCacheStats {
+    hits: number;
+    misses: number;
+    downloads: number;
+    evictions: number;
+    entries: number;
+    bytes: number;
+}
+
+interface TafsirPlugin {
+    /** Served from the on-disk cache when possible; prefetches the rest of the surah by default. */
+    getTafsir(options: { surah: number; ayah: number; prefetch?: boolean }): Promise<{
+        id: number;
+        sura: number;
+        aya: number;
+        text?: string;
+        cached: boolean;
+    }>;
+    prefetchSurah(options: { surah: number }): Promise<void>;
+    getCacheStats(): Promise<TafsirCacheStats>;
+}
+
+export const Tafsir = registerPlugin<TafsirPlugin>('Tafsir');
+
 const API_BASE_URL = "http://api.quran-tafseer.com/tafseer";
 const TAFSIR_ID = 6; // Al-Mukhtasar fi Tafsir al-Quran
 
@@ -16,6 +40,20 @@ export const fetchTafsir = async (surah: number, ayah: number): Promise<TafsirRe
     // Endpoint: /tafseer/{tafseer_id}/{sura_number}/{ayah_number}
     const url = `${API_BASE_URL}/${TAFSIR_ID}/${surah}/${ayah}`;
 
+    if (isNative) {
+        try {
+            const result = await Tafsir.getTafsir({ surah, ayah });
+            if (!result.text) return null;
+            return { id: result.id, sura: surah, aya: ayah, text: result.text, footnotes: "" };
+        } catch (error) {
+            // Older native builds don't have the plugin; fall back to a direct request
+            if ((error as { code?: string })?.code !== "UNIMPLEMENTED") {
+                console.error("Failed to fetch Tafsir:", error);
+                throw error;
+            }
+        }
+    }
+
     try {
         let data;
 
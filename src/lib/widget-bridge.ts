@@ -1,5 +1,50 @@
 import { registerPlugin } from '@capacitor/core';
 
+export interface AlarmDelayStats {
+    count: number;
+    p50: number;
+    p90: number;
+    p99: number;
+    max: number;
+}
+
+export interface AlarmStats {
+    total: number;
+    played: number;
+    silenced: number;
+    failed: number;
+    missed: number;
+    /** Deliveries dropped because the same prayer was already playing or queued */
+    duplicates: number;
+    incomplete: number;
+    late: number;
+    /** Scheduled time to AdhanReceiver */
+    fireDelay: AlarmDelayStats;
+    /** AdhanReceiver to AdhanService start */
+    serviceDelay: AlarmDelayStats;
+    /** AdhanReceiver to first sound */
+    audioDelay: AlarmDelayStats;
+    /** Scheduled time to first sound */
+    totalDelay: AlarmDelayStats;
+    byBucket: Record<string, number>;
+    /** Days ahead the native refill job keeps the schedule filled */
+    horizonDays: number;
+    /** Last run of the refill job, or null if it hasn't run yet */
+    lastRefill: number | null;
+    recent: {
+        prayerName: string;
+        scheduledAt: number;
+        outcome: "played" | "silenced" | "failed" | "missed" | "duplicate" | "incomplete";
+        fireDelay?: number;
+        serviceDelay?: number;
+        audioDelay?: number;
+        bucket?: string;
+        deviceIdle?: boolean;
+        powerSave?: boolean;
+        batteryExempt?: boolean;
+    }[];
+}
+
 export interface WidgetBridgePlugin {
     updateWidgetData(options: {
         fajr: string;
@@ -11,6 +56,7 @@ export interface WidgetBridgePlugin {
         nextPrayerTime: string;
         hijriDate: string;
         locationName: string;
+        prayerTimestamps?: number[];
     }): Promise<void>;
     openBatterySettings(): Promise<void>;
     scheduleAdhan(options: {
@@ -19,14 +65,48 @@ export interface WidgetBridgePlugin {
         soundName: string;
     }): Promise<void>;
     cancelAdhan(options: { prayerName: string }): Promise<void>;
+    replaceAdhanSchedule(options: {
+        alarms: { prayerName: string; timestamp: number; soundName: string }[];
+        enabled?: boolean;
+    }): Promise<{ armed: number; unchanged: number; cancelled: number }>;
+    setRollingAlarms(options: { enabled: boolean }): Promise<void>;
+    /** Notifications derived from the Adhan schedule; minutes of 0 turn one off. */
+    setReminders(options: {
+        reminderMinutes: number;
+        preAdhan: boolean;
+        postPrayerMinutes?: number;
+    }): Promise<void>;
+    /** Language of every native notification; stored natively so alarms use it with the app closed. */
+    setNotificationLanguage(options: { language: "ar" | "en" }): Promise<void>;
+    setPrayerSettings(options: {
+        latitude: number;
+        longitude: number;
+        calculationMethod: number;
+        madhab: "shafi" | "hanafi";
+        enabledPrayers: { fajr: boolean; dhuhr: boolean; asr: boolean; maghrib: boolean; isha: boolean };
+        soundName: string;
+        enabled: boolean;
+        /** Days the native refill job keeps scheduled (1-30, default 7) */
+        horizonDays?: number;
+    }): Promise<void>;
+    getNativePrayerTimes(options: { days: number }): Promise<{
+        days: { fajr: number | null; sunrise: number | null; dhuhr: number | null; asr: number | null; maghrib: number | null; isha: number | null }[];
+    }>;
     scheduleAlarm(options: { timestamp: number; soundName?: string }): Promise<void>;
     stopAlarm(): Promise<void>;
-    getPendingAlarms(): Promise<{ alarms: { prayerName: string; timestamp: number; soundName: string }[] }>;
+    getPendingAlarms(): Promise<{ alarms: { id: number; prayerName: string; timestamp: number; soundName: string }[] }>;
+    /** Delivery telemetry from the on-device alarm journal; delays are in milliseconds. */
+    getAlarmStats(options?: { recent?: number }): Promise<AlarmStats>;
     pickRingtone(): Promise<{ uri: string; title: string }>;
     getCustomRingtone(): Promise<{ uri: string | null; title: string | null }>;
+    /** Plays a recording through the native Adhan player; ignored while a real Adhan plays. */
+    previewAdhan(options: { soundName: string }): Promise<void>;
+    /** Stops a preview or a playing Adhan. */
+    stopAdhan(): Promise<void>;
     setAzanVolume(options: { volume: number }): Promise<void>;
     setSmartDnd(options: { enabled: boolean }): Promise<void>;
-    setAzanFadeIn(options: { enabled: boolean }): Promise<void>;
+    setAzanFadeIn(options: { enabled: boolean; curve?: "linear" | "exponential" | "logarithmic" | "scurve"; durationMs?: number }): Promise<void>;
+    setAzanPcmCache(options: { enabled: boolean }): Promise<void>;
 }
 
 const WidgetBridge = registerPlugin<WidgetBridgePlugin>('WidgetBridge');
@@ -13,5 +13,8 @@ import App from "./App.tsx";
 import "./index.css";
 import "@fontsource/amiri";
 import "@fontsource/poppins";
+import { hydrateStore } from "./lib/kv-store";
 
+// Loads alongside the first render; components reading persisted state suspend until it is in
+hydrateStore();
 createRoot(document.getElementById("root")!).render(<App />);
@@ -1,4 +1,4 @@
-import { useState, useEffect } from "react";
+import { useState, useEffect, Suspense } from "react";
 import { useNavigate } from "react-router-dom";
 import { useLanguage } from "@/contexts/LanguageContext";
 import { toast } from "sonner";
@@ -250,7 +250,10 @@ const Index = () => {
         role="main"
         aria-label={language === "ar" ? "المحتوى الرئيسي" : "Main content"}
       >
-        {renderContent()}
+        {/* Tabs backed by the persisted store wait here, not the whole page, until it has loaded */}
+        <Suspense fallback={null}>
+          {renderContent()}
+        </Suspense>
       </main>
 
       {/* Modern Floating Dock Navigation with Magnification */}